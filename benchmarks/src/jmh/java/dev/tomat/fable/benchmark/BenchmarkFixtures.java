@@ -0,0 +1,191 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.benchmark;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/** Generates the files which benchmarks read, so that every benchmark can run offline without any real mods. */
+final class BenchmarkFixtures {
+
+	private BenchmarkFixtures() {}
+
+	/** Writes a jar which only contains generated classes, called "&lt;prefix&gt;/pkg&lt;n&gt;/Class&lt;n&gt;".
+	 *
+	 * @return The name of every class file in the jar. */
+	static List<String> writeClassJar(Path jar, String prefix, int classCount) throws IOException {
+		List<String> classFiles = new ArrayList<>(classCount);
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+			for (int i = 0; i < classCount; i++) {
+				String name = prefix + "/pkg" + (i % 20) + "/Class" + i;
+				zip.putNextEntry(new ZipEntry(name + ".class"));
+				zip.write(generateClass(name, i));
+				zip.closeEntry();
+				classFiles.add(name + ".class");
+			}
+		}
+		return classFiles;
+	}
+
+	static byte[] generateClass(String name, int index) {
+		return generateClass(name, index, null);
+	}
+
+	/** @param memberAnnotation Null, or the descriptor of an annotation which is added to every fourth method, and
+	 *            to every third of 10 extra fields. */
+	static byte[] generateClass(String name, int index, String memberAnnotation) {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+		writer.visitSource(name.substring(name.lastIndexOf('/') + 1) + ".java", null);
+
+		if (memberAnnotation != null) {
+			for (int i = 0; i < 10; i++) {
+				FieldVisitor field = writer.visitField(Opcodes.ACC_PUBLIC, "field" + i, "I", null, null);
+				if (i % 3 == index % 3) {
+					field.visitAnnotation(memberAnnotation, true).visitEnd();
+				}
+				field.visitEnd();
+			}
+		}
+
+		for (int i = 0; i < 5 + index % 25; i++) {
+			MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "method" + i, "(ILjava/lang/String;)I", null, null);
+			if (memberAnnotation != null && i % 4 == index % 4) {
+				method.visitAnnotation(memberAnnotation, true).visitEnd();
+			}
+			method.visitCode();
+			for (int j = 0; j < 5 + (index + i) % 15; j++) {
+				method.visitVarInsn(Opcodes.ILOAD, 1);
+				method.visitLdcInsn("constant " + j + " of " + name);
+				method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+				method.visitInsn(Opcodes.IADD);
+				method.visitVarInsn(Opcodes.ISTORE, 1);
+			}
+			method.visitVarInsn(Opcodes.ILOAD, 1);
+			method.visitInsn(Opcodes.IRETURN);
+			method.visitMaxs(0, 0);
+			method.visitEnd();
+		}
+
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	/** Generates a quilt.mod.json which uses most of the fields a real mod would. Mods depend on a few of the mods
+	 * before them, so a set of these forms a plausible dependency graph. */
+	static String generateQuiltModJson(int index) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n");
+		sb.append("  \"schema_version\": 1,\n");
+		sb.append("  \"quilt_loader\": {\n");
+		sb.append("    \"group\": \"com.example\",\n");
+		sb.append("    \"id\": \"mod_").append(index).append("\",\n");
+		sb.append("    \"version\": \"").append(1 + index % 3).append('.').append(index % 10).append(".0+build.").append(index).append("\",\n");
+		sb.append("    \"metadata\": {\n");
+		sb.append("      \"name\": \"Example Mod ").append(index).append("\",\n");
+		sb.append("      \"description\": \"A generated mod, used to benchmark reading quilt.mod.json files.\",\n");
+		sb.append("      \"contributors\": {\n");
+		sb.append("        \"Author ").append(index).append("\": \"Owner\",\n");
+		sb.append("        \"Someone Else\": [\"Developer\", \"Artist\"]\n");
+		sb.append("      },\n");
+		sb.append("      \"contact\": {\n");
+		sb.append("        \"homepage\": \"https://example.com/mod_").append(index).append("\",\n");
+		sb.append("        \"issues\": \"https://example.com/mod_").append(index).append("/issues\"\n");
+		sb.append("      },\n");
+		sb.append("      \"license\": \"MIT\",\n");
+		sb.append("      \"icon\": \"assets/mod_").append(index).append("/icon.png\"\n");
+		sb.append("    },\n");
+		sb.append("    \"intermediate_mappings\": \"net.fabricmc:intermediary\",\n");
+		sb.append("    \"entrypoints\": {\n");
+		sb.append("      \"init\": \"com.example.mod").append(index).append(".ExampleMod\",\n");
+		sb.append("      \"client_init\": [\"com.example.mod").append(index).append(".client.ExampleModClient\"]\n");
+		sb.append("    },\n");
+		sb.append("    \"depends\": [\n");
+		sb.append("      { \"id\": \"quilt_loader\", \"versions\": \">=0.19.0\" },\n");
+		sb.append("      { \"id\": \"minecraft\", \"versions\": \">=1.20.1\" }");
+		for (int i = 1; i <= index % 4 && i <= index; i++) {
+			sb.append(",\n      { \"id\": \"mod_").append(index - i).append("\", \"versions\": \"^1.0.0\"");
+			if (i == 3) {
+				sb.append(", \"optional\": true");
+			}
+			sb.append(" }");
+		}
+		sb.append("\n    ],\n");
+		sb.append("    \"breaks\": [\n");
+		sb.append("      { \"id\": \"incompatible_mod\", \"versions\": \"<2.0.0\", \"reason\": \"Crashes on startup\" }\n");
+		sb.append("    ]\n");
+		sb.append("  },\n");
+		sb.append("  \"mixin\": \"mod_").append(index).append(".mixins.json\",\n");
+		sb.append("  \"minecraft\": {\n");
+		sb.append("    \"environment\": \"*\"\n");
+		sb.append("  }\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/** Reads every class file from the jar or folder that the given class was loaded from. These are used where a
+	 * benchmark needs real classes (compiled by javac, with real constant pools and stack maps) rather than generated
+	 * ones. */
+	static List<byte[]> readClassesNextTo(Class<?> cls) throws IOException {
+		Path source;
+		try {
+			source = Paths.get(cls.getProtectionDomain().getCodeSource().getLocation().toURI());
+		} catch (URISyntaxException e) {
+			throw new IOException("Can't find where " + cls + " was loaded from", e);
+		}
+
+		if (Files.isDirectory(source)) {
+			return readClasses(source);
+		}
+
+		try (FileSystem fs = FileSystems.newFileSystem(source, (ClassLoader) null)) {
+			return readClasses(fs.getPath("/"));
+		}
+	}
+
+	private static List<byte[]> readClasses(Path root) throws IOException {
+		List<Path> files;
+		try (Stream<Path> stream = Files.walk(root)) {
+			files = stream.filter(p -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+		}
+
+		List<byte[]> classes = new ArrayList<>(files.size());
+		for (Path file : files) {
+			if (!file.getFileName().toString().equals("module-info.class")) {
+				classes.add(Files.readAllBytes(file));
+			}
+		}
+		return classes;
+	}
+}
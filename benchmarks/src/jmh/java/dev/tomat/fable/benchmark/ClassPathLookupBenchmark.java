@@ -0,0 +1,127 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quiltmc.loader.impl.filesystem.QuiltClassPath;
+import org.quiltmc.loader.impl.filesystem.QuiltZipFileSystem;
+
+/** Measures {@link QuiltClassPath#findResource(String)} on a class path made up of many mod jars, for both files which
+ * are present (as class loading asks for) and files which aren't (as resource lookups and package checks often do).
+ * <p>
+ * {@link #frozen} controls whether {@link QuiltClassPath#freeze()} is called after every mod has been added, which is
+ * what the loader does once mod loading finishes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ClassPathLookupBenchmark {
+
+	private static final int CLASSES_PER_MOD = 200;
+
+	@Param({ "20", "200" })
+	public int modCount;
+
+	@Param({ "false", "true" })
+	public boolean frozen;
+
+	private Path folder;
+	private final List<QuiltZipFileSystem> fileSystems = new ArrayList<>();
+	private QuiltClassPath classPath;
+	private String[] present;
+	private String[] missing;
+	private int next;
+
+	@Setup
+	public void createClassPath() throws IOException {
+		folder = Files.createTempDirectory("fable-class-path-benchmark");
+		classPath = new QuiltClassPath();
+		List<String> presentList = new ArrayList<>();
+
+		for (int mod = 0; mod < modCount; mod++) {
+			Path jar = folder.resolve("mod" + mod + ".jar");
+			presentList.addAll(BenchmarkFixtures.writeClassJar(jar, "mod" + mod, CLASSES_PER_MOD));
+			QuiltZipFileSystem fs = new QuiltZipFileSystem("class-path-benchmark-" + mod, jar, "");
+			fileSystems.add(fs);
+			classPath.addRoot(fs.getRoot());
+		}
+
+		if (frozen) {
+			classPath.freeze();
+		}
+
+		// Shuffle deterministically, so consecutive lookups don't hit neighbouring buckets
+		present = presentList.toArray(new String[0]);
+		Collections.shuffle(Arrays.asList(present), new Random(42));
+
+		missing = new String[present.length];
+		for (int i = 0; i < present.length; i++) {
+			missing[i] = present[i].replace(".class", "Missing.class");
+		}
+	}
+
+	@TearDown
+	public void delete() throws IOException {
+		for (QuiltZipFileSystem fs : fileSystems) {
+			fs.close();
+		}
+		for (int mod = 0; mod < modCount; mod++) {
+			Files.delete(folder.resolve("mod" + mod + ".jar"));
+		}
+		Files.delete(folder);
+	}
+
+	private int nextIndex() {
+		int index = next;
+		next = (index + 1) % present.length;
+		return index;
+	}
+
+	@Benchmark
+	public Path findPresent() {
+		return classPath.findResource(present[nextIndex()]);
+	}
+
+	@Benchmark
+	public Path findMissing() {
+		return classPath.findResource(missing[nextIndex()]);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.quiltmc.loader.impl.filesystem.QuiltClassPath;
+import org.quiltmc.loader.impl.filesystem.QuiltZipFileSystem;
+import org.quiltmc.loader.impl.util.FileUtil;
+import org.quiltmc.loader.impl.util.UrlUtil;
+
+/** Measures the number of class files which can be found, read, and matched to the mod they came from per second.
+ * <p>
+ * {@link #urlLoad(Blackhole)} is the route knot used to take for every class: turn the path from the
+ * {@link QuiltClassPath} into a url, read the class through the url, and then find the code source by cutting the
+ * class file name off the url. {@link #pathLoad(Blackhole)} is the current route, which reads the path directly and
+ * gets the code source from the class path index. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ClassResourceLoadBenchmark {
+
+	@Param({ "500", "3000" })
+	public int classCount;
+
+	private Path folder;
+	private Path jar;
+	private QuiltZipFileSystem fs;
+	private QuiltClassPath classPath;
+	private final Map<String, Object> metadataCache = new HashMap<>();
+	private final List<String> classFiles = new ArrayList<>();
+	private int next;
+
+	@Setup
+	public void createClassPath() throws IOException {
+		folder = Files.createTempDirectory("fable-class-load-benchmark");
+		jar = folder.resolve("mod.jar");
+
+		classFiles.addAll(BenchmarkFixtures.writeClassJar(jar, "com/example/mod", classCount));
+
+		fs = new QuiltZipFileSystem("class-load-benchmark", jar, "");
+		Object metadata = new Object();
+		classPath = new QuiltClassPath();
+		classPath.addRoot(fs.getRoot(), metadata);
+		metadataCache.put(UrlUtil.asUrl(fs.getRoot()).toString(), metadata);
+	}
+
+	@TearDown
+	public void delete() throws IOException {
+		fs.close();
+		Files.delete(jar);
+		Files.delete(folder);
+	}
+
+	private String nextClassFile() {
+		String fileName = classFiles.get(next);
+		next = (next + 1) % classFiles.size();
+		return fileName;
+	}
+
+	@Benchmark
+	public void urlLoad(Blackhole bh) throws Exception {
+		String fileName = nextClassFile();
+		URL url = UrlUtil.asUrl(classPath.findResource(fileName));
+		try (InputStream stream = url.openStream()) {
+			bh.consume(FileUtil.readAllBytes(stream));
+		}
+		URL codeSource = UrlUtil.getSource(fileName, url);
+		bh.consume(metadataCache.get(codeSource.toString()));
+	}
+
+	@Benchmark
+	public void pathLoad(Blackhole bh) throws IOException {
+		Path path = classPath.findResource(nextClassFile());
+		bh.consume(QuiltClassPath.readAllBytes(path));
+		bh.consume(classPath.getSource(path));
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quiltmc.loader.api.minecraft.ClientOnly;
+import org.quiltmc.loader.impl.filesystem.QuiltUnifiedFileSystem;
+import org.quiltmc.loader.impl.transformer.QuiltTransformer;
+import org.quiltmc.loader.impl.transformer.TransformWorkers;
+import org.quiltmc.loader.impl.util.LoaderUtil;
+
+import net.fabricmc.accesswidener.AccessWidener;
+import net.fabricmc.api.EnvType;
+
+/** Measures how long a cold transform cache takes to strip every class, as the number of mods grows.
+ * <p>
+ * Every mod contains the same number of generated classes, some of which have {@link ClientOnly} members (which are
+ * stripped, since this runs as a dedicated server). The classes are read from and written back to a
+ * {@link QuiltUnifiedFileSystem}, the same as the real transform cache. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ColdTransformCacheBenchmark {
+
+	private static final int CLASSES_PER_MOD = 250;
+	private static final String CLIENT_ONLY = Type.getDescriptor(ClientOnly.class);
+	private static final AccessWidener EMPTY_ACCESS_WIDENER = new AccessWidener();
+
+	@Param({ "10", "50", "200" })
+	public int modCount;
+
+	/** 0 uses {@link TransformWorkers#getThreadCount()}. */
+	@Param({ "1", "0" })
+	public int threads;
+
+	private QuiltUnifiedFileSystem fs;
+	private List<Path> classFiles;
+
+	@Setup(Level.Invocation)
+	public void populate() throws IOException {
+		fs = new QuiltUnifiedFileSystem("benchmark", true);
+		classFiles = new ArrayList<>();
+		for (int mod = 0; mod < modCount; mod++) {
+			for (int cls = 0; cls < CLASSES_PER_MOD; cls++) {
+				String name = "mod" + mod + "/pkg" + (cls % 10) + "/Class" + cls;
+				Path file = fs.getRoot().resolve("mod" + mod).resolve(name + ".class");
+				Files.createDirectories(file.getParent());
+				Files.write(file, BenchmarkFixtures.generateClass(name, cls, CLIENT_ONLY));
+				classFiles.add(file);
+			}
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void close() throws IOException {
+		fs.close();
+	}
+
+	@Benchmark
+	public void transform() throws IOException {
+		int threadCount = threads == 0 ? TransformWorkers.getThreadCount() : threads;
+		TransformWorkers.forEach(classFiles, threadCount, file -> {
+			byte[] result = strip(LoaderUtil.getClassNameFromTransformCache(file.toString()), Files.readAllBytes(file));
+			if (result != null) {
+				Files.write(file, result);
+			}
+		});
+	}
+
+	/** Runs the transformer on a mod class, as the transform cache does for a dedicated server. */
+	private static byte[] strip(String name, byte[] bytes) {
+		return QuiltTransformer.transform(false, false, false, EnvType.SERVER, Collections.emptySet(), EMPTY_ACCESS_WIDENER, name, bytes);
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.quiltmc.loader.impl.util.FileHasherImpl;
+import org.quiltmc.loader.impl.util.HashUtil;
+
+/** Measures computing the origin hash of every mod file, as done before the transform cache is checked. The files are
+ * random bytes, since hashing doesn't care about their contents. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ModHashBenchmark {
+
+	@Param({ "50", "300" })
+	public int modCount;
+
+	private Path folder;
+	private List<Path> mods;
+
+	@Setup
+	public void createMods() throws IOException {
+		folder = Files.createTempDirectory("fable-hash-benchmark");
+		mods = new ArrayList<>();
+		Random random = new Random(42);
+		for (int i = 0; i < modCount; i++) {
+			// Most mods are a few hundred kilobytes, with the occasional large library
+			byte[] bytes = new byte[i % 25 == 0 ? 8 << 20 : 64 * 1024 + random.nextInt(1 << 20)];
+			random.nextBytes(bytes);
+			Path mod = folder.resolve("mod" + i + ".jar");
+			Files.write(mod, bytes);
+			mods.add(mod);
+		}
+	}
+
+	@TearDown
+	public void delete() throws IOException {
+		for (Path mod : mods) {
+			Files.delete(mod);
+		}
+		Files.delete(folder);
+	}
+
+	/** How files used to be hashed: a new digest per file, fed through a small stream buffer. */
+	@Benchmark
+	public void streamDigest(Blackhole bh) throws IOException, NoSuchAlgorithmException {
+		byte[] buffer = new byte[0x2000];
+		for (Path mod : mods) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			try (InputStream stream = Files.newInputStream(mod)) {
+				int count;
+				while ((count = stream.read(buffer)) > 0) {
+					digest.update(buffer, 0, count);
+				}
+			}
+			bh.consume(digest.digest());
+		}
+	}
+
+	@Benchmark
+	public void hashUtil(Blackhole bh) throws IOException {
+		for (Path mod : mods) {
+			bh.consume(HashUtil.computeHash(mod));
+		}
+	}
+
+	/** Every mod hashed on several threads, as quilt-loader does before checking the transform cache. */
+	@Benchmark
+	public void fileHasherParallel(Blackhole bh) throws IOException {
+		FileHasherImpl hasher = new FileHasherImpl(null);
+		hasher.computeNormalHashes(mods);
+		bh.consume(hasher.pathHashCache);
+	}
+}
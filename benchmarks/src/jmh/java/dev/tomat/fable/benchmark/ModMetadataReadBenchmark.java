@@ -0,0 +1,77 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.quiltmc.loader.impl.metadata.qmj.JsonLoaderFactoryImpl;
+import org.quiltmc.loader.impl.metadata.qmj.ModMetadataReader;
+import org.quiltmc.loader.impl.metadata.qmj.V1ModMetadataReader;
+
+/** Measures reading generated quilt.mod.json files into metadata, as mod discovery does. {@link #parseOnly(Blackhole)}
+ * only parses the json, so the difference between the two is the time spent in {@link V1ModMetadataReader}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ModMetadataReadBenchmark {
+
+	private static final int FILE_COUNT = 100;
+
+	private byte[][] files;
+
+	@Setup
+	public void generateFiles() {
+		files = new byte[FILE_COUNT][];
+		for (int i = 0; i < FILE_COUNT; i++) {
+			files[i] = BenchmarkFixtures.generateQuiltModJson(i).getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	/** Reads {@link #FILE_COUNT} files. */
+	@Benchmark
+	public void read(Blackhole bh) throws IOException {
+		for (byte[] file : files) {
+			bh.consume(ModMetadataReader.read(new ByteArrayInputStream(file), null, null, null));
+		}
+	}
+
+	/** Parses {@link #FILE_COUNT} files. */
+	@Benchmark
+	public void parseOnly(Blackhole bh) throws IOException {
+		for (byte[] file : files) {
+			bh.consume(JsonLoaderFactoryImpl.INSTANCE.read(new ByteArrayInputStream(file)));
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quiltmc.loader.api.gui.QuiltLoaderText;
+import org.quiltmc.loader.api.plugin.solver.LoadOption;
+import org.quiltmc.loader.api.plugin.solver.Rule;
+import org.quiltmc.loader.api.plugin.solver.RuleDefiner;
+import org.quiltmc.loader.impl.solver.Sat4jWrapper;
+
+/** Measures how long {@link Sat4jWrapper} takes to find and optimise a solution (which includes running the
+ * pre-processor over the rules) for a generated set of mods.
+ * <p>
+ * Each mod has between one and three versions, with the same rules and weights as quilt.mod.json mods: at most one
+ * version of each mod (exactly one for the three quarters of mods which are not libraries), newer versions preferred,
+ * and dependencies on a few of the mods before it. A few mods also break old versions of another mod. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ModSolverBenchmark {
+
+	@Param({ "100", "500", "2000" })
+	public int modCount;
+
+	/** 0 uses the default number of optimisation threads. */
+	@Param({ "1", "0" })
+	public int threads;
+
+	private Sat4jWrapper solver;
+
+	@Setup(Level.Invocation)
+	public void defineRules() {
+		solver = new Sat4jWrapper();
+		if (threads > 0) {
+			solver.setOptimisationThreads(threads);
+		}
+
+		Random random = new Random(42);
+		List<LoadOption[]> mods = new ArrayList<>(modCount);
+
+		for (int mod = 0; mod < modCount; mod++) {
+			LoadOption[] versions = new LoadOption[1 + mod % 3];
+			for (int version = 0; version < versions.length; version++) {
+				versions[version] = new BenchmarkOption("mod_" + mod + " v" + version);
+				solver.addOption(versions[version]);
+			}
+			mods.add(versions);
+
+			boolean library = mod % 4 == 0;
+			Rule idRule = new BenchmarkRule("mod_" + mod, definer -> {
+				if (library) {
+					definer.atMost(1, versions);
+				} else {
+					definer.exactly(1, versions);
+				}
+			});
+			solver.addRule(idRule);
+
+			for (int version = 0; version < versions.length; version++) {
+				// The same as OptionalModIdDefintion: a positive weight for every version, lower for newer versions
+				solver.setWeight(versions[version], idRule, 1000 - version);
+			}
+
+			if (mod == 0) {
+				continue;
+			}
+
+			int depCount = 1 + random.nextInt(3);
+			for (int dep = 0; dep < depCount; dep++) {
+				LoadOption[] depVersions = mods.get(random.nextInt(mod));
+				int minVersion = random.nextInt(depVersions.length);
+
+				for (LoadOption version : versions) {
+					LoadOption[] options = new LoadOption[1 + depVersions.length - minVersion];
+					options[0] = version.negate();
+					System.arraycopy(depVersions, minVersion, options, 1, depVersions.length - minVersion);
+					solver.addRule(new BenchmarkRule(version + " depends on " + depVersions[0], definer -> {
+						definer.atLeastOneOf(options);
+					}));
+				}
+			}
+
+			if (mod % 50 == 7) {
+				LoadOption[] other = mods.get(random.nextInt(mod));
+				if (other.length > 1) {
+					LoadOption breaker = versions[versions.length - 1];
+					LoadOption broken = other[0];
+					solver.addRule(new BenchmarkRule(breaker + " breaks " + broken, definer -> {
+						definer.atMost(1, breaker, broken);
+					}));
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public Collection<LoadOption> solve() throws Exception {
+		if (!solver.hasSolution()) {
+			throw new IllegalStateException("The generated rules have no solution: " + solver.getError());
+		}
+		return solver.getSolution();
+	}
+
+	private static final class BenchmarkOption extends LoadOption {
+		private final String name;
+
+		BenchmarkOption(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public QuiltLoaderText describe() {
+			return QuiltLoaderText.of(name);
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private static final class BenchmarkRule extends Rule {
+		private final String name;
+		private final Consumer<RuleDefiner> definition;
+
+		BenchmarkRule(String name, Consumer<RuleDefiner> definition) {
+			this.name = name;
+			this.definition = definition;
+		}
+
+		@Override
+		public boolean onLoadOptionAdded(LoadOption option) {
+			return false;
+		}
+
+		@Override
+		public boolean onLoadOptionRemoved(LoadOption option) {
+			return false;
+		}
+
+		@Override
+		public void define(RuleDefiner definer) {
+			definition.accept(definer);
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+		@Override
+		public Collection<? extends LoadOption> getNodesFrom() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public Collection<? extends LoadOption> getNodesTo() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public void fallbackErrorDescription(StringBuilder errors) {
+			errors.append(name);
+		}
+
+		@Override
+		public void appendRuleDescription(Consumer<QuiltLoaderText> to) {
+			to.accept(QuiltLoaderText.of(name));
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.quiltmc.loader.impl.QuiltLoaderImpl;
+import org.quiltmc.loader.impl.transformer.QuiltTransformer;
+
+import net.fabricmc.accesswidener.AccessWidener;
+import net.fabricmc.accesswidener.AccessWidenerReader;
+import net.fabricmc.api.EnvType;
+
+/** Measures {@link QuiltTransformer}, on real classes (the loader and asm themselves) rather than
+ * generated ones.
+ * <p>
+ * "mod" is what happens to every mod class: it's scanned for environment annotations, and only rewritten if anything
+ * needs to be stripped. "game" is what happens to a game class targeted by an access widener when the package access
+ * hack is needed, so every class is always rewritten. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class RealClassTransformBenchmark {
+
+	@Param({ "mod", "game" })
+	public String target;
+
+	private List<byte[]> classes;
+	/** The name of each class in {@link #classes}, in the form the transformer expects. */
+	private List<String> names;
+	private AccessWidener accessWidener;
+
+	@Setup
+	public void readClasses() throws IOException {
+		classes = new ArrayList<>();
+		classes.addAll(BenchmarkFixtures.readClassesNextTo(QuiltLoaderImpl.class));
+		classes.addAll(BenchmarkFixtures.readClassesNextTo(ClassReader.class));
+
+		names = new ArrayList<>();
+		accessWidener = new AccessWidener();
+		for (byte[] bytes : classes) {
+			String name = new ClassReader(bytes).getClassName();
+			names.add(name.replace('/', '.'));
+			accessWidener.visitClass(name, AccessWidenerReader.AccessType.ACCESSIBLE, false);
+		}
+	}
+
+	@Benchmark
+	public void transformAll(Blackhole bh) {
+		boolean game = "game".equals(target);
+		for (int i = 0; i < classes.size(); i++) {
+			bh.consume(QuiltTransformer.transform(
+				game, game, false, EnvType.SERVER, Collections.emptySet(), accessWidener, names.get(i), classes.get(i)
+			));
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.quiltmc.loader.impl.filesystem.QuiltZipFileSystem;
+import org.quiltmc.loader.impl.util.FileUtil;
+
+/** Measures opening a mod jar as a {@link QuiltZipFileSystem}, and reading every entry of it compared to
+ * {@link ZipFile}.
+ * <p>
+ * The jar is generated to look like a typical mod: mostly small deflated classes, some json and lang files, and a few
+ * stored textures (since png files are already compressed, many build tools store them rather than deflating them). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ZipEntryReadBenchmark {
+
+	@Param({ "500", "3000" })
+	public int classCount;
+
+	private Path folder;
+	private Path jar;
+	private QuiltZipFileSystem fs;
+	private ZipFile zipFile;
+	private List<String> entries;
+
+	@Setup
+	public void createJar() throws IOException {
+		folder = Files.createTempDirectory("fable-zip-benchmark");
+		jar = folder.resolve("mod.jar");
+		entries = new ArrayList<>();
+		Random random = new Random(42);
+
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+			for (int i = 0; i < classCount; i++) {
+				String name = "com/example/mod/pkg" + (i % 20) + "/Class" + i;
+				write(zip, name + ".class", BenchmarkFixtures.generateClass(name, i), true);
+			}
+			for (int i = 0; i < classCount / 10; i++) {
+				StringBuilder json = new StringBuilder("{\n");
+				for (int j = 0; j < 30; j++) {
+					json.append("  \"key.example.").append(i).append('.').append(j).append("\": \"Value ").append(j).append("\",\n");
+				}
+				json.append("  \"end\": true\n}\n");
+				write(zip, "assets/example/lang/file" + i + ".json", json.toString().getBytes("UTF-8"), true);
+			}
+			for (int i = 0; i < classCount / 20; i++) {
+				byte[] texture = new byte[2048 + random.nextInt(16384)];
+				random.nextBytes(texture);
+				write(zip, "assets/example/textures/texture" + i + ".png", texture, false);
+			}
+		}
+
+		fs = new QuiltZipFileSystem("benchmark", jar, "");
+		zipFile = new ZipFile(jar.toFile());
+	}
+
+	@TearDown
+	public void delete() throws IOException {
+		fs.close();
+		zipFile.close();
+		Files.delete(jar);
+		Files.delete(folder);
+	}
+
+	/** Opening a mod jar, which reads its central directory and indexes every entry. */
+	@Benchmark
+	public void open(Blackhole bh) throws IOException {
+		try (QuiltZipFileSystem opened = new QuiltZipFileSystem("benchmark-open", jar, "")) {
+			bh.consume(opened.getRoot());
+		}
+	}
+
+	/** The path taken by class loading: open a stream and read all of it. */
+	@Benchmark
+	public void streamReadAllBytes(Blackhole bh) throws IOException {
+		for (String entry : entries) {
+			try (InputStream stream = Files.newInputStream(fs.getRoot().resolve(entry))) {
+				bh.consume(FileUtil.readAllBytes(stream));
+			}
+		}
+	}
+
+	/** Reads through a small buffer, as most resource loading does. */
+	@Benchmark
+	public void streamBuffered(Blackhole bh) throws IOException {
+		byte[] buffer = new byte[8192];
+		for (String entry : entries) {
+			try (InputStream stream = Files.newInputStream(fs.getRoot().resolve(entry))) {
+				int read;
+				while ((read = stream.read(buffer)) > 0) {
+					bh.consume(read);
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void filesReadAllBytes(Blackhole bh) throws IOException {
+		for (String entry : entries) {
+			bh.consume(Files.readAllBytes(fs.getRoot().resolve(entry)));
+		}
+	}
+
+	@Benchmark
+	public void jdkZipFile(Blackhole bh) throws IOException {
+		for (String entry : entries) {
+			try (InputStream stream = zipFile.getInputStream(zipFile.getEntry(entry))) {
+				bh.consume(FileUtil.readAllBytes(stream));
+			}
+		}
+	}
+
+	private void write(ZipOutputStream zip, String name, byte[] bytes, boolean deflate) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		if (!deflate) {
+			CRC32 crc = new CRC32();
+			crc.update(bytes);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(bytes.length);
+			entry.setCompressedSize(bytes.length);
+			entry.setCrc(crc.getValue());
+		}
+		zip.putNextEntry(entry);
+		zip.write(bytes);
+		zip.closeEntry();
+		entries.add(name);
+	}
+}
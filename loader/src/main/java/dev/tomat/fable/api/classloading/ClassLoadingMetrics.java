@@ -0,0 +1,61 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.api.classloading;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counters for every class that has been loaded by the game's class loader, grouped by the mod they were loaded from.
+ * This is meant for finding the mods which cause hitches when their classes are first used.
+ * <p/>
+ * Every method returns a snapshot, which doesn't change as more classes are loaded.
+ */
+public interface ClassLoadingMetrics {
+	/**
+	 * @return False if the metrics were disabled with a system property, in which case every other method returns
+	 *         empty stats.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * @return The stats for every class loaded.
+	 */
+	ClassLoadingStats getTotal();
+
+	/**
+	 * @return The stats for every mod which has had at least one class loaded, by mod id.
+	 */
+	Map<String, ClassLoadingStats> getByMod();
+
+	/**
+	 * @return The stats for classes which weren't loaded from any mod.
+	 */
+	ClassLoadingStats getWithoutMod();
+
+	/**
+	 * @return The classes which took the longest to load, slowest first. Only a limited number are kept.
+	 */
+	List<SlowClassLoad> getSlowestClasses();
+
+	/**
+	 * @return The counters of the opt-in cache of classes after mixin has been applied. These are kept even if the
+	 *         rest of the metrics are {@link #isEnabled() disabled}.
+	 */
+	MixinClassCacheStats getMixinClassCache();
+}
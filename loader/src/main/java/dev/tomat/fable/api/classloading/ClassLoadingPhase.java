@@ -0,0 +1,44 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.api.classloading;
+
+/**
+ * The steps that loading a single class is split into. The time spent in each phase excludes any other classes that
+ * had to be loaded during that phase (for example super classes, which are loaded while the class is defined).
+ */
+public enum ClassLoadingPhase {
+	/**
+	 * Finding the class file, and checking if the class is allowed to be loaded.
+	 */
+	RESOLVE,
+
+	/**
+	 * Reading the class file and running every {@link dev.tomat.fable.api.patching.Patch} on it.
+	 */
+	PATCH,
+
+	/**
+	 * Applying mixins to the class, or reading the result from the mixin class cache.
+	 */
+	MIXIN,
+
+	/**
+	 * Defining the package and the class itself.
+	 */
+	DEFINE
+}
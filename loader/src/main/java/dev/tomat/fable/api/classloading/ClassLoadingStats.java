@@ -0,0 +1,64 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.api.classloading;
+
+/**
+ * A snapshot of the counters for some group of classes, for example every class loaded from a single mod. Times are in
+ * nanoseconds, and only include the time spent on the classes themselves, not on any other classes which had to be
+ * loaded at the same time.
+ */
+public interface ClassLoadingStats {
+	/**
+	 * @return The number of classes loaded.
+	 */
+	long getClassCount();
+
+	/**
+	 * @return The total time spent loading the classes, across every phase.
+	 */
+	long getTotalNanos();
+
+	/**
+	 * @return The total time spent in a single phase of loading the classes.
+	 */
+	long getNanos(ClassLoadingPhase phase);
+
+	/**
+	 * @return The longest time spent loading a single class.
+	 */
+	long getMaxNanos();
+
+	/**
+	 * @return The number of classes which took at most the matching entry of {@link #getHistogramUpperBounds()} to
+	 *         load (and more than the previous entry).
+	 */
+	long[] getHistogram();
+
+	/**
+	 * @return The upper bound of every bucket in {@link #getHistogram()}, in nanoseconds. The last bucket is unbounded,
+	 *         and uses {@link Long#MAX_VALUE}. This is the same for every instance.
+	 */
+	long[] getHistogramUpperBounds();
+
+	/**
+	 * @param percentile Between 0 and 100.
+	 * @return An upper bound for the time it took to load the given percentile of classes, limited by the size of the
+	 *         histogram buckets. Returns 0 if no classes have been loaded.
+	 */
+	long getPercentileNanos(double percentile);
+}
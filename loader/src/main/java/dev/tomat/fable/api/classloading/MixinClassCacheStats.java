@@ -0,0 +1,57 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.api.classloading;
+
+/**
+ * A snapshot of the counters for the opt-in cache of classes after mixin has been applied to them. Classes loaded from
+ * this cache skip mixin entirely.
+ */
+public interface MixinClassCacheStats {
+	/**
+	 * @return False if the cache isn't being used, in which case every counter is 0.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * @return The number of classes which were loaded from the cache.
+	 */
+	long getHits();
+
+	/**
+	 * @return The number of classes which weren't in the cache, and so were transformed by mixin.
+	 */
+	long getMisses();
+
+	/**
+	 * @return The number of classes which were transformed by mixin but not stored, since mixin generated other
+	 *         classes for them (for example the arguments of a {@code @ModifyArgs} injector), which the cache can't
+	 *         recreate.
+	 */
+	long getUncacheable();
+
+	/**
+	 * @return The number of cached classes which were transformed by mixin anyway, to check the cached version.
+	 */
+	long getValidated();
+
+	/**
+	 * @return The number of {@link #getValidated() validated} classes whose cached version differed from the output of
+	 *         mixin.
+	 */
+	long getMismatches();
+}
@@ -0,0 +1,46 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.api.classloading;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single class which took a long time to load.
+ */
+public interface SlowClassLoad {
+	/**
+	 * @return The binary name of the class, using dot notation.
+	 */
+	String getClassName();
+
+	/**
+	 * @return The id of the mod that the class was loaded from, or null if it wasn't loaded from a mod.
+	 */
+	@Nullable
+	String getModId();
+
+	/**
+	 * @return The total time spent loading the class, across every phase.
+	 */
+	long getTotalNanos();
+
+	/**
+	 * @return The time spent in a single phase of loading the class.
+	 */
+	long getNanos(ClassLoadingPhase phase);
+}
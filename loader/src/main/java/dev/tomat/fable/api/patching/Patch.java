@@ -28,6 +28,40 @@ import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
 public abstract class Patch {
+	/**
+	 * @return The classes that this patch applies to. {@link #process(PatchContext)} is only called for classes within
+	 *         this target. Defaults to {@link PatchTarget#ALL}, however patches should override this to avoid being
+	 *         invoked for every class that is loaded.
+	 */
+	public PatchTarget getTarget() {
+		return PatchTarget.ALL;
+	}
+
+	/**
+	 * @return True if the output of this patch only depends on the class it's given, and on {@link #getId()} and
+	 *         {@link #getVersion()}. The output of deterministic patches is stored in the transform cache folder and
+	 *         reused on later launches, without calling {@link #process(PatchContext)} at all. Defaults to false.
+	 */
+	public boolean isDeterministic() {
+		return false;
+	}
+
+	/**
+	 * @return An identifier for this patch, which is unique within the mod that registers it. Defaults to the name of
+	 *         the patch class.
+	 */
+	public String getId() {
+		return getClass().getName();
+	}
+
+	/**
+	 * @return The version of this patch. Deterministic patches should change this whenever their output changes, since
+	 *         previously cached output is otherwise only discarded when the version of the registering mod changes.
+	 */
+	public String getVersion() {
+		return "1";
+	}
+
 	public void process(PatchContext context) {
 		throw new AbstractMethodError();
 	}
@@ -25,6 +25,10 @@ public interface PatchContext {
 
 	ClassReader getClassReader();
 
+	/**
+	 * @return The class being patched. This is only built when it's first requested, so patches which can reject a
+	 *         class from {@link #getClassReader()} alone should do so before calling this.
+	 */
 	ClassNode getClassNode();
 
 	boolean getPatched();
@@ -17,7 +17,9 @@
 
 package dev.tomat.fable.api.patching;
 
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.quiltmc.loader.api.ModContainer;
 
@@ -27,4 +29,12 @@ public interface PatchHandler {
 	Set<Patch> getPatches();
 
 	Set<Patch> getPatches(ModContainer mod);
+
+	/**
+	 * @return Every patch whose {@link Patch#getTarget() target} contains the class of the given context, in the order
+	 *         they were registered.
+	 */
+	default List<Patch> getPatches(PatchContext context) {
+		return getPatches().stream().filter(patch -> patch.getTarget().contains(context)).collect(Collectors.toList());
+	}
 }
@@ -0,0 +1,144 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.api.patching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * The set of classes that a {@link Patch} applies to. Patches are only invoked for classes within their target, so
+ * narrow targets let the loader skip reading (and building a {@link org.objectweb.asm.tree.ClassNode} for) every
+ * other class.
+ * <p/>
+ * Class and package names use dot notation, like {@link PatchContext#getClassName()}.
+ */
+public final class PatchTarget {
+	/**
+	 * Targets every class. This is the default for patches which don't declare a target.
+	 */
+	public static final PatchTarget ALL = new PatchTarget(true, Collections.emptySet(), Collections.emptyList(), null);
+
+	private final boolean all;
+	private final Set<String> classes;
+	private final List<String> packages;
+	@Nullable
+	private final Predicate<ClassReader> predicate;
+
+	private PatchTarget(boolean all, Set<String> classes, List<String> packages, @Nullable Predicate<ClassReader> predicate) {
+		this.all = all;
+		this.classes = classes;
+		this.packages = packages;
+		this.predicate = predicate;
+	}
+
+	/**
+	 * Targets exactly the given classes.
+	 */
+	public static PatchTarget classes(String... classNames) {
+		return new PatchTarget(false, Collections.unmodifiableSet(new HashSet<>(Arrays.asList(classNames))), Collections.emptyList(), null);
+	}
+
+	/**
+	 * Targets every class in the given packages, including their sub-packages.
+	 */
+	public static PatchTarget packages(String... packageNames) {
+		return new PatchTarget(false, Collections.emptySet(), Collections.unmodifiableList(Arrays.asList(packageNames)), null);
+	}
+
+	/**
+	 * Targets every class for which the predicate matches. The predicate is tested against the unmodified class
+	 * bytes, before any patch has run.
+	 */
+	public static PatchTarget matching(Predicate<ClassReader> predicate) {
+		return new PatchTarget(false, Collections.emptySet(), Collections.emptyList(), predicate);
+	}
+
+	/**
+	 * @return A target which contains every class from this target and the other target.
+	 */
+	public PatchTarget or(PatchTarget other) {
+		if (all || other.all) {
+			return ALL;
+		}
+
+		Set<String> newClasses = new HashSet<>(classes);
+		newClasses.addAll(other.classes);
+		List<String> newPackages = new ArrayList<>(packages);
+		newPackages.addAll(other.packages);
+		Predicate<ClassReader> newPredicate;
+
+		if (predicate == null) {
+			newPredicate = other.predicate;
+		} else if (other.predicate == null) {
+			newPredicate = predicate;
+		} else {
+			newPredicate = predicate.or(other.predicate);
+		}
+
+		return new PatchTarget(false, Collections.unmodifiableSet(newClasses), Collections.unmodifiableList(newPackages), newPredicate);
+	}
+
+	/**
+	 * @return True if the class of the given context is within this target.
+	 */
+	public boolean contains(PatchContext context) {
+		if (all) {
+			return true;
+		}
+
+		String className = context.getClassName();
+
+		if (classes.contains(className)) {
+			return true;
+		}
+
+		for (String packageName : packages) {
+			if (className.startsWith(packageName) && className.length() > packageName.length()
+					&& className.charAt(packageName.length()) == '.') {
+				return true;
+			}
+		}
+
+		return predicate != null && predicate.test(context.getClassReader());
+	}
+
+	public boolean isAll() {
+		return all;
+	}
+
+	public Set<String> getClasses() {
+		return classes;
+	}
+
+	public List<String> getPackages() {
+		return packages;
+	}
+
+	@Nullable
+	public Predicate<ClassReader> getPredicate() {
+		return predicate;
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.impl.classloading;
+
+import dev.tomat.fable.api.classloading.ClassLoadingPhase;
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+/** Times the phases of loading a single class. Timers nest per-thread, so when another class has to be loaded part way
+ * through (for example a super class while defining) its time is removed from the phase it happened in. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+public final class ClassLoadTimer {
+
+	static final ClassLoadTimer DISABLED = new ClassLoadTimer();
+
+	private static final ThreadLocal<ClassLoadTimer> CURRENT = new ThreadLocal<>();
+
+	private final ClassLoadingMetricsImpl metrics;
+	private final @Nullable ClassLoadTimer parent;
+	private final String name;
+	private final long startNanos;
+	private final long[] phaseNanos;
+
+	private int phase;
+	private long phaseStart;
+	/** Time spent loading other classes during the current phase. */
+	private long nestedNanos;
+	private boolean ended;
+
+	/** Constructor for {@link #DISABLED} */
+	private ClassLoadTimer() {
+		this.metrics = null;
+		this.parent = null;
+		this.name = "disabled";
+		this.startNanos = 0;
+		this.phaseNanos = null;
+		this.ended = true;
+	}
+
+	private ClassLoadTimer(ClassLoadingMetricsImpl metrics, @Nullable ClassLoadTimer parent, String name) {
+		this.metrics = metrics;
+		this.parent = parent;
+		this.name = name;
+		this.phaseNanos = new long[ClassLoadingPhase.values().length];
+		this.phase = ClassLoadingPhase.RESOLVE.ordinal();
+		this.startNanos = this.phaseStart = System.nanoTime();
+	}
+
+	static ClassLoadTimer begin(ClassLoadingMetricsImpl metrics, String name) {
+		ClassLoadTimer timer = new ClassLoadTimer(metrics, CURRENT.get(), name);
+		CURRENT.set(timer);
+		return timer;
+	}
+
+	/** Ends the current phase, and starts the given one. */
+	public void phase(ClassLoadingPhase next) {
+		if (ended) {
+			return;
+		}
+		long now = System.nanoTime();
+		endPhase(now);
+		phase = next.ordinal();
+		phaseStart = now;
+	}
+
+	private void endPhase(long now) {
+		phaseNanos[phase] += now - phaseStart - nestedNanos;
+		nestedNanos = 0;
+	}
+
+	/** Ends this timer. This must be called exactly once for every timer, normally in a finally block.
+	 *
+	 * @param defined True if the class was actually defined. If it wasn't then nothing is recorded, and the time is
+	 *            left in the phase of the class which caused this one to be loaded (if any).
+	 * @param modId The mod that the class was loaded from, or null. */
+	public void end(boolean defined, @Nullable String modId) {
+		if (ended) {
+			return;
+		}
+		ended = true;
+
+		long now = System.nanoTime();
+
+		if (parent == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(parent);
+		}
+
+		if (!defined) {
+			return;
+		}
+
+		endPhase(now);
+		if (parent != null) {
+			parent.nestedNanos += now - startNanos;
+		}
+
+		long total = 0;
+		for (long nanos : phaseNanos) {
+			total += nanos;
+		}
+		metrics.record(name, modId, phaseNanos, total);
+	}
+}
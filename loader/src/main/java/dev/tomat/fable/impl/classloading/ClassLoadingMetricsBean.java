@@ -0,0 +1,126 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.impl.classloading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import dev.tomat.fable.api.classloading.ClassLoadingPhase;
+import dev.tomat.fable.api.classloading.ClassLoadingStats;
+import dev.tomat.fable.api.classloading.SlowClassLoad;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class ClassLoadingMetricsBean implements ClassLoadingMetricsMXBean {
+
+	private final ClassLoadingMetricsImpl metrics;
+
+	ClassLoadingMetricsBean(ClassLoadingMetricsImpl metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public long getClassCount() {
+		return metrics.getTotal().getClassCount();
+	}
+
+	@Override
+	public long getTotalNanos() {
+		return metrics.getTotal().getTotalNanos();
+	}
+
+	@Override
+	public long getResolveNanos() {
+		return metrics.getTotal().getNanos(ClassLoadingPhase.RESOLVE);
+	}
+
+	@Override
+	public long getPatchNanos() {
+		return metrics.getTotal().getNanos(ClassLoadingPhase.PATCH);
+	}
+
+	@Override
+	public long getMixinNanos() {
+		return metrics.getTotal().getNanos(ClassLoadingPhase.MIXIN);
+	}
+
+	@Override
+	public long getDefineNanos() {
+		return metrics.getTotal().getNanos(ClassLoadingPhase.DEFINE);
+	}
+
+	@Override
+	public long getMaxNanos() {
+		return metrics.getTotal().getMaxNanos();
+	}
+
+	@Override
+	public long getMedianNanos() {
+		return metrics.getTotal().getPercentileNanos(50);
+	}
+
+	@Override
+	public long getPercentile99Nanos() {
+		return metrics.getTotal().getPercentileNanos(99);
+	}
+
+	@Override
+	public Map<String, Long> getClassCountByMod() {
+		Map<String, Long> map = new TreeMap<>();
+		for (Map.Entry<String, ClassLoadingStats> entry : metrics.getByMod().entrySet()) {
+			map.put(entry.getKey(), entry.getValue().getClassCount());
+		}
+		return map;
+	}
+
+	@Override
+	public Map<String, Long> getTotalNanosByMod() {
+		Map<String, Long> map = new TreeMap<>();
+		for (Map.Entry<String, ClassLoadingStats> entry : metrics.getByMod().entrySet()) {
+			map.put(entry.getKey(), entry.getValue().getTotalNanos());
+		}
+		return map;
+	}
+
+	@Override
+	public List<String> getSlowestClasses() {
+		List<String> list = new ArrayList<>();
+		for (SlowClassLoad load : metrics.getSlowestClasses()) {
+			list.add(load.toString());
+		}
+		return list;
+	}
+
+	@Override
+	public long getMixinClassCacheHits() {
+		return metrics.getMixinClassCache().getHits();
+	}
+
+	@Override
+	public long getMixinClassCacheMisses() {
+		return metrics.getMixinClassCache().getMisses();
+	}
+
+	@Override
+	public long getMixinClassCacheUncacheable() {
+		return metrics.getMixinClassCache().getUncacheable();
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.impl.classloading;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import dev.tomat.fable.api.classloading.ClassLoadingMetrics;
+import dev.tomat.fable.api.classloading.ClassLoadingStats;
+import dev.tomat.fable.api.classloading.MixinClassCacheStats;
+import dev.tomat.fable.api.classloading.SlowClassLoad;
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.SystemProperties;
+import org.quiltmc.loader.impl.util.log.Log;
+import org.quiltmc.loader.impl.util.log.LogCategory;
+
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+public final class ClassLoadingMetricsImpl implements ClassLoadingMetrics {
+
+	static final String MBEAN_NAME = "dev.tomat.fable:type=ClassLoadingMetrics";
+
+	/** The number of classes kept by {@link #getSlowestClasses()}. */
+	static final int SLOWEST_COUNT = 50;
+
+	private static final Comparator<SlowClassLoadImpl> FASTEST_FIRST = Comparator.comparingLong(s -> s.totalNanos);
+
+	// Declared after FASTEST_FIRST, since the constructor uses it
+	public static final ClassLoadingMetricsImpl INSTANCE = new ClassLoadingMetricsImpl(
+		!Boolean.getBoolean(SystemProperties.DISABLE_CLASS_LOADING_METRICS)
+	);
+
+	private final boolean enabled;
+	private final Map<String, ClassStatsAccumulator> byMod = new ConcurrentHashMap<>();
+	private final ClassStatsAccumulator withoutMod = new ClassStatsAccumulator();
+	private final MixinClassCacheCounters mixinClassCache = new MixinClassCacheCounters();
+
+	private final PriorityQueue<SlowClassLoadImpl> slowest = new PriorityQueue<>(SLOWEST_COUNT, FASTEST_FIRST);
+	/** The fastest time in {@link #slowest} once it's full, so most classes can skip locking it. */
+	private volatile long slowestThreshold = 0;
+
+	private ClassLoadingMetricsImpl(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/** Begins timing the given class, in the {@link dev.tomat.fable.api.classloading.ClassLoadingPhase#RESOLVE}
+	 * phase. */
+	public ClassLoadTimer begin(String className) {
+		return enabled ? ClassLoadTimer.begin(this, className) : ClassLoadTimer.DISABLED;
+	}
+
+	void record(String className, @Nullable String modId, long[] phaseNanos, long totalNanos) {
+		ClassStatsAccumulator stats = modId == null ? withoutMod : byMod.computeIfAbsent(modId, k -> new ClassStatsAccumulator());
+		stats.record(phaseNanos, totalNanos);
+
+		if (totalNanos > slowestThreshold) {
+			synchronized (slowest) {
+				slowest.add(new SlowClassLoadImpl(className, modId, totalNanos, phaseNanos.clone()));
+				if (slowest.size() > SLOWEST_COUNT) {
+					slowest.poll();
+				}
+				if (slowest.size() == SLOWEST_COUNT) {
+					slowestThreshold = slowest.peek().totalNanos;
+				}
+			}
+		}
+	}
+
+	/** @return The counters updated by the mixin class cache. */
+	public MixinClassCacheCounters getMixinClassCacheCounters() {
+		return mixinClassCache;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public ClassLoadingStats getTotal() {
+		List<ClassLoadingStatsImpl> all = new ArrayList<>();
+		all.add(withoutMod.snapshot());
+		for (ClassStatsAccumulator stats : byMod.values()) {
+			all.add(stats.snapshot());
+		}
+		return ClassLoadingStatsImpl.sum(all);
+	}
+
+	@Override
+	public Map<String, ClassLoadingStats> getByMod() {
+		Map<String, ClassLoadingStats> map = new TreeMap<>();
+		for (Map.Entry<String, ClassStatsAccumulator> entry : byMod.entrySet()) {
+			map.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	@Override
+	public ClassLoadingStats getWithoutMod() {
+		return withoutMod.snapshot();
+	}
+
+	@Override
+	public List<SlowClassLoad> getSlowestClasses() {
+		List<SlowClassLoadImpl> list;
+		synchronized (slowest) {
+			list = new ArrayList<>(slowest);
+		}
+		list.sort(FASTEST_FIRST.reversed());
+		return Collections.unmodifiableList(list);
+	}
+
+	@Override
+	public MixinClassCacheStats getMixinClassCache() {
+		return mixinClassCache.snapshot();
+	}
+
+	/** Registers {@link ClassLoadingMetricsMXBean} with the platform MBean server, if enabled by
+	 * {@link SystemProperties#CLASS_LOADING_METRICS_JMX}. This is opt-in since creating the platform MBean server is
+	 * quite slow. */
+	public void registerMBeanIfEnabled() {
+		if (!enabled || !Boolean.getBoolean(SystemProperties.CLASS_LOADING_METRICS_JMX)) {
+			return;
+		}
+
+		try {
+			ObjectName name = new ObjectName(MBEAN_NAME);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new ClassLoadingMetricsBean(this), name);
+		} catch (JMException | LinkageError e) {
+			Log.warn(LogCategory.GENERAL, "Failed to register the class loading metrics with JMX", e);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.impl.classloading;
+
+import java.util.List;
+import java.util.Map;
+
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+/** The JMX view of {@link ClassLoadingMetricsImpl}, registered as {@value ClassLoadingMetricsImpl#MBEAN_NAME}. All
+ * times are in nanoseconds. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+public interface ClassLoadingMetricsMXBean {
+	long getClassCount();
+
+	long getTotalNanos();
+
+	long getResolveNanos();
+
+	long getPatchNanos();
+
+	long getMixinNanos();
+
+	long getDefineNanos();
+
+	long getMaxNanos();
+
+	long getMedianNanos();
+
+	long getPercentile99Nanos();
+
+	Map<String, Long> getClassCountByMod();
+
+	Map<String, Long> getTotalNanosByMod();
+
+	/** @return A description of every class in {@link ClassLoadingMetricsImpl#getSlowestClasses()}, slowest first. */
+	List<String> getSlowestClasses();
+
+	long getMixinClassCacheHits();
+
+	long getMixinClassCacheMisses();
+
+	long getMixinClassCacheUncacheable();
+}
@@ -0,0 +1,116 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.impl.classloading;
+
+import dev.tomat.fable.api.classloading.ClassLoadingPhase;
+import dev.tomat.fable.api.classloading.ClassLoadingStats;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class ClassLoadingStatsImpl implements ClassLoadingStats {
+
+	static final ClassLoadingStatsImpl EMPTY = new ClassLoadingStatsImpl(0, new long[ClassLoadingPhase.values().length],
+		0, new long[ClassStatsAccumulator.HISTOGRAM_BOUNDS.length]);
+
+	private final long count;
+	private final long[] phaseNanos;
+	private final long maxNanos;
+	private final long[] histogram;
+
+	ClassLoadingStatsImpl(long count, long[] phaseNanos, long maxNanos, long[] histogram) {
+		this.count = count;
+		this.phaseNanos = phaseNanos;
+		this.maxNanos = maxNanos;
+		this.histogram = histogram;
+	}
+
+	static ClassLoadingStatsImpl sum(Iterable<ClassLoadingStatsImpl> stats) {
+		long count = 0;
+		long[] phases = new long[ClassLoadingPhase.values().length];
+		long max = 0;
+		long[] histogram = new long[ClassStatsAccumulator.HISTOGRAM_BOUNDS.length];
+		for (ClassLoadingStatsImpl s : stats) {
+			count += s.count;
+			for (int i = 0; i < phases.length; i++) {
+				phases[i] += s.phaseNanos[i];
+			}
+			max = Math.max(max, s.maxNanos);
+			for (int i = 0; i < histogram.length; i++) {
+				histogram[i] += s.histogram[i];
+			}
+		}
+		return new ClassLoadingStatsImpl(count, phases, max, histogram);
+	}
+
+	@Override
+	public long getClassCount() {
+		return count;
+	}
+
+	@Override
+	public long getTotalNanos() {
+		long total = 0;
+		for (long nanos : phaseNanos) {
+			total += nanos;
+		}
+		return total;
+	}
+
+	@Override
+	public long getNanos(ClassLoadingPhase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	@Override
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	@Override
+	public long[] getHistogram() {
+		return histogram.clone();
+	}
+
+	@Override
+	public long[] getHistogramUpperBounds() {
+		return ClassStatsAccumulator.HISTOGRAM_BOUNDS.clone();
+	}
+
+	@Override
+	public long getPercentileNanos(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long target = (long) Math.ceil(count * Math.max(0, Math.min(100, percentile)) / 100);
+		long seen = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			seen += histogram[i];
+			if (seen >= target && seen > 0) {
+				// The last bucket is unbounded, so the max is a better answer
+				return i == histogram.length - 1 ? maxNanos : Math.min(maxNanos, ClassStatsAccumulator.HISTOGRAM_BOUNDS[i]);
+			}
+		}
+		return maxNanos;
+	}
+
+	@Override
+	public String toString() {
+		return count + " classes in " + getTotalNanos() / 1_000_000 + "ms";
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.impl.classloading;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import dev.tomat.fable.api.classloading.ClassLoadingPhase;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+/** The live counters behind {@link ClassLoadingStatsImpl}. Every counter is striped, since classes are loaded from
+ * many threads at once. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class ClassStatsAccumulator {
+
+	private static final ClassLoadingPhase[] PHASES = ClassLoadingPhase.values();
+
+	/** Upper bounds of each histogram bucket, in nanoseconds. */
+	static final long[] HISTOGRAM_BOUNDS = {
+		10_000, 25_000, 50_000, 100_000, 250_000, 500_000, //
+		1_000_000, 2_500_000, 5_000_000, 10_000_000, 25_000_000, 50_000_000, //
+		100_000_000, 250_000_000, 500_000_000, 1_000_000_000, Long.MAX_VALUE //
+	};
+
+	final LongAdder count = new LongAdder();
+	final LongAdder[] phaseNanos = newAdders(PHASES.length);
+	final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	final LongAdder[] histogram = newAdders(HISTOGRAM_BOUNDS.length);
+
+	private static LongAdder[] newAdders(int count) {
+		LongAdder[] adders = new LongAdder[count];
+		for (int i = 0; i < count; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	void record(long[] nanos, long total) {
+		count.increment();
+		for (int i = 0; i < nanos.length; i++) {
+			if (nanos[i] != 0) {
+				phaseNanos[i].add(nanos[i]);
+			}
+		}
+		maxNanos.accumulate(total);
+		histogram[bucket(total)].increment();
+	}
+
+	static int bucket(long nanos) {
+		int i = 0;
+		while (nanos > HISTOGRAM_BOUNDS[i]) {
+			i++;
+		}
+		return i;
+	}
+
+	ClassLoadingStatsImpl snapshot() {
+		long[] phases = new long[phaseNanos.length];
+		for (int i = 0; i < phases.length; i++) {
+			phases[i] = phaseNanos[i].sum();
+		}
+		long[] buckets = new long[histogram.length];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = histogram[i].sum();
+		}
+		return new ClassLoadingStatsImpl(count.sum(), phases, maxNanos.get(), buckets);
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.impl.classloading;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import dev.tomat.fable.api.classloading.MixinClassCacheStats;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+/** The live counters behind {@link MixinClassCacheStats}, updated by the mixin class cache in knot. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+public final class MixinClassCacheCounters {
+
+	private volatile boolean enabled;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder uncacheable = new LongAdder();
+	private final LongAdder validated = new LongAdder();
+	private final LongAdder mismatches = new LongAdder();
+
+	MixinClassCacheCounters() {}
+
+	public void markEnabled() {
+		enabled = true;
+	}
+
+	public void recordHit() {
+		hits.increment();
+	}
+
+	public void recordMiss() {
+		misses.increment();
+	}
+
+	public void recordUncacheable() {
+		uncacheable.increment();
+	}
+
+	public void recordValidated(boolean matched) {
+		validated.increment();
+		if (!matched) {
+			mismatches.increment();
+		}
+	}
+
+	public MixinClassCacheStats snapshot() {
+		return new Snapshot(enabled, hits.sum(), misses.sum(), uncacheable.sum(), validated.sum(), mismatches.sum());
+	}
+
+	private static final class Snapshot implements MixinClassCacheStats {
+		private final boolean enabled;
+		private final long hits, misses, uncacheable, validated, mismatches;
+
+		Snapshot(boolean enabled, long hits, long misses, long uncacheable, long validated, long mismatches) {
+			this.enabled = enabled;
+			this.hits = hits;
+			this.misses = misses;
+			this.uncacheable = uncacheable;
+			this.validated = validated;
+			this.mismatches = mismatches;
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		@Override
+		public long getHits() {
+			return hits;
+		}
+
+		@Override
+		public long getMisses() {
+			return misses;
+		}
+
+		@Override
+		public long getUncacheable() {
+			return uncacheable;
+		}
+
+		@Override
+		public long getValidated() {
+			return validated;
+		}
+
+		@Override
+		public long getMismatches() {
+			return mismatches;
+		}
+
+		@Override
+		public String toString() {
+			return hits + " hits, " + misses + " misses, " + uncacheable + " uncacheable, " + validated + " validated, "
+				+ mismatches + " mismatched";
+		}
+	}
+}
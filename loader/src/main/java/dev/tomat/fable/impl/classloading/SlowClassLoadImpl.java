@@ -0,0 +1,75 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.impl.classloading;
+
+import java.util.Locale;
+
+import dev.tomat.fable.api.classloading.ClassLoadingPhase;
+import dev.tomat.fable.api.classloading.SlowClassLoad;
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class SlowClassLoadImpl implements SlowClassLoad {
+
+	private final String className;
+	private final @Nullable String modId;
+	final long totalNanos;
+	private final long[] phaseNanos;
+
+	SlowClassLoadImpl(String className, @Nullable String modId, long totalNanos, long[] phaseNanos) {
+		this.className = className;
+		this.modId = modId;
+		this.totalNanos = totalNanos;
+		this.phaseNanos = phaseNanos;
+	}
+
+	@Override
+	public String getClassName() {
+		return className;
+	}
+
+	@Override
+	@Nullable
+	public String getModId() {
+		return modId;
+	}
+
+	@Override
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	@Override
+	public long getNanos(ClassLoadingPhase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(className).append(" (").append(modId != null ? modId : "?").append("): ");
+		sb.append(String.format("%.2fms", totalNanos / 1_000_000.0));
+		for (ClassLoadingPhase phase : ClassLoadingPhase.values()) {
+			sb.append(", ").append(phase.name().toLowerCase(Locale.ROOT)).append(' ');
+			sb.append(String.format("%.2fms", phaseNanos[phase.ordinal()] / 1_000_000.0));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.impl.patching;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+
+import dev.tomat.fable.api.patching.Patch;
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.api.FasterFiles;
+import org.quiltmc.loader.api.ModContainer;
+import org.quiltmc.loader.impl.util.HashUtil;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.log.Log;
+import org.quiltmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Stores the output of {@link Patch#isDeterministic() deterministic} patches, so later launches can load patched
+ * classes without running any patches.
+ * <p/>
+ * Every class is stored as a separate file named after the hash of its key, which covers the class name, the
+ * unpatched bytes, and the id and version of every patch (and of the mod which registered it). An empty file means
+ * that the patches didn't change the class.
+ */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class PatchCache {
+	/** The folder inside the transform cache folder which stores patched classes. */
+	static final String FOLDER = "patched-classes";
+
+	private static final byte[] UNCHANGED = new byte[0];
+
+	private final Path folder;
+
+	PatchCache(Path folder) {
+		this.folder = folder;
+	}
+
+	/**
+	 * @return The key of the given class and patches, or null if any of the patches aren't deterministic.
+	 */
+	@Nullable
+	static String computeKey(String className, byte[] bytes, List<Patch> patches, Map<Patch, ModContainer> modByPatch) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("This JVM doesn't support SHA-1???");
+		}
+
+		for (Patch patch : patches) {
+			if (!patch.isDeterministic()) {
+				return null;
+			}
+
+			ModContainer mod = modByPatch.get(patch);
+			String id = mod.metadata().id() + "@" + mod.metadata().version().raw() + "/" + patch.getId() + "@" + patch.getVersion();
+			digest.update(id.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+
+		digest.update(className.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(bytes);
+		return HashUtil.hashToString(digest.digest());
+	}
+
+	/**
+	 * @return The patched bytes stored for the given key, an empty array if the patches didn't change the class, or
+	 *         null if nothing is stored for the key.
+	 */
+	@Nullable
+	byte[] get(String key) {
+		Path path = getPath(key);
+
+		if (!FasterFiles.isRegularFile(path)) {
+			return null;
+		}
+
+		try {
+			return Files.readAllBytes(path);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to read the patched class " + path, e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param patched The patched bytes, or null if the patches didn't change the class.
+	 */
+	void put(String key, @Nullable byte[] patched) {
+		Path path = getPath(key);
+
+		try {
+			FasterFiles.createDirectories(path.getParent());
+			// Classes are loaded on multiple threads, so the file must never be visible while partially written
+			Path temp = Files.createTempFile(path.getParent(), key, ".tmp");
+			Files.write(temp, patched == null ? UNCHANGED : patched);
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to write the patched class " + path, e);
+		}
+	}
+
+	private Path getPath(String key) {
+		return folder.resolve(key.substring(0, 2)).resolve(key + ".class");
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.tomat.fable.impl.patching;
+
+import dev.tomat.fable.api.patching.PatchContext;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+/**
+ * A {@link PatchContext} which only parses the class when a patch asks for it, since most classes aren't targeted by
+ * any patch.
+ */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+public final class PatchContextImpl implements PatchContext {
+	private final String name;
+	private final byte[] bytes;
+	private ClassReader reader;
+	private ClassNode node;
+	private boolean patched;
+
+	public PatchContextImpl(String name, byte[] bytes) {
+		this.name = name;
+		this.bytes = bytes;
+	}
+
+	@Override
+	public String getClassName() {
+		return name;
+	}
+
+	@Override
+	public ClassReader getClassReader() {
+		if (reader == null) {
+			reader = new ClassReader(bytes);
+		}
+
+		return reader;
+	}
+
+	@Override
+	public ClassNode getClassNode() {
+		if (node == null) {
+			node = new ClassNode();
+			getClassReader().accept(node, 0);
+		}
+
+		return node;
+	}
+
+	@Override
+	public boolean getPatched() {
+		return patched;
+	}
+
+	@Override
+	public void setPatched(boolean patched) {
+		this.patched = patched;
+	}
+}
@@ -17,29 +17,50 @@
 
 package dev.tomat.fable.impl.patching;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import dev.tomat.fable.api.patching.Patch;
+import dev.tomat.fable.api.patching.PatchContext;
 import dev.tomat.fable.api.patching.PatchHandler;
+import dev.tomat.fable.api.patching.PatchTarget;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
 import org.quiltmc.loader.api.ModContainer;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.SystemProperties;
 
 @QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
 public final class PatchHandlerImpl implements PatchHandler {
-	private final Map<Patch, ModContainer> modByPatch = new HashMap<>();
+	private final Map<Patch, ModContainer> modByPatch = new LinkedHashMap<>();
+
+	@Nullable
+	private volatile PatchCache cache;
+
+	/** Rebuilt whenever a patch is registered, since classes can be loaded (and so patched) on any thread. */
+	private volatile PatchIndex index = new PatchIndex(Collections.emptyList());
 
 	@Override
-	public void registerPatch(ModContainer mod, Patch patch) {
+	public synchronized void registerPatch(ModContainer mod, Patch patch) {
 		modByPatch.put(patch, mod);
+		index = new PatchIndex(new ArrayList<>(modByPatch.keySet()));
 	}
 
 	@Override
 	public Set<Patch> getPatches() {
-		return modByPatch.keySet();
+		return Collections.unmodifiableSet(modByPatch.keySet());
 	}
 
 	@Override
@@ -49,4 +70,143 @@ public final class PatchHandlerImpl implements PatchHandler {
 				.map(Map.Entry::getKey)
 				.collect(Collectors.toSet());
 	}
+
+	@Override
+	public List<Patch> getPatches(PatchContext context) {
+		return index.getPatches(context);
+	}
+
+	/**
+	 * Sets the folder inside the transform cache which stores the output of deterministic patches.
+	 */
+	public void setCacheFolder(Path transformCacheFolder) {
+		if (!Boolean.getBoolean(SystemProperties.DISABLE_PATCH_CACHE)) {
+			cache = new PatchCache(transformCacheFolder.resolve(PatchCache.FOLDER));
+		}
+	}
+
+	/**
+	 * Runs every patch which targets the given class.
+	 *
+	 * @return The patched class, or the given bytes if no patch changed it.
+	 */
+	public byte[] patchClass(String name, byte[] bytes) {
+		PatchContext context = new PatchContextImpl(name, bytes);
+		List<Patch> patches = getPatches(context);
+
+		if (patches.isEmpty()) {
+			return bytes;
+		}
+
+		PatchCache cache = this.cache;
+		String key = cache == null ? null : PatchCache.computeKey(name, bytes, patches, modByPatch);
+
+		if (key != null) {
+			byte[] cached = cache.get(key);
+
+			if (cached != null) {
+				return cached.length == 0 ? bytes : cached;
+			}
+		}
+
+		patches.forEach(patch -> patch.process(context));
+		byte[] patched = null;
+
+		if (context.getPatched()) {
+			ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+			context.getClassNode().accept(writer);
+			patched = writer.toByteArray();
+		}
+
+		if (key != null) {
+			cache.put(key, patched);
+		}
+
+		return patched == null ? bytes : patched;
+	}
+
+	private static final class PatchIndex {
+		private final Map<Patch, Integer> order = new IdentityHashMap<>();
+		private final Map<String, List<Patch>> byClass = new HashMap<>();
+		private final Map<String, List<Patch>> byPackage = new HashMap<>();
+		private final Map<Patch, Predicate<ClassReader>> byPredicate = new LinkedHashMap<>();
+		/** Returned as-is when no targeted patch matches, so most class loads don't allocate anything. */
+		private final List<Patch> untargeted;
+
+		PatchIndex(List<Patch> patches) {
+			List<Patch> untargeted = new ArrayList<>();
+
+			for (Patch patch : patches) {
+				order.put(patch, order.size());
+				PatchTarget target = patch.getTarget();
+
+				if (target.isAll()) {
+					untargeted.add(patch);
+					continue;
+				}
+
+				for (String className : target.getClasses()) {
+					byClass.computeIfAbsent(className, c -> new ArrayList<>()).add(patch);
+				}
+
+				for (String packageName : target.getPackages()) {
+					byPackage.computeIfAbsent(packageName, p -> new ArrayList<>()).add(patch);
+				}
+
+				if (target.getPredicate() != null) {
+					byPredicate.put(patch, target.getPredicate());
+				}
+			}
+
+			this.untargeted = untargeted.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(untargeted);
+		}
+
+		List<Patch> getPatches(PatchContext context) {
+			if (order.isEmpty()) {
+				return Collections.emptyList();
+			}
+
+			String className = context.getClassName();
+			// A patch may match through more than one part of its target, but should still only run once
+			Set<Patch> found = addAll(null, byClass.get(className));
+
+			if (!byPackage.isEmpty()) {
+				for (int i = className.indexOf('.'); i >= 0; i = className.indexOf('.', i + 1)) {
+					found = addAll(found, byPackage.get(className.substring(0, i)));
+				}
+			}
+
+			for (Map.Entry<Patch, Predicate<ClassReader>> entry : byPredicate.entrySet()) {
+				if ((found == null || !found.contains(entry.getKey())) && entry.getValue().test(context.getClassReader())) {
+					found = addAll(found, Collections.singletonList(entry.getKey()));
+				}
+			}
+
+			if (found == null) {
+				return untargeted;
+			}
+
+			found.addAll(untargeted);
+			List<Patch> patches = new ArrayList<>(found);
+
+			if (patches.size() > 1) {
+				patches.sort(Comparator.comparingInt(order::get));
+			}
+
+			return patches;
+		}
+
+		private static Set<Patch> addAll(@Nullable Set<Patch> to, @Nullable List<Patch> patches) {
+			if (patches == null) {
+				return to;
+			}
+
+			if (to == null) {
+				to = Collections.newSetFromMap(new IdentityHashMap<>());
+			}
+
+			to.addAll(patches);
+			return to;
+		}
+	}
 }
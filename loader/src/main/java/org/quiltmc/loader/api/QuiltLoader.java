@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import dev.tomat.fable.api.classloading.ClassLoadingMetrics;
 import dev.tomat.fable.api.patching.PatchHandler;
 
 import net.fabricmc.loader.api.ObjectShare;
@@ -284,6 +285,16 @@ public final class QuiltLoader {
 		return impl().getPatchHandler();
 	}
 
+	/**
+	 * Returns counters for every class loaded by the game's class loader so far, including how long each class took
+	 * to load and which mod it came from.
+	 *
+	 * @return the class loading metrics instance
+	 */
+	public static ClassLoadingMetrics getClassLoadingMetrics() {
+		return impl().getClassLoadingMetrics();
+	}
+
 	/**
 	 * Creates a table describing the mods currently loaded, suitable for printing in log files or in crash reports.
 	 * All of the information contained here is available through {@link #getAllMods()}.
@@ -62,9 +62,6 @@ public final class QuiltLoaderConfig {
 	public final boolean singleThreadedLoading;
 
 	public QuiltLoaderConfig(Path from) {
-		// Multi-threaded doesn't work yet, so hardcode this
-		singleThreadedLoading = true;
-
 		// Unfortunately this loads too early to use QuiltConfig
 		// so instead just load from a properties file.
 		Properties props = new Properties();
@@ -83,6 +80,7 @@ public final class QuiltLoaderConfig {
 		loadSubFolders = getBool(props, "load_sub_folders", true);
 		restrictGameVersions = getBool(props, "restrict_game_versions", true);
 		alwaysShowModStateWindow = getBool(props, "always_show_mod_state_window", false);
+		singleThreadedLoading = getBool(props, "single_threaded_loading", false);
 
 		if (!original.equals(props)) {
 			try (OutputStream out = Files.newOutputStream(from)) {
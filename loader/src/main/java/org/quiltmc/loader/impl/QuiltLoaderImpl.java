@@ -41,6 +41,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -54,9 +55,10 @@ import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import dev.tomat.fable.api.patching.PatchHandler;
 import dev.tomat.fable.impl.FableLoaderImpl;
+import dev.tomat.fable.impl.classloading.ClassLoadingMetricsImpl;
 import dev.tomat.fable.impl.patching.PatchHandlerImpl;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
 import org.quiltmc.loader.api.FasterFiles;
 import org.quiltmc.loader.api.LanguageAdapter;
@@ -86,6 +88,7 @@ import org.quiltmc.loader.impl.discovery.ModResolutionException;
 import org.quiltmc.loader.impl.discovery.ModSolvingError;
 import org.quiltmc.loader.impl.entrypoint.EntrypointStorage;
 import org.quiltmc.loader.impl.entrypoint.EntrypointUtils;
+import org.quiltmc.loader.impl.filesystem.QuiltClassPath;
 import org.quiltmc.loader.impl.filesystem.QuiltJoinedFileSystem;
 import org.quiltmc.loader.impl.filesystem.QuiltJoinedPath;
 import org.quiltmc.loader.impl.filesystem.QuiltZipFileSystem;
@@ -99,6 +102,7 @@ import org.quiltmc.loader.impl.launch.common.QuiltLauncherBase;
 import org.quiltmc.loader.impl.launch.common.QuiltMixinBootstrap;
 import org.quiltmc.loader.impl.metadata.FabricLoaderModMetadata;
 import org.quiltmc.loader.impl.metadata.qmj.InternalModMetadata;
+import org.quiltmc.loader.impl.metadata.qmj.ModMetadataReader;
 import org.quiltmc.loader.impl.metadata.qmj.ProvidedModContainer;
 import org.quiltmc.loader.impl.metadata.qmj.ProvidedModMetadata;
 import org.quiltmc.loader.impl.patch.PatchLoader;
@@ -122,6 +126,8 @@ import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
 import org.quiltmc.loader.impl.util.SystemProperties;
 import org.quiltmc.loader.impl.util.log.Log;
 import org.quiltmc.loader.impl.util.log.LogCategory;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline.Span;
 import org.spongepowered.asm.mixin.FabricUtil;
 
 import net.fabricmc.loader.api.ObjectShare;
@@ -161,7 +167,7 @@ public final class QuiltLoaderImpl {
 
 	private final ObjectShare objectShare = new ObjectShareImpl();
 
-	private final PatchHandler patchHandler = new PatchHandlerImpl();
+	private final PatchHandlerImpl patchHandler = new PatchHandlerImpl();
 
 	private boolean frozen = false;
 
@@ -180,6 +186,10 @@ public final class QuiltLoaderImpl {
 	 * and {@link #copyToJar(ModLoadOption, Path)}. */
 	private final Map<String, File> copiedToJarMods = new HashMap<>();
 
+	/** The folder and {@link TransformCacheResult#cacheKey} of the transform cache, or null if it wasn't used. */
+	private Path transformCacheFolder;
+	private String transformCacheKey;
+
 	/** Stores the result from running plugins. This is useful if we crash after selecting which mods to load, but
 	 * before fully loading those mods. */
 	private ModSolveResult temporaryPluginSolveResult;
@@ -316,7 +326,13 @@ public final class QuiltLoaderImpl {
 
 	private void setup() throws ModResolutionException {
 
-		ModSolveResult result = runPlugins();
+		ModSolveResult result;
+		Span pluginsSpan = StartupTimeline.begin("plugins");
+		try {
+			result = runPlugins();
+		} finally {
+			pluginsSpan.close();
+		}
 		temporaryPluginSolveResult = result;
 
 		SpecificLoadOptionResult<LoadOption> spec = result.getResult(LoadOption.class);
@@ -352,131 +368,149 @@ public final class QuiltLoaderImpl {
 		performLoadLateReordering(modList);
 		temporaryOrderedModList = modList.toArray(new ModLoadOption[0]);
 
-		long zipStart = System.nanoTime();
 		String suffix = System.getProperty(SystemProperties.CACHE_SUFFIX, getEnvironmentType().name().toLowerCase(Locale.ROOT));
 		FileHasherImpl hasher = new FileHasherImpl(null);
 
-		for (ModLoadOption mod : modList) {
-			Path from = mod.from();
-			List<List<Path>> srcPaths = temporarySourcePaths.get(from);
+		try (Span span = StartupTimeline.begin("hash_mods")) {
+			span.set("mods", modList.size());
+			Set<Path> modPaths = new LinkedHashSet<>();
+			for (ModLoadOption mod : modList) {
+				modPaths.add(mod.from());
+			}
 			try {
-				for (List<Path> paths : srcPaths) {
-					Path first = paths.get(0);
-					if (first.getFileSystem() != FileSystems.getDefault()) {
-						throw new ModResolutionException(
-							"The first path as a source for " + from + " (first = " + first
-								+ ") is not on the default file system?"
-						);
-					}
-					if (!pathOriginHash.containsKey(first)) {
-						pathOriginHash.put(first, HashUtil.hashToString(hasher.computeNormalHash(from)));
+				hasher.computeNormalHashes(modPaths);
+			} catch (IOException e) {
+				// Hashed again below, which reports the mod that failed
+			}
+
+			for (ModLoadOption mod : modList) {
+				Path from = mod.from();
+				List<List<Path>> srcPaths = temporarySourcePaths.get(from);
+				try {
+					for (List<Path> paths : srcPaths) {
+						Path first = paths.get(0);
+						if (first.getFileSystem() != FileSystems.getDefault()) {
+							throw new ModResolutionException(
+								"The first path as a source for " + from + " (first = " + first
+									+ ") is not on the default file system?"
+							);
+						}
+						if (!pathOriginHash.containsKey(first)) {
+							pathOriginHash.put(first, HashUtil.hashToString(hasher.computeNormalHash(from)));
+						}
 					}
+					modOriginHash.put(mod.id(), HashUtil.hashToString(mod.computeOriginHash(hasher)));
+				} catch (IOException e) {
+					throw new ModResolutionException("Failed to compute the hash for mod '" + mod.id() + "'", e);
 				}
-				modOriginHash.put(mod.id(), HashUtil.hashToString(mod.computeOriginHash(hasher)));
-			} catch (IOException e) {
-				throw new ModResolutionException("Failed to compute the hash for mod '" + mod.id() + "'", e);
 			}
 		}
+		FileHasherImpl.savePersistentCache();
+		ModMetadataReader.saveCache();
 
 		Path transformCacheFolder = getCacheDir().resolve(CACHE_DIR_NAME).resolve("transform-cache-" + suffix);
-		TransformCacheResult cacheResult = TransformCacheManager.populateTransformBundle(transformCacheFolder, modList, modOriginHash, result);
-		QuiltZipPath transformedModBundle = cacheResult.transformCacheRoot;
-
-		long zipEnd = System.nanoTime();
-
+		TransformCacheResult cacheResult;
+		Span transformCacheSpan = StartupTimeline.begin("transform_cache");
 		try {
-			QuiltLauncherBase.getLauncher().setTransformCache(transformedModBundle.toUri().toURL());
-			QuiltLauncherBase.getLauncher().setHiddenClasses(cacheResult.hiddenClasses);
-		} catch (MalformedURLException e) {
-			throw new RuntimeException(e);
+			cacheResult = TransformCacheManager.populateTransformBundle(transformCacheFolder, modList, modOriginHash, result);
+		} finally {
+			transformCacheSpan.close();
 		}
+		QuiltZipPath transformedModBundle = cacheResult.transformCacheRoot;
+		patchHandler.setCacheFolder(transformCacheFolder);
+		this.transformCacheFolder = transformCacheFolder;
+		this.transformCacheKey = cacheResult.cacheKey;
 
-		boolean copyAllMods = Boolean.getBoolean(SystemProperties.JAR_COPY_ALL_MODS);
-		Set<String> modsToCopy = new HashSet<>();
-		String jarCopiedMods = System.getProperty(SystemProperties.JAR_COPIED_MODS);
-		if (jarCopiedMods != null) {
-			for (String id : jarCopiedMods.split(",")) {
-				modsToCopy.add(id);
+		try (Span addSpan = StartupTimeline.begin("add_mods")) {
+			try {
+				QuiltLauncherBase.getLauncher().setTransformCache(transformedModBundle.toUri().toURL());
+				QuiltLauncherBase.getLauncher().setHiddenClasses(cacheResult.hiddenClasses);
+			} catch (MalformedURLException e) {
+				throw new RuntimeException(e);
 			}
-		}
-
-		long zipSubCopyTotal = 0;
-		long jarCopyTotal = 0;
 
-		for (ModLoadOption modOption : modList) {
-			Path resourceRoot;
+			boolean copyAllMods = Boolean.getBoolean(SystemProperties.JAR_COPY_ALL_MODS);
+			Set<String> modsToCopy = new HashSet<>();
+			String jarCopiedMods = System.getProperty(SystemProperties.JAR_COPIED_MODS);
+			if (jarCopiedMods != null) {
+				for (String id : jarCopiedMods.split(",")) {
+					modsToCopy.add(id);
+				}
+			}
 
-			if (!modOption.needsTransforming() && modOption.namespaceMappingFrom() == null) {
-				resourceRoot = modOption.resourceRoot();
-			} else {
-				String modid = modOption.id();
-				Path modTransformed = transformedModBundle.resolve(modid + "/");
-				Path excluded = transformedModBundle.resolve(modid + ".removed");
+			for (ModLoadOption modOption : modList) {
+				Path resourceRoot;
 
-				if (FasterFiles.exists(excluded)) {
-					throw new Error("// TODO: Implement pre-transform file removal!");
-				} else if (!FasterFiles.isDirectory(modTransformed)) {
+				if (!modOption.needsTransforming() && modOption.namespaceMappingFrom() == null) {
 					resourceRoot = modOption.resourceRoot();
 				} else {
-					List<Path> paths = new ArrayList<>();
+					String modid = modOption.id();
+					Path modTransformed = transformedModBundle.resolve(modid + "/");
+					Path excluded = transformedModBundle.resolve(modid + ".removed");
+
+					if (FasterFiles.exists(excluded)) {
+						throw new Error("// TODO: Implement pre-transform file removal!");
+					} else if (!FasterFiles.isDirectory(modTransformed)) {
+						resourceRoot = modOption.resourceRoot();
+					} else {
+						List<Path> paths = new ArrayList<>();
+
+						long start = System.nanoTime();
+						String fsName = modid + "-" + modOption.version();
+						paths.add(new QuiltZipFileSystem(fsName, transformedModBundle.resolve(modid)).getRoot());
+						if (modOption.couldResourcesChange()) {
+							paths.add(modOption.resourceRoot());
+						}
+						addSpan.add("open_transformed_ns", System.nanoTime() - start);
+
+						// This cannot pass a java ZipFileSystem directly since URLClassPath can't load
+						// from folders inside a zip.
+
+						// Since we're using our own QuiltZipFileSystem this is okay, but if that gets reverted
+						// we'll also need to revert this optimisation
 
-					long start = System.nanoTime();
-					String fsName = modid + "-" + modOption.version();
-					paths.add(new QuiltZipFileSystem(fsName, transformedModBundle.resolve(modid)).getRoot());
-					if (modOption.couldResourcesChange()) {
-						paths.add(modOption.resourceRoot());
+						 if (paths.size() == 1) {
+							 resourceRoot = paths.get(0);
+						 } else {
+							 resourceRoot = new QuiltJoinedFileSystem("_" + fsName, paths).getRoot();
+						 }
 					}
-					zipSubCopyTotal += System.nanoTime() - start;
+				}
 
-					// This cannot pass a java ZipFileSystem directly since URLClassPath can't load
-					// from folders inside a zip.
+				String modid2 = modOption.id();
 
-					// Since we're using our own QuiltZipFileSystem this is okay, but if that gets reverted
-					// we'll also need to revert this optimisation
+				boolean copyThis = false;
 
-					 if (paths.size() == 1) {
-						 resourceRoot = paths.get(0);
-					 } else {
-						 resourceRoot = new QuiltJoinedFileSystem("_" + fsName, paths).getRoot();
-					 }
+				if (resourceRoot.getFileSystem() != FileSystems.getDefault() && !"jar".equals(resourceRoot.getFileSystem().provider().getScheme())) {
+					copyThis = copyAllMods || modsToCopy.contains(modid2) || shouldCopyToJar(modOption, modIds);
 				}
-			}
 
-			String modid2 = modOption.id();
-
-			boolean copyThis = false;
+				if (copyThis) {
+					Span copyToJarSpan = StartupTimeline.begin("copy_to_jar", modid2);
+					try {
+						resourceRoot = copyToJar(transformCacheFolder, modOption, resourceRoot);
+					} finally {
+						copyToJarSpan.close();
+					}
+				}
 
-			if (resourceRoot.getFileSystem() != FileSystems.getDefault() && !"jar".equals(resourceRoot.getFileSystem().provider().getScheme())) {
-				copyThis = copyAllMods || modsToCopy.contains(modid2) || shouldCopyToJar(modOption, modIds);
+				addMod(modOption.convertToMod(resourceRoot));
 			}
 
-			if (copyThis) {
-				long start = System.nanoTime();
-				resourceRoot = copyToJar(transformCacheFolder, modOption, resourceRoot);
-				jarCopyTotal += System.nanoTime() - start;
+			try {
+				transformedModBundle.getFileSystem().close();
+			} catch (IOException e) {
+				// TODO!
+				throw new Error(e);
 			}
 
-			addMod(modOption.convertToMod(resourceRoot));
-		}
+			temporaryPluginSolveResult = null;
+			temporaryOrderedModList = null;
+			temporarySourcePaths = null;
 
-		try {
-			transformedModBundle.getFileSystem().close();
-		} catch (IOException e) {
-			// TODO!
-			throw new Error(e);
+			addSpan.set("mods", mods.size());
 		}
 
-		temporaryPluginSolveResult = null;
-		temporaryOrderedModList = null;
-		temporarySourcePaths = null;
-
-		long modAddEnd = System.nanoTime();
-
-		System.out.println("transform-cache took " + (zipEnd - zipStart) / 1000_000 + "ms");
-		System.out.println("zip sub copy took " + zipSubCopyTotal / 1000_000 + "ms");
-		System.out.println("tmp jar copy took " + jarCopyTotal / 1000_000 + "ms");
-		System.out.println("mod adding took " + (modAddEnd - zipEnd - zipSubCopyTotal - jarCopyTotal) / 1000_000 + "ms");
-
 		int count = mods.size();
 		Log.info(LogCategory.GENERAL, "Loading %d mod%s:%n%s", count, count != 1 ? "s" : "", createModTable());
 	}
@@ -593,6 +627,9 @@ public final class QuiltLoaderImpl {
 
 	private ModSolveResult runPlugins() {
 		QuiltLoaderConfig config = new QuiltLoaderConfig(getConfigDir().resolve("quilt-loader.txt"));
+		FileHasherImpl.setPersistentCacheFile(getQuiltLoaderCacheDir().resolve("file-hashes.txt"));
+		ModMetadataReader.setCacheFile(getQuiltLoaderCacheDir().resolve("mod-metadata.bin"));
+		QuiltZipFileSystem.setNestedZipFolder(getQuiltLoaderCacheDir().resolve("nested-jars"));
 		QuiltPluginManagerImpl plugins = new QuiltPluginManagerImpl(getGameDir(), getConfigDir(), getModsDir(), getCacheDir(), provider, config);
 
 		Path crashReportFile = null;
@@ -1013,6 +1050,9 @@ public final class QuiltLoaderImpl {
 	}
 
 	protected void finishModLoading() {
+		QuiltClassPath.setScanCacheFolder(getCacheDir().resolve(CACHE_DIR_NAME).resolve("class-path-scans"));
+		StartupTimeline.setOutputFolder(getCacheDir().resolve(CACHE_DIR_NAME).resolve("startup-timeline"));
+
 		// add mods to classpath
 		// TODO: This can probably be made safer, but that's a long-term goal
 		for (ModContainerExt mod : mods) {
@@ -1073,6 +1113,9 @@ public final class QuiltLoaderImpl {
 			}
 		}
 
+		// Every mod has been added, so the class path index won't change (much) after this point
+		QuiltLauncherBase.getLauncher().freezeClassPath();
+
 		postprocessModMetadata();
 		PatchLoader.load();
 		setupLanguageAdapters();
@@ -1094,7 +1137,7 @@ public final class QuiltLoaderImpl {
 	public MappingResolver getMappingResolver() {
 		if (mappingResolver == null) {
 			mappingResolver = new QuiltMappingResolver(
-				QuiltLauncherBase.getLauncher().getMappingConfiguration()::getMappings,
+				QuiltLauncherBase.getLauncher().getMappingConfiguration()::getCompiledMappings,
 				QuiltLauncherBase.getLauncher().getTargetNamespace()
 			);
 		}
@@ -1122,10 +1165,30 @@ public final class QuiltLoaderImpl {
 		return objectShare;
 	}
 
-	public PatchHandler getPatchHandler() {
+	/**
+	 * @return The folder which contains the transform cache, or null if mods weren't loaded through it.
+	 */
+	@Nullable
+	public Path getTransformCacheFolder() {
+		return transformCacheFolder;
+	}
+
+	/**
+	 * @return A hash of every input to the transform cache, or null if mods weren't loaded through it.
+	 */
+	@Nullable
+	public String getTransformCacheKey() {
+		return transformCacheKey;
+	}
+
+	public PatchHandlerImpl getPatchHandler() {
 		return patchHandler;
 	}
 
+	public ClassLoadingMetricsImpl getClassLoadingMetrics() {
+		return ClassLoadingMetricsImpl.INSTANCE;
+	}
+
 	public Collection<org.quiltmc.loader.api.ModContainer> getAllMods() {
 		return Collections.unmodifiableList(mods);
 	}
@@ -21,82 +21,43 @@ package org.quiltmc.loader.impl;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
-import net.fabricmc.mappings.EntryTriple;
 import org.quiltmc.loader.api.MappingResolver;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
-
-import net.fabricmc.mapping.tree.ClassDef;
-import net.fabricmc.mapping.tree.Descriptored;
-import net.fabricmc.mapping.tree.TinyTree;
+import org.quiltmc.loader.impl.util.mappings.CompiledMappings;
 
 @QuiltLoaderInternal(QuiltLoaderInternalType.LEGACY_EXPOSED)
 class QuiltMappingResolver implements MappingResolver {
-	private final Supplier<TinyTree> mappingsSupplier;
-	private final Set<String> namespaces;
-	private final Map<String, NamespaceData> namespaceDataMap = new ConcurrentHashMap<>();
+	private final Supplier<CompiledMappings> mappingsSupplier;
+	private final Collection<String> namespaces;
 	private final String targetNamespace;
+	private final int targetIndex;
 
-	private static class NamespaceData {
-		private final Map<String, String> classNames = new HashMap<>();
-		private final Map<String, String> classNamesInverse = new HashMap<>();
-		private final Map<EntryTriple, String> fieldNames = new HashMap<>();
-		private final Map<EntryTriple, String> methodNames = new HashMap<>();
-	}
-
-	QuiltMappingResolver(Supplier<TinyTree> mappingsSupplier, String targetNamespace) {
+	QuiltMappingResolver(Supplier<CompiledMappings> mappingsSupplier, String targetNamespace) {
 		this.mappingsSupplier = mappingsSupplier;
 		this.targetNamespace = targetNamespace;
-		namespaces = Collections.unmodifiableSet(new HashSet<>(mappingsSupplier.get().getMetadata().getNamespaces()));
+		CompiledMappings mappings = mappingsSupplier.get();
+		namespaces = Collections.unmodifiableCollection(mappings.getNamespaces());
+		targetIndex = mappings.getNamespaceIndex(targetNamespace);
 	}
 
-	protected final NamespaceData getNamespaceData(String namespace) {
-		return namespaceDataMap.computeIfAbsent(namespace, (fromNamespace) -> {
-			if (!namespaces.contains(namespace)) {
-				throw new IllegalArgumentException("Unknown namespace: " + namespace + " (we know about " + namespaces + ")");
-			}
-
-			NamespaceData data = new NamespaceData();
-			TinyTree mappings = mappingsSupplier.get();
-			Map<String, String> classNameMap = new HashMap<>();
-
-			for (ClassDef classEntry : mappings.getClasses()) {
-				String fromClass = mapClassName(classNameMap, classEntry.getName(fromNamespace));
-				String toClass = mapClassName(classNameMap, classEntry.getName(targetNamespace));
-
-				data.classNames.put(fromClass, toClass);
-				data.classNamesInverse.put(toClass, fromClass);
-
-				String mappedClassName = mapClassName(classNameMap, fromClass);
-
-				recordMember(fromNamespace, classEntry.getFields(), data.fieldNames, mappedClassName);
-				recordMember(fromNamespace, classEntry.getMethods(), data.methodNames, mappedClassName);
-			}
-
-			return data;
-		});
+	/** @return The index of the given namespace in the mappings. */
+	protected final int getNamespaceIndex(String namespace) {
+		int index = mappingsSupplier.get().getNamespaceIndex(namespace);
+		if (index < 0) {
+			throw new IllegalArgumentException("Unknown namespace: " + namespace + " (we know about " + namespaces + ")");
+		}
+		return index;
 	}
 
 	private static String replaceSlashesWithDots(String cname) {
 		return cname.replace('/', '.');
 	}
 
-	private String mapClassName(Map<String, String> classNameMap, String s) {
-		return classNameMap.computeIfAbsent(s, QuiltMappingResolver::replaceSlashesWithDots);
-	}
-
-	private <T extends Descriptored> void recordMember(String fromNamespace, Collection<T> descriptoredList, Map<EntryTriple, String> putInto, String fromClass) {
-		for (T descriptored : descriptoredList) {
-			EntryTriple fromEntry = new EntryTriple(fromClass, descriptored.getName(fromNamespace), descriptored.getDescriptor(fromNamespace));
-			putInto.put(fromEntry, descriptored.getName(targetNamespace));
-		}
+	private static String replaceDotsWithSlashes(String cname) {
+		return cname.replace('.', '/');
 	}
 
 	@Override
@@ -115,7 +76,12 @@ class QuiltMappingResolver implements MappingResolver {
 			throw new IllegalArgumentException("Class names must be provided in dot format: " + className);
 		}
 
-		return getNamespaceData(namespace).classNames.getOrDefault(className, className);
+		int from = getNamespaceIndex(namespace);
+		if (targetIndex < 0) {
+			return className;
+		}
+		String mapped = mappingsSupplier.get().mapClassName(from, targetIndex, replaceDotsWithSlashes(className));
+		return mapped == null ? className : replaceSlashesWithDots(mapped);
 	}
 
 	@Override
@@ -124,7 +90,12 @@ class QuiltMappingResolver implements MappingResolver {
 			throw new IllegalArgumentException("Class names must be provided in dot format: " + className);
 		}
 
-		return getNamespaceData(namespace).classNamesInverse.getOrDefault(className, className);
+		int to = getNamespaceIndex(namespace);
+		if (targetIndex < 0) {
+			return className;
+		}
+		String unmapped = mappingsSupplier.get().mapClassName(targetIndex, to, replaceDotsWithSlashes(className));
+		return unmapped == null ? className : replaceSlashesWithDots(unmapped);
 	}
 
 	@Override
@@ -133,7 +104,13 @@ class QuiltMappingResolver implements MappingResolver {
 			throw new IllegalArgumentException("Class names must be provided in dot format: " + owner);
 		}
 
-		return getNamespaceData(namespace).fieldNames.getOrDefault(new EntryTriple(owner, name, descriptor), name);
+		int from = getNamespaceIndex(namespace);
+		if (targetIndex < 0) {
+			return name;
+		}
+		CompiledMappings mappings = mappingsSupplier.get();
+		String mapped = mappings.fields.map(from, targetIndex, replaceDotsWithSlashes(owner), name, descriptor);
+		return mapped == null ? name : mapped;
 	}
 
 	@Override
@@ -142,6 +119,12 @@ class QuiltMappingResolver implements MappingResolver {
 			throw new IllegalArgumentException("Class names must be provided in dot format: " + owner);
 		}
 
-		return getNamespaceData(namespace).methodNames.getOrDefault(new EntryTriple(owner, name, descriptor), name);
+		int from = getNamespaceIndex(namespace);
+		if (targetIndex < 0) {
+			return name;
+		}
+		CompiledMappings mappings = mappingsSupplier.get();
+		String mapped = mappings.methods.map(from, targetIndex, replaceDotsWithSlashes(owner), name, descriptor);
+		return mapped == null ? name : mapped;
 	}
 }
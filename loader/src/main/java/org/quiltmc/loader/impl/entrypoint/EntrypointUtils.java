@@ -27,6 +27,8 @@ import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
 import org.quiltmc.loader.impl.util.log.Log;
 import org.quiltmc.loader.impl.util.log.LogCategory;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline.Span;
 
 import java.util.Collection;
 import java.util.function.BiConsumer;
@@ -59,18 +61,28 @@ public final class EntrypointUtils {
 
 		Log.debug(LogCategory.ENTRYPOINT, "Iterating over entrypoint '%s'", name);
 
-		for (EntrypointContainer<T> container : entrypoints) {
-			try {
-				invoker.accept(container);
-			} catch (Throwable t) {
-				exception = ExceptionUtil.gatherExceptions(t,
-						exception,
-						exc -> new RuntimeException(String.format("Could not execute entrypoint stage '%s' due to errors, provided by '%s'!",
-								name, container.getProvider().metadata().id()),
-								exc));
+		Span span = StartupTimeline.begin("entrypoint:" + name);
+		try {
+			for (EntrypointContainer<T> container : entrypoints) {
+				Span modSpan = StartupTimeline.begin(container.getProvider().metadata().id());
+				try {
+					invoker.accept(container);
+				} catch (Throwable t) {
+					exception = ExceptionUtil.gatherExceptions(t,
+							exception,
+							exc -> new RuntimeException(String.format("Could not execute entrypoint stage '%s' due to errors, provided by '%s'!",
+									name, container.getProvider().metadata().id()),
+									exc));
+				} finally {
+					modSpan.close();
+				}
 			}
+		} finally {
+			span.close();
 		}
 
+		StartupTimeline.flush();
+
 		if (exception != null) {
 			throw exception;
 		}
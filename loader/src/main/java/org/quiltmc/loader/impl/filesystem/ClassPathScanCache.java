@@ -0,0 +1,191 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.filesystem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.api.FasterFiles;
+import org.quiltmc.loader.impl.util.HashUtil;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.log.Log;
+import org.quiltmc.loader.impl.util.log.LogCategory;
+
+/** Stores the list of files found when {@link QuiltClassPath} scans a zip root, so the next launch can add every file
+ * straight away instead of walking the zip again.
+ * <p>
+ * Each zip is identified by the absolute path, size, and last modified time of the zip file, along with the root inside
+ * of it. Zips which aren't stored in the default filesystem are never cached. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class ClassPathScanCache {
+
+	/** Changed whenever the scanner might find a different set of files in the same zip. */
+	private static final String HEADER = "quilt-loader class path scan v1";
+
+	/** The most zips that are kept in the cache folder. */
+	private static final int MAX_ENTRIES = 256;
+
+	private final Path folder;
+
+	ClassPathScanCache(Path folder) {
+		this.folder = folder;
+	}
+
+	/** @return The key for the given zip root, or null if it can't be cached. */
+	@Nullable
+	static String computeKey(Path zipRoot) {
+		URI uri = zipRoot.toUri();
+		String spec = uri.getRawSchemeSpecificPart();
+		int separator = spec.indexOf("!/");
+		if (separator < 0) {
+			return null;
+		}
+
+		Path zipFile;
+		BasicFileAttributes attributes;
+		try {
+			URI fileUri = new URI(spec.substring(0, separator));
+			if (!"file".equals(fileUri.getScheme())) {
+				return null;
+			}
+			zipFile = Paths.get(fileUri).toAbsolutePath();
+			attributes = Files.readAttributes(zipFile, BasicFileAttributes.class);
+		} catch (URISyntaxException | IllegalArgumentException | IOException e) {
+			return null;
+		}
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("This JVM doesn't support SHA-1???");
+		}
+
+		String description = HEADER + "\n" + zipFile + "\n" + attributes.size() + "\n"
+			+ attributes.lastModifiedTime().toMillis() + "\n" + zipRoot;
+		digest.update(description.getBytes(StandardCharsets.UTF_8));
+		return HashUtil.hashToString(digest.digest());
+	}
+
+	/** @return The files stored for the given key, in the order they were scanned, or null if they aren't stored. */
+	@Nullable
+	List<String> get(String key) {
+		Path path = getPath(key);
+		if (!FasterFiles.isRegularFile(path)) {
+			return null;
+		}
+
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to read the class path scan " + path, e);
+			return null;
+		}
+
+		if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+			return null;
+		}
+
+		try {
+			// Used to decide which zips to remove when the cache gets too large
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Not important
+		}
+
+		return lines.subList(1, lines.size());
+	}
+
+	void put(String key, List<String> files) {
+		for (String file : files) {
+			if (file.indexOf('\n') >= 0 || file.indexOf('\r') >= 0) {
+				return;
+			}
+		}
+
+		Path path = getPath(key);
+		try {
+			FasterFiles.createDirectories(folder);
+			Path temp = Files.createTempFile(folder, key, ".tmp");
+			try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				writer.write(HEADER);
+				for (String file : files) {
+					writer.write('\n');
+					writer.write(file);
+				}
+				writer.write('\n');
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to write the class path scan " + path, e);
+			return;
+		}
+
+		removeOldEntries();
+	}
+
+	private synchronized void removeOldEntries() {
+		List<Path> entries = new ArrayList<>();
+		Map<Path, FileTime> times = new HashMap<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.txt")) {
+			for (Path entry : stream) {
+				entries.add(entry);
+				times.put(entry, Files.getLastModifiedTime(entry));
+			}
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to list the class path scans in " + folder, e);
+			return;
+		}
+
+		if (entries.size() <= MAX_ENTRIES) {
+			return;
+		}
+
+		entries.sort((a, b) -> times.get(b).compareTo(times.get(a)));
+		for (Path entry : entries.subList(MAX_ENTRIES, entries.size())) {
+			try {
+				Files.deleteIfExists(entry);
+			} catch (IOException e) {
+				Log.warn(LogCategory.CACHE, "Failed to delete the old class path scan " + entry, e);
+			}
+		}
+	}
+
+	private Path getPath(String key) {
+		return folder.resolve(key + ".txt");
+	}
+}
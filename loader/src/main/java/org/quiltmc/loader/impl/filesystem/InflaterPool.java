@@ -0,0 +1,81 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.filesystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+/** A small pool of "nowrap" {@link Inflater}s, since every inflater holds native zlib memory which (unless
+ * {@link Inflater#end()} is called) is only released when the inflater is finalized. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class InflaterPool {
+
+	private static final int MAX_POOLED = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+	private static final Queue<Inflater> POOL = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger POOLED = new AtomicInteger();
+
+	private InflaterPool() {}
+
+	static Inflater acquire() {
+		Inflater inflater = POOL.poll();
+		if (inflater == null) {
+			return new Inflater(true);
+		}
+		POOLED.decrementAndGet();
+		return inflater;
+	}
+
+	/** Returns the given inflater to the pool. It must not be used afterwards. */
+	static void release(Inflater inflater) {
+		inflater.reset();
+		if (POOLED.incrementAndGet() <= MAX_POOLED) {
+			POOL.offer(inflater);
+		} else {
+			POOLED.decrementAndGet();
+			inflater.end();
+		}
+	}
+
+	/** An {@link InflaterInputStream} which returns its inflater to the pool when it's closed. */
+	static final class PooledInflaterInputStream extends InflaterInputStream {
+		private boolean released = false;
+
+		PooledInflaterInputStream(InputStream in) {
+			super(in, acquire());
+		}
+
+		@Override
+		public void close() throws IOException {
+			// InflaterInputStream refuses to read once it's closed, so the inflater can't be used after this
+			super.close();
+			if (!released) {
+				released = true;
+				release(inf);
+			}
+		}
+	}
+}
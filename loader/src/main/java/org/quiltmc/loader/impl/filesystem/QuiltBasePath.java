@@ -276,6 +276,50 @@ public abstract class QuiltBasePath<FS extends QuiltBaseFileSystem<FS, P>, P ext
 		return result;
 	}
 
+	/** Faster alternative to {@link #toString()}.equals, which checks this path against part of a string that doesn't
+	 * contain the leading "/" without allocating anything.
+	 * 
+	 * @return this.toString().equals("/" + other.substring(start)) */
+	public boolean isAbsoluteToStringEqual(String other, int start) {
+		boolean result = quickIsAbsoluteToStringEqual(other, start);
+		if (VALIDATE) {
+			boolean should = toString().equals("/" + other.substring(start));
+			if (should != result) {
+				throw new AssertionError(should + " != " + result);
+			}
+		}
+		return result;
+	}
+
+	private boolean quickIsAbsoluteToStringEqual(String other, int start) {
+		int end = other.length();
+		QuiltBasePath<?, ?> path = this;
+		while (!path.isRoot()) {
+			String n = path.name;
+			int from = end - n.length();
+			if (from < start || !other.regionMatches(from, n, 0, n.length())) {
+				return false;
+			}
+			end = from;
+
+			QuiltBasePath<?, ?> p = path.parent;
+			if (p == null) {
+				// Relative paths never equal an absolute string
+				return false;
+			}
+
+			// The root is already "/", so there's no separator between it and the first name
+			if (!p.isRoot()) {
+				end--;
+				if (end < start || other.charAt(end) != '/') {
+					return false;
+				}
+			}
+			path = p;
+		}
+		return end == start;
+	}
+
 	private boolean quickIsToStringEqual(Path other) {
 		QuiltBasePath<?, ?> o = (QuiltBasePath<?, ?>) other;
 		if (parent == null || o.parent == null) {
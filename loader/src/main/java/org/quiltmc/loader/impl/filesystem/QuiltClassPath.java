@@ -43,13 +43,17 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.jetbrains.annotations.Nullable;
 import org.quiltmc.loader.api.FasterFiles;
 import org.quiltmc.loader.api.QuiltLoader;
+import org.quiltmc.loader.impl.filesystem.QuiltUnifiedEntry.QuiltUnifiedFile;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
 import org.quiltmc.loader.impl.util.SystemProperties;
 import org.quiltmc.loader.impl.util.log.Log;
 import org.quiltmc.loader.impl.util.log.LogCategory;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline.Span;
 
 /** Essentially a {@link QuiltJoinedFileSystem} but which caches all paths in advance. Not exposed as a filesystem since
  * this is a bit more dynamic than that. */
@@ -68,13 +72,95 @@ public class QuiltClassPath {
 	 * by int hash) */
 	private static final boolean USE_CUSTOM_TABLE = !Boolean.getBoolean(SystemProperties.DISABLE_QUILT_CLASS_PATH_CUSTOM_TABLE);
 
+	private static final boolean DISABLE_SCAN_CACHE = Boolean.getBoolean(SystemProperties.DISABLE_QUILT_CLASS_PATH_SCAN_CACHE);
+
+	@Nullable
+	private static volatile ClassPathScanCache scanCache;
+
 	private final List<Path> allRoots = VALIDATE ? new CopyOnWriteArrayList<>() : null;
 	private final AtomicReference<Path[]> roots = new AtomicReference<>(new Path[0]);
-	private final FileMap files = USE_CUSTOM_TABLE ? new HashTableFileMap() : new StandardFileMap();
+	private volatile FileMap files = USE_CUSTOM_TABLE ? new HashTableFileMap() : new StandardFileMap();
+
+	/** Set by {@link #freeze()}, since the file map can't be frozen until every zip has finished scanning. */
+	private volatile boolean freezeRequested = false;
+	private final AtomicInteger pendingScans = new AtomicInteger();
+
+	/** Every root which was added with a source, keyed by the filesystem that the files inside the root belong to.
+	 * Most filesystems only contain a single root, so this is usually a single lookup. */
+	private final Map<FileSystem, RootSource[]> sources = new ConcurrentHashMap<>();
 
 	/** Set if {@link #VALIDATE} finds a problem. */
 	private static boolean printFullDetail = false;
 
+	/** Sets the folder which stores the files found by scanning zip roots, so later launches don't need to scan them
+	 * again. Passing null disables the cache. */
+	public static void setScanCacheFolder(@Nullable Path folder) {
+		scanCache = folder == null || DISABLE_SCAN_CACHE ? null : new ClassPathScanCache(folder);
+	}
+
+	/** Adds the given root, and associates every file inside of it with the given source object. The source can be
+	 * retrieved from any path returned by {@link #findResource(String)} with {@link #getSource(Path)}, which is much
+	 * cheaper than working out which root a file came from by looking at its path or url. */
+	public void addRoot(Path root, @Nullable Object source) {
+		if (source != null) {
+			addSource(root, source);
+		}
+		addRoot(root);
+	}
+
+	private void addSource(Path root, Object source) {
+		if (root instanceof QuiltJoinedPath) {
+			for (Path from : ((QuiltJoinedPath) root).fs.from) {
+				addSource(from, source);
+			}
+			return;
+		}
+
+		RootSource[] added = { new RootSource(root, source) };
+		sources.merge(root.getFileSystem(), added, (a, b) -> {
+			RootSource[] array = Arrays.copyOf(a, a.length + 1);
+			array[a.length] = b[0];
+			return array;
+		});
+	}
+
+	/** @return The source passed to {@link #addRoot(Path, Object)} for the root which contains the given file, or null
+	 *         if the root was added without a source. */
+	@Nullable
+	public Object getSource(Path file) {
+		RootSource[] array = sources.get(file.getFileSystem());
+		if (array == null) {
+			return null;
+		}
+
+		if (array.length == 1 && array[0].isFileSystemRoot) {
+			return array[0].source;
+		}
+
+		// Multiple roots share this filesystem, so pick the deepest root which contains the file
+		Path absolute = file.isAbsolute() ? file : file.toAbsolutePath();
+		RootSource best = null;
+		for (RootSource root : array) {
+			if (absolute.startsWith(root.root) && (best == null || root.depth > best.depth)) {
+				best = root;
+			}
+		}
+		return best == null ? null : best.source;
+	}
+
+	/** Reads every byte of the given file. Files in quilt's own filesystems are read in a single step into an array of
+	 * the right size, without going through a growing buffer. */
+	public static byte[] readAllBytes(Path file) throws IOException {
+		if (file instanceof QuiltMapPath<?, ?>) {
+			QuiltMapPath<?, ?> path = (QuiltMapPath<?, ?>) file;
+			QuiltUnifiedEntry entry = path.fs.getEntry(path);
+			if (entry instanceof QuiltUnifiedFile) {
+				return ((QuiltUnifiedFile) entry).readAllBytes();
+			}
+		}
+		return Files.readAllBytes(file);
+	}
+
 	public void addRoot(Path root) {
 		if (VALIDATE) {
 			allRoots.add(root);
@@ -116,9 +202,15 @@ public class QuiltClassPath {
 			FileSystem fs = root.getFileSystem();
 
 			if ("jar".equals(fs.provider().getScheme())) {
+				ClassPathScanCache cache = scanCache;
+				String cacheKey = cache == null ? null : ClassPathScanCache.computeKey(root);
+				if (cacheKey != null && addScannedFiles(root, cache.get(cacheKey))) {
+					return;
+				}
+
 				// Assume it's read-only for speed
 				addRootToInternalArray(root);
-				beginScanning(root);
+				beginScanning(root, cache, cacheKey);
 				return;
 			}
 
@@ -142,9 +234,62 @@ public class QuiltClassPath {
 		files.put(file);
 	}
 
-	private void beginScanning(Path zipRoot) {
+	/** Adds every file that a previous launch found when scanning the given zip root.
+	 * 
+	 * @return True if the files were added, or false if the zip needs to be scanned instead. */
+	private boolean addScannedFiles(Path zipRoot, @Nullable List<String> scanned) {
+		if (scanned == null) {
+			return false;
+		}
+
+		long start = System.nanoTime();
+		FileSystem fs = zipRoot.getFileSystem();
+		files.ensureCapacityFor(scanned.size());
+		for (String file : scanned) {
+			putQuickFile(file, fs.getPath(file));
+		}
+		long end = System.nanoTime();
+		Log.debug(LogCategory.GENERAL, "Took " + (end - start) / 1000 + "us to add " + scanned.size() + " cached files from " + fs + " " + zipRoot);
+		return true;
+	}
+
+	/** Converts every file added so far into a {@link FrozenFileMap}, which is faster to search and uses less memory
+	 * than the map used while roots are being added. Roots can still be added afterwards, but they will be stored in a
+	 * (slower) secondary map. If any zips are still being scanned then this happens once they have all finished. */
+	public void freeze() {
+		freezeRequested = true;
+		tryFreeze();
+	}
+
+	private void tryFreeze() {
+		if (!freezeRequested || pendingScans.get() > 0) {
+			return;
+		}
+
+		FileMap current = files;
+		if (!(current instanceof HashTableFileMap)) {
+			// Either already frozen, or the custom table is disabled
+			return;
+		}
+
+		HashTableFileMap table = (HashTableFileMap) current;
+		synchronized (table) {
+			if (files != table) {
+				return;
+			}
+			long start = System.nanoTime();
+			FrozenFileMap frozen = new FrozenFileMap(table);
+			table.replacedBy = frozen;
+			files = frozen;
+			long end = System.nanoTime();
+			Log.debug(LogCategory.GENERAL, "Froze the class path index of " + frozen.size() + " files in " + (end - start) / 1000 + "us");
+		}
+	}
+
+	private void beginScanning(Path zipRoot, @Nullable ClassPathScanCache cache, @Nullable String cacheKey) {
+		pendingScans.incrementAndGet();
 		synchronized (QuiltClassPath.class) {
-			SCAN_TASKS.add(() -> scanZip(zipRoot));
+			SCAN_TASKS.add(() -> scanZip(zipRoot, cache, cacheKey));
 			int scannerCount = ACTIVE_SCANNERS.size();
 			if (scannerCount < 4 && scannerCount < SCAN_TASKS.size()) {
 				Thread scanner = new Thread("QuiltClassPath ZipScanner#" + ZIP_SCANNER_COUNT.incrementAndGet()) {
@@ -170,9 +315,9 @@ public class QuiltClassPath {
 		}
 	}
 
-	private void scanZip(Path zipRoot) {
-		try {
-			long start = System.nanoTime();
+	private void scanZip(Path zipRoot, @Nullable ClassPathScanCache cache, @Nullable String cacheKey) {
+		try (Span span = StartupTimeline.begin("scan_zip", zipRoot.getFileSystem() + " " + zipRoot)) {
+			List<String> scanned = new ArrayList<>();
 			Files.walkFileTree(zipRoot, new SimpleFileVisitor<Path>() {
 
 				// A previous version of this code used Path.relativize to construct the output paths
@@ -202,6 +347,7 @@ public class QuiltClassPath {
 						stack.addLast("/");
 					}
 					foldersRead++;
+					scanned.add(dir.toString());
 					putQuickFile(dir.toString(), dir);
 					return FileVisitResult.CONTINUE;
 				}
@@ -225,6 +371,7 @@ public class QuiltClassPath {
 					}
 					filesRead++;
 					relativeString.append(file.getFileName().toString());
+					scanned.add(file.toString());
 					putQuickFile(relativeString.toString(), file);
 					return FileVisitResult.CONTINUE;
 				}
@@ -240,10 +387,16 @@ public class QuiltClassPath {
 				}
 				return array2;
 			});
-			long end = System.nanoTime();
-			Log.info(LogCategory.GENERAL, "Took " + (end - start) / 1000 + "us to scan " + zipRoot.getFileSystem() + " " + zipRoot);
+			span.set("files", scanned.size());
+			Log.debug(LogCategory.GENERAL, "Scanned " + scanned.size() + " files from " + zipRoot.getFileSystem() + " " + zipRoot);
+			if (cache != null && cacheKey != null) {
+				cache.put(cacheKey, scanned);
+			}
 		} catch (IOException e) {
 			Log.warn(LogCategory.GENERAL, "Failed to scan " + zipRoot + "!", e);
+		} finally {
+			pendingScans.decrementAndGet();
+			tryFreeze();
 		}
 	}
 
@@ -287,10 +440,6 @@ public class QuiltClassPath {
 	}
 
 	private Path quickFindResource(String path) {
-		String absolutePath = path;
-		if (!path.startsWith("/")) {
-			absolutePath = "/" + path;
-		}
 		if (printFullDetail) {
 			Log.warn(LogCategory.GENERAL, "quickFindResource(" + path + ")");
 		}
@@ -307,23 +456,13 @@ public class QuiltClassPath {
 		// Grabbing a copy of the roots array before we check in files ensures we never miss a path
 		// This fix is also applied to quickGetResources
 		Path[] fullArray = roots.get();
-		Path quick = files.get(absolutePath);
+		Path quick = files.find(path);
 
 		if (printFullDetail) {
-			Log.warn(LogCategory.GENERAL, "- files.get(" + absolutePath + ") -> " + describePath(quick));
-		}
-
-		if (quick instanceof HashCollisionPath) {
-			quick = ((HashCollisionPath) quick).get(absolutePath);
-			if (printFullDetail) {
-				Log.warn(LogCategory.GENERAL, "- after hash collision -> " + describePath(quick));
-			}
+			Log.warn(LogCategory.GENERAL, "- files.find(" + path + ") -> " + describePath(quick));
 		}
 
 		if (quick != null) {
-			if (quick instanceof OverlappingPath) {
-				return ((OverlappingPath) quick).getFirst();
-			}
 			return quick;
 		}
 
@@ -375,28 +514,11 @@ public class QuiltClassPath {
 	}
 
 	private List<Path> quickGetResources(String path) {
-		String absolutePath = path;
-		if (!path.startsWith("/")) {
-			absolutePath = "/" + path;
-		}
-
 		// Thread race condition fix
 		// see "quickFindResource" for details
 		Path[] rootsArray = roots.get();
-		Path quick = files.get(absolutePath);
-
-		if (quick instanceof HashCollisionPath) {
-			quick = ((HashCollisionPath) quick).get(absolutePath);
-		}
-
 		List<Path> paths = new ArrayList<>();
-		if (quick != null) {
-			if (quick instanceof OverlappingPath) {
-				Collections.addAll(paths, ((OverlappingPath) quick).paths);
-			} else {
-				paths.add(quick);
-			}
-		}
+		files.findAll(path, paths);
 
 		getResourcesIn(rootsArray, path, paths);
 		return Collections.unmodifiableList(paths);
@@ -481,6 +603,27 @@ public class QuiltClassPath {
 
 	@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
 	static abstract class FileMap {
+
+		/** @param path The path of the file, which may or may not start with "/".
+		 * @return The first file added with the given path, or null if none were added. */
+		Path find(String path) {
+			Path quick = get(path.startsWith("/") ? path : "/" + path);
+			if (quick instanceof OverlappingPath) {
+				return ((OverlappingPath) quick).getFirst();
+			}
+			return quick;
+		}
+
+		/** Adds every file with the given path to the list, in the order they were added to this map. */
+		void findAll(String path, List<Path> dst) {
+			Path quick = get(path.startsWith("/") ? path : "/" + path);
+			if (quick instanceof OverlappingPath) {
+				Collections.addAll(dst, ((OverlappingPath) quick).paths);
+			} else if (quick != null) {
+				dst.add(quick);
+			}
+		}
+
 		final Path get(String key) {
 			Path result = get0(key);
 
@@ -578,6 +721,9 @@ public class QuiltClassPath {
 		Path[] table = new Path[128];
 		int entryCount;
 
+		/** Set when this map is frozen, at which point every new path is forwarded to the frozen map instead. */
+		FrozenFileMap replacedBy;
+
 		public HashTableFileMap() {}
 
 		@Override
@@ -596,6 +742,10 @@ public class QuiltClassPath {
 
 		@Override
 		synchronized void ensureCapacityFor(int newPathCount) {
+			if (replacedBy != null) {
+				replacedBy.ensureCapacityFor(newPathCount);
+				return;
+			}
 			int result = entryCount + newPathCount;
 			int newSize = table.length;
 			while (newSize * FILL_PERCENT <= result) {
@@ -608,6 +758,10 @@ public class QuiltClassPath {
 
 		@Override
 		synchronized void put(Path newPath) {
+			if (replacedBy != null) {
+				replacedBy.put(newPath);
+				return;
+			}
 			entryCount++;
 			if (table.length * FILL_PERCENT < entryCount) {
 				rehash(table.length * 2);
@@ -616,7 +770,7 @@ public class QuiltClassPath {
 			table[index] = computeNewPath(table[index], newPath);
 		}
 
-		private static int hashCode(Path path) {
+		static int hashCode(Path path) {
 			if (path instanceof QuiltBasePath) {
 				return ((QuiltBasePath<?, ?>) path).toStringHashCode();
 			}
@@ -656,6 +810,155 @@ public class QuiltClassPath {
 		}
 	}
 
+	/** An immutable copy of a {@link HashTableFileMap}, which doesn't need any locks or allocations to search. Every file
+	 * is sorted by the bucket its hash falls into, so the only extra memory used is a single int for each bucket and
+	 * for each file, rather than a sparse table and {@link HashCollisionPath} objects. */
+	@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+	static final class FrozenFileMap extends FileMap {
+
+		/** Files which are added after freezing. */
+		final HashTableFileMap added = new HashTableFileMap();
+
+		/** The files in bucket N are from bucketStarts[N] (inclusive) to bucketStarts[N + 1] (exclusive). */
+		private final int[] bucketStarts;
+		/** {@link #values}[N].toString().hashCode() */
+		private final int[] hashes;
+		/** Either a normal path, or an {@link OverlappingPath} if multiple files were added with the same path. */
+		private final Path[] values;
+
+		/** Must be called while holding the lock on the given map. */
+		FrozenFileMap(HashTableFileMap from) {
+			List<Path> all = new ArrayList<>(from.entryCount);
+			for (Path sub : from.table) {
+				if (sub instanceof HashCollisionPath) {
+					Collections.addAll(all, ((HashCollisionPath) sub).values);
+				} else if (sub != null) {
+					all.add(sub);
+				}
+			}
+
+			int count = all.size();
+			int bucketCount = Math.max(1, Integer.highestOneBit(count));
+			int[] fileHashes = new int[count];
+			int[] starts = new int[bucketCount + 1];
+			for (int i = 0; i < count; i++) {
+				Path value = all.get(i);
+				if (value instanceof OverlappingPath) {
+					value = ((OverlappingPath) value).paths[0];
+				}
+				fileHashes[i] = HashTableFileMap.hashCode(value);
+				starts[bucketOf(fileHashes[i], bucketCount) + 1]++;
+			}
+
+			for (int i = 0; i < bucketCount; i++) {
+				starts[i + 1] += starts[i];
+			}
+
+			int[] next = Arrays.copyOf(starts, bucketCount);
+			hashes = new int[count];
+			values = new Path[count];
+			for (int i = 0; i < count; i++) {
+				int index = next[bucketOf(fileHashes[i], bucketCount)]++;
+				hashes[index] = fileHashes[i];
+				values[index] = all.get(i);
+			}
+			bucketStarts = starts;
+		}
+
+		private static int bucketOf(int hash, int bucketCount) {
+			return (hash ^ (hash >>> 16)) & (bucketCount - 1);
+		}
+
+		int size() {
+			return values.length;
+		}
+
+		@Override
+		Path find(String path) {
+			int index = indexOf(path);
+			if (index >= 0) {
+				Path value = values[index];
+				if (value instanceof OverlappingPath) {
+					return ((OverlappingPath) value).getFirst();
+				}
+				return value;
+			}
+			return added.entryCount == 0 ? null : added.find(path);
+		}
+
+		@Override
+		void findAll(String path, List<Path> dst) {
+			int index = indexOf(path);
+			if (index >= 0) {
+				Path value = values[index];
+				if (value instanceof OverlappingPath) {
+					Collections.addAll(dst, ((OverlappingPath) value).paths);
+				} else {
+					dst.add(value);
+				}
+			}
+			if (added.entryCount != 0) {
+				added.findAll(path, dst);
+			}
+		}
+
+		private int indexOf(String path) {
+			int start = path.startsWith("/") ? 1 : 0;
+			int hash = start == 1 ? path.hashCode() : absoluteHashCode(path);
+			int bucket = bucketOf(hash, bucketStarts.length - 1);
+			int end = bucketStarts[bucket + 1];
+			for (int i = bucketStarts[bucket]; i < end; i++) {
+				if (hashes[i] == hash && isAbsoluteEqual(path, start, values[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/** @return ("/" + path).hashCode() */
+		private static int absoluteHashCode(String path) {
+			int power = 1;
+			int base = 31;
+			for (int exponent = path.length(); exponent != 0; exponent >>>= 1) {
+				if ((exponent & 1) != 0) {
+					power *= base;
+				}
+				base *= base;
+			}
+			return '/' * power + path.hashCode();
+		}
+
+		/** @return value.toString().equals("/" + path.substring(start)) */
+		private static boolean isAbsoluteEqual(String path, int start, Path value) {
+			if (value instanceof OverlappingPath) {
+				value = ((OverlappingPath) value).paths[0];
+			}
+			if (value instanceof QuiltBasePath) {
+				return ((QuiltBasePath<?, ?>) value).isAbsoluteToStringEqual(path, start);
+			}
+			String str = value.toString();
+			int length = path.length() - start;
+			return str.length() == length + 1 && str.charAt(0) == '/' && str.regionMatches(1, path, start, length);
+		}
+
+		/** Only used for files added after freezing, since {@link #find(String)} and
+		 * {@link #findAll(String, List)} search the frozen files directly. */
+		@Override
+		Path get0(String key) {
+			return added.get0(key);
+		}
+
+		@Override
+		void ensureCapacityFor(int newPathCount) {
+			added.ensureCapacityFor(newPathCount);
+		}
+
+		@Override
+		void put(Path newPath) {
+			added.put(newPath);
+		}
+	}
+
 	/** Used so we don't need to store a full {@link String} for every file we track. */
 	@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
 	private static final class HashCollisionPath extends NullPath {
@@ -784,4 +1087,18 @@ public class QuiltClassPath {
 			return paths[0];
 		}
 	}
+
+	static final class RootSource {
+		final Path root;
+		final Object source;
+		final boolean isFileSystemRoot;
+		final int depth;
+
+		RootSource(Path root, Object source) {
+			this.root = root.toAbsolutePath().normalize();
+			this.source = source;
+			this.isFileSystemRoot = this.root.getParent() == null;
+			this.depth = this.root.getNameCount();
+		}
+	}
 }
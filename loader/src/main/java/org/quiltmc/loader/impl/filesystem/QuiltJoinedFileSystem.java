@@ -30,6 +30,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jetbrains.annotations.Nullable;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
@@ -47,6 +48,12 @@ public class QuiltJoinedFileSystem extends QuiltBaseFileSystem<QuiltJoinedFileSy
 	final boolean allCached;
 	boolean isOpen = true;
 
+	/** Maps every path which has been found to the index of the first backing path which contains it. Only used if every
+	 * backing path is permanently read only, since otherwise the result could change. Missing paths aren't stored, since
+	 * any number of them can be looked up, which would let the map grow without limit. */
+	@Nullable
+	private final Map<QuiltJoinedPath, Integer> winningIndices;
+
 	public QuiltJoinedFileSystem(String name, List<Path> from) {
 		this(name, from, null);
 	}
@@ -67,6 +74,7 @@ public class QuiltJoinedFileSystem extends QuiltBaseFileSystem<QuiltJoinedFileSy
 			}
 		}
 		this.allCached = allCached;
+		this.winningIndices = isPermanentlyReadOnly() ? new ConcurrentHashMap<>() : null;
 		QuiltJoinedFileSystemProvider.register(this);
 	}
 
@@ -124,14 +132,45 @@ public class QuiltJoinedFileSystem extends QuiltBaseFileSystem<QuiltJoinedFileSy
 
 	@Override
 	public boolean exists(Path path, LinkOption... options) {
-		QuiltJoinedPath qjp = (QuiltJoinedPath) path;
+		QuiltJoinedPath key = ((QuiltJoinedPath) path).toAbsolutePath().normalize();
+		if (options.length > 0) {
+			// The cached indices only apply to the default options
+			return findWinningIndex(key, options) >= 0;
+		}
+		return getWinningIndex(key) >= 0;
+	}
+
+	/** @return The backing path of the first backing filesystem which contains the given path, or null if none of them
+	 *         contain it. */
+	@Nullable
+	public Path getWinningPath(QuiltJoinedPath path) {
+		QuiltJoinedPath key = path.toAbsolutePath().normalize();
+		int index = getWinningIndex(key);
+		return index < 0 ? null : getBackingPath(index, key);
+	}
+
+	/** @param key An absolute, normalized path. */
+	private int getWinningIndex(QuiltJoinedPath key) {
+		if (winningIndices == null) {
+			return findWinningIndex(key);
+		}
+		Integer index = winningIndices.get(key);
+		if (index == null) {
+			index = findWinningIndex(key);
+			if (index >= 0) {
+				winningIndices.put(key, index);
+			}
+		}
+		return index;
+	}
+
+	private int findWinningIndex(QuiltJoinedPath path, LinkOption... options) {
 		for (int i = 0; i < from.length; i++) {
-			Path backingPath = getBackingPath(i, qjp);
-			if (FasterFiles.exists(backingPath, options)) {
-				return true;
+			if (FasterFiles.exists(getBackingPath(i, path), options)) {
+				return i;
 			}
 		}
-		return false;
+		return -1;
 	}
 
 	@Override
@@ -18,7 +18,6 @@
 
 package org.quiltmc.loader.impl.filesystem;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
@@ -167,21 +166,7 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 			throw new IllegalArgumentException("The given path is not a QuiltJoinedPath!");
 		}
 
-		QuiltJoinedPath p = (QuiltJoinedPath) path;
-
-		int count = p.fs.getBackingPathCount();
-		for (int i = 0; i < count; i++) {
-			Path real = p.fs.getBackingPath(i, p);
-			try {
-				return Files.newInputStream(real, options);
-			} catch (NoSuchFileException e) {
-				if (i == count - 1) {
-					throw e;
-				}
-			}
-		}
-
-		throw new NoSuchFileException(path.toString());
+		return Files.newInputStream(getWinningPath(path), options);
 	}
 
 	@Override
@@ -198,21 +183,7 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 			throw new IllegalArgumentException("The given path is not a QuiltJoinedPath!");
 		}
 
-		QuiltJoinedPath p = (QuiltJoinedPath) path;
-
-		int count = p.fs.getBackingPathCount();
-		for (int i = 0; i < count; i++) {
-			Path real = p.fs.getBackingPath(i, p);
-			try {
-				return Files.newByteChannel(real, options, attrs);
-			} catch (NoSuchFileException e) {
-				if (i == count - 1) {
-					throw e;
-				}
-			}
-		}
-
-		throw new NoSuchFileException(path.toString());
+		return Files.newByteChannel(getWinningPath(path), options, attrs);
 	}
 
 	@Override
@@ -362,6 +333,17 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 		};
 	}
 
+	/** @return The backing path which the given path is read from.
+	 * @throws NoSuchFileException if none of the backing paths contain the given path. */
+	private static Path getWinningPath(Path path) throws NoSuchFileException {
+		QuiltJoinedPath quiltPath = toAbsQuiltPath(path);
+		Path real = quiltPath.fs.getWinningPath(quiltPath);
+		if (real == null) {
+			throw new NoSuchFileException(quiltPath.toString());
+		}
+		return real;
+	}
+
 	private static QuiltJoinedPath toAbsQuiltPath(Path path) {
 		Path p = path.toAbsolutePath().normalize();
 		if (p instanceof QuiltJoinedPath) {
@@ -421,23 +403,18 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 				throw new IOException("Cannot create new files or directories!");
 			}
 		}
-		QuiltJoinedPath quiltPath = toAbsQuiltPath(path);
-		for (int i = 0; i < quiltPath.fs.getBackingPathCount(); i++) {
-			Path real = quiltPath.fs.getBackingPath(i, quiltPath);
-			try {
-				real.getFileSystem().provider().checkAccess(real, modes);
-				return;
-			} catch (NoSuchFileException | FileNotFoundException e) {
-				// Ignored
-			}
-		}
-		throw new NoSuchFileException(quiltPath.toString());
+		Path real = getWinningPath(path);
+		real.getFileSystem().provider().checkAccess(real, modes);
 	}
 
 	@Override
 	public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
 
 		QuiltJoinedPath quiltPath = toAbsQuiltPath(path);
+		Path winning = quiltPath.fs.getWinningPath(quiltPath);
+		if (winning != null) {
+			return Files.getFileAttributeView(winning, type, options);
+		}
 		for (int i = 0; i < quiltPath.fs.getBackingPathCount(); i++) {
 			Path real = quiltPath.fs.getBackingPath(i, quiltPath);
 			V view = Files.getFileAttributeView(real, type, options);
@@ -452,32 +429,12 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 	public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options)
 		throws IOException {
 
-		QuiltJoinedPath quiltPath = toAbsQuiltPath(path);
-		for (int i = 0; i < quiltPath.fs.getBackingPathCount(); i++) {
-			Path real = quiltPath.fs.getBackingPath(i, quiltPath);
-			try {
-				return Files.readAttributes(real, type, options);
-			} catch (NoSuchFileException | FileNotFoundException e) {
-				// Ignored
-			}
-		}
-
-		throw new NoSuchFileException(quiltPath.toString());
+		return Files.readAttributes(getWinningPath(path), type, options);
 	}
 
 	@Override
 	public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
-		QuiltJoinedPath quiltPath = toAbsQuiltPath(path);
-		for (int i = 0; i < quiltPath.fs.getBackingPathCount(); i++) {
-			Path real = quiltPath.fs.getBackingPath(i, quiltPath);
-			try {
-				return Files.readAttributes(real, attributes, options);
-			} catch (NoSuchFileException | FileNotFoundException e) {
-				// Ignored
-			}
-		}
-
-		throw new NoSuchFileException(quiltPath.toString());
+		return Files.readAttributes(getWinningPath(path), attributes, options);
 	}
 
 	@Override
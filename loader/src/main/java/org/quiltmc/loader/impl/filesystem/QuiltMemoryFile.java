@@ -105,6 +105,14 @@ abstract class QuiltMemoryFile extends QuiltUnifiedFile {
 			return new QuiltFileAttributes(path, uncompressedSize);
 		}
 
+		@Override
+		byte[] readAllBytes() throws IOException {
+			if (!isCompressed) {
+				return Arrays.copyOfRange(byteArray(), bytesOffset(), bytesOffset() + bytesLength());
+			}
+			return super.readAllBytes();
+		}
+
 		@Override
 		InputStream createInputStream() throws IOException {
 			InputStream direct = new ByteArrayInputStream(byteArray(), bytesOffset(), bytesLength());
@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.quiltmc.loader.impl.util.FileUtil;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
 
@@ -134,6 +135,40 @@ public abstract /* sealed */ class QuiltUnifiedEntry /* permits QuiltUnifiedFold
 
 		abstract InputStream createInputStream() throws IOException;
 
+		/** Reads the whole file into an array sized from this file's attributes, rather than growing a buffer while
+		 * reading. */
+		byte[] readAllBytes() throws IOException {
+			long size = createAttributes().size();
+			try (InputStream stream = createInputStream()) {
+				if (size < 0 || size > Integer.MAX_VALUE - 8) {
+					return FileUtil.readAllBytes(stream);
+				}
+
+				byte[] bytes = new byte[(int) size];
+				int total = 0;
+				while (total < bytes.length) {
+					int read = stream.read(bytes, total, bytes.length - total);
+					if (read < 0) {
+						// The file shrunk since the attributes were read
+						return Arrays.copyOf(bytes, total);
+					}
+					total += read;
+				}
+
+				int next = stream.read();
+				if (next < 0) {
+					return bytes;
+				}
+
+				// The file grew since the attributes were read
+				byte[] rest = FileUtil.readAllBytes(stream);
+				byte[] all = Arrays.copyOf(bytes, bytes.length + 1 + rest.length);
+				all[bytes.length] = (byte) next;
+				System.arraycopy(rest, 0, all, bytes.length + 1, rest.length);
+				return all;
+			}
+		}
+
 		abstract OutputStream createOutputStream(boolean append, boolean truncate) throws IOException;
 
 		abstract SeekableByteChannel createByteChannel(Set<? extends OpenOption> options) throws IOException;
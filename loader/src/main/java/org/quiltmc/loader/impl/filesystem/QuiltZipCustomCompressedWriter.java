@@ -20,6 +20,7 @@ package org.quiltmc.loader.impl.filesystem;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
@@ -336,8 +337,21 @@ final class QuiltZipCustomCompressedWriter {
 				try {
 					int uncompressedLength;
 					ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream();
-					try (DeflaterOutputStream compressor = new DeflaterOutputStream(baos, deflater)) {
-						uncompressedLength = (int) Files.copy(next, compressor);
+					QuiltZipFileSystem.QuiltZipFile compressedSource = findCompressedSource(next);
+					if (compressedSource != null) {
+						// Both formats store raw deflate data, so there's no need to inflate and deflate it again
+						uncompressedLength = compressedSource.uncompressedSize;
+						try (InputStream from = compressedSource.createUncompressingInputStream()) {
+							byte[] buffer = new byte[8192];
+							int read;
+							while ((read = from.read(buffer)) > 0) {
+								baos.write(buffer, 0, read);
+							}
+						}
+					} else {
+						try (DeflaterOutputStream compressor = new DeflaterOutputStream(baos, deflater)) {
+							uncompressedLength = (int) Files.copy(next, compressor);
+						}
 					}
 					int offset = currentOffset.getAndAdd(baos.size());
 					int length = baos.size();
@@ -367,6 +381,27 @@ final class QuiltZipCustomCompressedWriter {
 		}
 	}
 
+	/** @return The compressed zip entry which the given file is an unmodified copy of, or null if it isn't a copy (or
+	 *         the original isn't compressed). */
+	private static QuiltZipFileSystem.QuiltZipFile findCompressedSource(Path file) {
+		if (!(file instanceof QuiltUnifiedPath)) {
+			return null;
+		}
+		QuiltUnifiedEntry entry = ((QuiltUnifiedPath) file).fs.getEntry(file);
+		if (!(entry instanceof QuiltUnifiedEntry.QuiltUnifiedMountedFile)) {
+			return null;
+		}
+		Path to = ((QuiltUnifiedEntry.QuiltUnifiedMountedFile) entry).to;
+		if (!(to instanceof QuiltZipPath)) {
+			return null;
+		}
+		QuiltUnifiedEntry target = ((QuiltZipPath) to).fs.getEntry(to);
+		if (target instanceof QuiltZipFileSystem.QuiltZipFile && ((QuiltZipFileSystem.QuiltZipFile) target).isCompressed) {
+			return (QuiltZipFileSystem.QuiltZipFile) target;
+		}
+		return null;
+	}
+
 	static final class FileEntry {
 		final int offset;
 		final int uncompressedLength, compressedLength;
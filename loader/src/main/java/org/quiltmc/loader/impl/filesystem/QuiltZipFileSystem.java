@@ -28,28 +28,36 @@ import java.io.PushbackInputStream;
 import java.io.UncheckedIOException;
 import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.nio.file.spi.FileSystemProvider;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.api.FasterFiles;
 import org.quiltmc.loader.api.plugin.NonZipException;
 import org.quiltmc.loader.impl.filesystem.QuiltUnifiedEntry.QuiltUnifiedFile;
 import org.quiltmc.loader.impl.filesystem.QuiltUnifiedEntry.QuiltUnifiedFolderReadOnly;
@@ -57,10 +65,16 @@ import org.quiltmc.loader.impl.filesystem.QuiltUnifiedEntry.QuiltUnifiedFolderWr
 import org.quiltmc.loader.impl.util.DisconnectableByteChannel;
 import org.quiltmc.loader.impl.util.ExposedByteArrayOutputStream;
 import org.quiltmc.loader.impl.util.FileUtil;
+import org.quiltmc.loader.impl.util.FullyReadableInputStream;
+import org.quiltmc.loader.impl.util.HashUtil;
 import org.quiltmc.loader.impl.util.LimitedInputStream;
+import org.quiltmc.loader.impl.util.MappedFiles;
 import org.quiltmc.loader.impl.util.QuiltLoaderCleanupTasks;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.SystemProperties;
+import org.quiltmc.loader.impl.util.log.Log;
+import org.quiltmc.loader.impl.util.log.LogCategory;
 
 /** A read-only file system that only caches the locations of zip entries rather than their zip contents. This is
  * slightly more flexible than java's zip file system since it can have a different "root" than the real root of a zip
@@ -75,6 +89,13 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 	implements ReadOnlyFileSystem {
 
 	static final boolean DEBUG_TEST_READING = false;
+	static final boolean DISABLE_CENTRAL_DIRECTORY = Boolean.getBoolean(SystemProperties.DISABLE_ZIP_CENTRAL_DIRECTORY);
+
+	/** Inflated nested zips which haven't been used for this long are deleted by {@link #setNestedZipFolder(Path)}. */
+	private static final long NESTED_ZIP_MAX_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+	@Nullable
+	private static volatile Path nestedZipFolder;
 
 	final WeakReference<QuiltZipFileSystem> thisRef = new WeakReference<>(this);
 	final ZipSource source;
@@ -86,10 +107,21 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 			System.out.println("new QuiltZipFileSystem ( "  + name + ", from " + zipFrom + " )");
 		}
 
-		if (zipFrom.getFileSystem() == FileSystems.getDefault()) {
-			source = new SharedByteChannels(this, zipFrom);
+		QuiltZipFile nested = getNestedZipFile(zipFrom);
+		if (nested != null && !nested.isCompressed) {
+			// Stored zips can be read directly from the outer zip
+			source = new NestedStoredSource(this, nested);
 		} else {
-			source = new InMemorySource(Files.newInputStream(zipFrom));
+			if (nested != null) {
+				// Compressed zips are inflated once to a file, rather than keeping the whole zip in memory
+				zipFrom = inflateNestedZip(nested);
+			}
+
+			if (zipFrom.getFileSystem() == FileSystems.getDefault()) {
+				source = MappedFiles.ENABLED ? new MappedSource(this, zipFrom) : new SharedByteChannels(this, zipFrom);
+			} else {
+				source = new InMemorySource(Files.newInputStream(zipFrom));
+			}
 		}
 
 		// Ensure root exists - empty zips wouldn't create this otherwise
@@ -105,7 +137,7 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 				throw new ZeroByteFileException("Zip start header not found - 0 byte file!");
 			}
 			if (readLength == header.length && Arrays.equals(header, QuiltZipCustomCompressedWriter.HEADER)) {
-				if (!(source instanceof SharedByteChannels)) {
+				if (!source.isRandomAccess()) {
 					throw new IOException("Cannot read a custom compressed stream that isn't on the default file system!");
 				}
 				int directoryStart = new DataInputStream(pushback).readInt();
@@ -115,7 +147,7 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 				}
 			} else if (readLength == header.length && Arrays.equals(header, QuiltZipCustomCompressedWriter.PARTIAL_HEADER)) {
 				throw new PartiallyWrittenIOException();
-			} else {
+			} else if (!initializeFromCentralDirectory(zipFrom, zipPathPrefix)) {
 				pushback.reset();
 				initializeFromZip(pushback, zipPathPrefix);
 			}
@@ -130,11 +162,140 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 		dumpEntries(name);
 	}
 
+	/** Sets the folder which compressed nested zips are inflated into. Each zip is stored under the hash of its
+	 * compressed bytes, so later launches can reuse it rather than inflating it again. Any zip in the folder which
+	 * hasn't been used for a week is deleted. If this is never set then temporary files are used instead. */
+	public static void setNestedZipFolder(@Nullable Path folder) {
+		nestedZipFolder = folder;
+		if (folder != null && FasterFiles.isDirectory(folder)) {
+			long oldest = System.currentTimeMillis() - NESTED_ZIP_MAX_UNUSED_MILLIS;
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+				for (Path file : stream) {
+					try {
+						if (Files.getLastModifiedTime(file).toMillis() < oldest) {
+							Files.delete(file);
+						}
+					} catch (IOException e) {
+						// Most likely still open by another launch, so it can be deleted next time
+						Log.debug(LogCategory.CACHE, "Failed to delete the unused nested zip " + file, e);
+					}
+				}
+			} catch (IOException e) {
+				Log.warn(LogCategory.CACHE, "Failed to delete unused nested zips from " + folder, e);
+			}
+		}
+	}
+
+	private static Path inflateNestedZip(QuiltZipFile nested) throws IOException {
+		Path folder = nestedZipFolder;
+		if (folder == null) {
+			Path inflated = Files.createTempFile("quilt-nested-", ".zip");
+			inflated.toFile().deleteOnExit();
+			try (InputStream from = nested.createInputStream()) {
+				Files.copy(from, inflated, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return inflated;
+		}
+
+		byte[] hash;
+		try (InputStream from = nested.createUncompressingInputStream()) {
+			hash = HashUtil.computeHash(from);
+		}
+		Path inflated = folder.resolve(HashUtil.toHex(hash) + ".zip");
+
+		if (FasterFiles.isRegularFile(inflated) && Files.size(inflated) == nested.uncompressedSize) {
+			try {
+				// Mark it as used, so it isn't deleted as unused
+				Files.setLastModifiedTime(inflated, FileTime.fromMillis(System.currentTimeMillis()));
+			} catch (IOException e) {
+				// Not important
+			}
+			return inflated;
+		}
+
+		Files.createDirectories(folder);
+		Path temp = Files.createTempFile(folder, inflated.getFileName().toString(), ".tmp");
+		try {
+			try (InputStream from = nested.createInputStream()) {
+				Files.copy(from, temp, StandardCopyOption.REPLACE_EXISTING);
+			}
+			Files.move(temp, inflated, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			// Another thread (or launch) inflated the same zip first, and it can't be replaced while it's open
+			if (!FasterFiles.isRegularFile(inflated) || Files.size(inflated) != nested.uncompressedSize) {
+				throw e;
+			}
+		}
+		return inflated;
+	}
+
+	/** @return The zip entry of the given path, if it's a file inside another {@link QuiltZipFileSystem}. */
+	@Nullable
+	private static QuiltZipFile getNestedZipFile(Path zipFrom) {
+		if (!(zipFrom instanceof QuiltZipPath)) {
+			return null;
+		}
+		QuiltZipPath path = (QuiltZipPath) zipFrom;
+		QuiltUnifiedEntry entry = path.fs.getEntry(path);
+		return entry instanceof QuiltZipFile ? (QuiltZipFile) entry : null;
+	}
+
 	@Override
 	protected boolean startWithConcurrentMap() {
 		return false;
 	}
 
+	/** Reads entries directly from the central directory of the zip, which avoids reading the contents of every entry.
+	 * 
+	 * @return True if the entries were read, or false if the zip must be read with
+	 *         {@link #initializeFromZip(InputStream, String)} instead. */
+	private boolean initializeFromCentralDirectory(Path zipFrom, String zipPathPrefix) throws IOException {
+		if (!source.isRandomAccess() || DISABLE_CENTRAL_DIRECTORY) {
+			return false;
+		}
+
+		List<ZipCentralDirectory.Entry> entries;
+		if (source.isFile()) {
+			entries = ZipCentralDirectory.read(zipFrom);
+		} else {
+			try (SeekableByteChannel channel = source.channel()) {
+				entries = ZipCentralDirectory.read(channel);
+			}
+		}
+		if (entries == null) {
+			if (DEBUG_TEST_READING) {
+				System.out.println("Falling back to reading every entry of " + zipFrom);
+			}
+			return false;
+		}
+
+		for (ZipCentralDirectory.Entry entry : entries) {
+			String entryName = entry.name;
+
+			if (!entryName.startsWith(zipPathPrefix)) {
+				continue;
+			}
+			entryName = entryName.substring(zipPathPrefix.length());
+			if (!entryName.startsWith("/")) {
+				entryName = "/" + entryName;
+			}
+
+			QuiltZipPath path = getPath(entryName);
+
+			if (entryName.endsWith("/")) {
+				createDirectories(path);
+			} else if (exists(path)) {
+				throw new IOException("Duplicate entry " + path);
+			} else {
+				addEntryAndParents(new QuiltZipFile(
+					path, source, entry.offset, entry.compressedSize, entry.uncompressedSize, entry.isCompressed
+				));
+			}
+		}
+		return true;
+	}
+
 	private void initializeFromZip(InputStream fileStream, String zipPathPrefix) throws IOException {
 		try (CountingInputStream counter = new CountingInputStream(fileStream); //
 			CustomZipInputStream zip = new CustomZipInputStream(counter)//
@@ -355,6 +516,31 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 		abstract InputStream stream(long position) throws IOException;
 
 		abstract SeekableByteChannel channel() throws IOException;
+
+		/** Reads exactly enough bytes to fill the given array, starting at the given position. */
+		void readFully(long position, byte[] dst) throws IOException {
+			try (InputStream stream = stream(position)) {
+				int total = 0;
+				while (total < dst.length) {
+					int read = stream.read(dst, total, dst.length - total);
+					if (read < 0) {
+						throw new IOException("Unexpected end of zip");
+					}
+					total += read;
+				}
+			}
+		}
+
+		/** @return True if this reads directly from a file on the default file system, rather than from memory. */
+		boolean isFile() {
+			return false;
+		}
+
+		/** @return True if {@link #stream(long)} and {@link #channel()} can be used while the file system is being
+		 *         constructed. */
+		boolean isRandomAccess() {
+			return isFile();
+		}
 	}
 
 	static final class InMemorySource extends ZipSource {
@@ -440,6 +626,161 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 		SeekableByteChannel channel() throws IOException {
 			return new ByteArrayChannel(bytes, negativeOffset);
 		}
+
+		@Override
+		void readFully(long position, byte[] dst) throws IOException {
+			int pos = (int) (position - negativeOffset);
+			if (pos < 0 || pos + dst.length > bytes.length) {
+				throw new IOException("Unexpected end of zip");
+			}
+			System.arraycopy(bytes, pos, dst, 0, dst.length);
+		}
+	}
+
+	/** Reads a stored (uncompressed) zip which is inside of another {@link QuiltZipFileSystem}, directly from the source
+	 * of the outer zip. The outer source is kept open until every file system using this has been closed. */
+	static final class NestedStoredSource extends ZipSource {
+		final ZipSource outer;
+		final long start;
+		final int size;
+		final Set<WeakReference<QuiltZipFileSystem>> fileSystems = new HashSet<>();
+		volatile boolean isOpen = true;
+
+		NestedStoredSource(QuiltZipFileSystem fs, QuiltZipFile file) {
+			this.outer = file.source;
+			this.start = file.offset;
+			this.size = file.compressedSize;
+			open(fs);
+		}
+
+		@Override
+		InputStream openConstructingStream() throws IOException {
+			return stream(0);
+		}
+
+		@Override
+		ZipSource forIndividualFile(long offset, int length) {
+			return this;
+		}
+
+		@Override
+		void build() throws IOException {
+			// NO-OP
+		}
+
+		@Override
+		boolean isRandomAccess() {
+			return true;
+		}
+
+		@Override
+		boolean isOpen() {
+			return isOpen && outer.isOpen();
+		}
+
+		@Override
+		synchronized void open(QuiltZipFileSystem fs) {
+			fileSystems.add(fs.thisRef);
+			outer.open(fs);
+		}
+
+		@Override
+		synchronized void close(QuiltZipFileSystem fs) throws IOException {
+			fileSystems.remove(fs.thisRef);
+			if (fileSystems.isEmpty()) {
+				isOpen = false;
+			}
+			outer.close(fs);
+		}
+
+		@Override
+		InputStream stream(long position) throws IOException {
+			int remaining = (int) Math.max(0, size - position);
+			return new LimitedInputStream(outer.stream(start + position), remaining);
+		}
+
+		@Override
+		SeekableByteChannel channel() throws IOException {
+			return new NestedByteChannel(outer.channel());
+		}
+
+		@Override
+		void readFully(long position, byte[] dst) throws IOException {
+			if (position < 0 || position + dst.length > size) {
+				throw new IOException("Unexpected end of zip");
+			}
+			outer.readFully(start + position, dst);
+		}
+
+		final class NestedByteChannel implements SeekableByteChannel {
+			final SeekableByteChannel from;
+			long position;
+
+			NestedByteChannel(SeekableByteChannel from) {
+				this.from = from;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return from.isOpen();
+			}
+
+			@Override
+			public void close() throws IOException {
+				from.close();
+			}
+
+			@Override
+			public int read(ByteBuffer dst) throws IOException {
+				if (position >= size) {
+					return -1;
+				}
+				int length = (int) Math.min(dst.remaining(), size - position);
+				ByteBuffer limited = dst.duplicate();
+				limited.limit(limited.position() + length);
+				// The outer channel might be shared with other streams, so always move to our own position first
+				from.position(start + position);
+				int read = from.read(limited);
+				if (read > 0) {
+					dst.position(dst.position() + read);
+					position += read;
+				}
+				return read;
+			}
+
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				throw new IOException("read only");
+			}
+
+			@Override
+			public long position() throws IOException {
+				return position;
+			}
+
+			@Override
+			public SeekableByteChannel position(long newPosition) throws IOException {
+				if (newPosition < 0) {
+					throw new IllegalArgumentException("position < 0");
+				}
+				position = newPosition;
+				return this;
+			}
+
+			@Override
+			public long size() throws IOException {
+				return size;
+			}
+
+			@Override
+			public SeekableByteChannel truncate(long size) throws IOException {
+				if (size >= NestedStoredSource.this.size) {
+					return this;
+				} else {
+					throw new IOException("read only");
+				}
+			}
+		}
 	}
 
 	/** Used to cache {@link SeekableByteChannel} per-thread, since it's an expensive operation to open them. */
@@ -474,6 +815,11 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 			// NO-OP
 		}
 
+		@Override
+		boolean isFile() {
+			return true;
+		}
+
 		@Override
 		boolean isOpen() {
 			return isOpen;
@@ -545,6 +891,216 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 		}
 	}
 
+	/** Reads from a read-only memory mapping of the zip. Unlike {@link SharedByteChannels} every stream and channel can
+	 * read from the mapping directly, without any locking or per-thread state. */
+	static final class MappedSource extends ZipSource {
+		final Path zipFrom;
+		final long size;
+		final Set<WeakReference<QuiltZipFileSystem>> fileSystems = new HashSet<>();
+
+		/** Null once every file system has been closed. */
+		volatile MappedByteBuffer[] chunks;
+
+		MappedSource(QuiltZipFileSystem fs, Path zipFrom) throws IOException {
+			this.zipFrom = zipFrom;
+			this.chunks = MappedFiles.map(zipFrom);
+			long total = 0;
+			for (MappedByteBuffer chunk : chunks) {
+				total += chunk.capacity();
+			}
+			this.size = total;
+			open(fs);
+		}
+
+		@Override
+		InputStream openConstructingStream() throws IOException {
+			return stream(0);
+		}
+
+		@Override
+		ZipSource forIndividualFile(long offset, int length) {
+			return this;
+		}
+
+		@Override
+		void build() throws IOException {
+			// NO-OP
+		}
+
+		@Override
+		boolean isFile() {
+			return true;
+		}
+
+		@Override
+		boolean isOpen() {
+			return chunks != null;
+		}
+
+		@Override
+		synchronized void open(QuiltZipFileSystem fs) {
+			fileSystems.add(fs.thisRef);
+		}
+
+		@Override
+		synchronized void close(QuiltZipFileSystem fs) throws IOException {
+			fileSystems.remove(fs.thisRef);
+			if (fileSystems.isEmpty()) {
+				// Java 8 can't unmap buffers safely, so the mapping is released when it's garbage collected
+				chunks = null;
+			}
+		}
+
+		@Override
+		InputStream stream(long position) throws IOException {
+			return new MappedInputStream(position);
+		}
+
+		@Override
+		SeekableByteChannel channel() throws IOException {
+			return new MappedByteChannel();
+		}
+
+		@Override
+		void readFully(long position, byte[] dst) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(dst);
+			while (buffer.hasRemaining()) {
+				if (read(position + buffer.position(), buffer) < 0) {
+					throw new IOException("Unexpected end of zip");
+				}
+			}
+		}
+
+		/** Reads from the given position in the zip into the destination buffer.
+		 * 
+		 * @return The number of bytes read, or -1 if the position is at (or after) the end of the zip. */
+		int read(long position, ByteBuffer dst) throws IOException {
+			MappedByteBuffer[] from = chunks;
+			if (from == null) {
+				throw new ClosedChannelException();
+			}
+			if (position >= size) {
+				return -1;
+			}
+			int total = 0;
+			while (dst.hasRemaining() && position < size) {
+				MappedByteBuffer chunk = from[(int) (position >>> MappedFiles.CHUNK_SHIFT)];
+				int chunkPosition = (int) (position & (MappedFiles.CHUNK_SIZE - 1));
+				int length = Math.min(dst.remaining(), chunk.capacity() - chunkPosition);
+				// Duplicates have their own position and limit, so this doesn't affect any other reader
+				ByteBuffer slice = chunk.duplicate();
+				slice.position(chunkPosition);
+				slice.limit(chunkPosition + length);
+				dst.put(slice);
+				position += length;
+				total += length;
+			}
+			return total;
+		}
+
+		final class MappedInputStream extends InputStream {
+			long position;
+
+			MappedInputStream(long position) {
+				this.position = position;
+			}
+
+			@Override
+			public int read() throws IOException {
+				byte[] value = new byte[1];
+				int read = read(value, 0, 1);
+				if (read == 1) {
+					return Byte.toUnsignedInt(value[0]);
+				} else {
+					return -1;
+				}
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (len == 0) {
+					return 0;
+				}
+				int read = MappedSource.this.read(position, ByteBuffer.wrap(b, off, len));
+				if (read > 0) {
+					position += read;
+				}
+				return read;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				position += n;
+				return n;
+			}
+
+			@Override
+			public int available() throws IOException {
+				return (int) Math.max(0, Math.min(Integer.MAX_VALUE, size - position));
+			}
+		}
+
+		final class MappedByteChannel implements SeekableByteChannel {
+			long position;
+			boolean open = true;
+
+			@Override
+			public boolean isOpen() {
+				return open && chunks != null;
+			}
+
+			@Override
+			public void close() throws IOException {
+				open = false;
+			}
+
+			@Override
+			public int read(ByteBuffer dst) throws IOException {
+				if (!open) {
+					throw new ClosedChannelException();
+				}
+				int read = MappedSource.this.read(position, dst);
+				if (read > 0) {
+					position += read;
+				}
+				return read;
+			}
+
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				throw new IOException("read only");
+			}
+
+			@Override
+			public long position() throws IOException {
+				return position;
+			}
+
+			@Override
+			public SeekableByteChannel position(long newPosition) throws IOException {
+				if (newPosition < 0) {
+					throw new IllegalArgumentException("position < 0");
+				}
+				position = newPosition;
+				return this;
+			}
+
+			@Override
+			public long size() throws IOException {
+				return size;
+			}
+
+			@Override
+			public SeekableByteChannel truncate(long size) throws IOException {
+				if (size >= MappedSource.this.size) {
+					return this;
+				} else {
+					throw new IOException("read only");
+				}
+			}
+		}
+	}
+
 	/** An {@link InputStream} which is based on a {@link SeekableByteChannel}, which allows the backing channel to be
 	 * used by multiple streams in the same thread. */
 	static final class ByteChannel2Stream extends InputStream {
@@ -808,9 +1364,13 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 
 		@Override
 		InputStream createInputStream() throws IOException {
+			return new EntryInputStream();
+		}
+
+		InputStream createStreamingInputStream() throws IOException {
 			InputStream stream = createUncompressingInputStream();
 			if (isCompressed) {
-				stream = new InflaterInputStream(stream, new Inflater(true));
+				stream = new InflaterPool.PooledInflaterInputStream(stream);
 				// Make InputStream.available work
 				// older versions of FerriteCore used this to allocate a byte array to read into
 				// - newer versions are fixed, but we still want to keep backwards compatibility
@@ -822,7 +1382,38 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 			return stream;
 		}
 
-		private InputStream createUncompressingInputStream() throws IOException, IOException {
+		/** Reads the whole file at once. Stored files are copied straight out of the source, and compressed files are
+		 * inflated directly into an array of {@link #uncompressedSize}. */
+		@Override
+		byte[] readAllBytes() throws IOException {
+			byte[] raw = new byte[compressedSize];
+			source.readFully(offset, raw);
+			if (!isCompressed) {
+				return raw;
+			}
+
+			byte[] bytes = new byte[uncompressedSize];
+			Inflater inflater = InflaterPool.acquire();
+			try {
+				inflater.setInput(raw);
+				int total = 0;
+				while (total < bytes.length) {
+					int read = inflater.inflate(bytes, total, bytes.length - total);
+					if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+						throw new IOException("Unable to read enough bytes from " + path + " - it's probably corrupt!");
+					}
+					total += read;
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Failed to inflate " + path, e);
+			} finally {
+				InflaterPool.release(inflater);
+			}
+			return bytes;
+		}
+
+		/** @return A stream of the bytes exactly as they are stored, without inflating them. */
+		InputStream createUncompressingInputStream() throws IOException, IOException {
 			return new LimitedInputStream(source.stream(offset), compressedSize);
 		}
 
@@ -831,6 +1422,89 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 			throw new IOException(READ_ONLY_ERROR_MESSAGE);
 		}
 
+		/** The stream returned by {@link #createInputStream()}. Reading everything through
+		 * {@link #readAllBytes()} (before reading anything else) skips the streaming path entirely. */
+		final class EntryInputStream extends InputStream implements FullyReadableInputStream {
+			private InputStream delegate;
+			private int position;
+			private boolean closed;
+
+			private InputStream delegate() throws IOException {
+				if (closed) {
+					throw new IOException("Stream closed");
+				}
+				if (delegate == null) {
+					delegate = createStreamingInputStream();
+				}
+				return delegate;
+			}
+
+			@Override
+			public int read() throws IOException {
+				int read = delegate().read();
+				if (read >= 0) {
+					position++;
+				}
+				return read;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int read = delegate().read(b, off, len);
+				if (read > 0) {
+					position += read;
+				}
+				return read;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				long skipped = delegate().skip(n);
+				if (skipped > 0) {
+					position += (int) skipped;
+				}
+				return skipped;
+			}
+
+			@Override
+			public int available() throws IOException {
+				return closed ? 0 : Math.max(0, uncompressedSize - position);
+			}
+
+			@Override
+			public byte[] readAllBytes() throws IOException {
+				if (closed) {
+					throw new IOException("Stream closed");
+				}
+				if (delegate == null) {
+					byte[] bytes = QuiltZipFile.this.readAllBytes();
+					delegate = new ByteArrayInputStream(new byte[0]);
+					position = bytes.length;
+					return bytes;
+				}
+				byte[] bytes = new byte[Math.max(0, uncompressedSize - position)];
+				int total = 0;
+				while (total < bytes.length) {
+					int read = read(bytes, total, bytes.length - total);
+					if (read < 0) {
+						return Arrays.copyOf(bytes, total);
+					}
+					total += read;
+				}
+				return bytes;
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (!closed) {
+					closed = true;
+					if (delegate != null) {
+						delegate.close();
+					}
+				}
+			}
+		}
+
 		@Override
 		SeekableByteChannel createByteChannel(Set<? extends OpenOption> options) throws IOException {
 			for (OpenOption option : options) {
@@ -919,16 +1593,10 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 		}
 
 		class InflaterSeekableByteChannel implements SeekableByteChannel {
-			final InflaterInputStream infl;
-
 			boolean open = true;
 			volatile long position = 0;
-			byte[] buffer = new byte[uncompressedSize];
-			int bufferPosition = 0;
-
-			public InflaterSeekableByteChannel() throws IOException {
-				infl = new InflaterInputStream(createUncompressingInputStream(), new Inflater(true));
-			}
+			/** Inflated on the first read, since most channels are only used to read the whole file. */
+			byte[] buffer;
 
 			@Override
 			public boolean isOpen() {
@@ -938,29 +1606,23 @@ public class QuiltZipFileSystem extends QuiltMapFileSystem<QuiltZipFileSystem, Q
 			@Override
 			public void close() throws IOException {
 				open = false;
-				infl.close();
+				buffer = null;
 			}
 
 			@Override
 			public synchronized int read(ByteBuffer dst) throws IOException {
+				if (!open) {
+					throw new ClosedChannelException();
+				}
 				if (position >= uncompressedSize) {
 					return -1;
 				}
-				int toRead = (int) Math.min(uncompressedSize - position, dst.remaining());
-				int pos = (int) position;
-
-				int targetPos = toRead + pos;
-				while (bufferPosition < targetPos) {
-					int read = infl.read(buffer, bufferPosition, buffer.length - bufferPosition);
-					if (read < 0) {
-						throw new IOException("Unable to read enough bytes from the gzip stream!");
-					} else {
-						bufferPosition += read;
-					}
+				if (buffer == null) {
+					buffer = readAllBytes();
 				}
+				int toRead = (int) Math.min(uncompressedSize - position, dst.remaining());
+				dst.put(buffer, (int) position, toRead);
 				position += toRead;
-
-				dst.put(buffer, pos, toRead);
 				return toRead;
 			}
 
@@ -0,0 +1,287 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.filesystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+/** Reads the entries of a zip file from its central directory, rather than by streaming through the whole file. This
+ * only reads the end of the file and the (small) local header of each entry, so large entries are never read.
+ * <p>
+ * This is stricter than {@link java.util.zip.ZipInputStream}: anything unexpected (multi-disk archives, data before
+ * the first entry, encrypted entries, or entries which are too large for {@link QuiltZipFileSystem.QuiltZipFile})
+ * causes {@link #read(Path)} to return null, so the caller can fall back to streaming the zip instead. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class ZipCentralDirectory {
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	private static final int LOCAL_HEADER_LENGTH = 30;
+	private static final int CENTRAL_HEADER_LENGTH = 46;
+	private static final int END_LENGTH = 22;
+	private static final int ZIP64_END_LENGTH = 56;
+	private static final int ZIP64_LOCATOR_LENGTH = 20;
+	private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+
+	static final class Entry {
+		final String name;
+		final boolean isCompressed;
+		final long offset;
+		final int compressedSize, uncompressedSize;
+
+		Entry(String name, boolean isCompressed, long offset, int compressedSize, int uncompressedSize) {
+			this.name = name;
+			this.isCompressed = isCompressed;
+			this.offset = offset;
+			this.compressedSize = compressedSize;
+			this.uncompressedSize = uncompressedSize;
+		}
+	}
+
+	private ZipCentralDirectory() {}
+
+	/** @return Every entry in the given zip, in central directory order, or null if the central directory couldn't be
+	 *         used. Directory entries are included, with names ending in "/".
+	 * @throws IOException if the file itself couldn't be read. */
+	@Nullable
+	static List<Entry> read(Path zip) throws IOException {
+		try (FileChannel channel = FileChannel.open(zip, StandardOpenOption.READ)) {
+			return read(channel);
+		}
+	}
+
+	/** Reads the central directory from a channel which contains the whole zip, and nothing else.
+	 * 
+	 * @see #read(Path) */
+	@Nullable
+	static List<Entry> read(SeekableByteChannel channel) throws IOException {
+		long size = channel.size();
+		if (size < END_LENGTH) {
+			return null;
+		}
+
+		// The end record is followed by a variable length comment, so search backwards for its signature
+		int tailLength = (int) Math.min(size, END_LENGTH + MAX_COMMENT_LENGTH);
+		ByteBuffer tail = readFully(channel, size - tailLength, tailLength);
+		int endIndex = -1;
+		for (int i = tailLength - END_LENGTH; i >= 0; i--) {
+			if (tail.getInt(i) == END_SIGNATURE && i + END_LENGTH + (tail.getShort(i + 20) & 0xFFFF) == tailLength) {
+				endIndex = i;
+				break;
+			}
+		}
+		if (endIndex < 0) {
+			return null;
+		}
+
+		long endPosition = size - tailLength + endIndex;
+		int diskNumber = tail.getShort(endIndex + 4) & 0xFFFF;
+		int directoryDisk = tail.getShort(endIndex + 6) & 0xFFFF;
+		long entryCount = tail.getShort(endIndex + 10) & 0xFFFF;
+		long directorySize = tail.getInt(endIndex + 12) & 0xFFFF_FFFFL;
+		long directoryOffset = tail.getInt(endIndex + 16) & 0xFFFF_FFFFL;
+		long directoryEnd = endPosition;
+
+		// Zip64 files have another end record before the regular one, which some writers add even when the regular end
+		// record doesn't need it
+		ByteBuffer locator = null;
+		if (endPosition >= ZIP64_LOCATOR_LENGTH) {
+			locator = readFully(channel, endPosition - ZIP64_LOCATOR_LENGTH, ZIP64_LOCATOR_LENGTH);
+			if (locator.getInt(0) != ZIP64_LOCATOR_SIGNATURE) {
+				locator = null;
+			}
+		}
+
+		if (locator == null) {
+			if (entryCount == 0xFFFF || directorySize == 0xFFFF_FFFFL || directoryOffset == 0xFFFF_FFFFL) {
+				return null;
+			}
+		} else {
+			long zip64EndPosition = locator.getLong(8);
+			if (zip64EndPosition < 0 || zip64EndPosition + ZIP64_END_LENGTH > endPosition) {
+				return null;
+			}
+			ByteBuffer zip64End = readFully(channel, zip64EndPosition, ZIP64_END_LENGTH);
+			if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+				return null;
+			}
+			diskNumber = zip64End.getInt(16);
+			directoryDisk = zip64End.getInt(20);
+			entryCount = zip64End.getLong(32);
+			directorySize = zip64End.getLong(40);
+			directoryOffset = zip64End.getLong(48);
+			directoryEnd = zip64EndPosition;
+		}
+
+		if (diskNumber != 0 || directoryDisk != 0) {
+			return null;
+		}
+
+		// Offsets are relative to the start of the file, unless something has been prepended to the zip
+		if (directoryOffset < 0 || directorySize < 0 || directorySize > Integer.MAX_VALUE
+			|| directoryOffset + directorySize != directoryEnd || entryCount > directorySize / CENTRAL_HEADER_LENGTH) {
+			return null;
+		}
+
+		ByteBuffer directory = readFully(channel, directoryOffset, (int) directorySize);
+		List<Entry> entries = new ArrayList<>((int) entryCount);
+		ByteBuffer localHeader = ByteBuffer.allocate(LOCAL_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		int pos = 0;
+
+		for (long i = 0; i < entryCount; i++) {
+			if (pos + CENTRAL_HEADER_LENGTH > directory.limit() || directory.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+				return null;
+			}
+
+			int flags = directory.getShort(pos + 8) & 0xFFFF;
+			int method = directory.getShort(pos + 10) & 0xFFFF;
+			long compressedSize = directory.getInt(pos + 20) & 0xFFFF_FFFFL;
+			long uncompressedSize = directory.getInt(pos + 24) & 0xFFFF_FFFFL;
+			int nameLength = directory.getShort(pos + 28) & 0xFFFF;
+			int extraLength = directory.getShort(pos + 30) & 0xFFFF;
+			int commentLength = directory.getShort(pos + 32) & 0xFFFF;
+			long localHeaderOffset = directory.getInt(pos + 42) & 0xFFFF_FFFFL;
+
+			int nameStart = pos + CENTRAL_HEADER_LENGTH;
+			int extraStart = nameStart + nameLength;
+			int next = extraStart + extraLength + commentLength;
+			if (next > directory.limit()) {
+				return null;
+			}
+
+			if ((flags & 1) != 0) {
+				// Encrypted
+				return null;
+			}
+
+			if (method != ZipEntry.DEFLATED && method != ZipEntry.STORED) {
+				throw new IOException("Unsupported zip entry method " + method);
+			}
+
+			if (uncompressedSize == 0xFFFF_FFFFL || compressedSize == 0xFFFF_FFFFL || localHeaderOffset == 0xFFFF_FFFFL) {
+				int extra = findExtra(directory, extraStart, extraLength, ZIP64_EXTRA_ID);
+				if (extra < 0) {
+					return null;
+				}
+				int extraEnd = extra + 4 + (directory.getShort(extra + 2) & 0xFFFF);
+				int field = extra + 4;
+				if (uncompressedSize == 0xFFFF_FFFFL) {
+					if (field + 8 > extraEnd) {
+						return null;
+					}
+					uncompressedSize = directory.getLong(field);
+					field += 8;
+				}
+				if (compressedSize == 0xFFFF_FFFFL) {
+					if (field + 8 > extraEnd) {
+						return null;
+					}
+					compressedSize = directory.getLong(field);
+					field += 8;
+				}
+				if (localHeaderOffset == 0xFFFF_FFFFL) {
+					if (field + 8 > extraEnd) {
+						return null;
+					}
+					localHeaderOffset = directory.getLong(field);
+				}
+			}
+
+			if (compressedSize > Integer.MAX_VALUE || uncompressedSize > Integer.MAX_VALUE || localHeaderOffset < 0) {
+				return null;
+			}
+
+			byte[] nameBytes = new byte[nameLength];
+			directory.position(nameStart);
+			directory.get(nameBytes);
+			// ZipInputStream always uses UTF-8, regardless of the language encoding flag
+			String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+			// The local header can have a different extra field to the central header, so it has to be read
+			localHeader.clear();
+			if (localHeaderOffset + LOCAL_HEADER_LENGTH > directoryOffset) {
+				return null;
+			}
+			readFully(channel, localHeader, localHeaderOffset);
+			if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+				return null;
+			}
+			long dataOffset = localHeaderOffset + LOCAL_HEADER_LENGTH
+				+ (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+			if (dataOffset + compressedSize > directoryOffset) {
+				return null;
+			}
+
+			entries.add(new Entry(name, method == ZipEntry.DEFLATED, dataOffset, (int) compressedSize, (int) uncompressedSize));
+			pos = next;
+		}
+
+		return entries;
+	}
+
+	/** @return The index of the extra field header with the given id, or -1 if it isn't present. */
+	private static int findExtra(ByteBuffer buffer, int start, int length, int id) {
+		int pos = start;
+		int end = start + length;
+		while (pos + 4 <= end) {
+			int headerId = buffer.getShort(pos) & 0xFFFF;
+			int dataLength = buffer.getShort(pos + 2) & 0xFFFF;
+			if (headerId == id && pos + 4 + dataLength <= end) {
+				return pos;
+			}
+			pos += 4 + dataLength;
+		}
+		return -1;
+	}
+
+	private static ByteBuffer readFully(SeekableByteChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, buffer, position);
+		return buffer;
+	}
+
+	private static void readFully(SeekableByteChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.position(position);
+			int read = channel.read(buffer);
+			if (read < 0) {
+				throw new IOException("Unexpected end of zip file");
+			}
+			position += read;
+		}
+		buffer.flip();
+	}
+}
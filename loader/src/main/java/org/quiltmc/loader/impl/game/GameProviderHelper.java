@@ -21,6 +21,10 @@ package org.quiltmc.loader.impl.game;
 
 import net.fabricmc.api.EnvType;
 
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.commons.Remapper;
+import org.quiltmc.loader.impl.util.FileUtil;
+import org.quiltmc.loader.impl.util.HashUtil;
 import org.quiltmc.loader.impl.util.LoaderUtil;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
@@ -28,8 +32,6 @@ import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
 import net.fabricmc.mapping.tree.TinyTree;
 
 import net.fabricmc.tinyremapper.InputTag;
-import net.fabricmc.tinyremapper.NonClassCopyMode;
-import net.fabricmc.tinyremapper.OutputConsumerPath;
 import net.fabricmc.tinyremapper.TinyRemapper;
 
 import org.quiltmc.loader.impl.FormattedException;
@@ -43,27 +45,55 @@ import org.quiltmc.loader.impl.util.log.Log;
 import org.quiltmc.loader.impl.util.log.LogCategory;
 import org.quiltmc.loader.impl.util.mappings.TinyRemapperMappingsHelper;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
 import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 @QuiltLoaderInternal(QuiltLoaderInternalType.LEGACY_NO_WARN)
 public final class GameProviderHelper {
+	private static final String REMAP_KEY_INPUT = "input";
+	private static final String REMAP_KEY_SIZE = "size";
+	private static final String REMAP_KEY_MODIFIED = "modified";
+	private static final String REMAP_KEY_HASH = "sha1";
+	private static final String REMAP_KEY_MAPPINGS = "mappings";
+	private static final String REMAP_KEY_ENVIRONMENT = "environment";
+
+	private static final String SERVICES_FOLDER = "META-INF/services/";
+	private static final Attributes.Name LAUNCHER_AGENT_CLASS = new Attributes.Name("Launcher-Agent-Class");
+
 	private GameProviderHelper() { }
 
 	public static Path getCommonGameJar() {
@@ -200,21 +230,24 @@ public final class GameProviderHelper {
 		List<Path> inputFiles = new ArrayList<>(inputFileMap.size());
 		List<Path> outputFiles = new ArrayList<>(inputFileMap.size());
 		List<Path> tmpFiles = new ArrayList<>(inputFileMap.size());
+		List<Properties> keys = new ArrayList<>(inputFileMap.size());
 		Map<String, Path> ret = new HashMap<>(inputFileMap.size());
-		boolean anyMissing = false;
+		boolean anyStale = false;
+		String side = launcher.getEnvironmentType().name().toLowerCase(Locale.ROOT);
 
 		for (Map.Entry<String, Path> entry : inputFileMap.entrySet()) {
 			String name = entry.getKey();
 			Path inputFile = entry.getValue();
-			// TODO: allow versioning mappings?
 			String deobfJarFilename = String.format("%s-%s.jar", name, targetNamespace);
 			Path outputFile = deobfJarDir.resolve(deobfJarFilename);
 			Path tmpFile = deobfJarDir.resolve(deobfJarFilename + ".tmp");
+			Path keyFile = getKeyFile(outputFile);
 
 			if (Files.exists(tmpFile)) { // previous unfinished remap attempt
 				Log.warn(LogCategory.GAME_REMAP, "Incomplete remapped file found! This means that the remapping process failed on the previous launch. If this persists, make sure to let us at Quilt know!");
 
 				try {
+					Files.deleteIfExists(keyFile);
 					Files.deleteIfExists(outputFile);
 					Files.deleteIfExists(tmpFile);
 				} catch (IOException e) {
@@ -222,17 +255,33 @@ public final class GameProviderHelper {
 				}
 			}
 
+			try {
+				Properties previousKey = readRemapKey(keyFile);
+				Properties key = createRemapKey(inputFile, previousKey, mappingConfig.getMappingsHash(), side);
+				keys.add(key);
+
+				if (previousKey != null && isSameRemap(previousKey, key) && Files.exists(outputFile)) {
+					if (!previousKey.equals(key)) {
+						// The input was touched, but its content is still the same
+						writeRemapKey(keyFile, key);
+					}
+				} else {
+					if (previousKey != null) {
+						Log.info(LogCategory.GAME_REMAP, "%s has changed since it was last remapped", inputFile);
+					}
+					anyStale = true;
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("can't check the remapped file " + outputFile, e);
+			}
+
 			inputFiles.add(inputFile);
 			outputFiles.add(outputFile);
 			tmpFiles.add(tmpFile);
 			ret.put(name, outputFile);
-
-			if (!anyMissing && !Files.exists(outputFile)) {
-				anyMissing = true;
-			}
 		}
 
-		if (!anyMissing) {
+		if (!anyStale) {
 			Log.debug(LogCategory.GAME_REMAP, "Remapped files exist already, reusing them");
 			return ret;
 		}
@@ -246,7 +295,7 @@ public final class GameProviderHelper {
 
 		try {
 			Files.createDirectories(deobfJarDir);
-			deobfuscate0(inputFiles, outputFiles, tmpFiles, mappings, targetNamespace, launcher);
+			deobfuscate0(inputFiles, outputFiles, tmpFiles, keys, mappings, targetNamespace, launcher);
 		} catch (IOException e) {
 			throw new RuntimeException("error remapping game jars "+inputFiles, e);
 		}
@@ -277,8 +326,67 @@ public final class GameProviderHelper {
 		return ret.resolve(versionDirName.toString().replaceAll("[^\\w\\-\\. ]+", "_"));
 	}
 
-	private static void deobfuscate0(List<Path> inputFiles, List<Path> outputFiles, List<Path> tmpFiles, TinyTree mappings, String targetNamespace, QuiltLauncher launcher) throws IOException {
-		String side = launcher.getEnvironmentType().name().toLowerCase();
+	private static Path getKeyFile(Path outputFile) {
+		return outputFile.resolveSibling(outputFile.getFileName() + ".key");
+	}
+
+	@Nullable
+	private static Properties readRemapKey(Path keyFile) throws IOException {
+		if (!Files.isRegularFile(keyFile)) {
+			return null;
+		}
+
+		Properties key = new Properties();
+		try (InputStream stream = Files.newInputStream(keyFile)) {
+			key.load(stream);
+		}
+		return key;
+	}
+
+	private static void writeRemapKey(Path keyFile, Properties key) throws IOException {
+		try (OutputStream stream = Files.newOutputStream(keyFile)) {
+			key.store(stream, null);
+		}
+	}
+
+	/** Creates the key which a remapped jar is reused for. The content hash of the input is only recomputed if its
+	 * path, size, or last modified time differ from the previous key, since hashing the whole game jar on every launch
+	 * isn't free either. */
+	private static Properties createRemapKey(Path inputFile, @Nullable Properties previousKey, String mappingsHash, String side) throws IOException {
+		Properties key = new Properties();
+		key.setProperty(REMAP_KEY_INPUT, inputFile.toAbsolutePath().toString());
+		key.setProperty(REMAP_KEY_SIZE, Long.toString(Files.size(inputFile)));
+		key.setProperty(REMAP_KEY_MODIFIED, Long.toString(Files.getLastModifiedTime(inputFile).toMillis()));
+		key.setProperty(REMAP_KEY_MAPPINGS, String.valueOf(mappingsHash));
+		key.setProperty(REMAP_KEY_ENVIRONMENT, side);
+
+		String previousHash = previousKey == null ? null : previousKey.getProperty(REMAP_KEY_HASH);
+
+		if (previousHash != null
+				&& key.getProperty(REMAP_KEY_INPUT).equals(previousKey.getProperty(REMAP_KEY_INPUT))
+				&& key.getProperty(REMAP_KEY_SIZE).equals(previousKey.getProperty(REMAP_KEY_SIZE))
+				&& key.getProperty(REMAP_KEY_MODIFIED).equals(previousKey.getProperty(REMAP_KEY_MODIFIED))) {
+			key.setProperty(REMAP_KEY_HASH, previousHash);
+		} else {
+			key.setProperty(REMAP_KEY_HASH, HashUtil.hashToString(HashUtil.computeHash(inputFile)));
+		}
+
+		return key;
+	}
+
+	/** @return True if a jar remapped with the previous key has the same content as one remapped with the current
+	 *         key. */
+	private static boolean isSameRemap(Properties previousKey, Properties currentKey) {
+		for (String name : new String[] { REMAP_KEY_HASH, REMAP_KEY_MAPPINGS, REMAP_KEY_ENVIRONMENT }) {
+			if (!currentKey.getProperty(name).equals(previousKey.getProperty(name))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void deobfuscate0(List<Path> inputFiles, List<Path> outputFiles, List<Path> tmpFiles, List<Properties> keys, TinyTree mappings, String targetNamespace, QuiltLauncher launcher) throws IOException {
+		String side = launcher.getEnvironmentType().name().toLowerCase(Locale.ROOT);
 		String ns = mappings.getMetadata().getNamespaces().contains(side) ? side : "official";
 		TinyRemapper remapper = TinyRemapper.newRemapper()
 				.withMappings(TinyRemapperMappingsHelper.create(mappings, ns, targetNamespace))
@@ -296,33 +404,98 @@ public final class GameProviderHelper {
 			}
 		}
 
-		List<OutputConsumerPath> outputConsumers = new ArrayList<>(inputFiles.size());
+		List<ParallelJarWriter> writers = new ArrayList<>(inputFiles.size());
 		List<InputTag> inputTags = new ArrayList<>(inputFiles.size());
+		List<Map<String, byte[]>> metaInfFiles = new ArrayList<>(inputFiles.size());
+		List<ZipFile> zips = new ArrayList<>(inputFiles.size());
+		List<Future<?>> futures = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+			Thread thread = new Thread(runnable, "Quilt Game Remap Copier");
+			thread.setDaemon(true);
+			return thread;
+		});
 
 		try {
 			for (int i = 0; i < inputFiles.size(); i++) {
 				Path inputFile = inputFiles.get(i);
-				Path tmpFile = tmpFiles.get(i);
 
 				InputTag inputTag = remapper.createInputTag();
-				OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(tmpFile)
-						// force jar despite the .tmp extension
-						.assumeArchive(true)
-						.build();
+				ParallelJarWriter writer = new ParallelJarWriter();
+				Map<String, byte[]> metaInf = new ConcurrentHashMap<>();
+				ZipFile zip = new ZipFile(inputFile.toFile());
 
-				outputConsumers.add(outputConsumer);
+				writers.add(writer);
 				inputTags.add(inputTag);
+				metaInfFiles.add(metaInf);
+				zips.add(zip);
 
-				outputConsumer.addNonClassFiles(inputFile, NonClassCopyMode.FIX_META_INF, remapper);
 				remapper.readInputsAsync(inputTag, inputFile);
+
+				// Copy the non-class files while the remapper reads the classes
+				for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+					ZipEntry entry = entries.nextElement();
+					String name = entry.getName();
+
+					if (entry.isDirectory() || name.endsWith(".class") || isSignatureFile(name)) {
+						continue;
+					}
+
+					futures.add(executor.submit(() -> {
+						byte[] data;
+						try (InputStream stream = zip.getInputStream(entry)) {
+							data = FileUtil.readAllBytes(stream);
+						}
+
+						if (name.equals(JarFile.MANIFEST_NAME) || name.startsWith(SERVICES_FOLDER)) {
+							// These need the mappings, which are only ready once the remapper has been applied
+							metaInf.put(name, data);
+						} else {
+							writer.put(name, data);
+						}
+						return null;
+					}));
+				}
 			}
 
 			for (int i = 0; i < inputFiles.size(); i++) {
-				remapper.apply(outputConsumers.get(i), inputTags.get(i));
+				ParallelJarWriter writer = writers.get(i);
+				remapper.apply((name, data) -> writer.put(name + ".class", data), inputTags.get(i));
+			}
+
+			for (Future<?> future : futures) {
+				future.get();
 			}
+
+			Remapper classRemapper = remapper.getEnvironment().getRemapper();
+
+			for (int i = 0; i < inputFiles.size(); i++) {
+				ParallelJarWriter writer = writers.get(i);
+
+				for (Map.Entry<String, byte[]> entry : metaInfFiles.get(i).entrySet()) {
+					String name = entry.getKey();
+
+					if (name.equals(JarFile.MANIFEST_NAME)) {
+						writer.put(name, fixManifest(entry.getValue(), classRemapper));
+					} else {
+						String service = name.substring(SERVICES_FOLDER.length());
+						writer.put(SERVICES_FOLDER + mapClassName(service, classRemapper), fixServices(entry.getValue(), classRemapper));
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while remapping " + inputFiles);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to copy the files in " + inputFiles, e.getCause());
 		} finally {
-			for (OutputConsumerPath outputConsumer : outputConsumers) {
-				outputConsumer.close();
+			executor.shutdownNow();
+
+			// No more entries are added after this, so only the writing is left
+			for (ParallelJarWriter writer : writers) {
+				writer.endCompression();
+			}
+
+			for (ZipFile zip : zips) {
+				zip.close();
 			}
 
 			remapper.finish();
@@ -331,8 +504,6 @@ public final class GameProviderHelper {
 		// Minecraft doesn't tend to check if a ZipFileSystem is already present,
 		// so we clean up here.
 
-		depPaths.addAll(tmpFiles);
-
 		for (Path p : depPaths) {
 			try {
 				p.getFileSystem().close();
@@ -353,23 +524,88 @@ public final class GameProviderHelper {
 			Path inputFile = inputFiles.get(i);
 			Path tmpFile = tmpFiles.get(i);
 			Path outputFile = outputFiles.get(i);
+			ParallelJarWriter writer = writers.get(i);
 
-			boolean found;
-
-			try (JarFile jar = new JarFile(tmpFile.toFile())) {
-				found = jar.stream().anyMatch((e) -> e.getName().endsWith(".class"));
-			}
-
-			if (!found) {
+			if (writer.getClassCount() == 0) {
 				missing.add(inputFile);
-				Files.delete(tmpFile);
-			} else {
-				Files.move(tmpFile, outputFile);
+				continue;
 			}
+
+			Path keyFile = getKeyFile(outputFile);
+			Files.deleteIfExists(keyFile);
+			writer.write(tmpFile);
+			Files.move(tmpFile, outputFile, StandardCopyOption.REPLACE_EXISTING);
+			writeRemapKey(keyFile, keys.get(i));
 		}
 
 		if (!missing.isEmpty()) {
 			throw new RuntimeException("Generated deobfuscated JARs contain no classes: "+missing);
 		}
 	}
+
+	private static boolean isSignatureFile(String name) {
+		if (!name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) >= 0) {
+			return false;
+		}
+
+		return name.endsWith(".SF") || name.endsWith(".DSA") || name.endsWith(".RSA") || name.endsWith(".EC")
+				|| name.startsWith("META-INF/SIG-");
+	}
+
+	/** Removes the signature digests from a manifest, since the remapped classes no longer match them, and remaps the
+	 * class names it refers to. */
+	private static byte[] fixManifest(byte[] data, Remapper remapper) throws IOException {
+		Manifest manifest = new Manifest(new ByteArrayInputStream(data));
+		Attributes mainAttributes = manifest.getMainAttributes();
+
+		for (Attributes.Name name : new Attributes.Name[] { Attributes.Name.MAIN_CLASS, LAUNCHER_AGENT_CLASS }) {
+			String value = mainAttributes.getValue(name);
+			if (value != null) {
+				mainAttributes.put(name, mapClassName(value, remapper));
+			}
+		}
+
+		for (Iterator<Attributes> iterator = manifest.getEntries().values().iterator(); iterator.hasNext();) {
+			Attributes attributes = iterator.next();
+			attributes.keySet().removeIf(key -> {
+				String name = key.toString();
+				return name.endsWith("-Digest") || name.contains("-Digest-") || name.equals("Magic");
+			});
+
+			if (attributes.isEmpty()) {
+				iterator.remove();
+			}
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+		manifest.write(out);
+		return out.toByteArray();
+	}
+
+	private static byte[] fixServices(byte[] data, Remapper remapper) {
+		StringBuilder sb = new StringBuilder(data.length);
+
+		for (String line : new String(data, StandardCharsets.UTF_8).split("\\r?\\n")) {
+			int comment = line.indexOf('#');
+			String className = (comment < 0 ? line : line.substring(0, comment)).trim();
+
+			if (className.isEmpty()) {
+				sb.append(line);
+			} else {
+				int start = line.indexOf(className);
+				sb.append(line, 0, start);
+				sb.append(mapClassName(className, remapper));
+				sb.append(line, start + className.length(), line.length());
+			}
+
+			sb.append('\n');
+		}
+
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/** Maps a binary class name (with dots rather than slashes). */
+	private static String mapClassName(String className, Remapper remapper) {
+		return remapper.map(className.replace('.', '/')).replace('/', '.');
+	}
 }
@@ -0,0 +1,305 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.game;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.quiltmc.loader.impl.util.ExposedByteArrayOutputStream;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+/** Writes a normal jar file, but compresses each entry on whichever thread adds it. This lets the remapper threads
+ * compress their own output, rather than funnelling every entry through a single {@link java.util.zip.ZipOutputStream}
+ * at the end. Entries are written in name order (after the manifest) with a fixed timestamp, so the same input always
+ * produces the same jar.
+ * <p>
+ * Zip64 records are only written when the jar needs them: when there are at least 65535 entries, or when an entry or
+ * the central directory starts beyond 4 GiB. A single entry can't be larger than a byte array, so entry sizes always
+ * fit in the normal fields. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class ParallelJarWriter {
+
+	private static final String MANIFEST_FOLDER = "META-INF/";
+	private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+	private static final int VERSION_ZIP64 = 45;
+	/** Written in place of a count or offset which is stored in a zip64 record instead. */
+	private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+	private static final long ZIP64_MAGIC_OFFSET = 0xFFFF_FFFFL;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+	/** General purpose flag for "the name is UTF-8". */
+	private static final int FLAG_UTF8 = 1 << 11;
+	/** 1980-01-01 00:00, the earliest time a zip can store. */
+	private static final int DOS_TIME = 0;
+	private static final int DOS_DATE = (1 << 5) | 1;
+
+	private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[8192]);
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final Set<String> folders = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger classCount = new AtomicInteger();
+
+	/** Every {@link Deflater} which isn't being used by a {@link #put(String, byte[])} call. These hold native memory,
+	 * so they're ended by {@link #endCompression()} rather than left for the garbage collector. */
+	private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+	/** Compresses and adds the given file. This can be called from any thread. If a file has already been added with
+	 * the same name then the first one is kept. */
+	void put(String name, byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		Deflater deflater = deflaters.poll();
+		if (deflater == null) {
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		}
+
+		ExposedByteArrayOutputStream compressed = new ExposedByteArrayOutputStream();
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+
+			byte[] buffer = BUFFERS.get();
+			while (!deflater.finished()) {
+				int length = deflater.deflate(buffer);
+				compressed.write(buffer, 0, length);
+			}
+		} finally {
+			deflater.reset();
+			deflaters.add(deflater);
+		}
+
+		Entry entry;
+		if (compressed.size() < data.length) {
+			entry = new Entry(METHOD_DEFLATED, compressed.getArray(), compressed.size(), data.length, crc.getValue());
+		} else {
+			entry = new Entry(METHOD_STORED, data, data.length, data.length, crc.getValue());
+		}
+
+		if (entries.putIfAbsent(name, entry) != null) {
+			return;
+		}
+
+		if (name.endsWith(".class")) {
+			classCount.incrementAndGet();
+		}
+
+		for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i + 1)) {
+			folders.add(name.substring(0, i + 1));
+		}
+	}
+
+	int getClassCount() {
+		return classCount.get();
+	}
+
+	/** Ends every {@link Deflater} used by {@link #put(String, byte[])}. This must only be called once every put call
+	 * has returned, but {@link #write(Path)} can still be called afterwards. */
+	void endCompression() {
+		Deflater deflater;
+		while ((deflater = deflaters.poll()) != null) {
+			deflater.end();
+		}
+	}
+
+	/** Writes every entry to the given file. This must only be called once every {@link #put(String, byte[])} call
+	 * has returned. */
+	void write(Path to) throws IOException {
+		List<String> names = new ArrayList<>(folders.size() + entries.size());
+		names.addAll(folders);
+		names.addAll(entries.keySet());
+		names.remove(MANIFEST_FOLDER);
+		names.remove(MANIFEST_NAME);
+		Collections.sort(names);
+
+		// JarInputStream only finds the manifest if it's one of the first two entries
+		if (entries.containsKey(MANIFEST_NAME)) {
+			names.add(0, MANIFEST_NAME);
+		}
+		if (folders.contains(MANIFEST_FOLDER)) {
+			names.add(0, MANIFEST_FOLDER);
+		}
+
+		byte[][] encodedNames = new byte[names.size()][];
+		long[] offsets = new long[names.size()];
+
+		try (LittleEndianOutput out = new LittleEndianOutput(Files.newOutputStream(to))) {
+
+			for (int i = 0; i < names.size(); i++) {
+				String name = names.get(i);
+				byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+				Entry entry = entries.get(name);
+				encodedNames[i] = encoded;
+				offsets[i] = out.position;
+
+				out.writeInt(0x04034b50);
+				out.writeShort(entry != null && entry.method == METHOD_DEFLATED ? 20 : 10);
+				out.writeShort(FLAG_UTF8);
+				writeEntryFields(out, entry, encoded);
+				out.writeShort(0);
+				out.write(encoded, 0, encoded.length);
+
+				if (entry != null) {
+					out.write(entry.data, 0, entry.compressedSize);
+				}
+			}
+
+			long directoryStart = out.position;
+
+			for (int i = 0; i < names.size(); i++) {
+				Entry entry = entries.get(names.get(i));
+				byte[] encoded = encodedNames[i];
+				boolean zip64 = offsets[i] >= ZIP64_MAGIC_OFFSET;
+				int versionNeeded = zip64 ? VERSION_ZIP64 : entry != null && entry.method == METHOD_DEFLATED ? 20 : 10;
+
+				out.writeInt(0x02014b50);
+				out.writeShort(versionNeeded);
+				out.writeShort(versionNeeded);
+				out.writeShort(FLAG_UTF8);
+				writeEntryFields(out, entry, encoded);
+				out.writeShort(zip64 ? 12 : 0); // extra length
+				out.writeShort(0); // comment length
+				out.writeShort(0); // disk number
+				out.writeShort(0); // internal attributes
+				out.writeInt(entry == null ? 0x10 : 0); // external attributes: MS-DOS directory flag
+				out.writeInt((int) (zip64 ? ZIP64_MAGIC_OFFSET : offsets[i]));
+				out.write(encoded, 0, encoded.length);
+
+				if (zip64) {
+					out.writeShort(ZIP64_EXTRA_ID);
+					out.writeShort(8);
+					out.writeLong(offsets[i]);
+				}
+			}
+
+			long directoryEnd = out.position;
+			long directorySize = directoryEnd - directoryStart;
+			int count = names.size();
+
+			boolean zip64 = count >= ZIP64_MAGIC_COUNT || directoryStart >= ZIP64_MAGIC_OFFSET
+				|| directorySize >= ZIP64_MAGIC_OFFSET;
+
+			if (zip64) {
+				out.writeInt(0x06064b50);
+				out.writeLong(44); // size of the rest of this record
+				out.writeShort(VERSION_ZIP64);
+				out.writeShort(VERSION_ZIP64);
+				out.writeInt(0); // disk number
+				out.writeInt(0); // disk with the central directory
+				out.writeLong(count);
+				out.writeLong(count);
+				out.writeLong(directorySize);
+				out.writeLong(directoryStart);
+
+				out.writeInt(0x07064b50);
+				out.writeInt(0); // disk with the zip64 end of central directory
+				out.writeLong(directoryEnd);
+				out.writeInt(1); // total disks
+			}
+
+			out.writeInt(0x06054b50);
+			out.writeShort(0); // disk number
+			out.writeShort(0); // disk with the central directory
+			out.writeShort(zip64 ? ZIP64_MAGIC_COUNT : count);
+			out.writeShort(zip64 ? ZIP64_MAGIC_COUNT : count);
+			out.writeInt((int) (zip64 ? ZIP64_MAGIC_OFFSET : directorySize));
+			out.writeInt((int) (zip64 ? ZIP64_MAGIC_OFFSET : directoryStart));
+			out.writeShort(0); // comment length
+		}
+	}
+
+	/** Writes the fields shared between local headers and central directory entries, from the compression method up
+	 * to the name length. */
+	private static void writeEntryFields(LittleEndianOutput out, Entry entry, byte[] name) throws IOException {
+		out.writeShort(entry == null ? METHOD_STORED : entry.method);
+		out.writeShort(DOS_TIME);
+		out.writeShort(DOS_DATE);
+		out.writeInt(entry == null ? 0 : (int) entry.crc);
+		out.writeInt(entry == null ? 0 : entry.compressedSize);
+		out.writeInt(entry == null ? 0 : entry.uncompressedSize);
+		out.writeShort(name.length);
+	}
+
+	private static final class Entry {
+		final int method;
+		final byte[] data;
+		final int compressedSize, uncompressedSize;
+		final long crc;
+
+		Entry(int method, byte[] data, int compressedSize, int uncompressedSize, long crc) {
+			this.method = method;
+			this.data = data;
+			this.compressedSize = compressedSize;
+			this.uncompressedSize = uncompressedSize;
+			this.crc = crc;
+		}
+	}
+
+	private static final class LittleEndianOutput implements AutoCloseable {
+		final OutputStream out;
+		long position;
+
+		LittleEndianOutput(OutputStream to) {
+			this.out = new BufferedOutputStream(to, 1 << 16);
+		}
+
+		void writeShort(int value) throws IOException {
+			out.write(value);
+			out.write(value >>> 8);
+			position += 2;
+		}
+
+		void writeInt(int value) throws IOException {
+			writeShort(value);
+			writeShort(value >>> 16);
+		}
+
+		void writeLong(long value) throws IOException {
+			writeInt((int) value);
+			writeInt((int) (value >>> 32));
+		}
+
+		void write(byte[] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+			position += length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
@@ -56,6 +56,14 @@ public final class QuiltStatusNode extends QuiltGuiSyncBase implements QuiltTree
 		default void onChildAdded(QuiltStatusNode child) {}
 	}
 
+	/** Every node shares one lock, since changing the level of a node also recomputes the level of each parent. Nodes
+	 * are modified by quilt-loader's worker threads during mod discovery, as well as the main thread.
+	 * <p>
+	 * Listeners and GUI updates are never run while holding this lock, since either of them may pass work to a
+	 * different thread which then touches a node. Instead they're collected while the lock is held, and run by
+	 * {@link #runAll(List)} afterwards. */
+	private static final Object LOCK = new Object();
+
 	private QuiltLoaderText apiText = QuiltLoaderText.EMPTY;
 	String text = "";
 
@@ -95,16 +103,18 @@ public final class QuiltStatusNode extends QuiltGuiSyncBase implements QuiltTree
 
 	@Override
 	protected void write0(Map<String, LoaderValue> map) {
-		map.put("name", lvf().string(text));
-		map.put("icon", writeChild(icon));
-		map.put("level", lvf().string(level.name()));
-		map.put("maxLevel", lvf().string(maxLevel.name()));
-		map.put("autoExpandLevel", lvf().string(autoExpandLevel.name()));
-		if (details != null) {
-			map.put("details", lvf().string(details));
+		synchronized (LOCK) {
+			map.put("name", lvf().string(text));
+			map.put("icon", writeChild(icon));
+			map.put("level", lvf().string(level.name()));
+			map.put("maxLevel", lvf().string(maxLevel.name()));
+			map.put("autoExpandLevel", lvf().string(autoExpandLevel.name()));
+			if (details != null) {
+				map.put("details", lvf().string(details));
+			}
+			map.put("children_by_addition", lvf().array(write(childNodesByAddition)));
+			map.put("children_by_alphabetical", lvf().array(write(childNodesByAlphabetical)));
 		}
-		map.put("children_by_addition", lvf().array(write(childNodesByAddition)));
-		map.put("children_by_alphabetical", lvf().array(write(childNodesByAlphabetical)));
 	}
 
 	@Override
@@ -153,14 +163,20 @@ public final class QuiltStatusNode extends QuiltGuiSyncBase implements QuiltTree
 
 	@Override
 	public QuiltTreeNode icon(QuiltLoaderIcon icon) {
-		this.icon = PluginIconImpl.fromApi(icon);
-		if (this.icon == null) {
-			this.icon = new PluginIconImpl();
+		PluginIconImpl newIcon;
+		boolean send;
+		synchronized (LOCK) {
+			newIcon = PluginIconImpl.fromApi(icon);
+			if (newIcon == null) {
+				newIcon = new PluginIconImpl();
+			}
+			this.icon = newIcon;
+			send = shouldSendUpdates();
 		}
 		invokeListeners(TreeNodeListener.class, TreeNodeListener::onIconChanged);
-		if (shouldSendUpdates()) {
+		if (send) {
 			Map<String, LoaderValue> map = new HashMap<>();
-			map.put("icon", writeChild(this.icon));
+			map.put("icon", writeChild(newIcon));
 			sendUpdate("set_icon", lvf().object(map));
 		}
 		return this;
@@ -173,18 +189,23 @@ public final class QuiltStatusNode extends QuiltGuiSyncBase implements QuiltTree
 
 	@Override
 	public QuiltStatusNode text(QuiltLoaderText text) {
-		apiText = Objects.requireNonNull(text);
-		this.text = text.toString();
-		QuiltStatusNode p = parent();
-		if (p != null) {
-			p.sortChildren();
-		}
-		invokeListeners(TreeNodeListener.class, TreeNodeListener::onTextChanged);
-		if (shouldSendUpdates()) {
-			Map<String, LoaderValue> map = new HashMap<>();
-			map.put("text", lvf().string(this.text));
-			sendUpdate("set_text", lvf().object(map));
+		List<Runnable> pending = new ArrayList<>();
+		synchronized (LOCK) {
+			apiText = Objects.requireNonNull(text);
+			this.text = text.toString();
+			QuiltStatusNode p = parent();
+			if (p != null) {
+				p.sortChildren();
+			}
+			pending.add(() -> invokeListeners(TreeNodeListener.class, TreeNodeListener::onTextChanged));
+			if (shouldSendUpdates()) {
+				Map<String, LoaderValue> map = new HashMap<>();
+				map.put("text", lvf().string(this.text));
+				LObject data = lvf().object(map);
+				pending.add(() -> sendUpdate("set_text", data));
+			}
 		}
+		runAll(pending);
 		return this;
 	}
 
@@ -195,18 +216,23 @@ public final class QuiltStatusNode extends QuiltGuiSyncBase implements QuiltTree
 
 	@Override
 	public QuiltTreeNode level(QuiltWarningLevel level) {
-		this.level = Objects.requireNonNull(level);
-		invokeListeners(TreeNodeListener.class, TreeNodeListener::onLevelChanged);
-		if (shouldSendUpdates()) {
-			Map<String, LoaderValue> map = new HashMap<>();
-			map.put("level", lvf().string(this.level.name()));
-			sendUpdate("set_level", lvf().object(map));
+		List<Runnable> pending = new ArrayList<>();
+		synchronized (LOCK) {
+			this.level = Objects.requireNonNull(level);
+			pending.add(() -> invokeListeners(TreeNodeListener.class, TreeNodeListener::onLevelChanged));
+			if (shouldSendUpdates()) {
+				Map<String, LoaderValue> map = new HashMap<>();
+				map.put("level", lvf().string(this.level.name()));
+				LObject data = lvf().object(map);
+				pending.add(() -> sendUpdate("set_level", data));
+			}
+			recomputeMaxLevel(pending);
 		}
-		recomputeMaxLevel();
+		runAll(pending);
 		return this;
 	}
 
-	private void recomputeMaxLevel() {
+	private void recomputeMaxLevel(List<Runnable> pending) {
 		QuiltWarningLevel oldMaxLevel = maxLevel;
 		maxLevel = level;
 		for (QuiltStatusNode child : childIterable()) {
@@ -216,14 +242,21 @@ public final class QuiltStatusNode extends QuiltGuiSyncBase implements QuiltTree
 			if (shouldSendUpdates()) {
 				Map<String, LoaderValue> map = new HashMap<>();
 				map.put("max_level", lvf().string(this.maxLevel.name()));
-				sendUpdate("set_max_level", lvf().object(map));
+				LObject data = lvf().object(map);
+				pending.add(() -> sendUpdate("set_max_level", data));
 			}
 			if (parent instanceof QuiltStatusNode) {
-				((QuiltStatusNode) parent).recomputeMaxLevel();
+				((QuiltStatusNode) parent).recomputeMaxLevel(pending);
 			}
 		}
 	}
 
+	private static void runAll(List<Runnable> pending) {
+		for (Runnable task : pending) {
+			task.run();
+		}
+	}
+
 	@Override
 	public QuiltWarningLevel maximumLevel() {
 		return maxLevel;
@@ -231,11 +264,13 @@ public final class QuiltStatusNode extends QuiltGuiSyncBase implements QuiltTree
 
 	@Override
 	public int countAtLevel(QuiltWarningLevel level) {
-		int count = this.level == level ? 1 : 0;
-		for (QuiltStatusNode node : childIterable()) {
-			count += node.countAtLevel(level);
+		synchronized (LOCK) {
+			int count = this.level == level ? 1 : 0;
+			for (QuiltStatusNode node : childIterable()) {
+				count += node.countAtLevel(level);
+			}
+			return count;
 		}
-		return count;
 	}
 
 	@Override
@@ -271,19 +306,25 @@ public final class QuiltStatusNode extends QuiltGuiSyncBase implements QuiltTree
 
 	@Override
 	public QuiltStatusNode addChild(QuiltTreeNode.SortOrder sortOrder) {
-		QuiltStatusNode child = new QuiltStatusNode(this);
-		if (sortOrder == QuiltTreeNode.SortOrder.ADDITION_ORDER) {
-			childNodesByAddition.add(child);
-		} else {
-			childNodesByAlphabetical.add(child);
+		QuiltStatusNode child;
+		boolean send;
+		synchronized (LOCK) {
+			child = new QuiltStatusNode(this);
+			if (sortOrder == QuiltTreeNode.SortOrder.ADDITION_ORDER) {
+				childNodesByAddition.add(child);
+			} else {
+				childNodesByAlphabetical.add(child);
+			}
+			send = shouldSendUpdates();
 		}
-		invokeListeners(TreeNodeListener.class, l -> l.onChildAdded(child));
-		if (shouldSendUpdates()) {
+		// Nothing else can see the child yet, so it's safe to write it outside the lock
+		if (send) {
 			Map<String, LoaderValue> map = new HashMap<>();
 			map.put("sort_order", lvf().string(sortOrder.name()));
 			map.put("child", writeChild(child));
 			sendUpdate("add_child", lvf().object(map));
 		}
+		invokeListeners(TreeNodeListener.class, l -> l.onChildAdded(child));
 		return child;
 	}
 
@@ -305,8 +346,10 @@ public final class QuiltStatusNode extends QuiltGuiSyncBase implements QuiltTree
 	}
 
 	void forEachChild(Consumer<? super QuiltStatusNode> consumer) {
-		childNodesByAddition.forEach(consumer);
-		childNodesByAlphabetical.forEach(consumer);
+		synchronized (LOCK) {
+			childNodesByAddition.forEach(consumer);
+			childNodesByAlphabetical.forEach(consumer);
+		}
 	}
 
 	Iterable<QuiltStatusNode> childIterable() {
@@ -340,15 +383,19 @@ public final class QuiltStatusNode extends QuiltGuiSyncBase implements QuiltTree
 		if (sortPrefix == null) {
 			sortPrefix = "";
 		}
-		if (this.sortPrefix.equals(sortPrefix)) {
-			return this;
-		}
-		this.sortPrefix = sortPrefix;
-		QuiltStatusNode p = parent();
-		if (p != null) {
-			p.sortChildren();
+		boolean send;
+		synchronized (LOCK) {
+			if (this.sortPrefix.equals(sortPrefix)) {
+				return this;
+			}
+			this.sortPrefix = sortPrefix;
+			QuiltStatusNode p = parent();
+			if (p != null) {
+				p.sortChildren();
+			}
+			send = shouldSendUpdates();
 		}
-		if (shouldSendUpdates()) {
+		if (send) {
 			Map<String, LoaderValue> map = new HashMap<>();
 			map.put("sort_prefix", lvf().string(sortPrefix));
 			sendUpdate("set_sort_prefix", lvf().object(map));
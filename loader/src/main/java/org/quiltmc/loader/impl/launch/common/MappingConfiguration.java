@@ -22,9 +22,16 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
 import java.net.JarURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Enumeration;
 import java.util.jar.Attributes.Name;
 import java.util.jar.Manifest;
@@ -35,9 +42,11 @@ import net.fabricmc.mapping.tree.TinyTree;
 
 import org.quiltmc.loader.impl.QuiltLoaderImpl;
 import org.quiltmc.loader.impl.game.GameProvider;
+import org.quiltmc.loader.impl.util.HashUtil;
 import org.quiltmc.loader.impl.util.ManifestUtil;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.mappings.CompiledMappings;
 import org.quiltmc.loader.impl.util.log.Log;
 import org.quiltmc.loader.impl.util.log.LogCategory;
 
@@ -48,7 +57,15 @@ public final class MappingConfiguration {
 	private String gameId;
 	private String gameVersion;
 	private String mappingsSource;
-	private TinyTree mappings;
+	private volatile TinyTree mappings;
+
+	/** The SHA-1 of the mappings file, or null if no mappings were found. */
+	private String mappingsHash;
+	private CompiledMappings compiledMappings;
+
+	/** Once {@link #compiledMappings} exist the tree is only softly referenced, since it's rarely needed after that.
+	 * It's read again from {@link #mappingsSource} if it has been collected. */
+	private volatile SoftReference<TinyTree> softMappings;
 
 	public String getGameId() {
 		initialize();
@@ -68,6 +85,13 @@ public final class MappingConfiguration {
 		return mappingsSource;
 	}
 
+	/** @return The SHA-1 of the mappings file, or null if no mappings were found. */
+	public String getMappingsHash() {
+		initialize();
+
+		return mappingsHash;
+	}
+
 	public boolean matches(String gameId, String gameVersion) {
 		initialize();
 
@@ -78,7 +102,72 @@ public final class MappingConfiguration {
 	public TinyTree getMappings() {
 		initialize();
 
-		return mappings;
+		TinyTree tree = mappings;
+		if (tree == null) {
+			tree = softMappings.get();
+			if (tree == null) {
+				tree = reloadMappings();
+				softMappings = new SoftReference<>(tree);
+			}
+		}
+		return tree;
+	}
+
+	private synchronized TinyTree reloadMappings() {
+		Log.debug(LogCategory.MAPPINGS, "Reloading mappings: %s", mappingsSource);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new URL(mappingsSource).openStream()))) {
+			return TinyMappingFactory.loadWithDetection(reader);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error reading " + mappingsSource, e);
+		}
+	}
+
+	/** @return The same mappings as {@link #getMappings()}, but stored compactly and searchable without building any
+	 *         maps. These are cached in the loader's cache folder once it is known, so later launches can map the
+	 *         compiled file directly. */
+	public synchronized CompiledMappings getCompiledMappings() {
+		initialize();
+
+		if (compiledMappings != null) {
+			return compiledMappings;
+		}
+
+		try {
+			Path gameDir = QuiltLoaderImpl.INSTANCE.getGameDir();
+			if (mappingsHash == null || gameDir == null) {
+				compiledMappings = CompiledMappings.read(CompiledMappings.compile(getMappings()));
+			} else {
+				Path folder = QuiltLoaderImpl.INSTANCE.getQuiltLoaderCacheDir().resolve("mappings");
+				Path file = folder.resolve(mappingsHash + ".bin");
+				if (Files.isRegularFile(file)) {
+					try {
+						compiledMappings = CompiledMappings.open(file);
+					} catch (IOException e) {
+						Log.warn(LogCategory.MAPPINGS, "Failed to read the compiled mappings " + file + ", compiling them again", e);
+					}
+				}
+
+				if (compiledMappings == null) {
+					long time = System.currentTimeMillis();
+					byte[] compiled = CompiledMappings.compile(getMappings());
+					Files.createDirectories(folder);
+					Path temp = Files.createTempFile(folder, mappingsHash, ".tmp");
+					Files.write(temp, compiled);
+					Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					Log.debug(LogCategory.MAPPINGS, "Compiling mappings took %d ms", System.currentTimeMillis() - time);
+					compiledMappings = CompiledMappings.open(file);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error compiling mappings from " + mappingsSource, e);
+		}
+
+		if (mappingsHash != null && mappings != null) {
+			softMappings = new SoftReference<>(mappings);
+			mappings = null;
+		}
+
+		return compiledMappings;
 	}
 
 	public String getTargetNamespace() {
@@ -121,14 +210,28 @@ public final class MappingConfiguration {
 					}
 				}
 
-				try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+				MessageDigest digest;
+				try {
+					digest = MessageDigest.getInstance("SHA-1");
+				} catch (NoSuchAlgorithmException e) {
+					throw new IllegalStateException("This JVM doesn't support SHA-1???");
+				}
+
+				DigestInputStream stream = new DigestInputStream(connection.getInputStream(), digest);
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
 					long time = System.currentTimeMillis();
 					TinyTree mappings = TinyMappingFactory.loadWithDetection(reader);
 					Log.debug(LogCategory.MAPPINGS, "Loading mappings took %d ms", System.currentTimeMillis() - time);
 
 					if (mappings.getMetadata().getNamespaces().contains(getTargetNamespace())) {
+						// Make sure the whole file is part of the hash, even if the parser stopped early
+						char[] rest = new char[8192];
+						while (reader.read(rest) >= 0) {
+							// Just reading is enough
+						}
 						this.mappings = mappings;
 						this.mappingsSource = url.toString();
+						this.mappingsHash = HashUtil.hashToString(digest.digest());
 						break;
 					}
 
@@ -49,6 +49,12 @@ public interface QuiltLauncher {
 	void hideParentPath(Path obf);
 	void validateGameClassLoader(Object gameInstance);
 
+	/**
+	 * Called once every mod has been added to the class path, so the launcher can optimise its lookups for the paths
+	 * added so far. Paths can still be added afterwards.
+	 */
+	default void freezeClassPath() {}
+
 	EnvType getEnvironmentType();
 
 	boolean isClassLoaded(String name);
@@ -19,6 +19,7 @@
 package org.quiltmc.loader.impl.launch.knot;
 
 import dev.tomat.fable.impl.FableLoaderImpl;
+import dev.tomat.fable.impl.classloading.ClassLoadingMetricsImpl;
 
 import net.fabricmc.api.EnvType;
 
@@ -38,6 +39,8 @@ import org.quiltmc.loader.impl.util.SystemProperties;
 import org.quiltmc.loader.impl.util.UrlUtil;
 import org.quiltmc.loader.impl.util.log.Log;
 import org.quiltmc.loader.impl.util.log.LogCategory;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline.Span;
 import org.spongepowered.asm.launch.MixinBootstrap;
 
 import java.io.File;
@@ -94,6 +97,18 @@ public final class Knot extends QuiltLauncherBase {
 	}
 
 	public ClassLoader init(String[] args) {
+		ClassLoader cl;
+		Span knotInitSpan = StartupTimeline.begin("knot_init");
+		try {
+			cl = init0(args);
+		} finally {
+			knotInitSpan.close();
+		}
+		StartupTimeline.flush();
+		return cl;
+	}
+
+	private ClassLoader init0(String[] args) {
 		setProperties(properties);
 
 		// configure fabric vars
@@ -131,7 +146,12 @@ public final class Knot extends QuiltLauncherBase {
 			classPath.add(path);
 		}
 
-		provider = createGameProvider(args);
+		Span locateGameSpan = StartupTimeline.begin("locate_game");
+		try {
+			provider = createGameProvider(args);
+		} finally {
+			locateGameSpan.close();
+		}
 		Log.info(LogCategory.GAME_PROVIDER, "Loading %s %s with Quilt Loader %s and Fable %s", provider.getGameName(), provider.getRawGameVersion(), QuiltLoaderImpl.VERSION, FableLoaderImpl.VERSION);
 
 		isDevelopment = Boolean.parseBoolean(System.getProperty(SystemProperties.DEVELOPMENT, "false"));
@@ -143,25 +163,57 @@ public final class Knot extends QuiltLauncherBase {
 		classLoader = useCompatibility ? new KnotCompatibilityClassLoader(isDevelopment(), envType, provider) : new KnotClassLoader(isDevelopment(), envType, provider);
 		ClassLoader cl = (ClassLoader) classLoader;
 
-		provider.initialize(this);
+		Span initializeGameProviderSpan = StartupTimeline.begin("initialize_game_provider");
+		try {
+			provider.initialize(this);
+		} finally {
+			initializeGameProviderSpan.close();
+		}
 
 		Thread.currentThread().setContextClassLoader(cl);
 
 		QuiltLoaderImpl loader = QuiltLoaderImpl.INSTANCE;
 		loader.setGameProvider(provider);
-		loader.load();
-		loader.freeze();
+		Span loadModsSpan = StartupTimeline.begin("load_mods");
+		try {
+			loader.load();
+		} finally {
+			loadModsSpan.close();
+		}
+		Span freezeSpan = StartupTimeline.begin("freeze");
+		try {
+			loader.freeze();
+		} finally {
+			freezeSpan.close();
+		}
+
+		Span mixinBootstrapSpan = StartupTimeline.begin("mixin_bootstrap");
+		try {
+			MixinBootstrap.init();
+			QuiltMixinBootstrap.init(getEnvironmentType(), loader);
+			QuiltLauncherBase.finishMixinBootstrapping();
+		} finally {
+			mixinBootstrapSpan.close();
+		}
 
-		MixinBootstrap.init();
-		QuiltMixinBootstrap.init(getEnvironmentType(), loader);
-		QuiltLauncherBase.finishMixinBootstrapping();
+		Span initializeTransformersSpan = StartupTimeline.begin("initialize_transformers");
+		try {
+			classLoader.getDelegate().initializeTransformers();
+		} finally {
+			initializeTransformersSpan.close();
+		}
 
-		classLoader.getDelegate().initializeTransformers();
+		ClassLoadingMetricsImpl.INSTANCE.registerMBeanIfEnabled();
 
 		provider.unlockClassPath(this);
 		unlocked = true;
 
-		QuiltConfigImpl.init();
+		Span configSpan = StartupTimeline.begin("config");
+		try {
+			QuiltConfigImpl.init();
+		} finally {
+			configSpan.close();
+		}
 
 		try {
 			// If the very first class transformed by mixin is also referenced by a mixin config
@@ -340,6 +392,11 @@ public final class Knot extends QuiltLauncherBase {
 		}
 	}
 
+	@Override
+	public void freezeClassPath() {
+		classLoader.freezeClassPath();
+	}
+
 	@Override
 	public void validateGameClassLoader(Object gameInstance) {
 		ClassLoader gameClassLoader = gameInstance.getClass().getClassLoader();
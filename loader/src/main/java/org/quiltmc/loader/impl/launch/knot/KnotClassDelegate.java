@@ -18,20 +18,20 @@
 
 package org.quiltmc.loader.impl.launch.knot;
 
-import dev.tomat.fable.api.patching.PatchContext;
+import dev.tomat.fable.api.classloading.ClassLoadingPhase;
 import dev.tomat.fable.api.patching.PatchHandler;
+import dev.tomat.fable.impl.classloading.ClassLoadTimer;
+import dev.tomat.fable.impl.classloading.ClassLoadingMetricsImpl;
 
 import net.fabricmc.api.EnvType;
 
-import org.jetbrains.annotations.NotNull;
-import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.tree.ClassNode;
+import org.jetbrains.annotations.Nullable;
 import org.quiltmc.loader.impl.transformer.PackageStrippingData;
 import org.quiltmc.loader.impl.util.LoaderUtil;
-import org.objectweb.asm.ClassReader;
 import org.quiltmc.loader.api.ModContainer;
 import org.quiltmc.loader.api.QuiltLoader;
 import org.quiltmc.loader.impl.QuiltLoaderImpl;
+import org.quiltmc.loader.impl.filesystem.QuiltClassPath;
 import org.quiltmc.loader.impl.game.GameProvider;
 import org.quiltmc.loader.impl.launch.common.QuiltCodeSource;
 import org.quiltmc.loader.impl.launch.common.QuiltLauncherBase;
@@ -52,6 +52,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.net.JarURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.file.FileSystemNotFoundException;
@@ -107,6 +108,60 @@ class KnotClassDelegate {
 		}
 	}
 
+	/** A class file found by {@link KnotClassLoaderInterface#getClassResource(String, boolean)}. Class files found in a
+	 * {@link QuiltClassPath} are read directly from their {@link Path}, and already know which mod they came from, so
+	 * the {@link URL} is only created if something asks for it. */
+	static final class ClassResource {
+		@Nullable
+		final Path path;
+
+		/** The metadata of the root which contains this class file, or null if it needs to be found from the url. */
+		@Nullable
+		final Metadata metadata;
+
+		private URL url;
+
+		ClassResource(Path path, @Nullable Metadata metadata) {
+			this.path = path;
+			this.metadata = metadata;
+		}
+
+		ClassResource(URL url) {
+			this.path = null;
+			this.metadata = null;
+			this.url = url;
+		}
+
+		URL getUrl() {
+			if (url == null) {
+				try {
+					url = UrlUtil.asUrl(path);
+				} catch (MalformedURLException e) {
+					throw new Error(e);
+				}
+			}
+			return url;
+		}
+
+		byte[] readAllBytes() throws IOException {
+			if (path != null) {
+				return QuiltClassPath.readAllBytes(path);
+			}
+
+			try (InputStream inputStream = url.openStream()) {
+				if (inputStream == null) {
+					return null;
+				}
+				return FileUtil.readAllBytes(inputStream);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return getUrl().toString();
+		}
+	}
+
 	static class CodeSourceImpl extends CodeSource implements QuiltCodeSource {
 		final String modId;
 
@@ -122,6 +177,7 @@ class KnotClassDelegate {
 	}
 
 	private static final boolean LOG_EARLY_CLASS_LOADS = Boolean.getBoolean(SystemProperties.LOG_EARLY_CLASS_LOADS);
+	private static final boolean DEBUG_CLASS_TO_MOD = Boolean.getBoolean(SystemProperties.DEBUG_CLASS_TO_MOD);
 
 	private final Map<String, Metadata> metadataCache = new ConcurrentHashMap<>();
 	private final Map<String, String> modCodeSourceMap = new ConcurrentHashMap<>();
@@ -130,6 +186,8 @@ class KnotClassDelegate {
 	private final boolean isDevelopment;
 	private final EnvType envType;
 	private IMixinTransformer mixinTransformer;
+	@Nullable
+	private MixinClassCache mixinClassCache;
 	private boolean transformInitialized = false;
 	private boolean transformFinishedLoading = false;
 	private Map<String, String> hiddenClasses = Collections.emptyMap();
@@ -172,6 +230,7 @@ class KnotClassDelegate {
 			}
 		}
 
+		mixinClassCache = MixinClassCache.create(mixinTransformer);
 		transformInitialized = true;
 	}
 
@@ -217,6 +276,16 @@ class KnotClassDelegate {
 			return null;
 		}
 
+		ClassLoadTimer timer = ClassLoadingMetricsImpl.INSTANCE.begin(name);
+		try {
+			return tryLoadClass0(name, allowFromParent, timer);
+		} finally {
+			// Does nothing if the class was defined, since that already ended the timer
+			timer.end(false, null);
+		}
+	}
+
+	private Class<?> tryLoadClass0(String name, boolean allowFromParent, ClassLoadTimer timer) throws ClassNotFoundException {
 		if (!allowFromParent && !parentSourcedClasses.isEmpty()) {
 			int pos = name.length();
 
@@ -228,7 +297,7 @@ class KnotClassDelegate {
 			}
 		}
 
-		URL url = getClassUrl(name, allowFromParent);
+		ClassResource resource = getClassResource(name, allowFromParent);
 
 		if (!allowFromParent && shouldRerouteToParent(name)) {
 			// Force slf4j itself to be loaded on a single classloader
@@ -243,8 +312,8 @@ class KnotClassDelegate {
 					URL codeSource = UrlUtil.getSource(classFileName, originalURL);
 					if (codeSource != null && !parentHiddenUrls.contains(codeSource.toString())) {
 						// Exists in parent, not hidden
-						if (url != null) {
-							Log.warn(LogCategory.GENERAL, "Rerouting classloading to the parent classloader instead of " + url);
+						if (resource != null) {
+							Log.warn(LogCategory.GENERAL, "Rerouting classloading to the parent classloader instead of " + resource);
 						}
 						return null;
 					}
@@ -254,14 +323,17 @@ class KnotClassDelegate {
 			}
 		}
 
-		if (!allowedPrefixes.isEmpty() && url != null) {
-			String fileName = LoaderUtil.getClassFileName(name);
+		if (!allowedPrefixes.isEmpty() && resource != null) {
 			URL codeSource = null;
 
-			try {
-				codeSource = UrlUtil.getSource(fileName, url);
-			} catch (UrlConversionException e) {
-				Log.warn(LogCategory.GENERAL, "Failed to get the code source URL for " + url);
+			if (resource.metadata != null && resource.metadata.codeSource != null) {
+				codeSource = resource.metadata.codeSource.getLocation();
+			} else {
+				try {
+					codeSource = UrlUtil.getSource(LoaderUtil.getClassFileName(name), resource.getUrl());
+				} catch (UrlConversionException e) {
+					Log.warn(LogCategory.GENERAL, "Failed to get the code source URL for " + resource);
+				}
 			}
 
 			String[] prefixes;
@@ -307,14 +379,19 @@ class KnotClassDelegate {
 			throw new RuntimeException("Cannot load " + name + " " + hideReason);
 		}
 
-		byte[] input = getPostMixinClassByteArray(url, name);
+		timer.phase(ClassLoadingPhase.PATCH);
+		byte[] input = getPreMixinClassByteArray(resource, name);
+		timer.phase(ClassLoadingPhase.MIXIN);
+		input = applyMixins(name, input);
 		if (input == null) return null;
 
+		timer.phase(ClassLoadingPhase.DEFINE);
+
 		if (allowFromParent) {
 			parentSourcedClasses.add(name);
 		}
 
-		KnotClassDelegate.Metadata metadata = getMetadata(name, url);
+		KnotClassDelegate.Metadata metadata = getMetadata(name, resource);
 
 		final String modId;
 
@@ -331,7 +408,7 @@ class KnotClassDelegate {
 			// or where it causes a re-entrant classloading of itself
 			Log.warn(LogCategory.GENERAL, "Tried to define " + c + " but it was already loaded!");
 			Log.warn(LogCategory.GENERAL, "  - Already loaded source: " + UrlUtil.getCodeSource(c));
-			Log.warn(LogCategory.GENERAL, "  - Rejected (new) source: " + url);
+			Log.warn(LogCategory.GENERAL, "  - Rejected (new) source: " + resource);
 			return c;
 		}
 
@@ -357,8 +434,9 @@ class KnotClassDelegate {
 		}
 
 		c = itf.defineClassFwd(name, input, 0, input.length, metadata.codeSource);
+		timer.end(true, modId);
 
-		if (Boolean.getBoolean(SystemProperties.DEBUG_CLASS_TO_MOD)) {
+		if (DEBUG_CLASS_TO_MOD) {
 			StringBuilder text = new StringBuilder(name);
 			while (text.length() < 100) {
 				text.append(" ");
@@ -383,6 +461,12 @@ class KnotClassDelegate {
 		return hideReason != null ? hideReason : "";
 	}
 
+	Metadata getMetadata(String name, @Nullable ClassResource resource) {
+		if (resource == null) return Metadata.EMPTY;
+		if (resource.metadata != null) return resource.metadata;
+		return getMetadata(name, resource.getUrl());
+	}
+
 	Metadata getMetadata(String name, URL resourceURL) {
 		if (resourceURL == null) return Metadata.EMPTY;
 
@@ -421,12 +505,13 @@ class KnotClassDelegate {
 		return getMetadata(codeSourceUrl);
 	}
 
-	public void setMod(Path loadFrom, URL codeSourceUrl, ModContainer mod) {
+	/** @return The {@link Metadata} for the given code source. */
+	public Metadata setMod(Path loadFrom, URL codeSourceUrl, ModContainer mod) {
 		String urlStr = codeSourceUrl.toString();
 		if (mod != null) {
 			modCodeSourceMap.put(mod.metadata().id(), urlStr);
 		}
-		metadataCache.computeIfAbsent(urlStr, str -> {
+		return metadataCache.computeIfAbsent(urlStr, str -> {
 			Manifest manifest = null;
 
 			try {
@@ -488,21 +573,58 @@ class KnotClassDelegate {
 		});
 	}
 
-	private URL getClassUrl(String name, boolean allowFromParent) {
-		return itf.getResource(LoaderUtil.getClassFileName(name), allowFromParent);
+	@Nullable
+	private ClassResource getClassResource(String name, boolean allowFromParent) {
+		return itf.getClassResource(LoaderUtil.getClassFileName(name), allowFromParent);
+	}
+
+	@Nullable
+	private static ClassResource toResource(@Nullable URL url) {
+		return url == null ? null : new ClassResource(url);
 	}
 
 	public byte[] getPostMixinClassByteArray(String name, boolean allowFromParent) {
-		return getPostMixinClassByteArray(getClassUrl(name, allowFromParent), name);
+		return getPostMixinClassByteArray(getClassResource(name, allowFromParent), name);
 	}
 
 	public byte[] getPostMixinClassByteArray(URL url, String name) {
-		byte[] transformedClassArray = getPreMixinClassByteArray(url, name);
+		return getPostMixinClassByteArray(toResource(url), name);
+	}
+
+	byte[] getPostMixinClassByteArray(@Nullable ClassResource resource, String name) {
+		return applyMixins(name, getPreMixinClassByteArray(resource, name));
+	}
 
+	/**
+	 * Runs mixin on the output of {@link #getPreMixinClassByteArray(ClassResource, String)}.
+	 */
+	private byte[] applyMixins(String name, byte[] transformedClassArray) {
 		if (!transformInitialized || !canTransformClass(name)) {
 			return transformedClassArray;
 		}
 
+		// Mixin selects its configs when it transforms the first class, so the cache can't be used before that
+		MixinClassCache cache = transformFinishedLoading ? mixinClassCache : null;
+		if (cache == null || transformedClassArray == null) {
+			return transformMixinClassBytes(name, transformedClassArray);
+		}
+
+		String entry = MixinClassCache.computeEntry(name, transformedClassArray);
+		byte[] cached = cache.get(entry);
+		if (cached != null && !cache.shouldValidate()) {
+			return cached;
+		}
+
+		byte[] transformed = transformMixinClassBytes(name, transformedClassArray);
+		if (cached != null) {
+			cache.validate(name, entry, cached, transformed);
+		} else {
+			cache.put(entry, transformed);
+		}
+		return transformed;
+	}
+
+	private byte[] transformMixinClassBytes(String name, byte[] transformedClassArray) {
 		try {
 			return getMixinTransformer().transformClassBytes(name, name, transformedClassArray);
 		} catch (Throwable t) {
@@ -521,13 +643,17 @@ class KnotClassDelegate {
 	 * Runs all the class transformers except mixin.
 	 */
 	public byte[] getPreMixinClassByteArray(String name, boolean allowFromParent) {
-		return getPreMixinClassByteArray(getClassUrl(name, allowFromParent), name);
+		return getPreMixinClassByteArray(getClassResource(name, allowFromParent), name);
 	}
 
 	/**
 	 * Runs all the class transformers except mixin.
 	 */
 	public byte[] getPreMixinClassByteArray(URL classFileURL, String name) {
+		return getPreMixinClassByteArray(toResource(classFileURL), name);
+	}
+
+	byte[] getPreMixinClassByteArray(@Nullable ClassResource resource, String name) {
 		// some of the transformers rely on dot notation
 		name = name.replace('/', '.');
 
@@ -540,63 +666,18 @@ class KnotClassDelegate {
 		}
 
 		try {
-			byte[] bytes = getRawClassByteArray(classFileURL, name);
+			byte[] bytes = resource == null ? null : resource.readAllBytes();
 
 			if (bytes == null) {
 				return null;
 			}
 
-			PatchContext context = getPatchContext(name, bytes);
-			QuiltLoader.getPatchHandler().getPatches().forEach(patch -> patch.process(context));
-
-			if (context.getPatched()) {
-				ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-				context.getClassNode().accept(writer);
-				return writer.toByteArray();
-			}
-
-			return bytes;
+			return QuiltLoaderImpl.INSTANCE.getPatchHandler().patchClass(name, bytes);
 		} catch (IOException e) {
 			throw new RuntimeException("Failed to load class file for '" + name + "'!", e);
 		}
 	}
 
-	@NotNull
-	private static PatchContext getPatchContext(String name, byte[] bytes) {
-		ClassReader reader = new ClassReader(bytes);
-		ClassNode node = new ClassNode();
-		reader.accept(node, 0);
-
-		return new PatchContext() {
-			private boolean patched;
-
-			@Override
-			public String getClassName() {
-				return name;
-			}
-
-			@Override
-			public ClassReader getClassReader() {
-				return reader;
-			}
-
-			@Override
-			public ClassNode getClassNode() {
-				return node;
-			}
-
-			@Override
-			public boolean getPatched() {
-				return patched;
-			}
-
-			@Override
-			public void setPatched(boolean patched) {
-				this.patched = patched;
-			}
-		};
-	}
-
 	private static boolean canTransformClass(String name) {
 		name = name.replace('/', '.');
 		// Blocking Fabric Loader classes is no longer necessary here as they don't exist on the modding class loader
@@ -604,7 +685,8 @@ class KnotClassDelegate {
 	}
 
 	public byte[] getRawClassByteArray(String name, boolean allowFromParent) throws IOException {
-		return getRawClassByteArray(getClassUrl(name, allowFromParent), name);
+		ClassResource resource = getClassResource(name, allowFromParent);
+		return resource == null ? null : resource.readAllBytes();
 	}
 
 	public byte[] getRawClassByteArray(URL url, String name) throws IOException {
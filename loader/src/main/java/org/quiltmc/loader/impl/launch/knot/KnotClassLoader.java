@@ -132,6 +132,27 @@ class KnotClassLoader extends SecureClassLoader implements KnotClassLoaderInterf
 		return minimalLoader.getResource(name);
 	}
 
+	@Override
+	public KnotClassDelegate.ClassResource getClassResource(String classFileName, boolean allowFromParent) {
+		Objects.requireNonNull(classFileName);
+
+		Path path = paths.findResource(classFileName);
+		if (path != null) {
+			Object source = paths.getSource(path);
+			return new KnotClassDelegate.ClassResource(
+				path, source instanceof KnotClassDelegate.Metadata ? (KnotClassDelegate.Metadata) source : null
+			);
+		}
+
+		URL url = minimalLoader.getResource(classFileName);
+
+		if (url == null && allowFromParent) {
+			url = originalLoader.getResource(classFileName);
+		}
+
+		return url == null ? null : new KnotClassDelegate.ClassResource(url);
+	}
+
 	@Override
 	public InputStream getResourceAsStream(String name) {
 		Objects.requireNonNull(name);
@@ -282,16 +303,21 @@ class KnotClassLoader extends SecureClassLoader implements KnotClassLoaderInterf
 		} catch (MalformedURLException e) {
 			throw new Error(e);
 		}
-		delegate.setMod(root, asUrl, mod);
+		KnotClassDelegate.Metadata metadata = delegate.setMod(root, asUrl, mod);
 		fakeLoader.addURL(asUrl);
 		if (root.getFileName() != null && root.getFileName().toString().endsWith(".jar")) {
 			// TODO: Perhaps open it in a more efficient manor?
 			minimalLoader.addURL(asUrl);
 		} else {
-			paths.addRoot(root);
+			paths.addRoot(root, metadata);
 		}
 	}
 
+	@Override
+	public void freezeClassPath() {
+		paths.freeze();
+	}
+
 	@Override
 	public InputStream getResourceAsStream(String classFile, boolean allowFromParent) throws IOException {
 		Path path = paths.findResource(classFile);
@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Path;
 
+import org.jetbrains.annotations.Nullable;
 import org.quiltmc.loader.api.ModContainer;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
@@ -38,4 +39,11 @@ interface KnotClassLoaderInterface extends KnotBaseClassLoader {
 	URL getResource(String name);
 	URL getResource(String name, boolean allowFromParent);
 	InputStream getResourceAsStream(String filename, boolean allowFromParent) throws IOException;
+
+	/** @return The class file with the given file name, or null if it couldn't be found. */
+	@Nullable
+	KnotClassDelegate.ClassResource getClassResource(String classFileName, boolean allowFromParent);
+
+	/** Optimises lookups for every path added so far. */
+	default void freezeClassPath() {}
 }
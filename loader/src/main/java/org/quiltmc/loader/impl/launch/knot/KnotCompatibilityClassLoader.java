@@ -129,6 +129,12 @@ class KnotCompatibilityClassLoader extends URLClassLoader implements KnotClassLo
 		}
 	}
 
+	@Override
+	public KnotClassDelegate.ClassResource getClassResource(String classFileName, boolean allowFromParent) {
+		URL url = getResource(classFileName, allowFromParent);
+		return url == null ? null : new KnotClassDelegate.ClassResource(url);
+	}
+
 	@Override
 	public InputStream getResourceAsStream(String classFile, boolean allowFromParent) throws IOException {
 		if (!allowFromParent) {
@@ -0,0 +1,382 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.launch.knot;
+
+import dev.tomat.fable.impl.classloading.ClassLoadingMetricsImpl;
+import dev.tomat.fable.impl.classloading.MixinClassCacheCounters;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.quiltmc.loader.api.FasterFiles;
+import org.quiltmc.loader.api.MountOption;
+import org.quiltmc.loader.impl.QuiltLoaderImpl;
+import org.quiltmc.loader.impl.filesystem.QuiltUnifiedFileSystem;
+import org.quiltmc.loader.impl.filesystem.QuiltZipFileSystem;
+import org.quiltmc.loader.impl.util.HashUtil;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.SystemProperties;
+import org.quiltmc.loader.impl.util.log.Log;
+import org.quiltmc.loader.impl.util.log.LogCategory;
+import org.spongepowered.asm.mixin.MixinEnvironment;
+import org.spongepowered.asm.mixin.MixinEnvironment.Option;
+import org.spongepowered.asm.mixin.Mixins;
+import org.spongepowered.asm.mixin.transformer.Config;
+import org.spongepowered.asm.mixin.transformer.IMixinTransformer;
+import org.spongepowered.asm.service.ISyntheticClassRegistry;
+
+/** Stores classes after mixin has been applied to them, so later launches can skip mixin entirely.
+ * <p>
+ * Every class is stored under the hash of its name and its bytes before mixin, in a file with the same format as the
+ * transform cache. The whole file is only reused if the {@link QuiltLoaderImpl#getTransformCacheKey() transform
+ * cache key}, the mixin version, and the set of mixin configs are identical - since mixin classes are always inside
+ * mods, this covers every input of mixin.
+ * <p>
+ * Mixin sometimes generates extra classes while transforming a target (for example the {@code Args} subclasses used by
+ * {@code @ModifyArgs}), which it can only define later if it transformed the target in the same launch. So any class
+ * whose output references one of those is never stored, and is always passed to mixin.
+ * <p>
+ * Classes loaded from the cache don't show up in mixin's own bookkeeping (like
+ * {@code ClassInfo.getAppliedMixins()}), and aren't exported or checked by mixin's debug options. So the cache is
+ * disabled whenever any of mixin's debugging, checking, or hot swap options are enabled.
+ * <p>
+ * New entries are written to a folder next to the cache as soon as they are transformed, and are only combined with
+ * the reused entries of the previous file when the game exits, if mixin transformed any class during that launch. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class MixinClassCache {
+
+	private static final String CACHE_FILE = "mixin-classes.zip";
+	private static final String NEXT_CACHE_FILE = "mixin-classes-next.zip";
+	private static final String ADDED_FOLDER = "mixin-classes-added";
+	private static final String KEY_FILE = "key.txt";
+
+	/** Increased whenever the set of classes which can be stored changes, so older files are discarded. */
+	private static final int FORMAT = 2;
+
+	private static final Option[] INCOMPATIBLE_OPTIONS = {
+		Option.DEBUG_EXPORT, Option.DEBUG_VERIFY, Option.CHECK_ALL, Option.CHECK_IMPLEMENTS, Option.HOT_SWAP
+	};
+
+	private final Path cacheFile;
+	private final Path addedFolder;
+	private final String key;
+	private final double validateFraction;
+	private final ISyntheticClassRegistry syntheticClasses;
+	private final MixinClassCacheCounters counters;
+
+	@Nullable
+	private final QuiltZipFileSystem previous;
+
+	/** Entries of {@link #previous} which were used during this launch. */
+	private final Set<String> reused = ConcurrentHashMap.newKeySet();
+	/** Entries which were transformed during this launch, and written to {@link #addedFolder}. */
+	private final Set<String> added = ConcurrentHashMap.newKeySet();
+
+	private MixinClassCache(Path cacheFile, String key, double validateFraction,
+		ISyntheticClassRegistry syntheticClasses, @Nullable QuiltZipFileSystem previous) {
+		this.cacheFile = cacheFile;
+		this.addedFolder = cacheFile.resolveSibling(ADDED_FOLDER);
+		this.key = key;
+		this.validateFraction = validateFraction;
+		this.syntheticClasses = syntheticClasses;
+		this.counters = ClassLoadingMetricsImpl.INSTANCE.getMixinClassCacheCounters();
+		this.previous = previous;
+	}
+
+	/** @return A new cache, or null if it's disabled or the transform cache wasn't used. */
+	@Nullable
+	static MixinClassCache create(IMixinTransformer transformer) {
+		if (!Boolean.getBoolean(SystemProperties.ENABLE_MIXIN_CLASS_CACHE)) {
+			return null;
+		}
+
+		Path folder = QuiltLoaderImpl.INSTANCE.getTransformCacheFolder();
+		String transformKey = QuiltLoaderImpl.INSTANCE.getTransformCacheKey();
+		if (folder == null || transformKey == null) {
+			return null;
+		}
+
+		MixinEnvironment environment = MixinEnvironment.getCurrentEnvironment();
+		for (Option option : INCOMPATIBLE_OPTIONS) {
+			if (environment.getOption(option)) {
+				Log.info(LogCategory.CACHE, "Not using the mixin class cache since the mixin option " + option.name() + " is enabled");
+				return null;
+			}
+		}
+
+		ISyntheticClassRegistry syntheticClasses;
+		try {
+			syntheticClasses = transformer.getExtensions().getSyntheticClassRegistry();
+		} catch (LinkageError e) {
+			// Older versions of mixin don't expose their synthetic classes
+			syntheticClasses = null;
+		}
+		if (syntheticClasses == null) {
+			Log.info(LogCategory.CACHE, "Not using the mixin class cache since this version of mixin doesn't expose its synthetic classes");
+			return null;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("format=").append(FORMAT).append("\n");
+		sb.append("transform-cache=").append(transformKey).append("\n");
+		sb.append("mixin=").append(environment.getVersion()).append("\n");
+		Set<String> configs = new TreeSet<>();
+		for (Config config : Mixins.getConfigs()) {
+			configs.add(config.getName());
+		}
+		for (String config : configs) {
+			sb.append("config=").append(config).append("\n");
+		}
+		String key = sb.toString();
+
+		double validateFraction = 0;
+		String validate = System.getProperty(SystemProperties.MIXIN_CLASS_CACHE_VALIDATE_FRACTION);
+		if (validate != null) {
+			try {
+				validateFraction = Double.parseDouble(validate);
+			} catch (NumberFormatException e) {
+				Log.warn(LogCategory.CACHE, "Invalid " + SystemProperties.MIXIN_CLASS_CACHE_VALIDATE_FRACTION + ": " + validate);
+			}
+		}
+
+		Path cacheFile = folder.resolve(CACHE_FILE);
+		QuiltZipFileSystem previous = null;
+		if (FasterFiles.isRegularFile(cacheFile)) {
+			try {
+				previous = new QuiltZipFileSystem("mixin-class-cache", cacheFile, "");
+				Path keyFile = previous.getRoot().resolve(KEY_FILE);
+				if (!FasterFiles.isRegularFile(keyFile)
+					|| !key.equals(new String(Files.readAllBytes(keyFile), StandardCharsets.UTF_8))) {
+					Log.info(LogCategory.CACHE, "Not reusing the mixin class cache since its key is different");
+					previous.close();
+					previous = null;
+				}
+			} catch (IOException e) {
+				Log.warn(LogCategory.CACHE, "Not reusing the mixin class cache since it couldn't be read", e);
+				previous = null;
+			}
+		}
+
+		MixinClassCache cache = new MixinClassCache(cacheFile, key, validateFraction, syntheticClasses, previous);
+		try {
+			// Left over if the game didn't exit normally last time
+			deleteRecursively(cache.addedFolder);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Not using the mixin class cache since " + cache.addedFolder + " couldn't be deleted", e);
+			return null;
+		}
+		cache.counters.markEnabled();
+		Runtime.getRuntime().addShutdownHook(new Thread(cache::save, "QuiltMixinClassCacheWriter"));
+		return cache;
+	}
+
+	static String computeEntry(String name, byte[] bytes) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("This JVM doesn't support SHA-1???");
+		}
+		digest.update(name.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(bytes);
+		String hash = HashUtil.hashToString(digest.digest());
+		return hash.substring(0, 2) + "/" + hash + ".class";
+	}
+
+	/** @return The cached bytes of the given entry, or null if they aren't cached. */
+	@Nullable
+	byte[] get(String entry) {
+		byte[] bytes = null;
+		if (added.contains(entry)) {
+			bytes = read(addedFolder.resolve(entry), entry);
+		} else if (previous != null) {
+			Path path = previous.getRoot().resolve(entry);
+			if (FasterFiles.isRegularFile(path)) {
+				bytes = read(path, entry);
+				if (bytes != null) {
+					reused.add(entry);
+				}
+			}
+		}
+
+		if (bytes == null) {
+			counters.recordMiss();
+		} else {
+			counters.recordHit();
+		}
+		return bytes;
+	}
+
+	@Nullable
+	private static byte[] read(Path path, String entry) {
+		try {
+			return Files.readAllBytes(path);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to read " + entry + " from the mixin class cache", e);
+			return null;
+		}
+	}
+
+	/** @return True if a cached class should be transformed anyway, and then passed to {@link #validate}. */
+	boolean shouldValidate() {
+		return validateFraction > 0 && ThreadLocalRandom.current().nextDouble() < validateFraction;
+	}
+
+	void validate(String name, String entry, byte[] cached, byte[] transformed) {
+		boolean matched = Arrays.equals(cached, transformed);
+		counters.recordValidated(matched);
+		if (!matched) {
+			Log.warn(LogCategory.CACHE, "Mixin class cache entry for " + name + " differs from the output of mixin!");
+			reused.remove(entry);
+			put(entry, transformed);
+		}
+	}
+
+	void put(String entry, byte[] transformed) {
+		if (referencesSyntheticClass(transformed)) {
+			counters.recordUncacheable();
+			if (added.remove(entry)) {
+				try {
+					Files.deleteIfExists(addedFolder.resolve(entry));
+				} catch (IOException e) {
+					Log.warn(LogCategory.CACHE, "Failed to remove " + entry + " from the mixin class cache", e);
+				}
+			}
+			return;
+		}
+
+		Path to = addedFolder.resolve(entry);
+		try {
+			Files.createDirectories(to.getParent());
+			Path temp = Files.createTempFile(to.getParent(), to.getFileName().toString(), ".tmp");
+			Files.write(temp, transformed);
+			Files.move(temp, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			added.add(entry);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to write " + entry + " to the mixin class cache", e);
+		}
+	}
+
+	/** @return True if the given class refers to any class which mixin generated while transforming a class. */
+	private boolean referencesSyntheticClass(byte[] bytes) {
+		return referencesClass(bytes, name -> syntheticClasses.findSyntheticClass(name) != null);
+	}
+
+	/** @return True if the internal name of any CONSTANT_Class entry in the given class matches the predicate. */
+	static boolean referencesClass(byte[] bytes, Predicate<String> predicate) {
+		ClassReader reader = new ClassReader(bytes);
+		char[] buffer = new char[reader.getMaxStringLength()];
+		for (int i = 1; i < reader.getItemCount(); i++) {
+			int offset = reader.getItem(i);
+			// CONSTANT_Class. The offset already points at its name index, so this is readUTF8 rather than readClass
+			if (offset > 0 && reader.readByte(offset - 1) == 7) {
+				String name = reader.readUTF8(offset, buffer);
+				if (predicate.test(name)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void save() {
+		Log.info(LogCategory.CACHE, "Mixin class cache: " + counters.snapshot());
+
+		if (added.isEmpty()) {
+			return;
+		}
+
+		Path nextFile = cacheFile.resolveSibling(NEXT_CACHE_FILE);
+		try (QuiltUnifiedFileSystem fs = new QuiltUnifiedFileSystem("mixin-class-cache-next", true)) {
+			Path root = fs.getRoot();
+			if (previous != null) {
+				for (String entry : reused) {
+					if (added.contains(entry)) {
+						continue;
+					}
+					mount(fs, previous.getRoot().resolve(entry), root.resolve(entry));
+				}
+			}
+			for (String entry : added) {
+				mount(fs, addedFolder.resolve(entry), root.resolve(entry));
+			}
+			Files.write(root.resolve(KEY_FILE), key.getBytes(StandardCharsets.UTF_8));
+
+			Files.deleteIfExists(nextFile);
+			QuiltZipFileSystem.writeQuiltCompressedFileSystem(root, nextFile);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to write the mixin class cache", e);
+			return;
+		}
+
+		try {
+			if (previous != null) {
+				previous.close();
+			}
+			Files.move(nextFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+			deleteRecursively(addedFolder);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to replace the mixin class cache", e);
+		}
+	}
+
+	private static void mount(QuiltUnifiedFileSystem fs, Path from, Path to) throws IOException {
+		FasterFiles.createDirectories(to.getParent());
+		fs.mount(from, to, MountOption.READ_ONLY);
+	}
+
+	private static void deleteRecursively(Path folder) throws IOException {
+		if (!FasterFiles.isDirectory(folder)) {
+			return;
+		}
+		Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				if (exc != null) {
+					throw exc;
+				}
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
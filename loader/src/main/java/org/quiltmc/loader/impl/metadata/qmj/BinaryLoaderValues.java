@@ -0,0 +1,451 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.metadata.qmj;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.quiltmc.loader.api.LoaderValue;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+/** Converts {@link JsonLoaderValue}s to and from a compact binary form, used by {@link ModMetadataCache}.
+ * <p>
+ * Every value starts with a tag byte and its {@link JsonLoaderValue#location() location}. Objects and arrays also
+ * store their length in bytes, so they can be skipped over without reading them. Decoding is lazy: the entries of an
+ * object or array are only decoded when they're first accessed, so custom values which are never read stay as a slice
+ * of the original buffer. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class BinaryLoaderValues {
+
+	private static final byte TAG_NULL = 0;
+	private static final byte TAG_FALSE = 1;
+	private static final byte TAG_TRUE = 2;
+	private static final byte TAG_INT = 3;
+	private static final byte TAG_LONG = 4;
+	private static final byte TAG_DOUBLE = 5;
+	private static final byte TAG_FLOAT = 6;
+	private static final byte TAG_OTHER_NUMBER = 7;
+	private static final byte TAG_STRING = 8;
+	private static final byte TAG_ARRAY = 9;
+	private static final byte TAG_OBJECT = 10;
+
+	private BinaryLoaderValues() {}
+
+	static byte[] encode(JsonLoaderValue value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		encode(value, new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+
+	private static void encode(JsonLoaderValue value, DataOutputStream to) throws IOException {
+		switch (value.type()) {
+			case NULL: {
+				to.writeByte(TAG_NULL);
+				writeString(to, value.location());
+				break;
+			}
+			case BOOLEAN: {
+				to.writeByte(value.asBoolean() ? TAG_TRUE : TAG_FALSE);
+				writeString(to, value.location());
+				break;
+			}
+			case NUMBER: {
+				Number number = value.asNumber();
+				if (number instanceof Integer) {
+					to.writeByte(TAG_INT);
+					writeString(to, value.location());
+					to.writeInt(number.intValue());
+				} else if (number instanceof Long) {
+					to.writeByte(TAG_LONG);
+					writeString(to, value.location());
+					to.writeLong(number.longValue());
+				} else if (number instanceof Double) {
+					to.writeByte(TAG_DOUBLE);
+					writeString(to, value.location());
+					to.writeDouble(number.doubleValue());
+				} else if (number instanceof Float) {
+					to.writeByte(TAG_FLOAT);
+					writeString(to, value.location());
+					to.writeFloat(number.floatValue());
+				} else {
+					// Stored as text, with the class, so it decodes to the same number the json reader returned
+					String type = number.getClass().getName();
+					String text = number.toString();
+					Number rebuilt;
+					try {
+						rebuilt = readOtherNumber(type, text);
+					} catch (IllegalArgumentException e) {
+						throw new IOException("Can't store the number " + text + " (" + type + ")", e);
+					}
+					if (rebuilt.getClass() != number.getClass() || !text.equals(rebuilt.toString())) {
+						throw new IOException("Can't store the number " + text + " (" + type + ")");
+					}
+					to.writeByte(TAG_OTHER_NUMBER);
+					writeString(to, value.location());
+					writeString(to, type);
+					writeString(to, text);
+				}
+				break;
+			}
+			case STRING: {
+				to.writeByte(TAG_STRING);
+				writeString(to, value.location());
+				writeString(to, value.asString());
+				break;
+			}
+			case ARRAY: {
+				JsonLoaderValue.ArrayImpl array = value.asArray();
+				ByteArrayOutputStream content = new ByteArrayOutputStream();
+				DataOutputStream contentOut = new DataOutputStream(content);
+				contentOut.writeInt(array.size());
+				for (int i = 0; i < array.size(); i++) {
+					encode(array.get(i), contentOut);
+				}
+				to.writeByte(TAG_ARRAY);
+				writeString(to, value.location());
+				to.writeInt(content.size());
+				content.writeTo(to);
+				break;
+			}
+			case OBJECT: {
+				JsonLoaderValue.ObjectImpl object = value.asObject();
+				ByteArrayOutputStream content = new ByteArrayOutputStream();
+				DataOutputStream contentOut = new DataOutputStream(content);
+				contentOut.writeInt(object.size());
+				for (Map.Entry<String, LoaderValue> entry : object.entrySet()) {
+					writeString(contentOut, entry.getKey());
+					encode((JsonLoaderValue) entry.getValue(), contentOut);
+				}
+				to.writeByte(TAG_OBJECT);
+				writeString(to, value.location());
+				to.writeInt(content.size());
+				content.writeTo(to);
+				break;
+			}
+			default: {
+				throw new IllegalArgumentException("Unknown LoaderValue type " + value.type());
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream to, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		to.writeInt(bytes.length);
+		to.write(bytes);
+	}
+
+	/** Recreates a number stored with {@link #TAG_OTHER_NUMBER}. Numbers which aren't an int, long, float or double
+	 * are recreated through their class's String constructor, since the json reader may return its own {@link Number}
+	 * class for them.
+	 * 
+	 * @throws IllegalArgumentException if the number can't be recreated from the given text. */
+	private static Number readOtherNumber(String type, String text) {
+		if (BigDecimal.class.getName().equals(type)) {
+			return new BigDecimal(text);
+		} else if (BigInteger.class.getName().equals(type)) {
+			return new BigInteger(text);
+		}
+
+		try {
+			Class<?> cls = Class.forName(type, false, BinaryLoaderValues.class.getClassLoader());
+			if (!Number.class.isAssignableFrom(cls)) {
+				throw new IllegalArgumentException(type + " isn't a Number");
+			}
+			return (Number) cls.getConstructor(String.class).newInstance(text);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Can't create the number " + text + " (" + type + ")", e);
+		}
+	}
+
+	/** Decodes a value previously returned by {@link #encode(JsonLoaderValue)}. The buffer must not be modified
+	 * afterwards, since objects and arrays keep a reference to it until they're accessed. The whole buffer is checked
+	 * (including the text of every number stored with {@link #TAG_OTHER_NUMBER}) before anything is returned, so a
+	 * broken buffer can't cause an exception later on, when an object or array is first accessed.
+	 * 
+	 * @throws IllegalArgumentException if the buffer doesn't contain a valid value. */
+	static JsonLoaderValue decode(ByteBuffer buffer) {
+		try {
+			Reader reader = new Reader(buffer, 0);
+			reader.skipValue();
+			reader.expectEnd(buffer.limit());
+			return new Reader(buffer, 0).readValue();
+		} catch (IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Truncated value", e);
+		}
+	}
+
+	/** Reads values from absolute positions in a buffer, so the buffer can be shared between threads. */
+	private static final class Reader {
+		final ByteBuffer buffer;
+		int position;
+
+		Reader(ByteBuffer buffer, int position) {
+			this.buffer = buffer;
+			this.position = position;
+		}
+
+		JsonLoaderValue readValue() {
+			byte tag = buffer.get(position++);
+			String location = readString();
+			switch (tag) {
+				case TAG_NULL:
+					return new JsonLoaderValue.NullImpl(location);
+				case TAG_FALSE:
+					return new JsonLoaderValue.BooleanImpl(location, false);
+				case TAG_TRUE:
+					return new JsonLoaderValue.BooleanImpl(location, true);
+				case TAG_INT: {
+					int value = buffer.getInt(position);
+					position += 4;
+					return new JsonLoaderValue.NumberImpl(location, value);
+				}
+				case TAG_LONG: {
+					long value = buffer.getLong(position);
+					position += 8;
+					return new JsonLoaderValue.NumberImpl(location, value);
+				}
+				case TAG_DOUBLE: {
+					double value = buffer.getDouble(position);
+					position += 8;
+					return new JsonLoaderValue.NumberImpl(location, value);
+				}
+				case TAG_FLOAT: {
+					float value = buffer.getFloat(position);
+					position += 4;
+					return new JsonLoaderValue.NumberImpl(location, value);
+				}
+				case TAG_OTHER_NUMBER: {
+					String type = readString();
+					return new JsonLoaderValue.NumberImpl(location, readOtherNumber(type, readString()));
+				}
+				case TAG_STRING:
+					return new JsonLoaderValue.StringImpl(location, readString());
+				case TAG_ARRAY: {
+					int start = readLength();
+					return new JsonLoaderValue.ArrayImpl(location, new LazyList(buffer, start, position));
+				}
+				case TAG_OBJECT: {
+					int start = readLength();
+					return new JsonLoaderValue.ObjectImpl(location, new LazyMap(buffer, start, position));
+				}
+				default:
+					throw new IllegalArgumentException("Unknown tag " + tag + " at " + (position - 1));
+			}
+		}
+
+		void skipValue() {
+			byte tag = buffer.get(position++);
+			skipString();
+			switch (tag) {
+				case TAG_NULL:
+				case TAG_FALSE:
+				case TAG_TRUE:
+					break;
+				case TAG_INT:
+				case TAG_FLOAT:
+					position += 4;
+					break;
+				case TAG_LONG:
+				case TAG_DOUBLE:
+					position += 8;
+					break;
+				case TAG_OTHER_NUMBER: {
+					// Checked now, rather than when it's first accessed
+					String type = readString();
+					readOtherNumber(type, readString());
+					break;
+				}
+				case TAG_STRING:
+					skipString();
+					break;
+				case TAG_ARRAY:
+				case TAG_OBJECT: {
+					int start = readLength();
+					int end = position;
+					position = start;
+					int count = readInt();
+					for (int i = 0; i < count; i++) {
+						if (tag == TAG_OBJECT) {
+							skipString();
+						}
+						skipValue();
+					}
+					expectEnd(end);
+					break;
+				}
+				default:
+					throw new IllegalArgumentException("Unknown tag " + tag + " at " + (position - 1));
+			}
+			if (position > buffer.limit()) {
+				throw new IllegalArgumentException("Truncated value");
+			}
+		}
+
+		/** Reads the length of an object or array, and skips over its contents.
+		 * 
+		 * @return The start of the contents. */
+		int readLength() {
+			int length = buffer.getInt(position);
+			int start = position + 4;
+			if (length < 4 || length > buffer.limit() - start) {
+				throw new IllegalArgumentException("Invalid length " + length + " at " + position);
+			}
+			position = start + length;
+			return start;
+		}
+
+		int readInt() {
+			int value = buffer.getInt(position);
+			position += 4;
+			return value;
+		}
+
+		void skipString() {
+			int length = buffer.getInt(position);
+			position += 4;
+			if (length < 0 || length > buffer.limit() - position) {
+				throw new IllegalArgumentException("Invalid string length " + length + " at " + (position - 4));
+			}
+			position += length;
+		}
+
+		String readString() {
+			int length = buffer.getInt(position);
+			position += 4;
+			if (length < 0 || length > buffer.limit() - position) {
+				throw new IllegalArgumentException("Invalid string length " + length + " at " + (position - 4));
+			}
+			byte[] bytes = new byte[length];
+			ByteBuffer view = buffer.duplicate();
+			view.position(position);
+			view.get(bytes);
+			position += length;
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		void expectEnd(int end) {
+			if (position != end) {
+				throw new IllegalArgumentException("Expected to end at " + end + ", but ended at " + position);
+			}
+		}
+	}
+
+	private static final class LazyMap extends AbstractMap<String, LoaderValue> {
+		private ByteBuffer buffer;
+		private final int start, end;
+		private Map<String, LoaderValue> decoded;
+
+		LazyMap(ByteBuffer buffer, int start, int end) {
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+		}
+
+		private synchronized Map<String, LoaderValue> map() {
+			if (decoded == null) {
+				Reader reader = new Reader(buffer, start);
+				int count = reader.readInt();
+				Map<String, LoaderValue> map = new LinkedHashMap<>();
+				for (int i = 0; i < count; i++) {
+					String key = reader.readString();
+					map.put(key, reader.readValue());
+				}
+				reader.expectEnd(end);
+				decoded = Collections.unmodifiableMap(map);
+				buffer = null;
+			}
+			return decoded;
+		}
+
+		@Override
+		public Set<Entry<String, LoaderValue>> entrySet() {
+			return map().entrySet();
+		}
+
+		@Override
+		public LoaderValue get(Object key) {
+			return map().get(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return map().containsKey(key);
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return map().keySet();
+		}
+
+		@Override
+		public int size() {
+			return map().size();
+		}
+	}
+
+	private static final class LazyList extends AbstractList<LoaderValue> {
+		private ByteBuffer buffer;
+		private final int start, end;
+		private List<LoaderValue> decoded;
+
+		LazyList(ByteBuffer buffer, int start, int end) {
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+		}
+
+		private synchronized List<LoaderValue> list() {
+			if (decoded == null) {
+				Reader reader = new Reader(buffer, start);
+				int count = reader.readInt();
+				List<LoaderValue> list = new ArrayList<>(count);
+				for (int i = 0; i < count; i++) {
+					list.add(reader.readValue());
+				}
+				reader.expectEnd(end);
+				decoded = Collections.unmodifiableList(list);
+				buffer = null;
+			}
+			return decoded;
+		}
+
+		@Override
+		public LoaderValue get(int index) {
+			return list().get(index);
+		}
+
+		@Override
+		public int size() {
+			return list().size();
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.metadata.qmj;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.api.FasterFiles;
+import org.quiltmc.loader.impl.util.HashUtil;
+import org.quiltmc.loader.impl.util.MappedFiles;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.log.Log;
+import org.quiltmc.loader.impl.util.log.LogCategory;
+
+/** Stores the parsed form of every quilt.mod.json read by {@link ModMetadataReader}, in the binary form written by
+ * {@link BinaryLoaderValues}, so unchanged files don't need to be parsed as json again.
+ * <p>
+ * Each entry is keyed by the hash of the json file itself, so nested jars are cached just like any other mod. Every
+ * entry is stored in a single file, which is memory mapped (if {@link MappedFiles#ENABLED}) and only decoded as values
+ * are accessed. Entries which weren't used during this launch are dropped when the cache is saved. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class ModMetadataCache {
+
+	/** "QMMD", followed by the version, which is changed whenever the format of {@link BinaryLoaderValues} changes. */
+	private static final int MAGIC = 0x514D4D44;
+	private static final int VERSION = 2;
+
+	private final Path file;
+
+	/** Every entry read from {@link #file}, or null if it hasn't been read yet. */
+	private Map<ByteBuffer, ByteBuffer> previous;
+
+	/** Every entry which was used or added during this launch. */
+	private final Map<ByteBuffer, ByteBuffer> current = new LinkedHashMap<>();
+	private boolean changed = false;
+
+	ModMetadataCache(Path file) {
+		this.file = file;
+	}
+
+	/** @return The stored root object of the json file with the given contents, or null if it isn't stored. */
+	@Nullable
+	JsonLoaderValue.ObjectImpl get(ByteBuffer hash) {
+		ByteBuffer encoded;
+		synchronized (this) {
+			if (previous == null) {
+				previous = read();
+			}
+
+			encoded = current.get(hash);
+			if (encoded == null) {
+				encoded = previous.get(hash);
+				if (encoded == null) {
+					return null;
+				}
+				current.put(hash, encoded);
+			}
+		}
+
+		try {
+			JsonLoaderValue value = BinaryLoaderValues.decode(encoded);
+			if (value.type() == JsonLoaderValue.LType.OBJECT) {
+				return value.asObject();
+			}
+			Log.warn(LogCategory.CACHE, "Ignoring a cached mod metadata entry with a non-object root in " + file);
+		} catch (IllegalArgumentException e) {
+			Log.warn(LogCategory.CACHE, "Ignoring a broken mod metadata entry in " + file, e);
+		}
+
+		synchronized (this) {
+			current.remove(hash);
+		}
+		return null;
+	}
+
+	void put(ByteBuffer hash, JsonLoaderValue.ObjectImpl root) {
+		if (hash.remaining() != HashUtil.SHA1_HASH_LENGTH) {
+			throw new IllegalArgumentException("Expected a SHA-1 hash, but got " + hash.remaining() + " bytes");
+		}
+
+		ByteBuffer encoded;
+		try {
+			encoded = ByteBuffer.wrap(BinaryLoaderValues.encode(root));
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to encode mod metadata for the cache", e);
+			return;
+		}
+
+		synchronized (this) {
+			current.put(hash, encoded);
+			changed = true;
+		}
+	}
+
+	/** Writes every entry used during this launch, if that's different to the stored entries. */
+	synchronized void save() {
+		if (previous == null || (!changed && current.size() == previous.size())) {
+			return;
+		}
+
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			FasterFiles.createDirectories(file.getParent());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(current.size());
+				WritableByteChannel channel = Channels.newChannel(out);
+				for (Map.Entry<ByteBuffer, ByteBuffer> entry : current.entrySet()) {
+					channel.write(entry.getKey().duplicate());
+					out.writeInt(entry.getValue().remaining());
+					channel.write(entry.getValue().duplicate());
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to write the mod metadata cache " + file, e);
+			return;
+		}
+
+		previous = new HashMap<>(current);
+		changed = false;
+	}
+
+	private Map<ByteBuffer, ByteBuffer> read() {
+		Map<ByteBuffer, ByteBuffer> entries = new HashMap<>();
+		if (!FasterFiles.isRegularFile(file)) {
+			return entries;
+		}
+
+		ByteBuffer buffer;
+		try {
+			if (MappedFiles.ENABLED) {
+				ByteBuffer[] chunks = MappedFiles.map(file);
+				if (chunks.length != 1) {
+					// Empty, or far too large to be a real cache
+					return entries;
+				}
+				buffer = chunks[0];
+			} else {
+				buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+			}
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to read the mod metadata cache " + file, e);
+			return entries;
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				return entries;
+			}
+
+			int count = buffer.getInt();
+			for (int i = 0; i < count; i++) {
+				ByteBuffer hash = slice(buffer, HashUtil.SHA1_HASH_LENGTH);
+				int length = buffer.getInt();
+				if (length < 0 || length > buffer.remaining()) {
+					throw new IllegalArgumentException("Invalid length " + length);
+				}
+				entries.put(hash, slice(buffer, length));
+			}
+		} catch (RuntimeException e) {
+			Log.warn(LogCategory.CACHE, "Ignoring the broken mod metadata cache " + file, e);
+			entries.clear();
+		}
+
+		return entries;
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int length) {
+		ByteBuffer slice = buffer.slice();
+		slice.limit(length);
+		buffer.position(buffer.position() + length);
+		return slice;
+	}
+}
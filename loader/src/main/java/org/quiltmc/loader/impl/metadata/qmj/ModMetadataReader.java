@@ -18,9 +18,11 @@
 
 package org.quiltmc.loader.impl.metadata.qmj;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -32,8 +34,11 @@ import org.quiltmc.json5.exception.ParseException;
 import org.quiltmc.loader.api.LoaderValue;
 import org.quiltmc.loader.api.plugin.QuiltPluginManager;
 import org.quiltmc.loader.api.plugin.gui.PluginGuiTreeNode;
+import org.quiltmc.loader.impl.util.FileUtil;
+import org.quiltmc.loader.impl.util.HashUtil;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.SystemProperties;
 
 /**
  * The central class used to read a {@code quilt.mod.json}.
@@ -47,6 +52,25 @@ public final class ModMetadataReader {
 	 */
 	private static final String SCHEMA_VERSION = "schema_version";
 
+	private static final boolean DISABLE_CACHE = Boolean.getBoolean(SystemProperties.DISABLE_MOD_METADATA_CACHE);
+
+	@Nullable
+	private static volatile ModMetadataCache cache;
+
+	/** Sets the file which stores parsed quilt.mod.json files between launches, so unchanged files don't need to be
+	 * parsed again. Passing null disables the cache. */
+	public static void setCacheFile(@Nullable Path file) {
+		cache = file == null || DISABLE_CACHE ? null : new ModMetadataCache(file);
+	}
+
+	/** Saves every file parsed (or reused) so far to the file passed to {@link #setCacheFile(Path)}. */
+	public static void saveCache() {
+		ModMetadataCache c = cache;
+		if (c != null) {
+			c.save();
+		}
+	}
+
 	public static InternalModMetadata read(Path json) throws IOException, ParseException {
 		return read(json, null, null);
 	}
@@ -71,25 +95,7 @@ public final class ModMetadataReader {
 	 */
 	@SuppressWarnings("SwitchStatementWithTooFewBranches") // Switch statement intentionally used for future expandability
 	public static InternalModMetadata read(InputStream json, Path path, QuiltPluginManager manager, PluginGuiTreeNode warningNode) throws IOException, ParseException {
-		JsonLoaderValue value;
-
-		try (JsonReader reader = JsonReader.json(new InputStreamReader(json, StandardCharsets.UTF_8))) {
-			// Root must be an object
-			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
-				throw new ParseException(reader, "A quilt.mod.json must have an object at the root");
-			}
-
-			// Read the entire file
-			value = JsonLoaderValue.read(reader);
-
-			// Make sure we don't have anything else lurking at the bottom of the document
-			if (reader.peek() != JsonToken.END_DOCUMENT) {
-				throw new ParseException(reader, "Encountered additional data at end of document");
-			}
-		}
-
-		// We have asserted above we have an object
-		JsonLoaderValue.ObjectImpl root = value.asObject();
+		JsonLoaderValue.ObjectImpl root = readRoot(json);
 		@Nullable JsonLoaderValue schemaVersion = root.get(SCHEMA_VERSION);
 
 		if (schemaVersion == null) {
@@ -117,6 +123,48 @@ public final class ModMetadataReader {
 		}
 	}
 
+	private static JsonLoaderValue.ObjectImpl readRoot(InputStream json) throws IOException, ParseException {
+		ModMetadataCache c = cache;
+		if (c == null) {
+			return parseRoot(json);
+		}
+
+		byte[] bytes;
+		try (InputStream stream = json) {
+			bytes = FileUtil.readAllBytes(stream);
+		}
+
+		ByteBuffer hash = ByteBuffer.wrap(HashUtil.computeHash(bytes));
+		JsonLoaderValue.ObjectImpl root = c.get(hash);
+		if (root == null) {
+			root = parseRoot(new ByteArrayInputStream(bytes));
+			c.put(hash, root);
+		}
+		return root;
+	}
+
+	private static JsonLoaderValue.ObjectImpl parseRoot(InputStream json) throws IOException, ParseException {
+		JsonLoaderValue value;
+
+		try (JsonReader reader = JsonReader.json(new InputStreamReader(json, StandardCharsets.UTF_8))) {
+			// Root must be an object
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				throw new ParseException(reader, "A quilt.mod.json must have an object at the root");
+			}
+
+			// Read the entire file
+			value = JsonLoaderValue.read(reader);
+
+			// Make sure we don't have anything else lurking at the bottom of the document
+			if (reader.peek() != JsonToken.END_DOCUMENT) {
+				throw new ParseException(reader, "Encountered additional data at end of document");
+			}
+		}
+
+		// We have asserted above we have an object
+		return value.asObject();
+	}
+
 	/**
 	 * Creates a parse exception that also includes the location of a json loader value.
 	 *
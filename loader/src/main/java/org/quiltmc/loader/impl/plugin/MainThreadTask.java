@@ -18,8 +18,10 @@
 
 package org.quiltmc.loader.impl.plugin;
 
+import java.io.IOException;
 import java.nio.file.Path;
 
+import org.jetbrains.annotations.Nullable;
 import org.quiltmc.loader.impl.gui.QuiltStatusNode;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
@@ -28,8 +30,43 @@ import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
 @QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
 abstract class MainThreadTask {
 
+	/** Added by a worker thread when it finishes the last running task, so the main thread stops waiting for more
+	 * tasks. */
+	static final MainThreadTask WAKE_UP = new MainThreadTask() {
+		@Override
+		void execute(QuiltPluginManagerImpl manager) {
+			// Nothing to do
+		}
+	};
+
 	abstract void execute(QuiltPluginManagerImpl manager);
 
+	/** @return The path this task is about, used to run tasks in the same order on every launch. */
+	@Nullable
+	Path path() {
+		return null;
+	}
+
+	/** Rethrows an exception thrown by a worker thread on the main thread. */
+	static final class WorkerFailedTask extends MainThreadTask {
+		final Throwable cause;
+
+		public WorkerFailedTask(Throwable cause) {
+			this.cause = cause;
+		}
+
+		@Override
+		void execute(QuiltPluginManagerImpl manager) {
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new RuntimeException(cause);
+			}
+		}
+	}
+
 	static final class ScanModFolderTask extends MainThreadTask {
 		final Path folder;
 		final String pluginSrc;
@@ -43,6 +80,11 @@ abstract class MainThreadTask {
 		void execute(QuiltPluginManagerImpl manager) {
 			manager.scanModFolder(folder, pluginSrc);
 		}
+
+		@Override
+		Path path() {
+			return folder;
+		}
 	}
 
 	static final class ScanFolderAsModTask extends MainThreadTask {
@@ -60,6 +102,11 @@ abstract class MainThreadTask {
 		void execute(QuiltPluginManagerImpl manager) {
 			manager.scanFolderAsMod(folder, location, guiNode);
 		}
+
+		@Override
+		Path path() {
+			return folder;
+		}
 	}
 
 	static final class ScanZipTask extends MainThreadTask {
@@ -79,6 +126,11 @@ abstract class MainThreadTask {
 		void execute(QuiltPluginManagerImpl manager) {
 			manager.scanZip(zipFile, zipRoot, location, guiNode);
 		}
+
+		@Override
+		Path path() {
+			return zipFile;
+		}
 	}
 
 	static final class ScanUnknownFileTask extends MainThreadTask {
@@ -96,5 +148,54 @@ abstract class MainThreadTask {
 		void execute(QuiltPluginManagerImpl manager) {
 			manager.scanUnknownFile(file, location, guiNode);
 		}
+
+		@Override
+		Path path() {
+			return file;
+		}
+	}
+
+	static final class ReportHiddenCheckErrorTask extends MainThreadTask {
+		final Path file;
+		final QuiltStatusNode guiNode;
+		final IOException exception;
+
+		public ReportHiddenCheckErrorTask(Path file, QuiltStatusNode guiNode, IOException exception) {
+			this.file = file;
+			this.guiNode = guiNode;
+			this.exception = exception;
+		}
+
+		@Override
+		void execute(QuiltPluginManagerImpl manager) {
+			manager.reportHiddenCheckError(file, guiNode, exception);
+		}
+
+		@Override
+		Path path() {
+			return file;
+		}
+	}
+
+	static final class ReportZipErrorTask extends MainThreadTask {
+		final Path file;
+		final QuiltStatusNode guiNode;
+		final IOException exception;
+
+		public ReportZipErrorTask(Path file, QuiltStatusNode guiNode, IOException exception) {
+			this.file = file;
+			this.guiNode = guiNode;
+			this.exception = exception;
+		}
+
+		@Override
+		void execute(QuiltPluginManagerImpl manager) {
+			manager.reportZipError(file, guiNode, exception);
+		}
+
+		@Override
+		Path path() {
+			return file;
+		}
 	}
 }
@@ -37,20 +37,24 @@ import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.zip.ZipException;
@@ -131,6 +135,8 @@ import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
 import org.quiltmc.loader.impl.util.SystemProperties;
 import org.quiltmc.loader.impl.util.log.Log;
 import org.quiltmc.loader.impl.util.log.LogCategory;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline.Span;
 import org.quiltmc.loader.util.sat4j.specs.TimeoutException;
 
 import net.fabricmc.api.EnvType;
@@ -149,7 +155,7 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 
 	private final Path gameDir, configDir, modsDir, cacheDir;
 	private final Path absGameDir, absModsDir;
-	final Map<Path, Path> pathParents = new HashMap<>();
+	final Map<Path, Path> pathParents = new ConcurrentHashMap<>();
 	final Map<Path, String> customPathNames = new HashMap<>();
 	Map<Path, List<List<Path>>> sourcePaths;
 
@@ -157,7 +163,7 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 
 	/** Map of folder to the plugin id which added it. */
 	final Map<Path, String> modFolders = new LinkedHashMap<>();
-	final Map<Path, QuiltStatusNode> modPathGuiNodes = new HashMap<>();
+	final Map<Path, QuiltStatusNode> modPathGuiNodes = new ConcurrentHashMap<>();
 	final Map<Path, PathLoadState> modPaths = new LinkedHashMap<>();
 	final Map<ModLoadOption, String> modProviders = new HashMap<>();
 	final Map<String, PotentialModSet> modIds = new LinkedHashMap<>();
@@ -184,9 +190,13 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 
 	/** Set to null if {@link QuiltLoaderConfig#singleThreadedLoading} is true, otherwise this will be a useful
 	 * value. */
-	private final ExecutorService executor;
+	private final ThreadPoolExecutor executor;
 
-	final Queue<MainThreadTask> mainThreadTasks;
+	/** The number of tasks which have been passed to {@link #execute(Runnable)} (or are waiting for their dependencies
+	 * in {@link #submitAfter(BasePluginContext, Callable, QuiltPluginTask...)}) but haven't finished yet. */
+	private final AtomicInteger runningTasks = new AtomicInteger();
+
+	final BlockingQueue<MainThreadTask> mainThreadTasks = new LinkedBlockingQueue<>();
 
 	public final GuiManagerImpl guiManager = GuiManagerImpl.MANAGER;
 	/** The root tree node for the "files" tab. */
@@ -224,8 +234,14 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 
 		this.hasher = new FileHasherImpl(this::getParent);
 
-		this.executor = config.singleThreadedLoading ? null : Executors.newCachedThreadPool();
-		this.mainThreadTasks = config.singleThreadedLoading ? new ArrayDeque<>() : new ConcurrentLinkedQueue<>();
+		this.executor = config.singleThreadedLoading ? null : createExecutor();
+
+		if (!simulationOnly) {
+			solver.setSolutionCacheFolder(cacheDir.resolve(QuiltLoaderImpl.CACHE_DIR_NAME).resolve("mod-solutions"));
+		}
+		if (config.singleThreadedLoading) {
+			solver.setOptimisationThreads(1);
+		}
 
 		customPathNames.put(gameDir, "<game>");
 		customPathNames.put(modsDir, "<mods>");
@@ -235,6 +251,20 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 		theFabricPlugin = new StandardFabricPlugin();
 	}
 
+	private static ThreadPoolExecutor createExecutor() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		int threads = Math.max(1, Integer.getInteger(SystemProperties.DISCOVERY_THREADS, processors));
+		AtomicInteger threadIndex = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread thread = new Thread(r, "Quilt Mod Discovery " + threadIndex.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		// Nothing is submitted after loading finishes, so don't keep any threads around
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
 	private BuiltinPluginContext addBuiltinPlugin(BuiltinQuiltPlugin plugin, String id) {
 		BuiltinPluginContext ctx = new BuiltinPluginContext(this, id, plugin);
 		plugin.load(ctx, Collections.emptyMap());
@@ -1263,7 +1293,12 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 		}
 
 		if (scanClasspath) {
-			scanClasspath();
+			Span scanClasspathSpan = StartupTimeline.begin("scan_classpath");
+			try {
+				scanClasspath();
+			} finally {
+				scanClasspathSpan.close();
+			}
 		}
 
 		theQuiltPluginContext.addFolderToScan(modsDir);
@@ -1273,10 +1308,21 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 
 		for (int cycle = 0; cycle < 1000; cycle++) {
 			this.cycleNumber = cycle + 1;
-			ModSolveResultImpl result = runSingleCycle();
-			checkForErrors();
+			ModSolveResultImpl result;
+			Span pluginCycleSpan = StartupTimeline.begin("plugin_cycle", "cycle " + cycleNumber);
+			try {
+				result = runSingleCycle();
+				checkForErrors();
+			} finally {
+				pluginCycleSpan.close();
+			}
 			if (result != null) {
-				new SourcePathGenerator().generate();
+				Span generateSourcePathsSpan = StartupTimeline.begin("generate_source_paths");
+				try {
+					new SourcePathGenerator().generate();
+				} finally {
+					generateSourcePathsSpan.close();
+				}
 				populateModsGuiTab(result);
 				return result;
 			}
@@ -1323,24 +1369,23 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 		this.perCycleStep = step;
 		this.pluginIdsChanged = false;
 
-		refreshPlugins();
+		Span refreshPluginsSpan = StartupTimeline.begin("refresh_plugins");
+		try {
+			refreshPlugins();
+		} finally {
+			refreshPluginsSpan.close();
+		}
 		checkForErrors();
 
 		ModSolveResultImpl result = null;
 
 		while (true) {
-			if (config.singleThreadedLoading) {
-				MainThreadTask task;
-				while ((task = mainThreadTasks.poll()) != null) {
-					task.execute(this);
-				}
-
-				// TODO: Also wait for GUI tasks
-
-			} else {
-				throw new AbstractMethodError("// TODO: Wait for scheduled tasks while running main thread tasks!");
+			try (Span span = StartupTimeline.begin("main_thread_tasks", step.name())) {
+				span.set("tasks", runMainThreadTasks());
 			}
 
+			// TODO: Also wait for GUI tasks
+
 			switch (step) {
 				case START: {
 					for (QuiltPluginContext pluginCtx : plugins.values()) {
@@ -1356,8 +1401,22 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 						return null;
 					}
 
-					if (solver.hasSolution()) {
-						ModSolveResultImpl partialResult = getPartialSolution();
+					boolean hasSolution;
+					Span solveSpan = StartupTimeline.begin("solve");
+					try {
+						hasSolution = solver.hasSolution();
+					} finally {
+						solveSpan.close();
+					}
+
+					if (hasSolution) {
+						ModSolveResultImpl partialResult;
+						Span partialSolutionSpan = StartupTimeline.begin("partial_solution");
+						try {
+							partialResult = getPartialSolution();
+						} finally {
+							partialSolutionSpan.close();
+						}
 
 						if (processTentatives(partialResult)) {
 							this.perCycleStep = step = PerCycleStep.POST_SOLVE_TENTATIVE;
@@ -1791,11 +1850,136 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 	// #########
 
 	<V> QuiltPluginTask<V> submit(BasePluginContext ctx, Callable<V> task) {
-		throw new AbstractMethodError("// TODO: Implement plugin tasks!");
+		QuiltPluginTaskImpl<V> result = new QuiltPluginTaskImpl<>();
+		execute(() -> complete(result, task));
+		return result;
 	}
 
 	<V> QuiltPluginTask<V> submitAfter(BasePluginContext ctx, Callable<V> task, QuiltPluginTask<?>... deps) {
-		throw new AbstractMethodError("// TODO: Implement plugin tasks!");
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[deps.length];
+		for (int i = 0; i < deps.length; i++) {
+			if (!(deps[i] instanceof QuiltPluginTaskImpl)) {
+				throw new IllegalArgumentException("Unknown task " + deps[i] + " - only tasks returned by quilt-loader can be waited for!");
+			}
+			futures[i] = ((QuiltPluginTaskImpl<?>) deps[i]).future;
+		}
+
+		QuiltPluginTaskImpl<V> result = new QuiltPluginTaskImpl<>();
+		// Count the task as running while it waits, so the current cycle can't end before it's executed
+		runningTasks.incrementAndGet();
+		// The task is executed even if a dependency failed, so it can handle that failure itself
+		CompletableFuture.allOf(futures).whenComplete((ignored, ex) -> {
+			try {
+				execute(() -> complete(result, task));
+			} finally {
+				finishTask();
+			}
+		});
+		return result;
+	}
+
+	private static <V> void complete(QuiltPluginTaskImpl<V> result, Callable<V> task) {
+		try {
+			result.future.complete(task.call());
+		} catch (Throwable t) {
+			result.future.completeExceptionally(t);
+		}
+	}
+
+	/** Runs the given task on a worker thread, or immediately if {@link QuiltLoaderConfig#singleThreadedLoading} is
+	 * true. Anything thrown by the task is rethrown on the main thread, and the current cycle won't move on to the next
+	 * step until every task has finished. */
+	private void execute(Runnable task) {
+		if (config.singleThreadedLoading) {
+			task.run();
+			return;
+		}
+
+		runningTasks.incrementAndGet();
+		executor.execute(() -> {
+			try {
+				task.run();
+			} catch (Throwable t) {
+				mainThreadTasks.add(new MainThreadTask.WorkerFailedTask(t));
+			} finally {
+				finishTask();
+			}
+		});
+	}
+
+	private void finishTask() {
+		if (runningTasks.decrementAndGet() == 0) {
+			mainThreadTasks.add(MainThreadTask.WAKE_UP);
+		}
+	}
+
+	/** Runs the given task on the main thread: immediately if {@link QuiltLoaderConfig#singleThreadedLoading} is true,
+	 * otherwise the next time the main thread checks for tasks. */
+	private void runOnMainThread(MainThreadTask task) {
+		if (config.singleThreadedLoading) {
+			task.execute(this);
+		} else {
+			mainThreadTasks.add(task);
+		}
+	}
+
+	/** Runs every {@link MainThreadTask} until there are none left, and (when loading is multi-threaded) until every
+	 * worker task has finished, since those usually add more main thread tasks.
+	 * <p>
+	 * Workers finish in any order, so tasks are run in batches: every task added while the workers are busy is collected
+	 * first, and then run in order of the path they are about. This keeps the order that plugins see mods in (and so
+	 * which of two duplicate mods is kept) the same on every launch.
+	 * 
+	 * @return The number of tasks that were executed. */
+	private int runMainThreadTasks() throws ModSolvingError {
+		int count = 0;
+		List<MainThreadTask> batch = new ArrayList<>();
+		while (true) {
+			awaitWorkers(batch);
+			if (batch.isEmpty()) {
+				return count;
+			}
+
+			Map<MainThreadTask, String> keys = new IdentityHashMap<>();
+			for (MainThreadTask task : batch) {
+				Path path = task.path();
+				keys.put(task, path == null ? "" : describePath(path));
+			}
+			batch.sort(Comparator.comparing(keys::get));
+
+			for (MainThreadTask task : batch) {
+				task.execute(this);
+				count++;
+			}
+			batch.clear();
+		}
+	}
+
+	/** Moves every {@link MainThreadTask} into the given list, waiting until no worker tasks are running. */
+	private void awaitWorkers(List<MainThreadTask> to) throws ModSolvingError {
+		while (true) {
+			MainThreadTask task = mainThreadTasks.poll();
+			if (task == null) {
+				if (runningTasks.get() == 0) {
+					// Workers add their tasks before they finish, so if we missed one it's definitely in the queue now
+					task = mainThreadTasks.poll();
+					if (task == null) {
+						return;
+					}
+				} else {
+					try {
+						task = mainThreadTasks.take();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new ModSolvingError("Interrupted while waiting for mod discovery tasks!");
+					}
+				}
+			}
+
+			if (task != MainThreadTask.WAKE_UP) {
+				to.add(task);
+			}
+		}
 	}
 
 	// ########
@@ -1820,13 +2004,7 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 			plugin.onModFolderAdded(path);
 		}
 
-		if (config.singleThreadedLoading) {
-			scanModFolder0(path, folderRoot);
-		} else {
-			executor.submit(() -> {
-				scanModFolder0(path, folderRoot);
-			});
-		}
+		execute(() -> scanModFolder0(path, folderRoot));
 	}
 
 	protected boolean isTest() {
@@ -2050,15 +2228,12 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 			return;
 		}
 
-		if (config.singleThreadedLoading) {
-			scanModFile0(file, location, guiNode);
-		} else {
-			executor.submit(() -> {
-				scanModFile0(file, location, guiNode);
-			});
-		}
+		execute(() -> scanModFile0(file, location, guiNode));
 	}
 
+	/** Called on a worker thread (unless {@link QuiltLoaderConfig#singleThreadedLoading} is true) to find out what
+	 * sort of file the given path is, and open it if it's a zip. Plugins are only invoked on the main thread, so this
+	 * passes the actual scanning over to a {@link MainThreadTask}. */
 	private void scanModFile0(Path file, ModLocationImpl location, QuiltStatusNode guiNode) {
 
 		modPathGuiNodes.put(file, guiNode);
@@ -2071,27 +2246,12 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 				return;
 			}
 		} catch (IOException e) {
-
-			QuiltLoaderText title = QuiltLoaderText.translate("gui.text.ioexception_files_hidden", e.getMessage());
-			QuiltDisplayedError error = reportError(theQuiltPluginContext, title);
-			error.appendReportText("Failed to check if " + describePath(file) + " is hidden or not!");
-			error.appendDescription(
-				QuiltLoaderText.translate("gui.text.ioexception_files_hidden.desc.0", describePath(file))
-			);
-			error.appendThrowable(e);
-
-			guiNode.addChild(title).level(QuiltWarningLevel.ERROR);
-			e.printStackTrace();
-
+			runOnMainThread(new MainThreadTask.ReportHiddenCheckErrorTask(file, guiNode, e));
 			return;
 		}
 
 		if (FasterFiles.isDirectory(file)) {
-			if (this.config.singleThreadedLoading) {
-				scanFolderAsMod(file, location, guiNode);
-			} else {
-				mainThreadTasks.add(new MainThreadTask.ScanFolderAsModTask(file, location, guiNode));
-			}
+			runOnMainThread(new MainThreadTask.ScanFolderAsModTask(file, location, guiNode));
 			return;
 		}
 
@@ -2103,13 +2263,35 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 				guiNode.icon(QuiltLoaderGui.iconZipFile());
 			}
 
-			if (this.config.singleThreadedLoading) {
-				scanZip(file, zipRoot, location, guiNode);
-			} else {
-				mainThreadTasks.add(new MainThreadTask.ScanZipTask(file, zipRoot, location, guiNode));
-			}
+			runOnMainThread(new MainThreadTask.ScanZipTask(file, zipRoot, location, guiNode));
 
-		} catch (ZeroByteFileException e) {
+		} catch (IOException e) {
+			runOnMainThread(new MainThreadTask.ReportZipErrorTask(file, guiNode, e));
+		} catch (NonZipException e) {
+
+			guiNode.icon(QuiltLoaderGui.iconUnknownFile());
+
+			runOnMainThread(new MainThreadTask.ScanUnknownFileTask(file, location, guiNode));
+		}
+	}
+
+	/** Called by {@link MainThreadTask.ReportHiddenCheckErrorTask} */
+	void reportHiddenCheckError(Path file, QuiltStatusNode guiNode, IOException e) {
+		QuiltLoaderText title = QuiltLoaderText.translate("gui.text.ioexception_files_hidden", e.getMessage());
+		QuiltDisplayedError error = reportError(theQuiltPluginContext, title);
+		error.appendReportText("Failed to check if " + describePath(file) + " is hidden or not!");
+		error.appendDescription(
+			QuiltLoaderText.translate("gui.text.ioexception_files_hidden.desc.0", describePath(file))
+		);
+		error.appendThrowable(e);
+
+		guiNode.addChild(title).level(QuiltWarningLevel.ERROR);
+		e.printStackTrace();
+	}
+
+	/** Called by {@link MainThreadTask.ReportZipErrorTask} */
+	void reportZipError(Path file, QuiltStatusNode guiNode, IOException e) {
+		if (e instanceof ZeroByteFileException) {
 
 			QuiltLoaderText title = QuiltLoaderText.translate("gui.error.zerobytezip.title");
 			QuiltDisplayedError error = reportError(theQuiltPluginContext, title);
@@ -2123,7 +2305,7 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 
 			guiNode.addChild(QuiltLoaderText.translate("gui.error.zerobytezip")).level(QuiltWarningLevel.ERROR);
 
-		} catch (ZipException e) {
+		} else if (e instanceof ZipException) {
 
 			// TODO: check for common cases and print those
 			// (I.E zero-byte file)
@@ -2141,7 +2323,7 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 			guiNode.addChild(QuiltLoaderText.translate("gui.error.zipexception", e.getMessage()))// TODO: translate
 				.level(QuiltWarningLevel.ERROR);
 
-		} catch (IOException e) {
+		} else {
 
 			QuiltLoaderText title = QuiltLoaderText.translate("gui.error.ioexception.title", e.getMessage());
 			QuiltDisplayedError error = reportError(theQuiltPluginContext, title);
@@ -2154,16 +2336,6 @@ public class QuiltPluginManagerImpl implements QuiltPluginManager {
 
 			guiNode.addChild(QuiltLoaderText.translate("gui.error.ioexception", e.getMessage()))// TODO: translate
 				.level(QuiltWarningLevel.ERROR);
-
-		} catch (NonZipException e) {
-
-			guiNode.icon(QuiltLoaderGui.iconUnknownFile());
-
-			if (this.config.singleThreadedLoading) {
-				scanUnknownFile(file, location, guiNode);
-			} else {
-				mainThreadTasks.add(new MainThreadTask.ScanUnknownFileTask(file, location, guiNode));
-			}
 		}
 	}
 
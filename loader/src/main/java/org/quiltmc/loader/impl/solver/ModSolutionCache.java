@@ -0,0 +1,254 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.solver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.api.FasterFiles;
+import org.quiltmc.loader.api.plugin.solver.LoadOption;
+import org.quiltmc.loader.impl.solver.RuleSet.InputRuleSet;
+import org.quiltmc.loader.impl.util.HashUtil;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.log.Log;
+import org.quiltmc.loader.impl.util.log.LogCategory;
+
+/** Stores the final solution of previously solved {@link InputRuleSet}s, so solving an identical set of options, weights,
+ * and rule definitions can skip sat4j entirely.
+ * <p>
+ * {@link LoadOption}s don't have any stable identity between launches, so they are identified by their class and
+ * {@link Object#toString()} instead. Rule sets which contain options that can't be identified this way (either because
+ * they don't override toString, or because two options have the same description) are never cached. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class ModSolutionCache {
+
+	/** Changed whenever the solver might produce a different solution for the same input. */
+	private static final String HEADER = "quilt-loader mod solution v1";
+
+	/** The most solutions that are kept in the cache folder. Every cycle of the plugin manager solves a different rule
+	 * set, so this needs to hold several solutions per launch. */
+	private static final int MAX_ENTRIES = 32;
+
+	private final Path folder;
+
+	ModSolutionCache(Path folder) {
+		this.folder = folder;
+	}
+
+	/** @return The key for the given rule set, or null if it can't be cached. */
+	@Nullable
+	static Key computeKey(InputRuleSet rules, String solverDescription) {
+		Map<Class<?>, Boolean> describable = new HashMap<>();
+		Map<LoadOption, String> optionToId = new HashMap<>();
+		Map<String, LoadOption> idToOption = new HashMap<>();
+		List<String> lines = new ArrayList<>();
+
+		for (Map.Entry<LoadOption, Integer> entry : rules.options.entrySet()) {
+			LoadOption option = entry.getKey();
+			if (!describable.computeIfAbsent(option.getClass(), ModSolutionCache::overridesToString)) {
+				return null;
+			}
+			String id = option.getClass().getName() + " " + option;
+			if (id.indexOf('\n') >= 0 || id.indexOf('\r') >= 0 || idToOption.put(id, option) != null) {
+				return null;
+			}
+			optionToId.put(option, id);
+			lines.add("option " + entry.getValue() + " " + id);
+		}
+
+		for (List<RuleDefinition> definitions : rules.ruleToDefinitions.values()) {
+			for (RuleDefinition def : definitions) {
+				List<String> ids = new ArrayList<>(def.options.length);
+				for (LoadOption option : def.options) {
+					boolean negated = LoadOption.isNegated(option);
+					String id = optionToId.get(negated ? option.negate() : option);
+					if (id == null) {
+						return null;
+					}
+					ids.add(negated ? "-" + id : "+" + id);
+				}
+				ids.sort(null);
+				lines.add("rule " + def.type() + " " + def.minimum() + " " + def.maximum() + " " + ids);
+			}
+		}
+
+		lines.sort(null);
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("This JVM doesn't support SHA-1???");
+		}
+
+		digest.update(HEADER.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(solverDescription.getBytes(StandardCharsets.UTF_8));
+		for (String line : lines) {
+			digest.update((byte) '\n');
+			digest.update(line.getBytes(StandardCharsets.UTF_8));
+		}
+
+		return new Key(HashUtil.hashToString(digest.digest()), optionToId, idToOption);
+	}
+
+	private static boolean overridesToString(Class<?> cls) {
+		try {
+			Method method = cls.getMethod("toString");
+			return method.getDeclaringClass() != Object.class;
+		} catch (NoSuchMethodException | SecurityException e) {
+			return false;
+		}
+	}
+
+	/** @return The solution stored for the given key, or null if there isn't one (or it no longer matches the options
+	 *         in the key). */
+	@Nullable
+	List<LoadOption> get(Key key) {
+		Path path = getPath(key);
+		if (!FasterFiles.isRegularFile(path)) {
+			return null;
+		}
+
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to read the mod solution " + path, e);
+			return null;
+		}
+
+		if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+			return null;
+		}
+
+		List<LoadOption> solution = new ArrayList<>(lines.size() - 1);
+		for (int i = 1; i < lines.size(); i++) {
+			String line = lines.get(i);
+			if (line.isEmpty()) {
+				continue;
+			}
+			LoadOption option = key.idToOption.get(line.substring(1));
+			if (option == null) {
+				return null;
+			}
+			solution.add(line.charAt(0) == '-' ? option.negate() : option);
+		}
+
+		try {
+			// Used to decide which solutions to remove when the cache gets too large
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Not important
+		}
+
+		return solution;
+	}
+
+	void put(Key key, Collection<LoadOption> solution) {
+		List<String> lines = new ArrayList<>(solution.size());
+		for (LoadOption option : solution) {
+			boolean negated = LoadOption.isNegated(option);
+			String id = key.optionToId.get(negated ? option.negate() : option);
+			if (id == null) {
+				// Aliases and other options which weren't part of the input, so we can't read them back in
+				return;
+			}
+			lines.add((negated ? "-" : "+") + id);
+		}
+
+		Path path = getPath(key);
+		try {
+			FasterFiles.createDirectories(folder);
+			Path temp = Files.createTempFile(folder, key.hash, ".tmp");
+			try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				writer.write(HEADER);
+				for (String line : lines) {
+					writer.write('\n');
+					writer.write(line);
+				}
+				writer.write('\n');
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to write the mod solution " + path, e);
+			return;
+		}
+
+		removeOldEntries();
+	}
+
+	private void removeOldEntries() {
+		List<Path> entries = new ArrayList<>();
+		Map<Path, FileTime> times = new HashMap<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.txt")) {
+			for (Path entry : stream) {
+				entries.add(entry);
+				times.put(entry, Files.getLastModifiedTime(entry));
+			}
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to list the mod solutions in " + folder, e);
+			return;
+		}
+
+		if (entries.size() <= MAX_ENTRIES) {
+			return;
+		}
+
+		entries.sort((a, b) -> times.get(b).compareTo(times.get(a)));
+		for (Path entry : entries.subList(MAX_ENTRIES, entries.size())) {
+			try {
+				Files.deleteIfExists(entry);
+			} catch (IOException e) {
+				Log.warn(LogCategory.CACHE, "Failed to delete the old mod solution " + entry, e);
+			}
+		}
+	}
+
+	private Path getPath(Key key) {
+		return folder.resolve(key.hash + ".txt");
+	}
+
+	static final class Key {
+		final String hash;
+		final Map<LoadOption, String> optionToId;
+		final Map<String, LoadOption> idToOption;
+
+		Key(String hash, Map<LoadOption, String> optionToId, Map<String, LoadOption> idToOption) {
+			this.hash = hash;
+			this.optionToId = optionToId;
+			this.idToOption = idToOption;
+		}
+	}
+}
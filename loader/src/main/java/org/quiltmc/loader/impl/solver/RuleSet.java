@@ -149,11 +149,23 @@ public abstract class RuleSet {
 		/** Every active {@link RuleDefinition} that influences the load options chosen. */
 		public final List<RuleDefinition> rules;
 
+		/** The independent parts of this rule set which still need to be solved, or an empty list if this couldn't be
+		 * split up. No {@link LoadOption} or {@link RuleDefinition} is shared between two sub problems, so each one can
+		 * be optimised separately. */
+		public final List<ProcessedRuleSet> subProblems;
+
 		ProcessedRuleSet(Map<LoadOption, Boolean> constants, Map<LoadOption, LoadOption> aliases, //
 			Map<LoadOption, Integer> options, List<RuleDefinition> rules) {
 
+			this(constants, aliases, options, rules, Collections.emptyList());
+		}
+
+		ProcessedRuleSet(Map<LoadOption, Boolean> constants, Map<LoadOption, LoadOption> aliases, //
+			Map<LoadOption, Integer> options, List<RuleDefinition> rules, List<ProcessedRuleSet> subProblems) {
+
 			super(constants, aliases, options);
 			this.rules = rules;
+			this.subProblems = subProblems;
 		}
 
 		@Override
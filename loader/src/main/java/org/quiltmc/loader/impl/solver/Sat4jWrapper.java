@@ -19,6 +19,7 @@
 package org.quiltmc.loader.impl.solver;
 
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -29,6 +30,13 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.Nullable;
 
 import org.quiltmc.loader.api.plugin.solver.AliasedLoadOption;
 import org.quiltmc.loader.api.plugin.solver.LoadOption;
@@ -75,6 +83,8 @@ public class Sat4jWrapper implements RuleContext {
 	static final boolean LOG = Boolean.getBoolean(SystemProperties.DEBUG_MOD_SOLVING);
 	static final boolean PRINT_RESULTS = LOG || Boolean.getBoolean(SystemProperties.PRINT_MOD_SOLVING_RESULTS);
 	private static final boolean DISABLE_PRE_PROCESS = Boolean.getBoolean(SystemProperties.DISABLE_MOD_SOLVING_PRE_PROCESSING);
+	private static final boolean DISABLE_CACHE = Boolean.getBoolean(SystemProperties.DISABLE_MOD_SOLVING_CACHE);
+	private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
 	static final LogCategory CATEGORY = LogCategory.create("Sat4j");
 
 	private volatile boolean cancelled = false;
@@ -84,8 +94,28 @@ public class Sat4jWrapper implements RuleContext {
 
 	private CalculationStage stage = new DefineStage();
 
+	@Nullable
+	private ModSolutionCache solutionCache;
+
+	/** The most sub problems which are optimised at the same time. */
+	private int optimisationThreads = Math.max(
+		1, Integer.getInteger(SystemProperties.MOD_SOLVING_THREADS, Runtime.getRuntime().availableProcessors())
+	);
+
 	public Sat4jWrapper() {}
 
+	/** Sets the folder which final solutions are stored in, so that solving an identical set of rules in a later launch
+	 * doesn't need to run sat4j. Passing null disables the cache. */
+	public void setSolutionCacheFolder(@Nullable Path folder) {
+		solutionCache = folder == null || DISABLE_CACHE ? null : new ModSolutionCache(folder);
+	}
+
+	/** Sets the most independent sub problems which will be optimised at the same time. 1 means every sub problem is
+	 * optimised on the calling thread. */
+	public void setOptimisationThreads(int threads) {
+		optimisationThreads = Math.max(1, threads);
+	}
+
 	/** Clears out this {@link Sat4jWrapper} of all data EXCEPT the added {@link Rule}s and {@link LoadOption}s. */
 	public void resetStage() {
 		cancelled = false;
@@ -247,6 +277,12 @@ public class Sat4jWrapper implements RuleContext {
 	// # Internal #
 	// ############
 
+	private void storeSolution(@Nullable ModSolutionCache.Key cacheKey, Collection<LoadOption> solution) {
+		if (solutionCache != null && cacheKey != null) {
+			solutionCache.put(cacheKey, solution);
+		}
+	}
+
 	private void checkCancelled() throws TimeoutException {
 		if (cancelled) {
 			throw new TimeoutException();
@@ -467,6 +503,72 @@ public class Sat4jWrapper implements RuleContext {
 
 			optimiser.setObjectiveFunction(new ObjectiveFunction(vars, coeffs));
 		}
+
+		/** Optimises this solver, and adds every {@link LoadOption} that should be loaded to the given list.
+		 * 
+		 * @return False if no solution was found. */
+		boolean optimise(List<LoadOption> dst) throws ModSolvingError {
+			int count = 0;
+			boolean success = false;
+
+			// 5 second timeout - this will regularly be hit by users
+			// as such this needs to be fairly short, but not too short as then there's no time to optimise.
+			// ALSO this happens *every cycle* (unless the solution is cached)
+			optimiser.setTimeoutForFindingBetterSolution(5);
+
+			while (true) {
+
+				try {
+					if (!optimiser.admitABetterSolution()) {
+						break;
+					}
+				} catch (TimeoutException e) {
+					if (success) {
+						// Always print, since it could be important
+						Log.info(CATEGORY, "Aborted mod solving optimisation due to timeout");
+						break;
+					}
+				}
+
+				success = true;
+
+				if (PRINT_RESULTS) {
+					Log.info(
+						CATEGORY, "Found solution #" + (++count) + " weight = " + optimiser.calculateObjective()
+							.intValue() + " = " + Arrays.toString(optimiser.model())
+					);
+				}
+
+				try {
+					optimiser.discardCurrentSolution();
+				} catch (ContradictionException e) {
+					// This means we're *already* optimal?
+					if (LOG) {
+						Log.info(CATEGORY, "Found optimal solution!");
+					}
+					break;
+				}
+			}
+
+			if (!success) {
+				return false;
+			}
+
+			for (int value : optimiser.model()) {
+				if (value < 0) {
+					// Negated, so ignored
+					continue;
+				}
+
+				LoadOption option = indexToOption.get(value);
+				if (option == null) {
+					throw new ModSolvingError("Unknown value " + value);
+				}
+				dst.add(option);
+			}
+
+			return true;
+		}
 	}
 
 	private abstract class CalculationStage {
@@ -491,6 +593,22 @@ public class Sat4jWrapper implements RuleContext {
 		boolean hasSolution() throws TimeoutException, ModSolvingError {
 
 			InputRuleSet originalRules = new InputRuleSet(optionToWeight, ruleToDefinitions);
+
+			ModSolutionCache.Key cacheKey = null;
+			if (solutionCache != null) {
+				cacheKey = ModSolutionCache.computeKey(originalRules, DISABLE_PRE_PROCESS ? "direct" : "pre-processed");
+				if (cacheKey != null) {
+					List<LoadOption> cached = solutionCache.get(cacheKey);
+					if (cached != null) {
+						if (PRINT_RESULTS) {
+							Log.info(CATEGORY, "Found a cached solution for " + cacheKey.hash);
+						}
+						stage = new SolvedStage(cached);
+						return true;
+					}
+				}
+			}
+
 			Sat4jSolverSatisfiable solver = new Sat4jSolverSatisfiable(originalRules);
 			boolean success = solver.solver.isSatisfiable();
 
@@ -514,6 +632,7 @@ public class Sat4jWrapper implements RuleContext {
 							Log.info(CATEGORY, "Fully solved solution via pre-processer");
 						}
 						stage = new SolvedStage(processed.getConstantSolution());
+						storeSolution(cacheKey, stage.getSolution());
 						return true;
 					}
 
@@ -551,8 +670,7 @@ public class Sat4jWrapper implements RuleContext {
 					toOptimize = originalRules;
 				}
 
-				Sat4jSolverOptimizer optimizer = new Sat4jSolverOptimizer(toOptimize);
-				stage = new OptimizationStage(optimizer);
+				stage = new OptimizationStage(toOptimize, cacheKey);
 				return true;
 			} else {
 				Collection<IConstr> constraints = solver.explainer.explain();
@@ -610,10 +728,14 @@ public class Sat4jWrapper implements RuleContext {
 	/** Used when we have validated that a rule set contains valid entries, and just needs to be optimised */
 	private final class OptimizationStage extends CalculationStage {
 
-		final Sat4jSolverOptimizer optimiser;
+		final RuleSet rules;
+
+		@Nullable
+		final ModSolutionCache.Key cacheKey;
 
-		OptimizationStage(Sat4jSolverOptimizer optimiser) {
-			this.optimiser = optimiser;
+		OptimizationStage(RuleSet rules, @Nullable ModSolutionCache.Key cacheKey) {
+			this.rules = rules;
+			this.cacheKey = cacheKey;
 		}
 
 		@Override
@@ -630,77 +752,92 @@ public class Sat4jWrapper implements RuleContext {
 		Collection<LoadOption> getSolution() throws TimeoutException, ModSolvingError {
 			checkCancelled();
 
+			// Sub problems don't share any options or rules, so optimising each one separately
+			// gives the same result as optimising all of them together
+			List<? extends RuleSet> problems = Collections.singletonList(rules);
+			if (rules instanceof ProcessedRuleSet && !((ProcessedRuleSet) rules).subProblems.isEmpty()) {
+				problems = ((ProcessedRuleSet) rules).subProblems;
+			}
+
 			if (PRINT_RESULTS) {
-				Log.info(CATEGORY, "Starting optimisation.");
+				Log.info(CATEGORY, "Starting optimisation of " + problems.size() + " sub problem(s).");
 			}
 
-			int count = 0;
-			boolean success = false;
+			List<List<LoadOption>> results = optimiseAll(problems);
 
-			// 5 second timeout - this will regularly be hit by users
-			// as such this needs to be fairly short, but not too short as then there's no time to optimise.
-			// ALSO this happens *every cycle*
-			optimiser.optimiser.setTimeoutForFindingBetterSolution(5);
+			List<LoadOption> list = new ArrayList<>();
+			rules.getConstantSolution(list);
+			for (List<LoadOption> result : results) {
+				list.addAll(result);
+			}
 
-			while (true) {
+			stage = new SolvedStage(list);
+			storeSolution(cacheKey, list);
+			return list;
+		}
 
-				try {
-					if (!optimiser.optimiser.admitABetterSolution()) {
-						break;
-					}
-				} catch (TimeoutException e) {
-					if (success) {
-						// Always print, since it could be important
-						Log.info(CATEGORY, "Aborted mod solving optimisation due to timeout");
-						break;
-					}
+		private List<List<LoadOption>> optimiseAll(List<? extends RuleSet> problems) throws TimeoutException,
+			ModSolvingError {
+
+			int threadCount = Math.min(optimisationThreads, problems.size());
+			List<List<LoadOption>> results = new ArrayList<>(problems.size());
+
+			if (threadCount <= 1) {
+				for (RuleSet problem : problems) {
+					checkCancelled();
+					results.add(optimise(problem));
 				}
+				return results;
+			}
 
-				success = true;
+			ExecutorService executor = Executors.newFixedThreadPool(threadCount, r -> {
+				Thread thread = new Thread(r, "Quilt Mod Solver " + THREAD_INDEX.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
 
-				if (PRINT_RESULTS) {
-					Log.info(
-						CATEGORY, "Found solution #" + (++count) + " weight = " + optimiser.optimiser.calculateObjective()
-							.intValue() + " = " + Arrays.toString(optimiser.optimiser.model())
-					);
+			try {
+				List<Future<List<LoadOption>>> futures = new ArrayList<>(problems.size());
+				for (RuleSet problem : problems) {
+					futures.add(executor.submit(() -> optimise(problem)));
 				}
 
-				try {
-					optimiser.optimiser.discardCurrentSolution();
-				} catch (ContradictionException e) {
-					// This means we're *already* optimal?
-					if (LOG) {
-						Log.info(CATEGORY, "Found optimal solution!");
+				for (Future<List<LoadOption>> future : futures) {
+					try {
+						results.add(future.get());
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						if (cause instanceof ModSolvingError) {
+							throw (ModSolvingError) cause;
+						} else if (cause instanceof TimeoutException) {
+							throw (TimeoutException) cause;
+						} else if (cause instanceof RuntimeException) {
+							throw (RuntimeException) cause;
+						} else if (cause instanceof Error) {
+							throw (Error) cause;
+						}
+						throw new ModSolvingError("Failed to optimise a sub problem", cause);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new TimeoutException("Interrupted while optimising");
 					}
-					break;
 				}
+			} finally {
+				executor.shutdownNow();
 			}
 
-			if (!success) {
+			return results;
+		}
+
+		private List<LoadOption> optimise(RuleSet problem) throws TimeoutException, ModSolvingError {
+			checkCancelled();
+			List<LoadOption> result = new ArrayList<>();
+			if (!new Sat4jSolverOptimizer(problem).optimise(result)) {
 				throw new ModSolvingError(
 					"We just solved this! Something must have gone wrong internally..." + ruleToDefinitions
 				);
 			}
-
-			int[] model = optimiser.optimiser.model();
-			List<LoadOption> list = new ArrayList<>();
-			optimiser.inputRules.getConstantSolution(list);
-
-			for (int value : model) {
-				if (value < 0) {
-					// Negated, so ignored
-					continue;
-				}
-
-				LoadOption option = optimiser.indexToOption.get(value);
-				if (option == null) {
-					throw new ModSolvingError("Unknown value " + value);
-				}
-				list.add(option);
-			}
-
-			stage = new SolvedStage(list);
-			return list;
+			return result;
 		}
 
 		@Override
@@ -539,6 +539,7 @@ class SolverPreProcessor {
 
 				Map<LoadOption, Integer> remainingOptions = new HashMap<>();
 				Set<RuleDefinition> remainingRules = new HashSet<>();
+				List<ProcessedRuleSet> unsolvedProblems = new ArrayList<>();
 
 				for (SolverPreProcessor processor : subProblems) {
 					if (debug) {
@@ -568,6 +569,12 @@ class SolverPreProcessor {
 						continue;
 					}
 
+					if (processedSet.subProblems.isEmpty()) {
+						unsolvedProblems.add(processedSet);
+					} else {
+						unsolvedProblems.addAll(processedSet.subProblems);
+					}
+
 
 					if (!Sat4jWrapper.PRINT_RESULTS) {
 						continue;
@@ -578,7 +585,9 @@ class SolverPreProcessor {
 					printRuleSet(processedSet);
 				}
 
-				return new ProcessedRuleSet(constants, aliases, remainingOptions, new ArrayList<>(remainingRules));
+				return new ProcessedRuleSet(
+					constants, aliases, remainingOptions, new ArrayList<>(remainingRules), unsolvedProblems
+				);
 			}
 		} while (changed);
 
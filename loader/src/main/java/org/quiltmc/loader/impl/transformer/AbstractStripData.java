@@ -20,6 +20,7 @@ package org.quiltmc.loader.impl.transformer;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -39,6 +40,9 @@ public abstract class AbstractStripData extends ClassVisitor {
 
 	protected final List<String> denyLoadReasons = new ArrayList<>();
 
+	/** Every mod id which has been checked against {@link #mods}, regardless of whether it was present or not. */
+	protected final Set<String> queriedMods = new HashSet<>();
+
 	protected AbstractStripData(int api, EnvType envType, Set<String> mods) {
 		this(api, null, envType, mods);
 	}
@@ -52,6 +56,18 @@ public abstract class AbstractStripData extends ClassVisitor {
 	/** @return What this represents - generally "package" or "class". */
 	protected abstract String type();
 
+	/** @return Every mod id that this class checked for with {@link Requires}. The result of stripping only depends on
+	 *         whether these mods are present or not, rather than on the entire mod set. */
+	public Set<String> getQueriedMods() {
+		return Collections.unmodifiableSet(queriedMods);
+	}
+
+	/** Checks to see if the given mod is loaded, and records that the result depends on it. */
+	protected boolean hasMod(String modId) {
+		queriedMods.add(modId);
+		return mods.contains(modId);
+	}
+
 	public List<String> getDenyLoadReasons() {
 		return Collections.unmodifiableList(denyLoadReasons);
 	}
@@ -89,7 +105,7 @@ public abstract class AbstractStripData extends ClassVisitor {
 	protected void checkHasAllMods(List<String> requiredMods) {
 		List<String> missingMods = new ArrayList<>();
 		for (String mod : requiredMods) {
-			if (!mods.contains(mod)) {
+			if (!hasMod(mod)) {
 				missingMods.add(mod);
 			}
 		}
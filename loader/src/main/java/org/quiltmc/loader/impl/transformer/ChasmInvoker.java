@@ -215,7 +215,7 @@ class ChasmInvoker {
 				case REMOVED: {
 					QuiltMetadata qm = this_value_is_actually_nullable(result.getMetadata().get(QuiltMetadata.class));
 					if (qm != null) {
-						cache.hideClass(LoaderUtil.getClassNameFromTransformCache(qm.name), "it was removed by a chasm transformer");
+						cache.hideClass(qm.from, LoaderUtil.getClassNameFromTransformCache(qm.name), "it was removed by a chasm transformer");
 					} else {
 						throw new UnsupportedOperationException("Cannot remove unknown class");
 					}
@@ -38,6 +38,7 @@ import net.fabricmc.api.Environment;
 import net.fabricmc.api.EnvironmentInterface;
 import net.fabricmc.api.EnvironmentInterfaces;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -59,6 +60,16 @@ public class ClassStrippingData extends AbstractStripData {
 	private static final String SERVER_ONLY_DESCRIPTOR = Type.getDescriptor(DedicatedServerOnly.class);
 	private static final String REQUIRES_DESCRIPTOR = Type.getDescriptor(Requires.class);
 
+	/** Every descriptor above, for {@link #mayNeedStripping(byte[])}. */
+	private static final byte[][] DESCRIPTOR_BYTES = {
+		ENVIRONMENT_DESCRIPTOR.getBytes(StandardCharsets.UTF_8),
+		ENVIRONMENT_INTERFACE_DESCRIPTOR.getBytes(StandardCharsets.UTF_8),
+		ENVIRONMENT_INTERFACES_DESCRIPTOR.getBytes(StandardCharsets.UTF_8),
+		CLIENT_ONLY_DESCRIPTOR.getBytes(StandardCharsets.UTF_8),
+		SERVER_ONLY_DESCRIPTOR.getBytes(StandardCharsets.UTF_8),
+		REQUIRES_DESCRIPTOR.getBytes(StandardCharsets.UTF_8)
+	};
+
 	private final String envTypeString;
 
 	private final Collection<String> stripInterfaces = new HashSet<>();
@@ -188,7 +199,7 @@ public class ClassStrippingData extends AbstractStripData {
 
 						@Override
 						public void visit(String name, Object value) {
-							if (!mods.contains(String.valueOf(value))) {
+							if (!hasMod(String.valueOf(value))) {
 								anyMissing = true;
 							}
 						}
@@ -213,7 +224,7 @@ public class ClassStrippingData extends AbstractStripData {
 						public void visit(String name, Object value) {
 							String mod = String.valueOf(value);
 							requiredMods.add(mod);
-							if (!mods.contains(mod)) {
+							if (!hasMod(mod)) {
 								missingMods.add(mod);
 							}
 						}
@@ -255,10 +266,91 @@ public class ClassStrippingData extends AbstractStripData {
 	}
 
 	public ClassStrippingData(int api, EnvType envType, List<ModLoadOption> mods) {
-		super(api, envType, mods.stream().map(ModLoadOption::id).collect(Collectors.toSet()));
+		this(api, envType, mods.stream().map(ModLoadOption::id).collect(Collectors.toSet()));
+	}
+
+	/** @param modIds The ids of every loaded mod, used to check {@link Requires} annotations. */
+	public ClassStrippingData(int api, EnvType envType, Set<String> modIds) {
+		super(api, envType, modIds);
 		this.envTypeString = envType.name();
 	}
 
+	/** Checks the constant pool of a class file for any of the annotation descriptors this visitor looks for. Every
+	 * annotation stores its descriptor as a utf8 constant, so if none are present then visiting the class would never
+	 * find anything to strip. This only walks over the bytes, without allocating anything.
+	 *
+	 * @return False if the class definitely doesn't need any stripping, or true if it might (including if the class
+	 *         file couldn't be understood). */
+	static boolean mayNeedStripping(byte[] classFile) {
+		if (classFile.length < 10) {
+			return true;
+		}
+		int count = ((classFile[8] & 0xFF) << 8) | (classFile[9] & 0xFF);
+		int offset = 10;
+		for (int i = 1; i < count; i++) {
+			if (offset >= classFile.length) {
+				return true;
+			}
+			switch (classFile[offset]) {
+				case 1: { // Utf8
+					if (offset + 3 > classFile.length) {
+						return true;
+					}
+					int length = ((classFile[offset + 1] & 0xFF) << 8) | (classFile[offset + 2] & 0xFF);
+					offset += 3;
+					if (offset + length > classFile.length) {
+						return true;
+					}
+					for (byte[] descriptor : DESCRIPTOR_BYTES) {
+						if (descriptor.length == length && regionEquals(classFile, offset, descriptor)) {
+							return true;
+						}
+					}
+					offset += length;
+					break;
+				}
+				case 7: // Class
+				case 8: // String
+				case 16: // MethodType
+				case 19: // Module
+				case 20: // Package
+					offset += 3;
+					break;
+				case 15: // MethodHandle
+					offset += 4;
+					break;
+				case 3: // Integer
+				case 4: // Float
+				case 9: // Fieldref
+				case 10: // Methodref
+				case 11: // InterfaceMethodref
+				case 12: // NameAndType
+				case 17: // Dynamic
+				case 18: // InvokeDynamic
+					offset += 5;
+					break;
+				case 5: // Long
+				case 6: // Double
+					offset += 9;
+					// These take up two entries
+					i++;
+					break;
+				default:
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean regionEquals(byte[] array, int offset, byte[] expected) {
+		for (int i = 0; i < expected.length; i++) {
+			if (array[offset + i] != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
 		this.interfaces = interfaces;
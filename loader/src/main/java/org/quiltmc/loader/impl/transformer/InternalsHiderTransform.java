@@ -20,13 +20,18 @@ package org.quiltmc.loader.impl.transformer;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
 
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
@@ -38,6 +43,7 @@ import org.objectweb.asm.Type;
 import org.quiltmc.loader.api.ModInternal;
 import org.quiltmc.loader.api.plugin.solver.ModLoadOption;
 import org.quiltmc.loader.impl.QuiltLoaderImpl;
+import org.quiltmc.loader.impl.util.HashUtil;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
 import org.quiltmc.loader.impl.util.log.Log;
@@ -56,11 +62,34 @@ public class InternalsHiderTransform {
 
 	private static final String METHOD_OWNER = Type.getInternalName(QuiltInternalExceptionUtil.class);
 
+	/** The package prefix of every class which {@link #getAnnotationSet(String)} looks up as a loader class. */
+	private static final String LOADER_PACKAGE_PREFIX = "org/quiltmc/loader/";
+
+	/** The tag of a CONSTANT_Class entry in the constant pool. */
+	private static final int CONSTANT_CLASS_TAG = 7;
+
 	final Target target;
-	final Map<String, InternalValue> internalPackages = new HashMap<>();
-	final Map<String, InternalValue> internalClasses = new HashMap<>();
-	final Map<MethodKey, InternalValue> internalMethods = new HashMap<>();
-	final Map<FieldKey, InternalValue> internalFields = new HashMap<>();
+	// Concurrent since classes are scanned while they're being transformed, which happens on multiple threads
+	final Map<String, InternalValue> internalPackages = new ConcurrentHashMap<>();
+	final Map<String, InternalValue> internalClasses = new ConcurrentHashMap<>();
+	final Map<MethodKey, InternalValue> internalMethods = new ConcurrentHashMap<>();
+	final Map<FieldKey, InternalValue> internalFields = new ConcurrentHashMap<>();
+
+	/** Every annotation found by {@link #scanClass(ModLoadOption, Path, byte[])}, as a description string, keyed by the
+	 * mod id that declared it. Used to tell if a mod's annotations have changed without comparing each value. */
+	final Map<String, Set<String>> annotationDescriptions = new ConcurrentHashMap<>();
+
+	/** Every package referenced by the classes passed to {@link #scanReferences(ModLoadOption, ClassReader)}, keyed by
+	 * mod id. */
+	final Map<String, Set<String>> referencedPackages = new ConcurrentHashMap<>();
+
+	/** Shares package name strings between every set returned by {@link #scanReferences(ModLoadOption, ClassReader)}. */
+	private final Map<String, String> packageNames = new ConcurrentHashMap<>();
+
+	/** Every class which declares an annotated method or field, and the packages of those classes (and of every
+	 * annotated class). Computed by {@link #prepareRewrite()}. */
+	private final Set<String> memberOwners = new HashSet<>();
+	private final Set<String> ownerPackages = new HashSet<>();
 
 	public InternalsHiderTransform(Target target) {
 		this.target = target;
@@ -74,6 +103,11 @@ public class InternalsHiderTransform {
 		} catch (IllegalArgumentException e) {
 			throw new IllegalArgumentException("Failed to read the class " + file + " from mod " + mod.id(), e);
 		}
+		scanClass(mod, reader);
+	}
+
+	/** Finds every {@link ModInternal} annotation in the given class. This is thread safe. */
+	void scanClass(ModLoadOption mod, ClassReader reader) {
 		String className = reader.getClassName();
 		boolean isPackageInfo = className.endsWith("/package-info");
 		ClassVisitor visitor = new ClassVisitor(QuiltLoaderImpl.ASM_VERSION) {
@@ -90,7 +124,7 @@ public class InternalsHiderTransform {
 						if (isPackageInfo) {
 							key = key.substring(0, className.length() - "/package-info".length());
 						}
-						put(mod, (isPackageInfo ? internalPackages : internalClasses), key);
+						put(mod, (isPackageInfo ? internalPackages : internalClasses), key, (isPackageInfo ? "package " : "class ") + key);
 					}
 				};
 			}
@@ -108,7 +142,7 @@ public class InternalsHiderTransform {
 						return new ScanningAnnotationVisitor() {
 							@Override
 							public void visitEnd() {
-								put(mod, internalMethods, new MethodKey(className, name, descriptor));
+								put(mod, internalMethods, new MethodKey(className, name, descriptor), "method " + className + "." + name + descriptor);
 							}
 						};
 					}
@@ -126,7 +160,7 @@ public class InternalsHiderTransform {
 						return new ScanningAnnotationVisitor() {
 							@Override
 							public void visitEnd() {
-								put(mod, internalFields, new FieldKey(className, name, descriptor));
+								put(mod, internalFields, new FieldKey(className, name, descriptor), "field " + className + "." + name + ":" + descriptor);
 							}
 						};
 					}
@@ -136,8 +170,104 @@ public class InternalsHiderTransform {
 		reader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
 	}
 
-	public byte[] run(ModLoadOption mod, byte[] classBytes) {
+	/** Finds every package referenced by a CONSTANT_Class entry in the given class, without visiting the class. This
+	 * includes the owner of every field and method that the class accesses, as well as its super types. This is
+	 * thread safe.
+	 *
+	 * @return The referenced packages, to pass to {@link #mightNeedRewrite(Set)} once every class has been scanned. */
+	Set<String> scanReferences(ModLoadOption mod, ClassReader reader) {
+		Set<String> packages = new HashSet<>();
+		String className = reader.getClassName();
+		forEachReferencedClass(reader, owner -> {
+			if (!owner.equals(className)) {
+				int lastSlash = owner.lastIndexOf('/');
+				String pkg = lastSlash > 0 ? owner.substring(0, lastSlash) : "";
+				packages.add(packageNames.computeIfAbsent(pkg, k -> k));
+			}
+		});
+		if (mod != null) {
+			referencedPackages.computeIfAbsent(mod.id(), k -> ConcurrentHashMap.newKeySet()).addAll(packages);
+		}
+		return packages;
+	}
+
+	/** Called once every class has been scanned, before any calls to {@link #mightNeedRewrite(Set)} or
+	 * {@link #runIfNeeded(ModLoadOption, byte[])}. */
+	void prepareRewrite() {
+		memberOwners.clear();
+		ownerPackages.clear();
+		for (MethodKey key : internalMethods.keySet()) {
+			memberOwners.add(key.className);
+		}
+		for (FieldKey key : internalFields.keySet()) {
+			memberOwners.add(key.className);
+		}
+		for (String owner : memberOwners) {
+			addPackage(ownerPackages, owner);
+		}
+		for (String owner : internalClasses.keySet()) {
+			addPackage(ownerPackages, owner);
+		}
+		ownerPackages.addAll(internalPackages.keySet());
+	}
+
+	/** @param packages The packages returned by {@link #scanReferences(ModLoadOption, ClassReader)}.
+	 * @return False if the class definitely doesn't need to be passed to {@link #runIfNeeded(ModLoadOption, byte[])}. */
+	boolean mightNeedRewrite(Set<String> packages) {
+		for (String pkg : packages) {
+			if (ownerPackages.contains(pkg) || (pkg + "/").startsWith(LOADER_PACKAGE_PREFIX)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Like {@link #run(ModLoadOption, byte[])}, but first checks the constant pool of the class, and returns null
+	 * if it doesn't reference any class which could have an annotation set. */
+	byte @Nullable [] runIfNeeded(ModLoadOption mod, byte[] classBytes) {
 		ClassReader reader = new ClassReader(classBytes);
+		String className = reader.getClassName();
+		boolean[] needed = { false };
+		forEachReferencedClass(reader, owner -> {
+			if (needed[0] || owner.equals(className)) {
+				return;
+			}
+			int lastSlash = owner.lastIndexOf('/');
+			if (owner.startsWith(LOADER_PACKAGE_PREFIX) || internalClasses.containsKey(owner) || memberOwners.contains(owner)
+				|| (lastSlash > 0 && internalPackages.containsKey(owner.substring(0, lastSlash)))) {
+				needed[0] = true;
+			}
+		});
+		return needed[0] ? run(mod, reader) : null;
+	}
+
+	private static void forEachReferencedClass(ClassReader reader, Consumer<String> consumer) {
+		char[] buffer = new char[reader.getMaxStringLength()];
+		for (int i = 1; i < reader.getItemCount(); i++) {
+			int offset = reader.getItem(i);
+			// The second slot of a long or double has no offset
+			if (offset == 0 || reader.readByte(offset - 1) != CONSTANT_CLASS_TAG) {
+				continue;
+			}
+			// The offset already points at the name index of the entry, so this is readUTF8 rather than readClass
+			String name = reader.readUTF8(offset, buffer);
+			if (name.startsWith("[")) {
+				int start = name.indexOf('L');
+				if (start < 0) {
+					// Array of primitives
+					continue;
+				}
+				name = name.substring(start + 1, name.length() - 1);
+			}
+			consumer.accept(name);
+		}
+	}
+
+	public byte[] run(ModLoadOption mod, byte[] classBytes) {
+		return run(mod, new ClassReader(classBytes));
+	}
+
+	private byte[] run(ModLoadOption mod, ClassReader reader) {
 		String className = reader.getClassName();
 		ClassWriter writer = new ClassWriter(reader, 0) {
 			@Override
@@ -282,13 +412,48 @@ public class InternalsHiderTransform {
 
 	}
 
+	/** Removes every annotation previously found in the given mod by {@link #scanClass(ModLoadOption, Path, byte[])}, so
+	 * that it can be scanned again. */
+	void forgetMod(ModLoadOption mod) {
+		annotationDescriptions.remove(mod.id());
+		referencedPackages.remove(mod.id());
+		internalPackages.values().removeIf(value -> value instanceof ModInternalValue && ((ModInternalValue) value).inMod == mod);
+		internalClasses.values().removeIf(value -> value instanceof ModInternalValue && ((ModInternalValue) value).inMod == mod);
+		internalMethods.values().removeIf(value -> value instanceof ModInternalValue && ((ModInternalValue) value).inMod == mod);
+		internalFields.values().removeIf(value -> value instanceof ModInternalValue && ((ModInternalValue) value).inMod == mod);
+	}
+
+	/** @return A hash of every {@link ModInternal} annotation declared by the given mod, or the empty string if it
+	 *         doesn't declare any. */
+	String getAnnotationHash(String modId) {
+		Set<String> descriptions = annotationDescriptions.get(modId);
+		if (descriptions == null || descriptions.isEmpty()) {
+			return "";
+		}
+		return HashUtil.hashToString(HashUtil.computeHash(String.join("\n", descriptions)));
+	}
+
+	/** @return Every package referenced by the given mod in {@link #scanReferences(ModLoadOption, ClassReader)}. */
+	Set<String> getReferencedPackages(String modId) {
+		Set<String> packages = referencedPackages.get(modId);
+		return packages != null ? packages : Collections.emptySet();
+	}
+
+	private static void addPackage(Set<String> packages, String owner) {
+		if (owner == null) {
+			return;
+		}
+		int lastSlash = owner.lastIndexOf('/');
+		packages.add(lastSlash > 0 ? owner.substring(0, lastSlash) : "");
+	}
+
 	private InternalValue getAnnotationSet(String owner) {
 		InternalValue value = internalClasses.get(owner);
 		if (value != null) {
 			return value;
 		}
 
-		if (owner.startsWith("org/quiltmc/loader/")) {
+		if (owner.startsWith(LOADER_PACKAGE_PREFIX)) {
 			try {
 				String name = owner.replace('/', '.');
 				Class<?> loaderClass = Class.forName(name);
@@ -526,7 +691,7 @@ public class InternalsHiderTransform {
 		}
 	}
 
-	static abstract class ScanningAnnotationVisitor extends AnnotationVisitor {
+	abstract class ScanningAnnotationVisitor extends AnnotationVisitor {
 		final List<String> exceptions = new ArrayList<>();
 		final List<String> replacements = new ArrayList<>();
 		final List<String> classReplacements = new ArrayList<>();
@@ -566,7 +731,7 @@ public class InternalsHiderTransform {
 		@Override
 		public abstract void visitEnd();
 
-		protected final <K> void put(ModLoadOption mod, Map<K, InternalValue> map, K key) {
+		protected final <K> void put(ModLoadOption mod, Map<K, InternalValue> map, K key, String description) {
 			Set<String> set = new HashSet<>();
 			if (mod != null) {
 				set.add(mod.id());
@@ -576,6 +741,11 @@ public class InternalsHiderTransform {
 			value.replacements.addAll(classReplacements);
 			value.replacements.addAll(replacements);
 			map.put(key, value);
+
+			if (mod != null) {
+				annotationDescriptions.computeIfAbsent(mod.id(), k -> new ConcurrentSkipListSet<>())
+					.add(description + " " + new TreeSet<>(set) + " " + value.replacements);
+			}
 		}
 	}
 }
@@ -20,6 +20,7 @@ package org.quiltmc.loader.impl.transformer;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Set;
 
 import net.fabricmc.accesswidener.AccessWidener;
 import net.fabricmc.api.EnvType;
@@ -37,13 +38,41 @@ import org.objectweb.asm.ClassWriter;
 import net.fabricmc.accesswidener.AccessWidenerClassVisitor;
 
 @QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
-final class QuiltTransformer {
-	public static byte @Nullable [] transform(boolean isDevelopment, EnvType envType, TransformCache cache, AccessWidener accessWidener, String name, ModLoadOption mod, byte[] bytes) {
+public final class QuiltTransformer {
+	static byte @Nullable [] transform(boolean isDevelopment, EnvType envType, TransformCache cache, AccessWidener accessWidener, String name, ModLoadOption mod, byte[] bytes) {
 		boolean isGameClass = mod.id().equals(QuiltLoaderImpl.INSTANCE.getGameProvider().getGameId());
 		boolean transformAccess = isGameClass && QuiltLauncherBase.getLauncher().getMappingConfiguration().requiresPackageAccessHack();
+		return transform(isGameClass, transformAccess, isDevelopment, envType, cache.getAllModIds(), accessWidener, name, bytes, cache, mod);
+	}
+
+	/** Applies the same transformations as the transform cache does, but without needing a game provider or launcher,
+	 * and without recording hidden classes or {@link org.quiltmc.loader.api.Requires} checks anywhere. This exists so
+	 * benchmarks can measure the real transformer.
+	 *
+	 * @param isGameClass True if the class comes from the game, rather than a mod.
+	 * @param transformAccess True if the package access hack should be applied (only to game classes).
+	 * @param modIds The ids of every loaded mod.
+	 * @param name The name of the class, with '.' as the package separator.
+	 * @return The transformed class, or null if the class was unchanged or should be hidden. */
+	public static byte @Nullable [] transform(boolean isGameClass, boolean transformAccess, boolean isDevelopment,
+		EnvType envType, Set<String> modIds, AccessWidener accessWidener, String name, byte[] bytes) {
+		return transform(isGameClass, transformAccess, isDevelopment, envType, modIds, accessWidener, name, bytes, null, null);
+	}
+
+	private static byte @Nullable [] transform(boolean isGameClass, boolean transformAccess, boolean isDevelopment,
+		EnvType envType, Set<String> modIds, AccessWidener accessWidener, String name, byte[] bytes,
+		@Nullable TransformCache cache, @Nullable ModLoadOption mod) {
 		boolean strip = !isGameClass || isDevelopment;
 		boolean applyAccessWidener = isGameClass && accessWidener.getTargets().contains(name);
 
+		if (strip && !ClassStrippingData.mayNeedStripping(bytes)) {
+			if (!transformAccess && !applyAccessWidener) {
+				// Same as visiting the class and finding nothing to strip
+				return null;
+			}
+			strip = false;
+		}
+
 		if (!transformAccess && !strip && !applyAccessWidener) {
 			return bytes;
 		}
@@ -54,11 +83,16 @@ final class QuiltTransformer {
 		int visitorCount = 0;
 
 		if (strip) {
-			ClassStrippingData data = new ClassStrippingData(QuiltLoaderImpl.ASM_VERSION, envType, cache.getAllMods());
+			ClassStrippingData data = new ClassStrippingData(QuiltLoaderImpl.ASM_VERSION, envType, modIds);
 			classReader.accept(data, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+			if (cache != null) {
+				cache.recordRequiredMods(mod, data.getQueriedMods());
+			}
 
 			if (data.stripEntireClass()) {
-				cache.hideClass(name, data.summarizeDenyLoadReasons());
+				if (cache != null) {
+					cache.hideClass(mod, name, data.summarizeDenyLoadReasons());
+				}
 				return null;
 			}
 
@@ -65,8 +65,8 @@ final class RuntimeModRemapper {
 
 	static final boolean COPY_ON_WRITE = true;
 
-	public static void remap(TransformCache cache) {
-		List<ModLoadOption> modsToRemap = cache.getModsInCache().stream()
+	public static void remap(TransformCache cache, List<ModLoadOption> mods) {
+		List<ModLoadOption> modsToRemap = mods.stream()
 				.filter(modLoadOption -> modLoadOption.namespaceMappingFrom() != null)
 				.collect(Collectors.toList());
 		Set<InputTag> remapMixins = new HashSet<>();
@@ -78,7 +78,7 @@ final class RuntimeModRemapper {
 		QuiltLauncher launcher = QuiltLauncherBase.getLauncher();
 
 		TinyRemapper remapper = TinyRemapper.newRemapper()
-				.withMappings(TinyRemapperMappingsHelper.create(launcher.getMappingConfiguration().getMappings(), "intermediary", launcher.getTargetNamespace()))
+				.withMappings(TinyRemapperMappingsHelper.create(launcher.getMappingConfiguration().getCompiledMappings(), "intermediary", launcher.getTargetNamespace()))
 				.renameInvalidLocals(false)
 				.extension(new MixinExtension(remapMixins::contains))
 				.build();
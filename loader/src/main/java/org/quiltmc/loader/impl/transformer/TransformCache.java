@@ -27,6 +27,9 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -34,6 +37,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -62,15 +68,56 @@ class TransformCache {
 	private final Map<ModLoadOption, Path> modRoots = new HashMap<>();
 	private final List<ModLoadOption> allMods;
 	private final List<ModLoadOption> modsInCache;
-	private final Map<String, String> hiddenClasses = new HashMap<>();
+	private final List<ModLoadOption> modsToTransform = new ArrayList<>();
+	private final Set<String> allModIds;
+	@Nullable
+	private final Path previousRoot;
+	// Concurrent since classes can be transformed on multiple threads
+	private final Map<String, String> hiddenClasses = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, String>> hiddenClassesByMod = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, Boolean>> requiredModsByMod = new ConcurrentHashMap<>();
+	private final Map<String, TransformCacheSegment> segments = new TreeMap<>();
 	private static final boolean COPY_ON_WRITE = true;
 
 	public TransformCache(Path root, List<ModLoadOption> orderedMods) {
+		this(root, orderedMods, null, null);
+	}
+
+	/** @param modsToTransform The ids of every mod which needs to be transformed, or null if every mod does.
+	 * @param previousRoot The root of a previous transform cache, which every mod not in modsToTransform will be copied
+	 *            from. */
+	public TransformCache(Path root, List<ModLoadOption> orderedMods, @Nullable Set<String> modsToTransform, @Nullable Path previousRoot) {
 		this.root = root;
 		this.allMods = orderedMods;
-		this.modsInCache = orderedMods.stream().filter(mod -> mod.needsTransforming() && !FableLoaderImpl.MOD_ID.equals(mod.id())).collect(Collectors.toList());
+		this.allModIds = orderedMods.stream().map(ModLoadOption::id).collect(Collectors.toSet());
+		this.modsInCache = orderedMods.stream().filter(TransformCache::isCached).collect(Collectors.toList());
+		this.previousRoot = previousRoot;
 
+		List<ModLoadOption> toTransform = new ArrayList<>();
 		for (ModLoadOption mod : this.modsInCache) {
+			if (modsToTransform == null || modsToTransform.contains(mod.id())) {
+				toTransform.add(mod);
+			} else {
+				reuseSegment(mod);
+			}
+		}
+
+		populate(toTransform);
+	}
+
+	/** @return True if the given mod will have a folder in the transform cache. */
+	static boolean isCached(ModLoadOption mod) {
+		return mod.needsTransforming() && !FableLoaderImpl.MOD_ID.equals(mod.id());
+	}
+
+	/** Copies (or re-copies) the given mods from their original source, and adds them to
+	 * {@link #getModsToTransform()}. */
+	void populate(List<ModLoadOption> mods) {
+		for (ModLoadOption mod : mods) {
+			if (modsToTransform.contains(mod)) {
+				continue;
+			}
+
 			Path modSrc = mod.createTransformRoot();
 			Path modDst = root.resolve(mod.id());
 			modRoots.put(mod, modDst);
@@ -156,12 +203,71 @@ class TransformCache {
 			}
 		}
 		// Populate mods that need remapped
-		RuntimeModRemapper.remap(this);
-		for (ModLoadOption orderedMod : this.modsInCache) {
+		RuntimeModRemapper.remap(this, mods);
+		for (ModLoadOption orderedMod : mods) {
 			modRoots.put(orderedMod, root.resolve(orderedMod.id() + "/"));
+			if (!modsToTransform.contains(orderedMod)) {
+				modsToTransform.add(orderedMod);
+			}
 		}
 	}
 
+	/** Copies the already-transformed files of the given mod from the previous cache, without reading any of them. */
+	private void reuseSegment(ModLoadOption mod) {
+		Path segmentSrc = previousRoot.resolve(mod.id());
+		Path segmentDst = root.resolve(mod.id());
+		modRoots.put(mod, root.resolve(mod.id() + "/"));
+
+		if (!FasterFiles.isDirectory(segmentSrc)) {
+			return;
+		}
+
+		try (Stream<Path> stream = Files.walk(segmentSrc)) {
+			stream
+				.filter(FasterFiles::isRegularFile)
+				.forEach(path -> copyFile(path, segmentSrc, segmentDst));
+		} catch (IOException io) {
+			throw new UncheckedIOException(io);
+		}
+	}
+
+	/** Restores the state recorded by a segment which was reused from the previous cache. */
+	void restoreSegment(ModLoadOption mod, TransformCacheSegment segment) {
+		for (Map.Entry<String, String> entry : segment.hiddenClasses.entrySet()) {
+			hideClass(mod, entry.getKey(), entry.getValue());
+		}
+		if (!segment.requiredMods.isEmpty()) {
+			requiredModsByMod.computeIfAbsent(mod.id(), k -> new ConcurrentHashMap<>()).putAll(segment.requiredMods);
+		}
+	}
+
+	/** Discards the reused files of the given mods, and then copies them from their original source so they can be
+	 * transformed again. Used when something that a reused segment depends on has changed. */
+	void retransform(List<ModLoadOption> mods) throws IOException {
+		for (ModLoadOption mod : mods) {
+			forgetMod(mod);
+			Path segment = root.resolve(mod.id());
+			if (!FasterFiles.isDirectory(segment)) {
+				continue;
+			}
+			Files.walkFileTree(segment, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					Files.delete(file);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+					Files.delete(dir);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+
+		populate(mods);
+	}
+
 	public Path getRoot(ModLoadOption mod) {
 		return modRoots.get(mod);
 	}
@@ -171,28 +277,123 @@ class TransformCache {
 		return Collections.unmodifiableList(modsInCache);
 	}
 
+	/** @return Every mod which needs to be transformed in this cache, rather than being reused from a previous one. */
+	public List<ModLoadOption> getModsToTransform() {
+		return Collections.unmodifiableList(modsToTransform);
+	}
+
 	/** @return The original list of mods, including any which aren't directly in this cache. */
 	public List<ModLoadOption> getAllMods() {
 		return Collections.unmodifiableList(allMods);
 	}
 
+	/** @return The ids of every mod in {@link #getAllMods()}. */
+	public Set<String> getAllModIds() {
+		return Collections.unmodifiableSet(allModIds);
+	}
+
 	public Map<String, String> getHiddenClasses() {
 		return Collections.unmodifiableMap(hiddenClasses);
 	}
 
+	public boolean isHidden(String className) {
+		return hiddenClasses.containsKey(className);
+	}
+
+	/** @return Every class hidden by {@link #hideClass(ModLoadOption, String, String)} for the given mod. */
+	public Map<String, String> getHiddenClasses(ModLoadOption mod) {
+		Map<String, String> map = hiddenClassesByMod.get(mod.id());
+		return map != null ? Collections.unmodifiableMap(map) : Collections.emptyMap();
+	}
+
+	/** Visits every class file in every mod returned by {@link #getModsToTransform()}. */
 	public void forEachClassFile(ClassConsumer action)
 			throws IOException {
-		for (ModLoadOption mod : modsInCache) {
+		forEachClassFile(modsToTransform, action);
+	}
+
+	public void forEachClassFile(List<ModLoadOption> mods, ClassConsumer action)
+			throws IOException {
+		for (ModLoadOption mod : mods) {
 			visitFolder(mod, getRoot(mod), action);
 		}
 	}
 
-	public void hideClass(String className, String denyReason) {
-		hiddenClasses.merge(className, denyReason, (current, nval) -> {
-			return current + "\n" + nval;
+	/** Like {@link #forEachClassFile(List, ClassConsumer)}, but calls the action from {@link TransformWorkers}, so it
+	 * must be thread safe. Every class file is found before any of them are transformed. */
+	public void forEachClassFileInParallel(List<ModLoadOption> mods, ClassConsumer action)
+			throws IOException {
+		int threadCount = TransformWorkers.getThreadCount();
+		if (threadCount <= 1) {
+			forEachClassFile(mods, action);
+			return;
+		}
+
+		List<ClassFile> classFiles = new ArrayList<>();
+		forEachClassFile(mods, (mod, name, file) -> {
+			classFiles.add(new ClassFile(mod, name, file));
+			return null;
+		});
+
+		TransformWorkers.forEach(classFiles, threadCount, classFile -> {
+			byte[] result = action.run(classFile.mod, classFile.name, classFile.file);
+			if (result != null) {
+				Files.write(classFile.file, result);
+			}
 		});
 	}
 
+	public void hideClass(ModLoadOption mod, String className, String denyReason) {
+		hiddenClasses.merge(className, denyReason, TransformCache::mergeDenyReasons);
+		hiddenClassesByMod.computeIfAbsent(mod.id(), k -> new ConcurrentHashMap<>())
+			.merge(className, denyReason, TransformCache::mergeDenyReasons);
+	}
+
+	/** Joins two deny reasons in sorted order, so the result doesn't depend on which thread got there first. */
+	private static String mergeDenyReasons(String current, String added) {
+		Set<String> reasons = new TreeSet<>(Arrays.asList(current.split("\n")));
+		reasons.add(added);
+		return String.join("\n", reasons);
+	}
+
+	/** Records the result of every {@link org.quiltmc.loader.api.Requires} check made while stripping a class from the
+	 * given mod. */
+	public void recordRequiredMods(ModLoadOption mod, Set<String> queried) {
+		if (queried.isEmpty()) {
+			return;
+		}
+		Map<String, Boolean> map = requiredModsByMod.computeIfAbsent(mod.id(), k -> new ConcurrentHashMap<>());
+		Set<String> present = allModIds;
+		for (String id : queried) {
+			map.put(id, present.contains(id));
+		}
+	}
+
+	/** @return Every mod id checked by {@link #recordRequiredMods(ModLoadOption, Set)}, mapped to whether it was
+	 *         present. */
+	public Map<String, Boolean> getRequiredMods(ModLoadOption mod) {
+		Map<String, Boolean> map = requiredModsByMod.get(mod.id());
+		return map != null ? Collections.unmodifiableMap(map) : Collections.emptyMap();
+	}
+
+	void putSegment(TransformCacheSegment segment) {
+		segments.put(segment.modId, segment);
+	}
+
+	/** @return Every segment in this cache, once it has been fully generated. */
+	Collection<TransformCacheSegment> getSegments() {
+		return Collections.unmodifiableCollection(segments.values());
+	}
+
+	/** Forgets everything recorded about the given mod, since it's about to be transformed again. */
+	void forgetMod(ModLoadOption mod) {
+		Map<String, String> hidden = hiddenClassesByMod.remove(mod.id());
+		if (hidden != null) {
+			hiddenClasses.keySet().removeAll(hidden.keySet());
+		}
+		requiredModsByMod.remove(mod.id());
+	}
+
 	private static void copyFile(Path path, Path modSrc, Path modDst, CopyOption... copyOptions) {
 		if (!FasterFiles.exists(path)) {
 			return;
@@ -277,6 +478,18 @@ class TransformCache {
 		});
 	}
 
+	private static final class ClassFile {
+		final ModLoadOption mod;
+		final String name;
+		final Path file;
+
+		ClassFile(ModLoadOption mod, String name, Path file) {
+			this.mod = mod;
+			this.name = name;
+			this.file = file;
+		}
+	}
+
 	@FunctionalInterface
 	public interface ClassConsumer {
 		/**
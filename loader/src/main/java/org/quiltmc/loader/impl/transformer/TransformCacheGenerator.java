@@ -22,9 +22,18 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
 
 import org.quiltmc.loader.api.FasterFiles;
 import org.quiltmc.loader.api.QuiltLoader;
@@ -35,6 +44,8 @@ import org.quiltmc.loader.impl.launch.common.QuiltLauncherBase;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
 import org.quiltmc.loader.impl.util.SystemProperties;
+import org.quiltmc.loader.impl.util.log.Log;
+import org.quiltmc.loader.impl.util.log.LogCategory;
 
 import net.fabricmc.accesswidener.AccessWidener;
 import net.fabricmc.accesswidener.AccessWidenerReader;
@@ -43,15 +54,118 @@ import net.fabricmc.accesswidener.AccessWidenerReader;
 final class TransformCacheGenerator {
 
 
-	static TransformCache generate(Path root, List<ModLoadOption> modList) throws ModResolutionException, IOException {
-		TransformCache cache = new TransformCache(root, modList);
+	static TransformCache generate(Path root, List<ModLoadOption> modList, Map<String, Map<String, String>> segmentKeys)
+		throws ModResolutionException, IOException {
+		return generate(root, modList, segmentKeys, null, null, Collections.emptyMap());
+	}
+
+	/** Generates a transform cache, reusing every segment from the previous cache which isn't in modsToTransform.
+	 *
+	 * @param segmentKeys The {@link TransformCacheSegment#key} of every mod in the cache.
+	 * @param modsToTransform Every mod id which must be transformed, or null if every mod must be transformed.
+	 * @param previousRoot The root of the previous cache, or null if modsToTransform is null.
+	 * @param previousSegments Every segment in the previous cache which can be reused, as long as the segments it
+	 *            depends on are unchanged. */
+	static TransformCache generate(Path root, List<ModLoadOption> modList, Map<String, Map<String, String>> segmentKeys,
+		@Nullable Set<String> modsToTransform, @Nullable Path previousRoot,
+		Map<String, TransformCacheSegment> previousSegments) throws ModResolutionException, IOException {
+
+		TransformCache cache = new TransformCache(root, modList, modsToTransform, previousRoot);
+		List<ModLoadOption> reused = new ArrayList<>();
+		for (ModLoadOption mod : cache.getModsInCache()) {
+			if (!cache.getModsToTransform().contains(mod)) {
+				reused.add(mod);
+				cache.restoreSegment(mod, previousSegments.get(mod.id()));
+			}
+		}
 		QuiltMapFileSystem.dumpEntries(root.getFileSystem(), "after-copy");
 
 		// Transform time!
 		// Load AWs
 		AccessWidener accessWidener = loadAccessWideners(cache);
+		InternalsHiderTransform internalsHider = new InternalsHiderTransform(InternalsHiderTransform.Target.MOD);
+		Map<Path, ScannedClass> classes = new ConcurrentHashMap<>();
+
+		// Chasm can change any class after it's been transformed, so the internals hider can't scan them until it's done
+		boolean enableChasm = Boolean.getBoolean(SystemProperties.ENABLE_EXPERIMENTAL_CHASM);
+
 		// game provider transformer and QuiltTransformer
-		cache.forEachClassFile((mod, name, file) -> {
+		// (and the internals hider scan, since the class is already in memory)
+		transformClasses(cache, accessWidener, enableChasm ? null : internalsHider, classes, cache.getModsToTransform());
+
+		// chasm
+		if (enableChasm) {
+			ChasmInvoker.applyChasm(cache);
+			scanClasses(cache, internalsHider, classes, cache.getModsToTransform());
+		}
+
+		// Reused segments have already been through the internals hider, but any annotations they declare still apply
+		// to the mods which are being transformed
+		List<ModLoadOption> reusedInternals = new ArrayList<>();
+		for (ModLoadOption mod : reused) {
+			if (!previousSegments.get(mod.id()).internalsHash.isEmpty()) {
+				reusedInternals.add(mod);
+			}
+		}
+		cache.forEachClassFile(reusedInternals, (mod, name, file) -> {
+			internalsHider.scanClass(mod, file, Files.readAllBytes(file));
+			return null;
+		});
+
+		// A reused segment is only valid if the annotations it was hidden against haven't changed.
+		// Transforming it again can change its own annotations too, so keep going until nothing else changes.
+		while (true) {
+			List<ModLoadOption> invalid = new ArrayList<>();
+			for (ModLoadOption mod : reused) {
+				String reason = findChangedDependency(cache, internalsHider, previousSegments.get(mod.id()));
+				if (reason != null) {
+					invalid.add(mod);
+					Log.info(LogCategory.CACHE, "Transforming '" + mod.id() + "' again since " + reason);
+				}
+			}
+
+			if (invalid.isEmpty()) {
+				break;
+			}
+
+			reused.removeAll(invalid);
+			for (ModLoadOption mod : invalid) {
+				internalsHider.forgetMod(mod);
+			}
+			cache.retransform(invalid);
+			transformClasses(cache, accessWidener, internalsHider, classes, invalid);
+		}
+
+		// internals hider
+		// only classes which reference something with an annotation set are read again, rather than keeping every
+		// class in memory (which would have memory complexity proportional to mod count)
+		internalsHider.prepareRewrite();
+		for (Map.Entry<Path, ScannedClass> entry : classes.entrySet()) {
+			ScannedClass scanned = entry.getValue();
+			if (!internalsHider.mightNeedRewrite(scanned.packages)) {
+				continue;
+			}
+			byte[] classBytes = Files.readAllBytes(entry.getKey());
+			byte[] newBytes = internalsHider.runIfNeeded(scanned.mod, classBytes);
+			if (newBytes != null) {
+				Files.write(entry.getKey(), newBytes);
+			}
+		}
+
+		internalsHider.finish();
+
+		createSegments(cache, internalsHider, segmentKeys, reused, previousSegments);
+
+		return cache;
+	}
+
+	/** @param internalsHider If not null, every class which isn't hidden is also scanned by the internals hider, and
+	 *            added to the classes map. */
+	private static void transformClasses(TransformCache cache, AccessWidener accessWidener,
+		@Nullable InternalsHiderTransform internalsHider, Map<Path, ScannedClass> classes, List<ModLoadOption> mods)
+		throws IOException {
+
+		cache.forEachClassFileInParallel(mods, (mod, name, file) -> {
 
 			byte[] classBytes = QuiltLauncherBase.getLauncher().getEntrypointTransformer().transform(name);
 
@@ -59,7 +173,7 @@ final class TransformCacheGenerator {
 				classBytes = Files.readAllBytes(file);
 			}
 
-			return QuiltTransformer.transform(
+			byte[] result = QuiltTransformer.transform(
 					QuiltLoader.isDevelopmentEnvironment(),
 					QuiltLauncherBase.getLauncher().getEnvironmentType(),
 					cache,
@@ -68,36 +182,113 @@ final class TransformCacheGenerator {
 					mod,
 					classBytes
 			);
+
+			if (internalsHider != null && !cache.isHidden(name)) {
+				scanClass(internalsHider, classes, mod, file, result != null ? result : classBytes);
+			}
+
+			return result;
 		});
+	}
 
-		// chasm
-		if (Boolean.getBoolean(SystemProperties.ENABLE_EXPERIMENTAL_CHASM)) {
-			ChasmInvoker.applyChasm(cache);
-		}
-		InternalsHiderTransform internalsHider = new InternalsHiderTransform(InternalsHiderTransform.Target.MOD);
-		Map<Path, ModLoadOption> classes = new HashMap<>();
+	private static void scanClasses(TransformCache cache, InternalsHiderTransform internalsHider,
+		Map<Path, ScannedClass> classes, List<ModLoadOption> mods) throws IOException {
 
-		// internals hider
-		// the double read is necessary to avoid storing all classes in memory at once, and thus having memory complexity
-		// proportional to mod count
-		cache.forEachClassFile((mod, name, file) -> {
-			byte[] classBytes = Files.readAllBytes(file);
-			classes.put(file, mod);
-			internalsHider.scanClass(mod, file, classBytes);
+		cache.forEachClassFile(mods, (mod, name, file) -> {
+			scanClass(internalsHider, classes, mod, file, Files.readAllBytes(file));
 			return null;
 		});
+	}
 
-		for (Map.Entry<Path, ModLoadOption> entry : classes.entrySet()) {
-			byte[] classBytes = Files.readAllBytes(entry.getKey());
-			byte[] newBytes = internalsHider.run(entry.getValue(), classBytes);
-			if (newBytes != null) {
-				Files.write(entry.getKey(), newBytes);
+	private static void scanClass(InternalsHiderTransform internalsHider, Map<Path, ScannedClass> classes,
+		ModLoadOption mod, Path file, byte[] classBytes) {
+
+		ClassReader reader;
+		try {
+			reader = new ClassReader(classBytes);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Failed to read the class " + file + " from mod " + mod.id(), e);
+		}
+		internalsHider.scanClass(mod, reader);
+		classes.put(file, new ScannedClass(mod, internalsHider.scanReferences(mod, reader)));
+	}
+
+	/** @return A description of the first annotation change which affects the given reused segment, or null if none of
+	 *         them do. */
+	@Nullable
+	private static String findChangedDependency(TransformCache cache, InternalsHiderTransform internalsHider,
+		TransformCacheSegment segment) {
+
+		for (Map.Entry<String, String> dep : segment.dependencies.entrySet()) {
+			if (!internalsHider.getAnnotationHash(dep.getKey()).equals(dep.getValue())) {
+				return "the internal annotations of '" + dep.getKey() + "' changed";
 			}
 		}
 
-		internalsHider.finish();
+		// A transformed mod which didn't exist (or didn't share a package) when the segment was generated
+		// might now declare annotations that affect it
+		for (ModLoadOption other : cache.getModsToTransform()) {
+			if (!segment.dependencies.containsKey(other.id()) && !internalsHider.getAnnotationHash(other.id()).isEmpty()) {
+				return "'" + other.id() + "' declares internal annotations";
+			}
+		}
 
-		return cache;
+		return null;
+	}
+
+	private static void createSegments(TransformCache cache, InternalsHiderTransform internalsHider,
+		Map<String, Map<String, String>> segmentKeys, List<ModLoadOption> reused,
+		Map<String, TransformCacheSegment> previousSegments) throws IOException {
+
+		// Only the file names are needed here, so this is a lot cheaper than reading every class
+		Map<String, Set<String>> packageToMods = new HashMap<>();
+		for (ModLoadOption mod : cache.getModsInCache()) {
+			Path modRoot = cache.getRoot(mod);
+			if (!FasterFiles.isDirectory(modRoot)) {
+				continue;
+			}
+			try (Stream<Path> stream = Files.walk(modRoot)) {
+				stream.filter(path -> path.getFileName() != null && path.getFileName().toString().endsWith(".class"))
+					.forEach(path -> {
+						Path parent = modRoot.relativize(path).getParent();
+						String pkg = parent == null ? "" : parent.toString().replace(modRoot.getFileSystem().getSeparator(), "/");
+						packageToMods.computeIfAbsent(pkg, k -> new HashSet<>()).add(mod.id());
+					});
+			}
+		}
+
+		for (ModLoadOption mod : cache.getModsInCache()) {
+			if (reused.contains(mod)) {
+				cache.putSegment(previousSegments.get(mod.id()));
+				continue;
+			}
+
+			TransformCacheSegment segment = new TransformCacheSegment(mod.id(), segmentKeys.get(mod.id()));
+			segment.requiredMods.putAll(cache.getRequiredMods(mod));
+			segment.hiddenClasses.putAll(cache.getHiddenClasses(mod));
+			segment.internalsHash = internalsHider.getAnnotationHash(mod.id());
+
+			for (String pkg : internalsHider.getReferencedPackages(mod.id())) {
+				for (String other : packageToMods.getOrDefault(pkg, Collections.emptySet())) {
+					if (!other.equals(mod.id())) {
+						segment.dependencies.put(other, internalsHider.getAnnotationHash(other));
+					}
+				}
+			}
+
+			cache.putSegment(segment);
+		}
+	}
+
+	/** A class which has been scanned by the internals hider, but not rewritten yet. */
+	private static final class ScannedClass {
+		final ModLoadOption mod;
+		final Set<String> packages;
+
+		ScannedClass(ModLoadOption mod, Set<String> packages) {
+			this.mod = mod;
+			this.packages = packages;
+		}
 	}
 
 	private static AccessWidener loadAccessWideners(TransformCache cache) {
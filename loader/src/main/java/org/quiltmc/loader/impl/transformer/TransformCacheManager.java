@@ -29,6 +29,7 @@ import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collections;
 import java.util.HashMap;
@@ -36,12 +37,18 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.Nullable;
 
 import org.quiltmc.loader.api.FasterFiles;
 import org.quiltmc.loader.api.QuiltLoader;
 import org.quiltmc.loader.api.plugin.solver.ModLoadOption;
 import org.quiltmc.loader.api.plugin.solver.ModSolveResult;
+import org.quiltmc.loader.impl.QuiltLoaderImpl;
 import org.quiltmc.loader.impl.discovery.ModResolutionException;
 import org.quiltmc.loader.impl.filesystem.PartiallyWrittenIOException;
 import org.quiltmc.loader.impl.filesystem.QuiltMapFileSystem;
@@ -49,8 +56,10 @@ import org.quiltmc.loader.impl.filesystem.QuiltUnifiedFileSystem;
 import org.quiltmc.loader.impl.filesystem.QuiltUnifiedPath;
 import org.quiltmc.loader.impl.filesystem.QuiltZipFileSystem;
 import org.quiltmc.loader.impl.filesystem.QuiltZipPath;
+import org.quiltmc.loader.impl.launch.common.QuiltLauncherBase;
 import org.quiltmc.loader.impl.util.FilePreloadHelper;
 import org.quiltmc.loader.impl.util.FileSystemUtil;
+import org.quiltmc.loader.impl.util.HashUtil;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
 import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
 import org.quiltmc.loader.impl.util.SystemProperties;
@@ -59,6 +68,7 @@ import org.quiltmc.loader.impl.util.log.LogCategory;
 import org.quiltmc.parsers.json.JsonReader;
 import org.quiltmc.parsers.json.JsonToken;
 import org.quiltmc.parsers.json.JsonWriter;
+import org.quiltmc.parsers.json.ParseException;
 
 @QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
 public class TransformCacheManager {
@@ -69,45 +79,69 @@ public class TransformCacheManager {
 	public static final String TRANSFORM_CACHE_NONMOD_CLASSLOADABLE = "Unknown Mod";
 
 	private static final String CACHE_FILE = "files.zip";
+	private static final String NEXT_CACHE_FILE = "files-next.zip";
+
+	/** Prefix of the jar files that {@link QuiltLoaderImpl} copies transformed mods into. */
+	static final String TRANSFORMED_JAR_PREFIX = "transformed-mod-";
+
+	/** Folder inside the cache which stores every {@link TransformCacheSegment}. */
+	static final String SEGMENTS_FOLDER = "__segments";
+
+	/** Changed whenever the layout of the cache changes, so that older caches aren't reused. */
+	private static final String SEGMENT_FORMAT = "segmented-1";
 
 	private static final String FILE_TRANSFORM_COMPLETE = "__TRANSFORM_COMPLETE";
 	private static final String DENY_LOAD_REASONS_PATH = "deny_load_reasons.json";
 
 	public static TransformCacheResult populateTransformBundle(Path transformCacheFolder, List<ModLoadOption> modList,
 		Map<String, String> modOriginHash, ModSolveResult result) throws ModResolutionException {
+		// Only options which affect every mod go here - everything else is checked per-segment
 		Map<String, String> map = new TreeMap<>();
-		// Mod order is important? For now, assume it is
-		int index = 0;
-		for (ModLoadOption mod : modList) {
-			map.put("mod#" + index++, mod.id());
-		}
-
-		for (Entry<String, ModLoadOption> provided : result.providedMods().entrySet()) {
-			map.put("provided-mod:" + provided.getKey(), provided.getValue().metadata().id());
-		}
-
-		for (Entry<String, ModLoadOption> mod : result.directMods().entrySet()) {
-			ModLoadOption modOption = mod.getValue();
-			String name = modOption.from().getFileName().toString();
-			map.put("mod:" + mod.getKey(), name + " " + modOriginHash.get(modOption.id()));
-		}
+		map.put("format", SEGMENT_FORMAT);
+		map.put("environment", QuiltLauncherBase.getLauncher().getEnvironmentType().name());
 
 		boolean enableChasm = Boolean.getBoolean(SystemProperties.ENABLE_EXPERIMENTAL_CHASM);
 		map.put("system-property:" + SystemProperties.ENABLE_EXPERIMENTAL_CHASM, "" + enableChasm);
 
+		Map<String, Map<String, String>> segmentKeys = computeSegmentKeys(modList, modOriginHash);
+
 		try {
 			Files.createDirectories(transformCacheFolder.getParent());
 		} catch (IOException e) {
 			throw new ModResolutionException("Failed to create parent directories of the transform cache file!", e);
 		}
 
+		Path cacheFile = transformCacheFolder.resolve(CACHE_FILE);
 		QuiltZipPath existing = checkTransformCache(transformCacheFolder, map);
 		boolean isNewlyGenerated = false;
 		if (existing == null) {
-			existing = createTransformCache(transformCacheFolder.resolve(CACHE_FILE), toString(map), modList);
+			existing = createTransformCache(cacheFile, toString(map), modList, segmentKeys, null, null, null);
 			isNewlyGenerated = true;
-		} else if (!Boolean.getBoolean(SystemProperties.DISABLE_PRELOAD_TRANSFORM_CACHE)) {
-			FilePreloadHelper.preLoad(transformCacheFolder.resolve(CACHE_FILE));
+		} else {
+			Map<String, TransformCacheSegment> reusable = new HashMap<>();
+			Set<String> modsToTransform = checkSegments(existing, modList, segmentKeys, reusable);
+
+			if (modsToTransform == null) {
+				if (!Boolean.getBoolean(SystemProperties.DISABLE_PRELOAD_TRANSFORM_CACHE)) {
+					FilePreloadHelper.preLoad(cacheFile);
+				}
+			} else {
+				if (enableChasm || Boolean.getBoolean(SystemProperties.DISABLE_INCREMENTAL_TRANSFORM_CACHE)) {
+					// Chasm transformers can change any class, so the segments aren't independent
+					Log.info(LogCategory.CACHE, "Not reusing any segments of the previous transform cache since "
+						+ (enableChasm ? "chasm is enabled" : "incremental generation is disabled"));
+					modsToTransform = null;
+					reusable.clear();
+				} else {
+					Log.info(LogCategory.CACHE, "Reusing " + reusable.size() + " of " + segmentKeys.size()
+						+ " segments from the previous transform cache");
+				}
+
+				existing = regenerateTransformCache(
+					transformCacheFolder, cacheFile, map, modList, segmentKeys, modsToTransform, reusable
+				);
+				isNewlyGenerated = true;
+			}
 		}
 		try {
 			Map<String, String> hiddenClasses = new HashMap<>();
@@ -120,12 +154,199 @@ public class TransformCacheManager {
 				}
 				reader.endObject();
 			}
-			return new TransformCacheResult(existing, isNewlyGenerated, hiddenClasses);
+			String cacheKey = computeCacheKey(map, segmentKeys);
+			return new TransformCacheResult(existing, isNewlyGenerated, hiddenClasses, cacheKey);
 		} catch (IOException e) {
 			throw new ModResolutionException("Failed to read hidden classes in the transform cache file!", e);
 		}
 	}
 
+	private static String computeCacheKey(Map<String, String> options, Map<String, Map<String, String>> segmentKeys) {
+		StringBuilder sb = new StringBuilder(toString(options));
+		for (Map.Entry<String, Map<String, String>> entry : new TreeMap<>(segmentKeys).entrySet()) {
+			sb.append("[").append(entry.getKey()).append("]\n");
+			sb.append(toString(new TreeMap<>(entry.getValue())));
+		}
+		return HashUtil.hashToString(HashUtil.computeHash(sb.toString()));
+	}
+
+	/** Computes the {@link TransformCacheSegment#key} of every mod which is stored in the transform cache. */
+	private static Map<String, Map<String, String>> computeSegmentKeys(List<ModLoadOption> modList,
+		Map<String, String> modOriginHash) {
+
+		String gameId = QuiltLoaderImpl.INSTANCE.getGameProvider().getGameId();
+		Set<String> accessWideners = new TreeSet<>();
+		Set<String> remapInputs = new TreeSet<>();
+
+		for (ModLoadOption mod : modList) {
+			String origin = mod.id() + " " + modOriginHash.get(mod.id());
+			if (!mod.metadata().accessWideners().isEmpty()) {
+				accessWideners.add(origin);
+			}
+			// Remapping reads every other remapped mod, and the game itself
+			if (mod.namespaceMappingFrom() != null || mod.id().equals(gameId)) {
+				remapInputs.add(origin);
+			}
+		}
+
+		Map<String, Map<String, String>> keys = new TreeMap<>();
+		for (ModLoadOption mod : modList) {
+			if (!TransformCache.isCached(mod)) {
+				continue;
+			}
+
+			Map<String, String> key = new TreeMap<>();
+			key.put("origin", mod.from().getFileName() + " " + modOriginHash.get(mod.id()));
+
+			if (mod.id().equals(gameId)) {
+				key.put("access-wideners", String.join(", ", accessWideners));
+				key.put("package-access-hack", "" + QuiltLauncherBase.getLauncher().getMappingConfiguration().requiresPackageAccessHack());
+			}
+
+			if (mod.namespaceMappingFrom() != null) {
+				key.put("remap-inputs", String.join(", ", remapInputs));
+			}
+
+			keys.put(mod.id(), key);
+		}
+		return keys;
+	}
+
+	/** Checks every segment in the given cache against the current mod list.
+	 *
+	 * @param reusable Populated with every segment that could be reused.
+	 * @return The ids of every mod which needs to be transformed, or null if the whole cache can be reused as-is. */
+	@Nullable
+	private static Set<String> checkSegments(QuiltZipPath cacheRoot, List<ModLoadOption> modList,
+		Map<String, Map<String, String>> segmentKeys, Map<String, TransformCacheSegment> reusable)
+		throws ModResolutionException {
+
+		Set<String> currentMods = new HashSet<>();
+		for (ModLoadOption mod : modList) {
+			currentMods.add(mod.id());
+		}
+
+		Set<String> modsToTransform = new TreeSet<>();
+		Map<String, String> differences = new TreeMap<>();
+
+		for (Map.Entry<String, Map<String, String>> entry : segmentKeys.entrySet()) {
+			String modId = entry.getKey();
+			TransformCacheSegment segment;
+			try {
+				segment = TransformCacheSegment.read(cacheRoot, modId);
+			} catch (IOException | ParseException e) {
+				Log.warn(LogCategory.CACHE, "Failed to read the transform cache segment for '" + modId + "'", e);
+				segment = null;
+			}
+
+			String difference = segment == null ? "it's new" : segment.findDifference(entry.getValue(), currentMods);
+			if (difference == null) {
+				reusable.put(modId, segment);
+			} else {
+				modsToTransform.add(modId);
+				differences.put(modId, difference);
+			}
+		}
+
+		if (modsToTransform.isEmpty()) {
+			boolean removedAny = false;
+			try (Stream<Path> stream = Files.list(cacheRoot.resolve(SEGMENTS_FOLDER))) {
+				removedAny = stream.anyMatch(path -> {
+					String name = path.getFileName().toString();
+					return !segmentKeys.containsKey(name.substring(0, name.length() - ".json".length()));
+				});
+			} catch (IOException e) {
+				removedAny = true;
+			}
+
+			if (!removedAny && allDependenciesMatch(reusable)) {
+				return null;
+			}
+		}
+
+		if (SHOW_KEY_DIFFERENCE) {
+			for (Map.Entry<String, String> entry : differences.entrySet()) {
+				Log.info(LogCategory.CACHE, "  Transforming '" + entry.getKey() + "' since " + entry.getValue());
+			}
+		} else if (!differences.isEmpty()) {
+			Log.info(LogCategory.CACHE, differences.size() + " transform cache segments have changed."
+				+ " (Add '-D" + SystemProperties.LOG_CACHE_KEY_CHANGES + "=true' to see all changes).");
+		}
+
+		return modsToTransform;
+	}
+
+	private static boolean allDependenciesMatch(Map<String, TransformCacheSegment> segments) {
+		for (TransformCacheSegment segment : segments.values()) {
+			for (Map.Entry<String, String> dep : segment.dependencies.entrySet()) {
+				TransformCacheSegment other = segments.get(dep.getKey());
+				if (other == null || !other.internalsHash.equals(dep.getValue())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/** Generates a new transform cache next to the previous one (reusing as many segments as possible), and then
+	 * replaces it. */
+	private static QuiltZipPath regenerateTransformCache(Path transformCacheFolder, Path cacheFile,
+		Map<String, String> options, List<ModLoadOption> modList, Map<String, Map<String, String>> segmentKeys,
+		@Nullable Set<String> modsToTransform, Map<String, TransformCacheSegment> reusable)
+		throws ModResolutionException {
+
+		Path nextFile = transformCacheFolder.resolve(NEXT_CACHE_FILE);
+		try {
+			Files.deleteIfExists(nextFile);
+		} catch (IOException e) {
+			throw new ModResolutionException("Failed to delete " + nextFile, e);
+		}
+
+		try (QuiltZipFileSystem previous = new QuiltZipFileSystem("transform-cache-previous", cacheFile, "")) {
+			QuiltZipPath next = createTransformCache(
+				nextFile, toString(options), modList, segmentKeys, modsToTransform, previous.getRoot(), reusable
+			);
+			next.getFileSystem().close();
+		} catch (IOException | IOError io) {
+			Log.info(LogCategory.CACHE, "Not reusing previous transform cache since something went wrong while reading it!");
+			erasePreviousTransformCache(transformCacheFolder, cacheFile, io);
+			return createTransformCache(cacheFile, toString(options), modList, segmentKeys, null, null, null);
+		}
+
+		try {
+			// Anything derived from the previous cache is out of date now
+			Files.walkFileTree(transformCacheFolder, Collections.emptySet(), 1, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					if (!file.equals(nextFile) && isOutdatedFile(file.getFileName().toString(), modsToTransform)) {
+						delete(file, attrs);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+			Files.move(nextFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new ModResolutionException("Failed to replace the previous transform cache file " + cacheFile, e);
+		}
+
+		return openCache(cacheFile);
+	}
+
+	private static boolean isOutdatedFile(String fileName, @Nullable Set<String> modsToTransform) {
+		if (fileName.equals(CACHE_FILE)) {
+			return false;
+		}
+		if (modsToTransform == null || !fileName.startsWith(TRANSFORMED_JAR_PREFIX)) {
+			return true;
+		}
+		for (String modId : modsToTransform) {
+			if (fileName.startsWith(TRANSFORMED_JAR_PREFIX + modId + "-v")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private static String toString(Map<String, String> map) {
 		StringBuilder optionList = new StringBuilder();
 		for (Entry<String, String> entry : map.entrySet()) {
@@ -245,7 +466,7 @@ public class TransformCacheManager {
 			Files.walkFileTree(transformCacheFolder, Collections.emptySet(), 1, new SimpleFileVisitor<Path>() {
 				@Override
 				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-					Files.delete(file);
+					delete(file, attrs);
 					return FileVisitResult.CONTINUE;
 				}
 			});
@@ -260,10 +481,38 @@ public class TransformCacheManager {
 		}
 	}
 
+	/** Deletes a file directly inside the transform cache folder. The only folders there are the ones which store
+	 * patched classes, which are always regenerated along with the transform cache so they don't grow forever. */
+	private static void delete(Path file, BasicFileAttributes attrs) throws IOException {
+		if (!attrs.isDirectory()) {
+			Files.delete(file);
+			return;
+		}
+
+		Files.walkFileTree(file, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				if (exc != null) {
+					throw exc;
+				}
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
 	static final boolean WRITE_CUSTOM = true;
 
-	private static QuiltZipPath createTransformCache(Path transformCacheFile, String options, List<
-		ModLoadOption> modList) throws ModResolutionException {
+	private static QuiltZipPath createTransformCache(Path transformCacheFile, String options,
+		List<ModLoadOption> modList, Map<String, Map<String, String>> segmentKeys,
+		@Nullable Set<String> modsToTransform, @Nullable Path previousRoot,
+		@Nullable Map<String, TransformCacheSegment> previousSegments) throws ModResolutionException {
 
 		try {
 			Files.createDirectories(transformCacheFile.getParent());
@@ -274,7 +523,7 @@ public class TransformCacheManager {
 		if (!Boolean.getBoolean(SystemProperties.DISABLE_OPTIMIZED_COMPRESSED_TRANSFORM_CACHE)) {
 			try (QuiltUnifiedFileSystem fs = new QuiltUnifiedFileSystem("transform-cache", true)) {
 				Path root = fs.getRoot();
-				writeTransformCache(options, modList, root);
+				writeTransformCache(options, modList, root, segmentKeys, modsToTransform, previousRoot, previousSegments);
 				QuiltZipFileSystem.writeQuiltCompressedFileSystem(root, transformCacheFile);
 
 				return openCache(transformCacheFile);
@@ -289,7 +538,7 @@ public class TransformCacheManager {
 
 			Path inner = fs.get().getPath("/");
 
-			writeTransformCache(options, modList, inner);
+			writeTransformCache(options, modList, inner, segmentKeys, modsToTransform, previousRoot, previousSegments);
 
 		} catch (IOException e) {
 			throw new ModResolutionException("Failed to create the transform bundle!", e);
@@ -300,8 +549,19 @@ public class TransformCacheManager {
 		return openCache(transformCacheFile);
 	}
 
-	private static void writeTransformCache(String options, List<ModLoadOption> modList, Path root) throws ModResolutionException, IOException {
-		TransformCache cache = TransformCacheGenerator.generate(root, modList);
+	private static void writeTransformCache(String options, List<ModLoadOption> modList, Path root,
+		Map<String, Map<String, String>> segmentKeys, @Nullable Set<String> modsToTransform,
+		@Nullable Path previousRoot, @Nullable Map<String, TransformCacheSegment> previousSegments)
+		throws ModResolutionException, IOException {
+
+		TransformCache cache;
+		if (previousRoot == null) {
+			cache = TransformCacheGenerator.generate(root, modList, segmentKeys);
+		} else {
+			cache = TransformCacheGenerator.generate(
+				root, modList, segmentKeys, modsToTransform, previousRoot, previousSegments
+			);
+		}
 		QuiltMapFileSystem.dumpEntries(root.getFileSystem(), "after-populate");
 		Files.write(root.resolve("options.txt"), options.getBytes(StandardCharsets.UTF_8));
 		try (JsonWriter json = JsonWriter.json(Files.newBufferedWriter(root.resolve(DENY_LOAD_REASONS_PATH)))) {
@@ -309,12 +569,15 @@ public class TransformCacheManager {
 				json.setIndent(" ");
 			}
 			json.beginObject();
-			for (Map.Entry<String,String> entry : cache.getHiddenClasses().entrySet()) {
+			for (Map.Entry<String,String> entry : new TreeMap<>(cache.getHiddenClasses()).entrySet()) {
 				json.name(entry.getKey());
 				json.value(entry.getValue());
 			}
 			json.endObject();
 		}
+		for (TransformCacheSegment segment : cache.getSegments()) {
+			segment.write(root);
+		}
 		Files.createFile(root.resolve(FILE_TRANSFORM_COMPLETE));
 	}
 
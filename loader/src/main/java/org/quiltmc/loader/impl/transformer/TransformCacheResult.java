@@ -29,10 +29,14 @@ public class TransformCacheResult {
 	public final QuiltZipPath transformCacheRoot;
 	public final boolean isNewlyGenerated;
 	public final Map<String, String> hiddenClasses;
+	/** A hash of every input to the transform cache. This changes whenever any class in the cache might change. */
+	public final String cacheKey;
 
-	TransformCacheResult(QuiltZipPath transformCacheRoot, boolean isNewlyGenerated, Map<String, String> hiddenClasses) {
+	TransformCacheResult(QuiltZipPath transformCacheRoot, boolean isNewlyGenerated, Map<String, String> hiddenClasses,
+		String cacheKey) {
 		this.isNewlyGenerated = isNewlyGenerated;
 		this.transformCacheRoot = transformCacheRoot;
 		this.hiddenClasses = hiddenClasses;
+		this.cacheKey = cacheKey;
 	}
 }
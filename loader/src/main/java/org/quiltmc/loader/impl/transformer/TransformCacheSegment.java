@@ -0,0 +1,192 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.transformer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.api.FasterFiles;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.parsers.json.JsonReader;
+import org.quiltmc.parsers.json.JsonToken;
+import org.quiltmc.parsers.json.JsonWriter;
+
+/** The stored state of a single mod in the transform cache. Each mod is transformed independently of every other mod,
+ * except for the inputs recorded here - so a segment can be reused from a previous cache as long as all of these
+ * inputs are still the same.
+ * <p>
+ * A segment is stored as "{@value TransformCacheManager#SEGMENTS_FOLDER}/&lt;modid&gt;.json" inside the transform
+ * cache, alongside the transformed files themselves in "&lt;modid&gt;/". */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class TransformCacheSegment {
+
+	final String modId;
+
+	/** Inputs which are known before the segment is generated, for example the origin hash of the mod, or the access
+	 * wideners which apply to the game. */
+	final Map<String, String> key;
+
+	/** Every mod id which was checked by a {@link org.quiltmc.loader.api.Requires} annotation, mapped to whether it
+	 * was present. */
+	final Map<String, Boolean> requiredMods = new TreeMap<>();
+
+	/** Every other segment which declares classes in a package that this segment references, mapped to the
+	 * {@link #internalsHash} of that segment when this segment was generated. */
+	final Map<String, String> dependencies = new TreeMap<>();
+
+	/** Every class which is hidden from this segment, mapped to the reason why. */
+	final Map<String, String> hiddenClasses = new TreeMap<>();
+
+	/** The hash of every {@link org.quiltmc.loader.api.ModInternal} annotation declared by this segment, or the empty
+	 * string if it doesn't declare any. */
+	String internalsHash = "";
+
+	TransformCacheSegment(String modId, Map<String, String> key) {
+		this.modId = modId;
+		this.key = new TreeMap<>(key);
+	}
+
+	/** @return A description of why this segment can't be reused, or null if it's compatible with the given key and
+	 *         mod set. This doesn't check {@link #dependencies}, since those can only be known once every other
+	 *         segment has been checked. */
+	@Nullable
+	String findDifference(Map<String, String> currentKey, Set<String> currentMods) {
+		for (Map.Entry<String, String> entry : currentKey.entrySet()) {
+			String old = key.get(entry.getKey());
+			if (old == null) {
+				return "Included '" + entry.getKey() + "': '" + entry.getValue() + "'";
+			} else if (!old.equals(entry.getValue())) {
+				return "Different '" + entry.getKey() + "': '" + old + "' -> '" + entry.getValue() + "'";
+			}
+		}
+
+		for (Map.Entry<String, String> entry : key.entrySet()) {
+			if (!currentKey.containsKey(entry.getKey())) {
+				return "Missing '" + entry.getKey() + "': '" + entry.getValue() + "'";
+			}
+		}
+
+		for (Map.Entry<String, Boolean> entry : requiredMods.entrySet()) {
+			if (currentMods.contains(entry.getKey()) != entry.getValue()) {
+				return "@Requires(\"" + entry.getKey() + "\") changed to " + !entry.getValue();
+			}
+		}
+
+		return null;
+	}
+
+	static Path getPath(Path cacheRoot, String modId) {
+		return cacheRoot.resolve(TransformCacheManager.SEGMENTS_FOLDER).resolve(modId + ".json");
+	}
+
+	void write(Path cacheRoot) throws IOException {
+		Path path = getPath(cacheRoot, modId);
+		FasterFiles.createDirectories(path.getParent());
+		try (JsonWriter json = JsonWriter.json(Files.newBufferedWriter(path))) {
+			json.setIndent(" ");
+			json.beginObject();
+			json.name("key");
+			writeStrings(json, key);
+			json.name("requires");
+			json.beginObject();
+			for (Map.Entry<String, Boolean> entry : requiredMods.entrySet()) {
+				json.name(entry.getKey());
+				json.value(entry.getValue());
+			}
+			json.endObject();
+			json.name("dependencies");
+			writeStrings(json, dependencies);
+			json.name("internals");
+			json.value(internalsHash);
+			json.name("hidden_classes");
+			writeStrings(json, hiddenClasses);
+			json.endObject();
+		}
+	}
+
+	/** @return The segment stored in the given cache, or null if it isn't present. */
+	@Nullable
+	static TransformCacheSegment read(Path cacheRoot, String modId) throws IOException {
+		Path path = getPath(cacheRoot, modId);
+		if (!FasterFiles.isRegularFile(path)) {
+			return null;
+		}
+
+		TransformCacheSegment segment = new TransformCacheSegment(modId, new TreeMap<>());
+		try (JsonReader reader = JsonReader.json(path)) {
+			reader.beginObject();
+			while (reader.peek() == JsonToken.NAME) {
+				String name = reader.nextName();
+				switch (name) {
+					case "key": {
+						readStrings(reader, segment.key);
+						break;
+					}
+					case "requires": {
+						reader.beginObject();
+						while (reader.peek() == JsonToken.NAME) {
+							segment.requiredMods.put(reader.nextName(), reader.nextBoolean());
+						}
+						reader.endObject();
+						break;
+					}
+					case "dependencies": {
+						readStrings(reader, segment.dependencies);
+						break;
+					}
+					case "internals": {
+						segment.internalsHash = reader.nextString();
+						break;
+					}
+					case "hidden_classes": {
+						readStrings(reader, segment.hiddenClasses);
+						break;
+					}
+					default: {
+						reader.skipValue();
+					}
+				}
+			}
+			reader.endObject();
+		}
+		return segment;
+	}
+
+	private static void writeStrings(JsonWriter json, Map<String, String> map) throws IOException {
+		json.beginObject();
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			json.name(entry.getKey());
+			json.value(entry.getValue());
+		}
+		json.endObject();
+	}
+
+	private static void readStrings(JsonReader reader, Map<String, String> to) throws IOException {
+		reader.beginObject();
+		while (reader.peek() == JsonToken.NAME) {
+			to.put(reader.nextName(), reader.nextString());
+		}
+		reader.endObject();
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.transformer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.SystemProperties;
+
+/** Runs independent tasks (generally one per class file) on a fixed number of threads while generating the transform
+ * cache. Tasks are handed out in list order, so the earliest tasks are always started first. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+public final class TransformWorkers {
+
+	private static final AtomicInteger POOL_INDEX = new AtomicInteger();
+
+	private TransformWorkers() {}
+
+	/** @return The number of threads to use, from {@link SystemProperties#TRANSFORM_CACHE_THREADS} (or the number of
+	 *         available processors if that's not set). 1 means everything runs on the calling thread. */
+	public static int getThreadCount() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		return Math.max(1, Integer.getInteger(SystemProperties.TRANSFORM_CACHE_THREADS, processors));
+	}
+
+	/** Runs the given task on every value, using at most threadCount threads. If any task throws an exception then no
+	 * more tasks are started, and the first exception is rethrown (with every other exception suppressed). */
+	public static <T> void forEach(List<T> values, int threadCount, Task<T> task) throws IOException {
+		int workerCount = Math.min(threadCount, values.size());
+		if (workerCount <= 1) {
+			for (T value : values) {
+				task.run(value);
+			}
+			return;
+		}
+
+		int poolIndex = POOL_INDEX.incrementAndGet();
+		AtomicInteger threadIndex = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(workerCount, r -> {
+			Thread thread = new Thread(r, "QuiltTransformer-" + poolIndex + "." + threadIndex.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		AtomicInteger next = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>(workerCount);
+		try {
+			for (int i = 0; i < workerCount; i++) {
+				futures.add(executor.submit(() -> {
+					int index;
+					while ((index = next.getAndIncrement()) < values.size()) {
+						try {
+							task.run(values.get(index));
+						} catch (Throwable t) {
+							// Stop every other worker as soon as possible
+							next.set(values.size());
+							throw t;
+						}
+					}
+					return null;
+				}));
+			}
+
+			Throwable exception = null;
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (exception == null) {
+						exception = e.getCause();
+					} else {
+						exception.addSuppressed(e.getCause());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while transforming classes", e);
+				}
+			}
+
+			if (exception instanceof IOException) {
+				throw (IOException) exception;
+			} else if (exception instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) exception).getCause();
+			} else if (exception instanceof RuntimeException) {
+				throw (RuntimeException) exception;
+			} else if (exception instanceof Error) {
+				throw (Error) exception;
+			} else if (exception != null) {
+				throw new RuntimeException(exception);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@FunctionalInterface
+	public interface Task<T> {
+		void run(T value) throws IOException;
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.api.FasterFiles;
+import org.quiltmc.loader.impl.util.log.Log;
+import org.quiltmc.loader.impl.util.log.LogCategory;
+
+/** Stores the hash of every file hashed by {@link FileHasherImpl}, so files which haven't changed since the previous
+ * launch don't need to be read again.
+ * <p>
+ * Each file is identified by its absolute path, size, last modified time, and file key (which is the device and inode
+ * on most unix systems). Files which weren't hashed during this launch are dropped when the cache is saved. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class FileHashCache {
+
+	/** Changed whenever the format or the hash algorithm changes. */
+	private static final String HEADER = "quilt-loader file hashes v1";
+
+	private final Path file;
+
+	/** Every entry read from {@link #file}, or null if it hasn't been read yet. */
+	private Map<String, Entry> previous;
+
+	/** Every entry which was used or added during this launch. */
+	private final Map<String, Entry> current = new HashMap<>();
+	private boolean changed = false;
+
+	FileHashCache(Path file) {
+		this.file = file;
+	}
+
+	/** @return The stored hash of the given file, or null if it isn't stored or the file has changed since. */
+	@Nullable
+	synchronized byte[] get(Path absolutePath, BasicFileAttributes attributes) {
+		if (previous == null) {
+			previous = read();
+		}
+
+		String key = absolutePath.toString();
+		Entry entry = current.get(key);
+		if (entry == null) {
+			entry = previous.get(key);
+		}
+
+		if (entry == null || !entry.stamp.equals(stampOf(attributes))) {
+			return null;
+		}
+
+		current.put(key, entry);
+		return Arrays.copyOf(entry.hash, entry.hash.length);
+	}
+
+	synchronized void put(Path absolutePath, BasicFileAttributes attributes, byte[] hash) {
+		String key = absolutePath.toString();
+		if (key.indexOf('\t') >= 0 || key.indexOf('\n') >= 0 || key.indexOf('\r') >= 0) {
+			return;
+		}
+		current.put(key, new Entry(stampOf(attributes), Arrays.copyOf(hash, hash.length)));
+		changed = true;
+	}
+
+	/** Writes every entry used during this launch, if that's different to the stored entries. */
+	synchronized void save() {
+		if (previous == null || (!changed && current.size() == previous.size())) {
+			return;
+		}
+
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			FasterFiles.createDirectories(file.getParent());
+			try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				writer.write(HEADER);
+				writer.write('\n');
+				for (Map.Entry<String, Entry> entry : current.entrySet()) {
+					writer.write(HashUtil.toHex(entry.getValue().hash));
+					writer.write('\t');
+					writer.write(entry.getValue().stamp);
+					writer.write('\t');
+					writer.write(entry.getKey());
+					writer.write('\n');
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to write the file hash cache " + file, e);
+			return;
+		}
+
+		previous = new HashMap<>(current);
+		changed = false;
+	}
+
+	private Map<String, Entry> read() {
+		Map<String, Entry> entries = new HashMap<>();
+		if (!FasterFiles.isRegularFile(file)) {
+			return entries;
+		}
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			if (!HEADER.equals(reader.readLine())) {
+				return entries;
+			}
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int first = line.indexOf('\t');
+				int second = first < 0 ? -1 : line.indexOf('\t', first + 1);
+				if (second < 0) {
+					continue;
+				}
+				byte[] hash = fromHex(line.substring(0, first));
+				if (hash == null) {
+					continue;
+				}
+				entries.put(line.substring(second + 1), new Entry(line.substring(first + 1, second), hash));
+			}
+		} catch (IOException e) {
+			Log.warn(LogCategory.CACHE, "Failed to read the file hash cache " + file, e);
+			entries.clear();
+		}
+
+		return entries;
+	}
+
+	private static String stampOf(BasicFileAttributes attributes) {
+		return attributes.size() + ":" + attributes.lastModifiedTime().toMillis() + ":" + attributes.fileKey();
+	}
+
+	@Nullable
+	private static byte[] fromHex(String hex) {
+		if (hex.length() != HashUtil.SHA1_HASH_LENGTH * 2) {
+			return null;
+		}
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			int high = Character.digit(hex.charAt(i * 2), 16);
+			int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+			if (high < 0 || low < 0) {
+				return null;
+			}
+			bytes[i] = (byte) ((high << 4) | low);
+		}
+		return bytes;
+	}
+
+	private static final class Entry {
+		final String stamp;
+		final byte[] hash;
+
+		Entry(String stamp, byte[] hash) {
+			this.stamp = stamp;
+			this.hash = hash;
+		}
+	}
+}
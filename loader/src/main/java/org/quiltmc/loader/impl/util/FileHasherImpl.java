@@ -19,26 +19,35 @@
 package org.quiltmc.loader.impl.util;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
+import org.jetbrains.annotations.Nullable;
 import org.quiltmc.loader.api.FasterFiles;
 import org.quiltmc.loader.api.plugin.solver.QuiltFileHasher;
+import org.quiltmc.loader.impl.transformer.TransformWorkers;
 
 @QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
 public class FileHasherImpl implements QuiltFileHasher {
 
 	public static final int HASH_LENGTH = HashUtil.SHA1_HASH_LENGTH;
 
+	private static final boolean DISABLE_PERSISTENT_CACHE = Boolean.getBoolean(SystemProperties.DISABLE_FILE_HASH_CACHE);
+
+	@Nullable
+	private static volatile FileHashCache persistentCache;
+
 	public final Map<Path, byte[]> pathHashCache = new ConcurrentHashMap<>();
 	private final Function<Path, Path> getParentPath;
 
@@ -46,6 +55,20 @@ public class FileHasherImpl implements QuiltFileHasher {
 		this.getParentPath = getParentPath;
 	}
 
+	/** Sets the file which stores the hashes of files in the default filesystem between launches, so files which
+	 * haven't changed don't need to be hashed again. Passing null disables the cache. */
+	public static void setPersistentCacheFile(@Nullable Path file) {
+		persistentCache = file == null || DISABLE_PERSISTENT_CACHE ? null : new FileHashCache(file);
+	}
+
+	/** Saves every hash computed (or reused) so far to the file passed to {@link #setPersistentCacheFile(Path)}. */
+	public static void savePersistentCache() {
+		FileHashCache cache = persistentCache;
+		if (cache != null) {
+			cache.save();
+		}
+	}
+
 	@Override
 	public int getHashLength() {
 		return HASH_LENGTH;
@@ -88,21 +111,46 @@ public class FileHasherImpl implements QuiltFileHasher {
 			return computeRecursiveHash0(path);
 		}
 
-		try {
-			hash = pathHashCache.computeIfAbsent(path, p2 -> {
-				try {
-					return HashUtil.computeHash(p2);
-				} catch (IOException e) {
-					throw new UncheckedIOException(e);
-				}
-			});
-		} catch (UncheckedIOException e) {
-			throw e.getCause();
+		hash = pathHashCache.get(path);
+		if (hash == null) {
+			// Not computed inside computeIfAbsent, since that would block every other path in the same bin
+			hash = computeFileHash(path);
+			byte[] existing = pathHashCache.putIfAbsent(path, hash);
+			if (existing != null) {
+				hash = existing;
+			}
 		}
 
 		return Arrays.copyOf(hash, HASH_LENGTH);
 	}
 
+	/** Computes the {@link #computeNormalHash(Path) normal hash} of every path, using several threads. The results are
+	 * kept in {@link #pathHashCache}, so later calls for the same paths return immediately. */
+	public void computeNormalHashes(Collection<Path> paths) throws IOException {
+		List<Path> list = new ArrayList<>(paths);
+		TransformWorkers.forEach(list, TransformWorkers.getThreadCount(), this::computeNormalHash);
+	}
+
+	private static byte[] computeFileHash(Path path) throws IOException {
+		FileHashCache cache = persistentCache;
+		if (cache == null || path.getFileSystem() != FileSystems.getDefault()) {
+			return HashUtil.computeHash(path);
+		}
+
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		if (!attributes.isRegularFile()) {
+			return HashUtil.computeHash(path);
+		}
+
+		Path absolute = path.toAbsolutePath().normalize();
+		byte[] hash = cache.get(absolute, attributes);
+		if (hash == null) {
+			hash = HashUtil.computeHash(path);
+			cache.put(absolute, attributes, hash);
+		}
+		return hash;
+	}
+
 	private static byte[] computeRecursiveHash0(Path path) throws IOException {
 		final byte[] hash = new byte[HASH_LENGTH];
 
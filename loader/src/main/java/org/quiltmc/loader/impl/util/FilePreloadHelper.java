@@ -20,6 +20,7 @@ package org.quiltmc.loader.impl.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.MappedByteBuffer;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -67,6 +68,18 @@ public class FilePreloadHelper {
 				}
 			}
 
+			if (MappedFiles.ENABLED) {
+				try {
+					// Only the page cache matters, so the mapping itself is thrown away
+					for (MappedByteBuffer chunk : MappedFiles.map(next)) {
+						chunk.load();
+					}
+				} catch (IOException e) {
+					Log.warn(LogCategory.CACHE, "Unable to preload " + next, e);
+				}
+				continue;
+			}
+
 			try (InputStream stream = Files.newInputStream(next, StandardOpenOption.READ)) {
 
 				while (stream.read(buffer) > 0) {
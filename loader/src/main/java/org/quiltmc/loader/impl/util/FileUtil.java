@@ -30,6 +30,10 @@ public final class FileUtil {
 	/** Reads all bytes from the given {@link InputStream}. On java 9 and above this calls the "readAllBytes()" method
 	 * in InputStream. */
 	public static byte[] readAllBytes(InputStream from) throws IOException {
+		if (from instanceof FullyReadableInputStream) {
+			return ((FullyReadableInputStream) from).readAllBytes();
+		}
+
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		byte[] buffer = new byte[4096];
 
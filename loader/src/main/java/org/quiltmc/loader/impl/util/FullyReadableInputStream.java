@@ -0,0 +1,30 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.util;
+
+import java.io.IOException;
+
+/** Implemented by {@link java.io.InputStream}s which know their exact length, and so can read everything that's left
+ * directly into a correctly sized array. Used by {@link FileUtil#readAllBytes(java.io.InputStream)}. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+public interface FullyReadableInputStream {
+
+	/** Reads every remaining byte from this stream. This has the same signature (and contract) as the java 9
+	 * InputStream.readAllBytes method, which implementing streams override on java 9 and above. */
+	byte[] readAllBytes() throws IOException;
+}
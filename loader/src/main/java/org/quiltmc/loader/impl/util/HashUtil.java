@@ -20,9 +20,14 @@ package org.quiltmc.loader.impl.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -33,27 +38,72 @@ public class HashUtil {
 
 	public static final int SHA1_HASH_LENGTH = 20;
 
+	/** Files in the default filesystem which are at least this large are memory mapped (if
+	 * {@link MappedFiles#ENABLED}) rather than read into {@link #BUFFERS}. */
+	private static final long MAP_THRESHOLD = 1 << 20;
+
+	/** {@link MessageDigest#getInstance(String)} is fairly slow, and mod hashing can happen on several threads at
+	 * once, so each thread keeps its own digest. */
+	private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(HashUtil::createDigest);
+	private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[0x10000]);
+
 	public static byte[] computeHash(Path path) throws IOException {
 		if (FasterFiles.isDirectory(path)) {
 			path = path.toAbsolutePath();
 			return computeHash(path.toString());
-		} else {
-			final byte[] readCache = new byte[0x2000];
+		}
 
-			try (InputStream is = Files.newInputStream(path)) {
-				MessageDigest digest = createDigest();
-				int count;
-				while ((count = is.read(readCache)) > 0) {
-					digest.update(readCache, 0, count);
-				}
+		MessageDigest digest = DIGESTS.get();
+		digest.reset();
 
-				return digest.digest();
+		if (path.getFileSystem() == FileSystems.getDefault()) {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				if (MappedFiles.ENABLED && channel.size() >= MAP_THRESHOLD) {
+					for (MappedByteBuffer chunk : MappedFiles.map(path)) {
+						digest.update(chunk);
+					}
+				} else {
+					ByteBuffer buffer = ByteBuffer.wrap(BUFFERS.get());
+					while (channel.read(buffer) >= 0) {
+						buffer.flip();
+						digest.update(buffer);
+						buffer.clear();
+					}
+				}
+			}
+		} else {
+			try (InputStream is = Files.newInputStream(path)) {
+				update(digest, is);
 			}
 		}
+
+		return digest.digest();
+	}
+
+	/** Hashes everything remaining in the given stream, without closing it. */
+	public static byte[] computeHash(InputStream stream) throws IOException {
+		MessageDigest digest = DIGESTS.get();
+		digest.reset();
+		update(digest, stream);
+		return digest.digest();
+	}
+
+	private static void update(MessageDigest digest, InputStream stream) throws IOException {
+		byte[] buffer = BUFFERS.get();
+		int count;
+		while ((count = stream.read(buffer)) > 0) {
+			digest.update(buffer, 0, count);
+		}
 	}
 
 	public static byte[] computeHash(String text) {
-		return createDigest().digest(text.getBytes(StandardCharsets.UTF_8));
+		return computeHash(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static byte[] computeHash(byte[] bytes) {
+		MessageDigest digest = DIGESTS.get();
+		digest.reset();
+		return digest.digest(bytes);
 	}
 
 	public static String hashToString(byte[] hash) {
@@ -68,6 +118,16 @@ public class HashUtil {
 		return sb.toString();
 	}
 
+	/** @return The given bytes as lowercase hex, always using two characters per byte. */
+	public static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+			chars[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+		}
+		return new String(chars);
+	}
+
 	private static MessageDigest createDigest() {
 		try {
 			return MessageDigest.getInstance("SHA-1");
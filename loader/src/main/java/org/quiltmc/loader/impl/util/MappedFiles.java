@@ -0,0 +1,59 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/** Helpers for reading files through read-only {@link MappedByteBuffer}s.
+ * <p>
+ * Java 8 has no way to unmap a buffer, so a mapping lasts until the buffer is garbage collected. Windows doesn't allow
+ * mapped files to be replaced or deleted, so mapping is disabled there, since the transform cache replaces files that
+ * it has previously read. It's also disabled on 32-bit JVMs, which don't have enough address space to map every mod. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+public final class MappedFiles {
+
+	/** Every chunk except the last is exactly this long. */
+	public static final int CHUNK_SHIFT = 30;
+	public static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+	public static final boolean ENABLED = !Boolean.getBoolean(SystemProperties.DISABLE_MAPPED_FILES)
+		&& !System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win")
+		&& !"32".equals(System.getProperty("sun.arch.data.model"));
+
+	private MappedFiles() {}
+
+	/** Maps the whole file, split into chunks of {@link #CHUNK_SIZE} since a single buffer can't be larger than 2GB.
+	 * The mapping remains valid after this returns, even though the channel is closed. */
+	public static MappedByteBuffer[] map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			int count = (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+			MappedByteBuffer[] chunks = new MappedByteBuffer[count];
+			for (int i = 0; i < count; i++) {
+				long start = (long) i << CHUNK_SHIFT;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+			}
+			return chunks;
+		}
+	}
+}
@@ -48,6 +48,10 @@ public final class SystemProperties {
 	public static final String DEBUG_MOD_SOLVING = "loader.debug.mod_solving";
 	public static final String PRINT_MOD_SOLVING_RESULTS = "loader.mod_solving.print_results";
 	public static final String DISABLE_MOD_SOLVING_PRE_PROCESSING = "loader.mod_solving.disable_pre_processor";
+	// always run sat4j, rather than reusing the solution of an identical set of rules from a previous launch
+	public static final String DISABLE_MOD_SOLVING_CACHE = "loader.mod_solving.disable_cache";
+	// number of independent sub problems which are optimised at the same time (defaults to the number of processors)
+	public static final String MOD_SOLVING_THREADS = "loader.mod_solving.threads";
 	public static final String MODS_DIRECTORY = "loader.modsDir";
 	public static final String CACHE_DIRECTORY = "loader.cacheDir";
 	public static final String CONFIG_DIRECTORY = "loader.configDir";
@@ -95,13 +99,39 @@ public final class SystemProperties {
 	public static final String DISABLE_OPTIMIZED_COMPRESSED_TRANSFORM_CACHE = "loader.transform_cache.disable_optimised_compression";
 	public static final String DISABLE_PRELOAD_TRANSFORM_CACHE = "loader.transform_cache.disable_preload";
 	public static final String LOG_CACHE_KEY_CHANGES = "loader.transform_cache.log_changed_keys";
+	public static final String DISABLE_INCREMENTAL_TRANSFORM_CACHE = "loader.transform_cache.disable_incremental";
+	public static final String TRANSFORM_CACHE_THREADS = "loader.transform_cache.threads";
+	public static final String DISABLE_PATCH_CACHE = "loader.transform_cache.disable_patch_cache";
+	// stores classes after mixin has been applied, skipping mixin for them on later launches
+	// NOTE: mixin config plugins aren't invoked for classes loaded from this cache
+	public static final String ENABLE_MIXIN_CLASS_CACHE = "loader.mixin_cache.enable";
+	// fraction (0 to 1) of cached classes which are transformed by mixin anyway and compared to the cached version
+	public static final String MIXIN_CLASS_CACHE_VALIDATE_FRACTION = "loader.mixin_cache.validate_fraction";
 	// enable useTempFile in ZipFileSystem, reduces memory usage when writing transform cache at the cost of speed
 	public static final String USE_ZIPFS_TEMP_FILE = "loader.zipfs.use_temp_file";
+	// always read every entry of a zip to find its contents, rather than reading the zip's central directory
+	public static final String DISABLE_ZIP_CENTRAL_DIRECTORY = "loader.zipfs.disable_central_directory";
+	// read zips and preload files through FileChannels rather than memory mapping them
+	public static final String DISABLE_MAPPED_FILES = "loader.zipfs.disable_mmap";
 	public static final String DISABLE_BEACON = "loader.disable_beacon";
 	public static final String DEBUG_DUMP_FILESYSTEM_CONTENTS = "loader.debug.filesystem.dump_contents";
 	public static final String ALWAYS_DEFER_FILESYSTEM_OPERATIONS = "loader.workaround.defer_all_filesystem_operations";
 	public static final String DISABLE_QUILT_CLASS_PATH_CUSTOM_TABLE = "loader.quilt_class_path.disable_custom_table";
+	// always scan zips added to the class path, rather than reusing the files found by a previous launch
+	public static final String DISABLE_QUILT_CLASS_PATH_SCAN_CACHE = "loader.quilt_class_path.disable_scan_cache";
 	public static final String DISABLE_BUILTIN_MIXIN_EXTRAS = "loader.disable_builtin_mixin_extras";
+	// don't record the startup timeline, either as JFR events or as a trace file in the cache folder
+	public static final String DISABLE_STARTUP_TIMELINE = "loader.startup_timeline.disable";
+	// don't count or time the classes loaded by knot
+	public static final String DISABLE_CLASS_LOADING_METRICS = "loader.class_loading_metrics.disable";
+	// register the class loading metrics with the platform MBean server, as dev.tomat.fable:type=ClassLoadingMetrics
+	public static final String CLASS_LOADING_METRICS_JMX = "loader.class_loading_metrics.jmx";
+	// the number of worker threads used to scan mod files, unless single_threaded_loading is set in the loader config
+	public static final String DISCOVERY_THREADS = "loader.discovery.threads";
+	// always hash every mod file, rather than reusing the hashes of unchanged files from the previous launch
+	public static final String DISABLE_FILE_HASH_CACHE = "loader.file_hash_cache.disable";
+	// always parse quilt.mod.json files, rather than reusing the parsed form of unchanged files from the previous launch
+	public static final String DISABLE_MOD_METADATA_CACHE = "loader.mod_metadata_cache.disable";
 	/** whether the loader should display unsupported mods with the GUI or ignore and continue starting up the game. */
 	public static final String IGNORE_UNSUPPORTED_MODS = "loader.ignore_unsupported_mods";
 
@@ -0,0 +1,429 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.util.mappings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.impl.util.MappedFiles;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.Descriptored;
+import net.fabricmc.mapping.tree.TinyTree;
+
+/** A read-only copy of a {@link TinyTree}, stored in a single {@link ByteBuffer} (usually a memory mapped file in the
+ * loader cache) rather than as objects. Every class, field, and method is sorted by its name in every namespace, so
+ * lookups are a binary search over the buffer.
+ * <p>
+ * The format is a header, followed by:
+ * <ol>
+ * <li>The string id of every namespace.</li>
+ * <li>The end offset of every string, relative to the start of the string data.</li>
+ * <li>The name of every class, in every namespace.</li>
+ * <li>For every namespace, every class index sorted by name.</li>
+ * <li>The owner class, names, and descriptors of every field, then every field index sorted by owner, name, and
+ * descriptor (for every namespace).</li>
+ * <li>The same for methods.</li>
+ * <li>The UTF-8 bytes of every string.</li>
+ * </ol>
+ * All names use internal ("/") class names, exactly as they are stored in the tree. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+public final class CompiledMappings {
+
+	private static final int MAGIC = 0x514D4150; // "QMAP"
+	private static final int VERSION = 1;
+	private static final int HEADER_LENGTH = 7 * 4;
+
+	private final ByteBuffer buffer;
+	private final List<String> namespaces;
+	private final int classCount;
+	private final int stringOffsets;
+	private final int stringData;
+	private final int classNames;
+	private final int classIndex;
+
+	public final Members fields;
+	public final Members methods;
+
+	private CompiledMappings(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a compiled mappings file (or an older version)");
+		}
+
+		int namespaceCount = buffer.getInt(8);
+		classCount = buffer.getInt(12);
+		int fieldCount = buffer.getInt(16);
+		int methodCount = buffer.getInt(20);
+		int stringCount = buffer.getInt(24);
+
+		int pos = HEADER_LENGTH;
+		int namespaceIds = pos;
+		pos += namespaceCount * 4;
+		stringOffsets = pos;
+		pos += stringCount * 4;
+		classNames = pos;
+		pos += classCount * namespaceCount * 4;
+		classIndex = pos;
+		pos += classCount * namespaceCount * 4;
+		fields = new Members(pos, fieldCount, namespaceCount);
+		pos = fields.end;
+		methods = new Members(pos, methodCount, namespaceCount);
+		pos = methods.end;
+		stringData = pos;
+
+		int stringLength = stringCount == 0 ? 0 : buffer.getInt(stringOffsets + (stringCount - 1) * 4);
+		if (stringData + stringLength != buffer.capacity()) {
+			throw new IOException("Compiled mappings has the wrong length - it's probably corrupt!");
+		}
+
+		String[] names = new String[namespaceCount];
+		for (int i = 0; i < namespaceCount; i++) {
+			names[i] = getString(buffer.getInt(namespaceIds + i * 4));
+		}
+		namespaces = Collections.unmodifiableList(Arrays.asList(names));
+	}
+
+	/** Reads compiled mappings from the given file, which must not be modified afterwards. */
+	public static CompiledMappings open(Path file) throws IOException {
+		if (MappedFiles.ENABLED) {
+			return new CompiledMappings(MappedFiles.map(file)[0]);
+		} else {
+			return new CompiledMappings(ByteBuffer.wrap(Files.readAllBytes(file)));
+		}
+	}
+
+	/** Reads compiled mappings from the output of {@link #compile(TinyTree)}. */
+	public static CompiledMappings read(byte[] compiled) throws IOException {
+		return new CompiledMappings(ByteBuffer.wrap(compiled));
+	}
+
+	public List<String> getNamespaces() {
+		return namespaces;
+	}
+
+	/** @return The index of the given namespace, or -1 if these mappings don't contain it. */
+	public int getNamespaceIndex(String namespace) {
+		return namespaces.indexOf(namespace);
+	}
+
+	public int getClassCount() {
+		return classCount;
+	}
+
+	public String getClassName(int classIndex, int namespace) {
+		return getString(classNameId(classIndex, namespace));
+	}
+
+	/** @return The name of the given class in the "to" namespace, or null if the class isn't mapped. */
+	@Nullable
+	public String mapClassName(int from, int to, String className) {
+		int index = findClass(from, utf8(className));
+		return index < 0 ? null : getClassName(index, to);
+	}
+
+	/** @return The index of the class with the given name, or -1 if it isn't present. */
+	private int findClass(int namespace, byte[] name) {
+		int sorted = classIndex + namespace * classCount * 4;
+		int low = 0;
+		int high = classCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int index = buffer.getInt(sorted + mid * 4);
+			int cmp = compare(classNameId(index, namespace), name);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	private int classNameId(int classIndex, int namespace) {
+		return buffer.getInt(classNames + (classIndex * namespaces.size() + namespace) * 4);
+	}
+
+	private String getString(int id) {
+		int start = id == 0 ? 0 : buffer.getInt(stringOffsets + (id - 1) * 4);
+		int end = buffer.getInt(stringOffsets + id * 4);
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(stringData + start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/** Compares the given string with the key, as unsigned UTF-8 bytes. */
+	private int compare(int id, byte[] key) {
+		int start = id == 0 ? 0 : buffer.getInt(stringOffsets + (id - 1) * 4);
+		int end = buffer.getInt(stringOffsets + id * 4);
+		int length = end - start;
+		int common = Math.min(length, key.length);
+		for (int i = 0; i < common; i++) {
+			int cmp = Byte.toUnsignedInt(buffer.get(stringData + start + i)) - Byte.toUnsignedInt(key[i]);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return length - key.length;
+	}
+
+	private static byte[] utf8(String str) {
+		return str.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/** Either the fields or the methods of every class. */
+	public final class Members {
+		private final int count;
+		private final int data;
+		private final int index;
+		final int end;
+
+		Members(int start, int count, int namespaceCount) {
+			this.count = count;
+			this.data = start;
+			this.index = data + count * (1 + namespaceCount * 2) * 4;
+			this.end = index + count * namespaceCount * 4;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		/** @return The index of the class which contains the given member. */
+		public int getOwner(int member) {
+			return buffer.getInt(data + member * (1 + namespaces.size() * 2) * 4);
+		}
+
+		public String getName(int member, int namespace) {
+			return getString(nameId(member, namespace));
+		}
+
+		public String getDescriptor(int member, int namespace) {
+			return getString(descriptorId(member, namespace));
+		}
+
+		private int nameId(int member, int namespace) {
+			return buffer.getInt(data + (member * (1 + namespaces.size() * 2) + 1 + namespace) * 4);
+		}
+
+		private int descriptorId(int member, int namespace) {
+			return buffer.getInt(data + (member * (1 + namespaces.size() * 2) + 1 + namespaces.size() + namespace) * 4);
+		}
+
+		/** @return The name of the given member in the "to" namespace, or null if the member isn't mapped. */
+		@Nullable
+		public String map(int from, int to, String owner, String name, String descriptor) {
+			int member = find(from, utf8(owner), utf8(name), utf8(descriptor));
+			return member < 0 ? null : getName(member, to);
+		}
+
+		private int find(int namespace, byte[] owner, byte[] name, byte[] descriptor) {
+			int sorted = index + namespace * count * 4;
+			int low = 0;
+			int high = count - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int member = buffer.getInt(sorted + mid * 4);
+				int cmp = compare(classNameId(getOwner(member), namespace), owner);
+				if (cmp == 0) {
+					cmp = compare(nameId(member, namespace), name);
+					if (cmp == 0) {
+						cmp = compare(descriptorId(member, namespace), descriptor);
+					}
+				}
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return member;
+				}
+			}
+			return -1;
+		}
+	}
+
+	// Compiling
+
+	/** Converts the given tree into the format read by {@link #read(byte[])} and {@link #open(Path)}. */
+	public static byte[] compile(TinyTree tree) throws IOException {
+		List<String> namespaces = tree.getMetadata().getNamespaces();
+		int namespaceCount = namespaces.size();
+		StringTable strings = new StringTable();
+
+		int[] namespaceIds = new int[namespaceCount];
+		for (int i = 0; i < namespaceCount; i++) {
+			namespaceIds[i] = strings.add(namespaces.get(i));
+		}
+
+		List<int[]> classes = new ArrayList<>();
+		List<int[]> fields = new ArrayList<>();
+		List<int[]> methods = new ArrayList<>();
+		for (ClassDef classDef : tree.getClasses()) {
+			int owner = classes.size();
+			int[] names = new int[namespaceCount];
+			for (int i = 0; i < namespaceCount; i++) {
+				names[i] = strings.add(classDef.getName(namespaces.get(i)));
+			}
+			classes.add(names);
+			addMembers(classDef.getFields(), owner, namespaces, strings, fields);
+			addMembers(classDef.getMethods(), owner, namespaces, strings, methods);
+		}
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(baos);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(namespaceCount);
+		out.writeInt(classes.size());
+		out.writeInt(fields.size());
+		out.writeInt(methods.size());
+		out.writeInt(strings.values.size());
+
+		for (int id : namespaceIds) {
+			out.writeInt(id);
+		}
+
+		int stringEnd = 0;
+		for (byte[] value : strings.values) {
+			stringEnd += value.length;
+			out.writeInt(stringEnd);
+		}
+
+		for (int[] names : classes) {
+			for (int name : names) {
+				out.writeInt(name);
+			}
+		}
+
+		for (int ns = 0; ns < namespaceCount; ns++) {
+			int namespace = ns;
+			Comparator<int[]> byName = (a, b) -> strings.compare(a[namespace], b[namespace]);
+			writeSorted(out, classes, byName);
+		}
+
+		writeMembers(out, fields, classes, strings, namespaceCount);
+		writeMembers(out, methods, classes, strings, namespaceCount);
+
+		for (byte[] value : strings.values) {
+			out.write(value);
+		}
+
+		out.flush();
+		return baos.toByteArray();
+	}
+
+	private static void addMembers(Iterable<? extends Descriptored> members, int owner, List<String> namespaces,
+		StringTable strings, List<int[]> to) {
+
+		int namespaceCount = namespaces.size();
+		for (Descriptored member : members) {
+			int[] data = new int[1 + namespaceCount * 2];
+			data[0] = owner;
+			for (int i = 0; i < namespaceCount; i++) {
+				data[1 + i] = strings.add(member.getName(namespaces.get(i)));
+				data[1 + namespaceCount + i] = strings.add(member.getDescriptor(namespaces.get(i)));
+			}
+			to.add(data);
+		}
+	}
+
+	private static void writeMembers(DataOutputStream out, List<int[]> members, List<int[]> classes,
+		StringTable strings, int namespaceCount) throws IOException {
+
+		for (int[] data : members) {
+			for (int value : data) {
+				out.writeInt(value);
+			}
+		}
+
+		for (int ns = 0; ns < namespaceCount; ns++) {
+			int namespace = ns;
+			Comparator<int[]> order = (a, b) -> {
+				int cmp = strings.compare(classes.get(a[0])[namespace], classes.get(b[0])[namespace]);
+				if (cmp == 0) {
+					cmp = strings.compare(a[1 + namespace], b[1 + namespace]);
+				}
+				if (cmp == 0) {
+					cmp = strings.compare(a[1 + namespaceCount + namespace], b[1 + namespaceCount + namespace]);
+				}
+				return cmp;
+			};
+			writeSorted(out, members, order);
+		}
+	}
+
+	/** Writes the index of every value in the list, sorted by the given order. */
+	private static void writeSorted(DataOutputStream out, List<int[]> values, Comparator<int[]> order)
+		throws IOException {
+
+		Integer[] indices = new Integer[values.size()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = i;
+		}
+		Arrays.sort(indices, (a, b) -> order.compare(values.get(a), values.get(b)));
+		for (int index : indices) {
+			out.writeInt(index);
+		}
+	}
+
+	private static final class StringTable {
+		final Map<String, Integer> ids = new HashMap<>();
+		final List<byte[]> values = new ArrayList<>();
+
+		int add(@Nullable String value) {
+			String str = value == null ? "" : value;
+			return ids.computeIfAbsent(str, s -> {
+				values.add(utf8(s));
+				return values.size() - 1;
+			});
+		}
+
+		int compare(int a, int b) {
+			byte[] left = values.get(a);
+			byte[] right = values.get(b);
+			int common = Math.min(left.length, right.length);
+			for (int i = 0; i < common; i++) {
+				int cmp = Byte.toUnsignedInt(left[i]) - Byte.toUnsignedInt(right[i]);
+				if (cmp != 0) {
+					return cmp;
+				}
+			}
+			return left.length - right.length;
+		}
+	}
+}
@@ -52,4 +52,30 @@ public class TinyRemapperMappingsHelper {
 			}
 		};
 	}
+
+	public static IMappingProvider create(CompiledMappings mappings, String from, String to) {
+		int fromIndex = mappings.getNamespaceIndex(from);
+		int toIndex = mappings.getNamespaceIndex(to);
+		if (fromIndex < 0 || toIndex < 0) {
+			throw new IllegalArgumentException("Unknown namespace: " + (fromIndex < 0 ? from : to) + " (we know about " + mappings.getNamespaces() + ")");
+		}
+
+		return (acceptor) -> {
+			for (int i = 0; i < mappings.getClassCount(); i++) {
+				acceptor.acceptClass(mappings.getClassName(i, fromIndex), mappings.getClassName(i, toIndex));
+			}
+
+			CompiledMappings.Members fields = mappings.fields;
+			for (int i = 0; i < fields.getCount(); i++) {
+				String className = mappings.getClassName(fields.getOwner(i), fromIndex);
+				acceptor.acceptField(memberOf(className, fields.getName(i, fromIndex), fields.getDescriptor(i, fromIndex)), fields.getName(i, toIndex));
+			}
+
+			CompiledMappings.Members methods = mappings.methods;
+			for (int i = 0; i < methods.getCount(); i++) {
+				String className = mappings.getClassName(methods.getOwner(i), fromIndex);
+				acceptor.acceptMethod(memberOf(className, methods.getName(i, fromIndex), methods.getDescriptor(i, fromIndex)), methods.getName(i, toIndex));
+			}
+		};
+	}
 }
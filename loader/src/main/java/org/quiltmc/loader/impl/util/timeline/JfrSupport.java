@@ -0,0 +1,63 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.util.timeline;
+
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline.Span;
+
+import jdk.jfr.FlightRecorder;
+
+/** Keeps every reference to jdk.jfr out of {@link StartupTimeline}, since it's missing on older java 8 versions and
+ * on jvms which don't include the jdk.jfr module.
+ * <p>
+ * Events are only used if JFR was already started (normally by -XX:StartFlightRecording), since loading the first
+ * event class initialises JFR, which takes a few hundred milliseconds. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class JfrSupport {
+
+	private static final boolean AVAILABLE = StartupTimeline.ENABLED && checkAvailable();
+
+	private JfrSupport() {}
+
+	private static boolean checkAvailable() {
+		try {
+			Class.forName("jdk.jfr.FlightRecorder", false, JfrSupport.class.getClassLoader());
+			// Loading any event class is enough to initialise JFR, so StartupSpanEvent can't be touched yet
+			return FlightRecorder.isInitialized();
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/** @return A started event, or null if JFR isn't available. */
+	@Nullable
+	static Object begin() {
+		return AVAILABLE ? StartupSpanEvent.start() : null;
+	}
+
+	static void commit(Object event, Span span) {
+		((StartupSpanEvent) event).commit(span);
+	}
+
+	/** @return True if a JFR recording is currently recording startup spans. */
+	static boolean isRecording() {
+		return AVAILABLE && StartupSpanEvent.isRecording();
+	}
+}
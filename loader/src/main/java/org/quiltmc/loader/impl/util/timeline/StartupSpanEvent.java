@@ -0,0 +1,103 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.util.timeline;
+
+import java.util.Map;
+
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline.Span;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** The JFR event for a single {@link Span}. This is only loaded by {@link JfrSupport} once it knows that JFR is
+ * present. */
+@Name("org.quiltmc.loader.StartupSpan")
+@Label("Startup Span")
+@Category({ "Quilt Loader", "Startup" })
+@Description("A single phase of the loader's startup, from the startup timeline")
+@StackTrace(false)
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class StartupSpanEvent extends Event {
+
+	@Label("Name")
+	String name;
+
+	@Label("Path")
+	@Description("Every enclosing span name, separated by '/'")
+	String path;
+
+	@Label("Detail")
+	String detail;
+
+	@Label("CPU Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long cpuTime;
+
+	@Label("Allocated")
+	@DataAmount(DataAmount.BYTES)
+	long allocated;
+
+	@Label("Thread Count")
+	int threadCount;
+
+	@Label("Values")
+	String values;
+
+	static boolean isRecording() {
+		return new StartupSpanEvent().isEnabled();
+	}
+
+	static StartupSpanEvent start() {
+		StartupSpanEvent event = new StartupSpanEvent();
+		event.begin();
+		return event;
+	}
+
+	void commit(Span span) {
+		end();
+		if (!shouldCommit()) {
+			return;
+		}
+
+		name = span.name;
+		path = span.path();
+		detail = span.detail;
+		cpuTime = span.cpuNanos;
+		allocated = span.allocatedBytes;
+		threadCount = span.threadCount;
+		if (span.values != null) {
+			StringBuilder sb = new StringBuilder();
+			for (Map.Entry<String, Long> entry : span.values.entrySet()) {
+				if (sb.length() > 0) {
+					sb.append(", ");
+				}
+				sb.append(entry.getKey()).append('=').append(entry.getValue());
+			}
+			values = sb.toString();
+		}
+		commit();
+	}
+}
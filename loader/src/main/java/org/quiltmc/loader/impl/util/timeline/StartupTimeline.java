@@ -0,0 +1,292 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.util.timeline;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.SystemProperties;
+import org.quiltmc.loader.impl.util.log.Log;
+import org.quiltmc.loader.impl.util.log.LogCategory;
+
+/** Records how long each phase of startup takes, as a tree of named {@link Span}s. Spans nest per-thread: a span
+ * begun while another span is open on the same thread becomes its child.
+ * <p>
+ * Every span is also emitted as a JFR event (if JFR was started alongside the jvm), and once
+ * {@link #setOutputFolder(Path)} has been called each {@link #flush()} writes every finished span as a chrome trace
+ * file - unless JFR is currently recording, since the events already show up there. Trace files can be opened in
+ * chrome://tracing or <a href="https://ui.perfetto.dev">perfetto</a>.
+ * <p>
+ * Recording can be turned off with {@link SystemProperties#DISABLE_STARTUP_TIMELINE}. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+public final class StartupTimeline {
+
+	static final boolean ENABLED = !Boolean.getBoolean(SystemProperties.DISABLE_STARTUP_TIMELINE);
+
+	/** Every span is timed relative to this, so that the trace starts at 0. */
+	static final long START_NANOS = System.nanoTime();
+	static final long START_MILLIS = System.currentTimeMillis();
+
+	private static final Span DISABLED = new Span();
+	private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+	private static final Queue<Span> FINISHED = new ConcurrentLinkedQueue<>();
+
+	private static volatile Path outputFolder;
+
+	static {
+		if (ENABLED) {
+			Counters.init();
+		}
+	}
+
+	private StartupTimeline() {}
+
+	/** Begins a new span, which ends when it's closed. Spans must be closed in the reverse order they were begun in,
+	 * even if an exception is thrown, so this should always be followed by a try block which closes the span in its
+	 * finally block (or a try-with-resources block, if the span is used inside it). */
+	public static Span begin(String name) {
+		return begin(name, null);
+	}
+
+	/** @param detail Additional text to show alongside the span, for example the file or mod that's being processed.
+	 * @see #begin(String) */
+	public static Span begin(String name, @Nullable String detail) {
+		if (!ENABLED) {
+			return DISABLED;
+		}
+
+		Span span = new Span(CURRENT.get(), name, detail);
+		CURRENT.set(span);
+		return span;
+	}
+
+	/** Sets the folder where trace files are written, which isn't known until the game directory is. */
+	public static void setOutputFolder(@Nullable Path folder) {
+		outputFolder = folder;
+	}
+
+	/** Writes every span which has finished so far to this launch's trace file, replacing the previous contents.
+	 * Spans which are still open are left out until the next flush. */
+	public static void flush() {
+		Path folder = outputFolder;
+		if (!ENABLED || folder == null || JfrSupport.isRecording()) {
+			return;
+		}
+
+		List<Span> spans = new ArrayList<>(FINISHED);
+		synchronized (StartupTimeline.class) {
+			try {
+				TraceFileWriter.write(folder, spans);
+			} catch (Exception e) {
+				Log.warn(LogCategory.GENERAL, "Failed to write the startup timeline to " + folder, e);
+			}
+		}
+	}
+
+	/** A single named phase. All of the counters are only measured on the thread that began the span, so a span
+	 * which waits for other threads will have a low cpu time. */
+	@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+	public static final class Span implements AutoCloseable {
+		final @Nullable Span parent;
+		final String name;
+		final @Nullable String detail;
+		final String threadName;
+		final long threadId;
+
+		final long startNanos;
+		final long startCpuNanos;
+		final long startAllocatedBytes;
+
+		long endNanos = -1;
+		/** -1 if the jvm can't measure thread cpu time. */
+		long cpuNanos = -1;
+		/** -1 if the jvm can't measure thread allocations. */
+		long allocatedBytes = -1;
+		int threadCount;
+
+		/** Additional counters, such as the total time spent in some sub-step which happens many times. */
+		@Nullable
+		Map<String, Long> values;
+
+		private final @Nullable Object jfrEvent;
+
+		/** Constructor for {@link StartupTimeline#DISABLED} */
+		private Span() {
+			this.parent = null;
+			this.name = "disabled";
+			this.detail = null;
+			this.threadName = "";
+			this.threadId = 0;
+			this.startNanos = 0;
+			this.startCpuNanos = 0;
+			this.startAllocatedBytes = 0;
+			this.jfrEvent = null;
+		}
+
+		Span(@Nullable Span parent, String name, @Nullable String detail) {
+			this.parent = parent;
+			this.name = name;
+			this.detail = detail;
+			Thread thread = Thread.currentThread();
+			this.threadName = thread.getName();
+			this.threadId = thread.getId();
+			this.startCpuNanos = Counters.cpuTime();
+			this.startAllocatedBytes = Counters.allocatedBytes(threadId);
+			this.jfrEvent = JfrSupport.begin();
+			this.startNanos = System.nanoTime();
+		}
+
+		/** Sets the value of a counter which is shown alongside this span. */
+		public Span set(String key, long value) {
+			if (this != DISABLED) {
+				if (values == null) {
+					values = new LinkedHashMap<>();
+				}
+				values.put(key, value);
+			}
+			return this;
+		}
+
+		/** Adds to the value of a counter which is shown alongside this span, starting from 0. */
+		public Span add(String key, long value) {
+			if (this != DISABLED) {
+				if (values == null) {
+					values = new LinkedHashMap<>();
+				}
+				values.merge(key, value, Long::sum);
+			}
+			return this;
+		}
+
+		/** @return Every span name from the root to this span, separated by "/". */
+		String path() {
+			return parent == null ? name : parent.path() + "/" + name;
+		}
+
+		@Override
+		public void close() {
+			if (this == DISABLED || endNanos >= 0) {
+				return;
+			}
+
+			endNanos = System.nanoTime();
+			long cpu = Counters.cpuTime();
+			if (cpu >= 0 && startCpuNanos >= 0) {
+				cpuNanos = cpu - startCpuNanos;
+			}
+			long allocated = Counters.allocatedBytes(threadId);
+			if (allocated >= 0 && startAllocatedBytes >= 0) {
+				allocatedBytes = allocated - startAllocatedBytes;
+			}
+			threadCount = Counters.threadCount();
+
+			if (CURRENT.get() == this) {
+				if (parent == null) {
+					CURRENT.remove();
+				} else {
+					CURRENT.set(parent);
+				}
+			}
+
+			FINISHED.add(this);
+
+			if (jfrEvent != null) {
+				JfrSupport.commit(jfrEvent, this);
+			}
+		}
+	}
+
+	/** Per-thread counters, which are only read if the jvm supports them. Looking up the {@link ThreadMXBean} takes
+	 * tens of milliseconds on newer jvms, so that happens on a separate thread, and any span which begins before it
+	 * finishes won't have cpu time or allocation counts. */
+	static final class Counters {
+		private static volatile Counters instance;
+
+		private final ThreadMXBean threads;
+		private final boolean cpuTime;
+		private final boolean allocations;
+		final long jvmStartMillis;
+
+		private Counters(ThreadMXBean threads) {
+			this.threads = threads;
+			this.jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+			this.cpuTime = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+			this.allocations = AllocationCounter.isEnabled(threads);
+		}
+
+		static void init() {
+			Thread thread = new Thread(() -> {
+				try {
+					instance = new Counters(ManagementFactory.getThreadMXBean());
+				} catch (LinkageError | RuntimeException e) {
+					// Either java.management isn't present, or this isn't a hotspot jvm
+					Log.debug(LogCategory.GENERAL, "Thread counters aren't available for the startup timeline", e);
+				}
+			}, "StartupTimeline Counters");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		/** @return The time the jvm started at, in milliseconds since the epoch, or -1 if it's not known yet. */
+		static long jvmStartMillis() {
+			Counters counters = instance;
+			return counters != null ? counters.jvmStartMillis : -1;
+		}
+
+		static long cpuTime() {
+			Counters counters = instance;
+			return counters != null && counters.cpuTime ? counters.threads.getCurrentThreadCpuTime() : -1;
+		}
+
+		static long allocatedBytes(long threadId) {
+			Counters counters = instance;
+			return counters != null && counters.allocations ? AllocationCounter.get(counters.threads, threadId) : -1;
+		}
+
+		static int threadCount() {
+			Counters counters = instance;
+			return counters != null ? counters.threads.getThreadCount() : Thread.activeCount();
+		}
+	}
+
+	/** Separate from {@link Counters} so that a missing com.sun.management doesn't prevent the other counters from
+	 * working. */
+	static final class AllocationCounter {
+		static boolean isEnabled(ThreadMXBean threads) {
+			if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+				return false;
+			}
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+			return sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled();
+		}
+
+		static long get(ThreadMXBean threads, long threadId) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadId);
+		}
+	}
+}
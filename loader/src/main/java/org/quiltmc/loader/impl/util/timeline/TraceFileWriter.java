@@ -0,0 +1,182 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.util.timeline;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.quiltmc.loader.impl.QuiltLoaderImpl;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternal;
+import org.quiltmc.loader.impl.util.QuiltLoaderInternalType;
+import org.quiltmc.loader.impl.util.timeline.StartupTimeline.Span;
+import org.quiltmc.parsers.json.JsonWriter;
+
+import dev.tomat.fable.impl.FableLoaderImpl;
+
+/** Writes spans in the chrome "trace event" json format, as one complete ("X") event per span. Each launch writes to
+ * its own file, named after the time it started (in milliseconds since the epoch, which is quicker than formatting a
+ * date), and only the newest {@link #MAX_FILES} are kept. */
+@QuiltLoaderInternal(QuiltLoaderInternalType.NEW_INTERNAL)
+final class TraceFileWriter {
+
+	static final int MAX_FILES = 10;
+	static final String PREFIX = "launch-";
+	static final String SUFFIX = ".json";
+
+	private static final String FILE_NAME = PREFIX + StartupTimeline.START_MILLIS + SUFFIX;
+
+	private static Path lastFolder;
+
+	private TraceFileWriter() {}
+
+	/** Only called while synchronized on {@link StartupTimeline}. */
+	static void write(Path folder, List<Span> spans) throws IOException {
+		Files.createDirectories(folder);
+		if (!folder.equals(lastFolder)) {
+			lastFolder = folder;
+			deleteOldFiles(folder);
+		}
+
+		Path file = folder.resolve(FILE_NAME);
+		// Files.createTempFile is avoided since seeding its random number generator is surprisingly slow
+		Path temp = folder.resolve(FILE_NAME + ".tmp");
+		try {
+			try (JsonWriter json = JsonWriter.json(Files.newBufferedWriter(temp))) {
+				writeTrace(json, spans);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static void writeTrace(JsonWriter json, List<Span> spans) throws IOException {
+		json.beginObject();
+		json.name("displayTimeUnit");
+		json.value("ms");
+		json.name("otherData");
+		json.beginObject();
+		json.name("loader_version");
+		json.value(QuiltLoaderImpl.VERSION);
+		json.name("fable_version");
+		json.value(FableLoaderImpl.VERSION);
+		json.name("launch_time");
+		json.value(StartupTimeline.START_MILLIS);
+		long jvmStart = StartupTimeline.Counters.jvmStartMillis();
+		if (jvmStart >= 0) {
+			json.name("jvm_start_time");
+			json.value(jvmStart);
+		}
+		json.endObject();
+
+		json.name("traceEvents");
+		json.beginArray();
+
+		Map<Long, String> threads = new HashMap<>();
+		for (Span span : spans) {
+			threads.put(span.threadId, span.threadName);
+		}
+		for (Map.Entry<Long, String> entry : threads.entrySet()) {
+			json.beginObject();
+			json.name("name");
+			json.value("thread_name");
+			json.name("ph");
+			json.value("M");
+			json.name("pid");
+			json.value(0);
+			json.name("tid");
+			json.value(entry.getKey());
+			json.name("args");
+			json.beginObject();
+			json.name("name");
+			json.value(entry.getValue());
+			json.endObject();
+			json.endObject();
+		}
+
+		for (Span span : spans) {
+			json.beginObject();
+			json.name("name");
+			json.value(span.name);
+			json.name("cat");
+			json.value("loader");
+			json.name("ph");
+			json.value("X");
+			json.name("ts");
+			json.value((span.startNanos - StartupTimeline.START_NANOS) / 1000.0);
+			json.name("dur");
+			json.value((span.endNanos - span.startNanos) / 1000.0);
+			json.name("pid");
+			json.value(0);
+			json.name("tid");
+			json.value(span.threadId);
+			json.name("args");
+			json.beginObject();
+			if (span.detail != null) {
+				json.name("detail");
+				json.value(span.detail);
+			}
+			if (span.cpuNanos >= 0) {
+				json.name("cpu_time_ms");
+				json.value(span.cpuNanos / 1_000_000.0);
+			}
+			if (span.allocatedBytes >= 0) {
+				json.name("allocated_bytes");
+				json.value(span.allocatedBytes);
+			}
+			json.name("thread_count");
+			json.value(span.threadCount);
+			if (span.values != null) {
+				for (Map.Entry<String, Long> entry : span.values.entrySet()) {
+					json.name(entry.getKey());
+					json.value(entry.getValue().longValue());
+				}
+			}
+			json.endObject();
+			json.endObject();
+		}
+
+		json.endArray();
+		json.endObject();
+	}
+
+	private static void deleteOldFiles(Path folder) throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, PREFIX + "*" + SUFFIX)) {
+			for (Path path : stream) {
+				if (!path.getFileName().toString().equals(FILE_NAME)) {
+					files.add(path);
+				}
+			}
+		}
+
+		// Names start with the launch time, so they sort oldest first
+		Collections.sort(files);
+		for (int i = 0; i < files.size() - (MAX_FILES - 1); i++) {
+			Files.deleteIfExists(files.get(i));
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.launch.knot;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.tree.ClassNode;
+import org.quiltmc.loader.impl.util.FileUtil;
+
+public class MixinClassCacheTest {
+
+	private static final String REFERENCED = "org/quiltmc/loader/impl/launch/knot/MixinClassCacheTest$Referenced";
+
+	@Test
+	public void findsReferencedClass() throws IOException {
+		byte[] bytes = readClass(Sample.class);
+		assertTrue(MixinClassCache.referencesClass(bytes, REFERENCED::equals));
+		assertFalse(MixinClassCache.referencesClass(bytes, "org/quiltmc/loader/impl/launch/knot/Missing"::equals));
+	}
+
+	@Test
+	public void onlyPassesReferencedClassNames() throws IOException {
+		for (Class<?> cls : new Class<?>[] { Sample.class, MixinClassCacheTest.class, MixinClassCache.class }) {
+			byte[] bytes = readClass(cls);
+			Set<String> expected = visitClassNames(bytes);
+			Set<String> scanned = new HashSet<>();
+			assertFalse(MixinClassCache.referencesClass(bytes, name -> {
+				scanned.add(name);
+				return false;
+			}));
+
+			assertTrue(scanned.contains(cls.getName().replace('.', '/')), cls + " doesn't reference itself");
+			for (String name : scanned) {
+				assertTrue(expected.contains(name), "Unexpected class name '" + name + "' in " + cls);
+			}
+		}
+	}
+
+	/** @return Every internal name that ASM passes to a remapper while visiting the whole class. */
+	static Set<String> visitClassNames(byte[] bytes) {
+		Set<String> names = new HashSet<>();
+		// The remapper only visits the code of methods which the delegate visits too
+		ClassVisitor visitor = new ClassRemapper(new ClassNode(), new Remapper() {
+			@Override
+			public String map(String internalName) {
+				names.add(internalName);
+				return internalName;
+			}
+
+			@Override
+			public String mapType(String internalName) {
+				// Array classes are stored in the constant pool by their descriptor
+				if (internalName != null && internalName.startsWith("[")) {
+					names.add(internalName);
+				}
+				return super.mapType(internalName);
+			}
+		});
+		new ClassReader(bytes).accept(visitor, 0);
+		return names;
+	}
+
+	static byte[] readClass(Class<?> cls) throws IOException {
+		String resource = "/" + cls.getName().replace('.', '/') + ".class";
+		try (InputStream stream = cls.getResourceAsStream(resource)) {
+			return FileUtil.readAllBytes(stream);
+		}
+	}
+
+	static final class Referenced {}
+
+	static final class Sample {
+		Object create() {
+			return new Referenced();
+		}
+	}
+}
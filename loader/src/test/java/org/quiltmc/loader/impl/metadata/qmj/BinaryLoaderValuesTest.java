@@ -0,0 +1,166 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.metadata.qmj;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.quiltmc.json5.JsonReader;
+import org.quiltmc.json5.exception.ParseException;
+import org.quiltmc.loader.api.LoaderValue;
+
+public class BinaryLoaderValuesTest {
+
+	private static final String QUILT_MOD_JSON = "{\n"
+		+ "  \"schema_version\": 1,\n"
+		+ "  \"quilt_loader\": {\n"
+		+ "    \"group\": \"org.example\",\n"
+		+ "    \"id\": \"example\",\n"
+		+ "    \"version\": \"1.0.0\",\n"
+		+ "    \"metadata\": { \"name\": \"Example \\u00e9 \\ud83d\\ude00\", \"contributors\": {} },\n"
+		+ "    \"depends\": [ \"quilt_loader\", { \"id\": \"minecraft\", \"versions\": \">=1.20\", \"optional\": false } ],\n"
+		+ "    \"entrypoints\": { \"init\": [] }\n"
+		+ "  },\n"
+		+ "  \"custom\": {\n"
+		+ "    \"ints\": [ 0, -1, 2147483647, -2147483648 ],\n"
+		+ "    \"longs\": [ 2147483648, -9223372036854775808 ],\n"
+		+ "    \"decimals\": [ 0.5, -1e10, 1.7976931348623157E308 ],\n"
+		+ "    \"big\": [ 123456789012345678901234567890, 0.1234567890123456789012345678901234567890 ],\n"
+		+ "    \"other\": [ null, true, false, \"\" ],\n"
+		+ "    \"nested\": { \"a\": { \"b\": [ [ [] ] ] } }\n"
+		+ "  }\n"
+		+ "}\n";
+
+	private static final String JSON5 = "{\n"
+		+ "  hex: 0x1F,\n"
+		+ "  negative_hex: -0xFF,\n"
+		+ "  infinities: [ Infinity, -Infinity ],\n"
+		+ "  nan: NaN,\n"
+		+ "  leading: .5,\n"
+		+ "  trailing: 5.,\n"
+		+ "  positive: +1,\n"
+		+ "}\n";
+
+	@Test
+	public void roundTripMatchesFreshParse() throws IOException, ParseException {
+		try (JsonReader reader = JsonReader.json(new StringReader(QUILT_MOD_JSON))) {
+			assertRoundTrip(JsonLoaderValue.read(reader));
+		}
+	}
+
+	@Test
+	public void roundTripMatchesFreshJson5Parse() throws IOException, ParseException {
+		try (JsonReader reader = JsonReader.json5(new StringReader(JSON5))) {
+			assertRoundTrip(JsonLoaderValue.read(reader));
+		}
+	}
+
+	@Test
+	public void roundTripKeepsNumberTypes() throws IOException {
+		Map<String, LoaderValue> map = new LinkedHashMap<>();
+		Number[] numbers = { 1, 2L, 3.5, 4.5f, (short) 5, (byte) 6, new BigInteger("123456789012345678901234567890"),
+			new BigDecimal("0.1234567890123456789012345678901234567890"), Double.NaN, Float.NEGATIVE_INFINITY };
+		for (int i = 0; i < numbers.length; i++) {
+			map.put("n" + i, new JsonLoaderValue.NumberImpl("$.n" + i, numbers[i]));
+		}
+		assertRoundTrip(new JsonLoaderValue.ObjectImpl("$", map));
+	}
+
+	@Test
+	public void encodeRejectsUnknownNumbers() {
+		JsonLoaderValue value = new JsonLoaderValue.NumberImpl("$", new AtomicInteger(1));
+		assertThrows(IOException.class, () -> BinaryLoaderValues.encode(value));
+	}
+
+	/** A broken number must be rejected by decode, rather than when the array holding it is first accessed. */
+	@Test
+	public void decodeChecksNumbers() throws IOException {
+		Map<String, LoaderValue> map = new LinkedHashMap<>();
+		map.put("list", new JsonLoaderValue.ArrayImpl("$.list", Collections.singletonList(
+			new JsonLoaderValue.NumberImpl("$.list[0]", new BigDecimal("1.5"))
+		)));
+		byte[] bytes = BinaryLoaderValues.encode(new JsonLoaderValue.ObjectImpl("$", map));
+		replace(bytes, "1.5", "0x5");
+		assertThrows(IllegalArgumentException.class, () -> BinaryLoaderValues.decode(ByteBuffer.wrap(bytes)));
+	}
+
+	private static void assertRoundTrip(JsonLoaderValue expected) throws IOException {
+		byte[] bytes = BinaryLoaderValues.encode(expected);
+		assertSameValue(expected, BinaryLoaderValues.decode(ByteBuffer.wrap(bytes)));
+	}
+
+	private static void assertSameValue(LoaderValue expected, LoaderValue actual) {
+		assertEquals(expected.type(), actual.type(), expected.location());
+		assertEquals(expected.location(), actual.location());
+		switch (expected.type()) {
+			case OBJECT: {
+				assertEquals(expected.asObject().keySet(), actual.asObject().keySet(), expected.location());
+				for (Map.Entry<String, LoaderValue> entry : expected.asObject().entrySet()) {
+					assertSameValue(entry.getValue(), actual.asObject().get(entry.getKey()));
+				}
+				break;
+			}
+			case ARRAY: {
+				assertEquals(expected.asArray().size(), actual.asArray().size(), expected.location());
+				Iterator<LoaderValue> actualValues = actual.asArray().iterator();
+				for (LoaderValue value : expected.asArray()) {
+					assertSameValue(value, actualValues.next());
+				}
+				break;
+			}
+			case NUMBER: {
+				// The json reader's own number class might not implement equals
+				assertEquals(expected.asNumber().getClass(), actual.asNumber().getClass(), expected.location());
+				assertEquals(expected.asNumber().toString(), actual.asNumber().toString(), expected.location());
+				break;
+			}
+			default: {
+				assertEquals(expected, actual);
+				break;
+			}
+		}
+	}
+
+	private static void replace(byte[] bytes, String from, String to) {
+		byte[] fromBytes = from.getBytes(StandardCharsets.UTF_8);
+		byte[] toBytes = to.getBytes(StandardCharsets.UTF_8);
+		search: for (int i = 0; i <= bytes.length - fromBytes.length; i++) {
+			for (int j = 0; j < fromBytes.length; j++) {
+				if (bytes[i + j] != fromBytes[j]) {
+					continue search;
+				}
+			}
+			System.arraycopy(toBytes, 0, bytes, i, toBytes.length);
+			return;
+		}
+		throw new AssertionError("Didn't find " + from);
+	}
+}
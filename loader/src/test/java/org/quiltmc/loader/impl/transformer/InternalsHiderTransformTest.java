@@ -0,0 +1,161 @@
+/*
+ * Fable - quilt-/fabric-loader fork; <https://github.com/steviegt6/fable>
+ * Copyright (C) 2024  Tomat et al.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.quiltmc.loader.impl.transformer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.tree.ClassNode;
+import org.quiltmc.loader.impl.util.FileUtil;
+
+public class InternalsHiderTransformTest {
+
+	private static final Class<?>[] CLASSES = { Sample.class, InternalsHiderTransform.class, TransformCacheGenerator.class };
+
+	/** The constant pool scan must find at least the packages that the visitor based pass (which the scan replaced)
+	 * collected, otherwise classes which need rewriting could be skipped. */
+	@Test
+	public void scanFindsEveryPackageTheVisitorFinds() throws IOException {
+		InternalsHiderTransform transform = new InternalsHiderTransform(InternalsHiderTransform.Target.MOD);
+		for (Class<?> cls : CLASSES) {
+			byte[] bytes = readClass(cls);
+			Set<String> scanned = transform.scanReferences(null, new ClassReader(bytes));
+			Set<String> visited = visitReferencedPackages(bytes);
+			assertTrue(!visited.isEmpty(), "Nothing visited in " + cls);
+			for (String pkg : visited) {
+				assertTrue(scanned.contains(pkg), "The scan of " + cls + " didn't find the package '" + pkg + "' in " + scanned);
+			}
+		}
+	}
+
+	@Test
+	public void scanOnlyFindsReferencedPackages() throws IOException {
+		InternalsHiderTransform transform = new InternalsHiderTransform(InternalsHiderTransform.Target.MOD);
+		for (Class<?> cls : CLASSES) {
+			byte[] bytes = readClass(cls);
+			Set<String> scanned = transform.scanReferences(null, new ClassReader(bytes));
+			Set<String> expected = new HashSet<>();
+			for (String name : visitClassNames(bytes)) {
+				addPackage(expected, name);
+			}
+			for (String pkg : scanned) {
+				assertTrue(expected.contains(pkg), "Unexpected package '" + pkg + "' in " + cls);
+			}
+		}
+	}
+
+	/** @return The packages that {@link InternalsHiderTransform#run(org.quiltmc.loader.api.plugin.solver.ModLoadOption,
+	 *         byte[])} used to collect: the super types, and the owner of every field and method instruction. */
+	static Set<String> visitReferencedPackages(byte[] bytes) {
+		ClassReader reader = new ClassReader(bytes);
+		String className = reader.getClassName();
+		Set<String> packages = new HashSet<>();
+		addPackage(packages, reader.getSuperName());
+		for (String itf : reader.getInterfaces()) {
+			addPackage(packages, itf);
+		}
+		reader.accept(new ClassVisitor(Opcodes.ASM9) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				return new MethodVisitor(api) {
+					@Override
+					public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+						if (!owner.equals(className)) {
+							addPackage(packages, owner);
+						}
+					}
+
+					@Override
+					public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+						if (!owner.equals(className)) {
+							addPackage(packages, owner);
+						}
+					}
+				};
+			}
+		}, 0);
+		return packages;
+	}
+
+	/** @return Every internal name that ASM passes to a remapper while visiting the whole class. */
+	static Set<String> visitClassNames(byte[] bytes) {
+		Set<String> names = new HashSet<>();
+		// The remapper only visits the code of methods which the delegate visits too
+		ClassVisitor visitor = new ClassRemapper(new ClassNode(), new Remapper() {
+			@Override
+			public String map(String internalName) {
+				names.add(internalName);
+				return internalName;
+			}
+		});
+		new ClassReader(bytes).accept(visitor, 0);
+		return names;
+	}
+
+	/** Adds the package of the given class, using the element type of arrays like the scan does. */
+	static void addPackage(Set<String> packages, String owner) {
+		if (owner == null) {
+			return;
+		}
+		if (owner.startsWith("[")) {
+			int start = owner.indexOf('L');
+			if (start < 0) {
+				return;
+			}
+			owner = owner.substring(start + 1, owner.length() - 1);
+		}
+		int lastSlash = owner.lastIndexOf('/');
+		packages.add(lastSlash > 0 ? owner.substring(0, lastSlash) : "");
+	}
+
+	static byte[] readClass(Class<?> cls) throws IOException {
+		String resource = "/" + cls.getName().replace('.', '/') + ".class";
+		try (InputStream stream = cls.getResourceAsStream(resource)) {
+			return FileUtil.readAllBytes(stream);
+		}
+	}
+
+	static final class Sample implements Supplier<List<String>> {
+		String[] names = { "a", "b" };
+		int[] counts = { 1, 2 };
+
+		@Override
+		public List<String> get() {
+			List<String> list = new ArrayList<>();
+			for (String name : names.clone()) {
+				list.add(name);
+			}
+			System.out.println(counts.clone().length);
+			return list;
+		}
+	}
+}
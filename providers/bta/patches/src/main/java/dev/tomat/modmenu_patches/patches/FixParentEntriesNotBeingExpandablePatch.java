@@ -19,6 +19,7 @@ package dev.tomat.modmenu_patches.patches;
 
 import dev.tomat.fable.api.patching.Patch;
 import dev.tomat.fable.api.patching.PatchContext;
+import dev.tomat.fable.api.patching.PatchTarget;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodNode;
 
@@ -27,11 +28,17 @@ import org.objectweb.asm.tree.MethodNode;
  */
 public final class FixParentEntriesNotBeingExpandablePatch extends Patch {
 	@Override
-	public void process(PatchContext context) {
-		if (!context.getClassName().equals("io.github.prospector.modmenu.gui.EntryListWidget")) {
-			return;
-		}
+	public boolean isDeterministic() {
+		return true;
+	}
 
+	@Override
+	public PatchTarget getTarget() {
+		return PatchTarget.classes("io.github.prospector.modmenu.gui.EntryListWidget");
+	}
+
+	@Override
+	public void process(PatchContext context) {
 		ClassNode entryListWidget = context.getClassNode();
 		MethodNode mouseClicked = findMethod(entryListWidget, method -> method.name.equals("mouseClicked"));
 
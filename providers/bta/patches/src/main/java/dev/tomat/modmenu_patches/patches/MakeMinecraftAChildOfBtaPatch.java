@@ -20,6 +20,7 @@ package dev.tomat.modmenu_patches.patches;
 import com.google.common.collect.LinkedListMultimap;
 import dev.tomat.fable.api.patching.Patch;
 import dev.tomat.fable.api.patching.PatchContext;
+import dev.tomat.fable.api.patching.PatchTarget;
 
 import net.fabricmc.loader.api.FabricLoader;
 import net.fabricmc.loader.api.ModContainer;
@@ -40,11 +41,17 @@ import java.util.ListIterator;
  */
 public final class MakeMinecraftAChildOfBtaPatch extends Patch {
 	@Override
-	public void process(PatchContext context) {
-		if (!context.getClassName().equals("io.github.prospector.modmenu.util.HardcodedUtil")) {
-			return;
-		}
+	public boolean isDeterministic() {
+		return true;
+	}
 
+	@Override
+	public PatchTarget getTarget() {
+		return PatchTarget.classes("io.github.prospector.modmenu.util.HardcodedUtil");
+	}
+
+	@Override
+	public void process(PatchContext context) {
 		ClassNode hardcodedUtil = context.getClassNode();
 		MethodNode hardcodeModuleMetadata = findMethod(hardcodedUtil, method -> method.name.equals("hardcodeModuleMetadata"));
 
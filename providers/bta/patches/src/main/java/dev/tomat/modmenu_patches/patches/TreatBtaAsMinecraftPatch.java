@@ -17,8 +17,12 @@
 
 package dev.tomat.modmenu_patches.patches;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import dev.tomat.fable.api.patching.Patch;
 import dev.tomat.fable.api.patching.PatchContext;
+import dev.tomat.fable.api.patching.PatchTarget;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.LdcInsnNode;
@@ -32,25 +36,31 @@ import org.objectweb.asm.tree.MethodNode;
  * Minecraft like a regular Babric instance.
  */
 public final class TreatBtaAsMinecraftPatch extends Patch {
-	private static final String[] CANDIDATES = {
-			"io.github.prospector.modmenu.util.BadgeRenderer::draw",
-			"io.github.prospector.modmenu.ModMenu::onInitialize",
-			"io.github.prospector.modmenu.gui.ModListEntry::createIcon",
-			"io.github.prospector.modmenu.util.HardcodedUtil::initializeHardcodings",
-	};
+	private static final Map<String, String> CANDIDATES = new HashMap<>();
+
+	static {
+		CANDIDATES.put("io.github.prospector.modmenu.util.BadgeRenderer", "draw");
+		CANDIDATES.put("io.github.prospector.modmenu.ModMenu", "onInitialize");
+		CANDIDATES.put("io.github.prospector.modmenu.gui.ModListEntry", "createIcon");
+		CANDIDATES.put("io.github.prospector.modmenu.util.HardcodedUtil", "initializeHardcodings");
+	}
 
 	@Override
-	public void process(PatchContext context) {
-		for (String candidate : CANDIDATES) {
-			String[] parts = candidate.split("::");
+	public boolean isDeterministic() {
+		return true;
+	}
 
-			if (parts.length != 2) {
-				continue;
-			}
+	@Override
+	public PatchTarget getTarget() {
+		return PatchTarget.classes(CANDIDATES.keySet().toArray(new String[0]));
+	}
 
-			if (context.getClassName().equals(parts[0])) {
-				processCandidate(context, parts[1]);
-			}
+	@Override
+	public void process(PatchContext context) {
+		String methodName = CANDIDATES.get(context.getClassName());
+
+		if (methodName != null) {
+			processCandidate(context, methodName);
 		}
 	}
 
@@ -70,6 +80,8 @@ public final class TreatBtaAsMinecraftPatch extends Patch {
 			patched = true;
 		}
 
-		context.setPatched(patched);
+		if (patched) {
+			context.setPatched(true);
+		}
 	}
 }